@@ -1,7 +1,10 @@
 package org.odata4j.consumer;
 
+import java.io.Closeable;
 import java.net.URLDecoder;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.core4j.Enumerable;
 import org.core4j.Func;
@@ -21,9 +24,30 @@ import org.odata4j.internal.InternalUtil;
 
 /**
  * Query-request implementation.
+ *
+ * <p>{@link #execute()} reads each page completely and closes its response before the entries of
+ * the page are handed out, so a result that is not iterated to its end holds no connection.
+ * {@link #stream()} parses the entries of each page while its response is read, in constant
+ * memory, and keeps the response open until the last entry or until the stream is closed.</p>
  */
 public class ConsumerQueryEntitiesRequest<T> extends AbstractConsumerQueryRequestBase<T> {
 
+  /**
+   * The entities of all pages of a streamed query. Close it when it is not iterated to its end, to
+   * release the response being read.
+   *
+   * @param <T>  the entity representation as a java type
+   */
+  public interface EntityStream<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Closes the response being read, if any; the stream ends.
+     */
+    @Override
+    void close();
+
+  }
+
   private final Class<T> entityType;
 
   public ConsumerQueryEntitiesRequest(ODataClient client, Class<T> entityType, String serviceRootUri, EdmDataServices metadata, String entitySetName) {
@@ -33,67 +57,165 @@ public class ConsumerQueryEntitiesRequest<T> extends AbstractConsumerQueryReques
 
   @Override
   public Enumerable<T> execute() throws ODataProducerException {
-    ODataClientRequest request = buildRequest(null);
-    Enumerable<Entry> entries = getEntries(request);
+    final ODataClientRequest request = buildRequest(null);
+    final Page firstPage = readPage(request, false);
+    Enumerable<Entry> entries = Enumerable.createFromIterator(new Func<Iterator<Entry>>() {
+      public Iterator<Entry> apply() {
+        return new EntryIterator(request, firstPage, false);
+      }
+    });
 
     return entries.select(new Func1<Entry, T>() {
       public T apply(Entry input) {
-        return InternalUtil.toEntity(entityType, input.getEntity());
+        return toEntity(input);
       }
     }).cast(entityType);
   }
 
-  private Enumerable<Entry> getEntries(final ODataClientRequest request) throws ODataProducerException {
-    final Feed feed = doRequest(request);
-    return Enumerable.createFromIterator(new Func<Iterator<Entry>>() {
-      public Iterator<Entry> apply() {
-        return new EntryIterator(request, feed);
+  /**
+   * Streams the entities of the query. The first page is requested when the stream is first
+   * advanced, and each page is parsed while its response is read.
+   *
+   * @return the entities of all pages
+   * @throws ODataProducerException  error from the producer, thrown while iterating
+   */
+  public EntityStream<T> stream() {
+    final EntryIterator entries = new EntryIterator(buildRequest(null), null, true);
+    return new EntityStream<T>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
       }
-    });
+
+      @Override
+      public T next() {
+        return toEntity(entries.next());
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void close() {
+        entries.close();
+      }
+    };
   }
 
-  private Feed doRequest(ODataClientRequest request) throws ODataProducerException {
+  private T toEntity(Entry entry) {
+    return InternalUtil.toEntity(entityType, entry.getEntity());
+  }
+
+  /**
+   * Requests a page, reading all of its entries and closing its response unless it is streamed.
+   */
+  private Page readPage(ODataClientRequest request, boolean streaming) throws ODataProducerException {
     ODataClientResponse response = getClient().getEntities(request);
+    Feed feed = parseFeed(response);
+    if (streaming)
+      return new Page(feed, null, response);
+
+    List<Entry> entries = new ArrayList<Entry>();
+    try {
+      for (Entry entry : feed.getEntries())
+        entries.add(entry);
+      // the properties that follow the entries, as the next link, are parsed before closing as well
+      feed.getNext();
+    } finally {
+      response.close();
+    }
+    return new Page(feed, entries, null);
+  }
 
+  private Feed parseFeed(ODataClientResponse response) throws ODataProducerException {
     ODataVersion version = InternalUtil.getDataServiceVersion(response.getHeaders()
         .getFirst(ODataConstants.Headers.DATA_SERVICE_VERSION));
 
     FormatParser<Feed> parser = FormatParserFactory.getParser(Feed.class, getClient().getFormatType(),
         new Settings(version, getMetadata(), getEntitySet().getName(), null));
 
-    Feed feed = parser.parse(getClient().getFeedReader(response));
-    response.close();
-    return feed;
+    try {
+      return parser.parse(getClient().getFeedReader(response));
+    } catch (RuntimeException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  /**
+   * A page of a feed: its entries read into a list, or the response they are parsed from.
+   */
+  private static class Page {
+
+    final Feed feed;
+    final List<Entry> entries;
+    final ODataClientResponse response;
+
+    Page(Feed feed, List<Entry> entries, ODataClientResponse response) {
+      this.feed = feed;
+      this.entries = entries;
+      this.response = response;
+    }
+
+    Iterator<Entry> iterator() {
+      return entries != null ? entries.iterator() : feed.getEntries().iterator();
+    }
   }
 
+  /**
+   * Iterates over the entries of all pages, requesting each page after the last entry of the
+   * previous one. The response of a streamed page is closed after its last entry, on an error, or
+   * by {@link #close()}.
+   */
   private class EntryIterator extends ReadOnlyIterator<Entry> {
 
+    private final boolean streaming;
     private ODataClientRequest request;
+    private ODataClientResponse response;
     private Feed feed;
     private Iterator<Entry> feedEntries;
     private int feedEntryCount;
+    private boolean closed;
 
-    public EntryIterator(ODataClientRequest request, Feed feed) {
+    public EntryIterator(ODataClientRequest request, Page firstPage, boolean streaming) {
       this.request = request;
-      this.feed = feed;
-      feedEntries = feed.getEntries().iterator();
+      this.streaming = streaming;
+      if (firstPage != null)
+        setPage(firstPage);
+    }
+
+    private void setPage(Page page) {
+      feed = page.feed;
+      response = page.response;
+      feedEntries = page.iterator();
       feedEntryCount = 0;
     }
 
     @Override
     protected IterationResult<Entry> advance() throws Exception {
+      if (closed)
+        return IterationResult.done();
 
-      if (feed == null) {
-        feed = doRequest(request);
-        feedEntries = feed.getEntries().iterator();
-        feedEntryCount = 0;
-      }
+      if (feed == null)
+        setPage(readPage(request, streaming));
 
-      if (feedEntries.hasNext()) {
+      boolean hasNext;
+      try {
+        hasNext = feedEntries.hasNext();
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+      if (hasNext) {
         feedEntryCount++;
         return IterationResult.next(feedEntries.next());
       }
 
+      // the feed has been read to its end
+      closeResponse();
+
       // old-style paging: $page and $itemsPerPage
       if (request.getQueryParams().containsKey("$page") && request.getQueryParams().containsKey("$itemsPerPage")) {
         if (feedEntryCount == 0)
@@ -129,6 +251,18 @@ public class ConsumerQueryEntitiesRequest<T> extends AbstractConsumerQueryReques
       return advance(); // TODO stackoverflow possible here
     }
 
+    public void close() {
+      closed = true;
+      closeResponse();
+    }
+
+    private void closeResponse() {
+      if (response != null) {
+        response.close();
+        response = null;
+      }
+    }
+
   }
 
 }
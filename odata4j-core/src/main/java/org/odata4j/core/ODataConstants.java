@@ -31,6 +31,8 @@ public class ODataConstants {
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String USER_AGENT = "User-Agent";
     public static final String IF_MATCH = "If-Match";
+    public static final String PREFER = "Prefer";
+    public static final String PREFERENCE_APPLIED = "Preference-Applied";
   }
 
   /** Common character sets. */
@@ -0,0 +1,184 @@
+package org.odata4j.edm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.odata4j.core.Throwables;
+import org.odata4j.format.xml.EdmxFormatParser;
+import org.odata4j.format.xml.EdmxFormatWriter;
+import org.odata4j.stax2.util.StaxUtil;
+
+/**
+ * Keeps the metadata generated by another {@link EdmGenerator} in a file as EDMX, so that it need
+ * not be generated again on startup.
+ *
+ * <p>The file holds a fingerprint of the model, see {@link #fingerprint(Iterable, Object...)}, and
+ * the cached metadata is only used if the fingerprint is unchanged. The decorator is applied when
+ * the metadata is generated; its class should be part of the fingerprint. Only what EDMX can
+ * express is kept.</p>
+ *
+ * <p>Without a file, the metadata is always generated.</p>
+ */
+public class CachedEdmGenerator implements EdmGenerator {
+
+  private static final Logger log = Logger.getLogger(CachedEdmGenerator.class.getName());
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final EdmGenerator generator;
+  private final File file;
+  private final String fingerprint;
+
+  /**
+   * Creates the generator.
+   *
+   * @param generator  the generator of the metadata
+   * @param file  the file, or null for none
+   * @param fingerprint  the fingerprint of the model the metadata is generated from
+   */
+  public CachedEdmGenerator(EdmGenerator generator, File file, String fingerprint) {
+    this.generator = generator;
+    this.file = file;
+    this.fingerprint = fingerprint;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public EdmDataServices.Builder generateEdm(EdmDecorator decorator) {
+    if (file == null)
+      return generator.generateEdm(decorator);
+
+    EdmDataServices cached = read();
+    if (cached != null)
+      return EdmDataServices.newBuilder(cached);
+
+    EdmDataServices metadata = generator.generateEdm(decorator).build();
+    write(metadata);
+    return EdmDataServices.newBuilder(metadata);
+  }
+
+  /**
+   * Computes a fingerprint over classes, their superclasses, and settings of the generator.
+   *
+   * <p>The names, types and annotations of the declared fields and methods of the classes are
+   * included, as they make up the generated properties; method bodies are not.</p>
+   *
+   * @param classes  the classes of the model
+   * @param settings  the settings, included by their string values
+   * @return the fingerprint
+   */
+  public static String fingerprint(Iterable<Class<?>> classes, Object... settings) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      StringBuilder sb = new StringBuilder();
+      for (Object setting : settings)
+        sb.append("S|").append(setting).append('\n');
+      digest.update(sb.toString().getBytes("UTF-8"));
+
+      // the order of the classes, e.g. of a metamodel, may vary as well
+      List<Class<?>> sorted = new ArrayList<Class<?>>();
+      for (Class<?> c : classes)
+        sorted.add(c);
+      Collections.sort(sorted, new Comparator<Class<?>>() {
+        @Override
+        public int compare(Class<?> o1, Class<?> o2) {
+          return o1.getName().compareTo(o2.getName());
+        }
+      });
+      for (Class<?> c : sorted) {
+        sb.setLength(0);
+        for (Class<?> type = c; type != null && type != Object.class; type = type.getSuperclass()) {
+          sb.append("C|").append(type.getName()).append(annotations(type.getDeclaredAnnotations())).append('\n');
+          // the order of declared members is unspecified
+          List<String> members = new ArrayList<String>();
+          for (Field field : type.getDeclaredFields())
+            members.add("F|" + field.getModifiers() + "|" + field.toGenericString() + annotations(field.getDeclaredAnnotations()));
+          for (Method method : type.getDeclaredMethods())
+            members.add("M|" + method.toGenericString() + annotations(method.getDeclaredAnnotations()));
+          Collections.sort(members);
+          for (String member : members)
+            sb.append(member).append('\n');
+        }
+        digest.update(sb.toString().getBytes("UTF-8"));
+      }
+
+      StringBuilder rt = new StringBuilder();
+      for (byte b : digest.digest())
+        rt.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      return rt.toString();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String annotations(Annotation[] annotations) {
+    List<String> rt = new ArrayList<String>();
+    for (Annotation annotation : annotations)
+      rt.add(annotation.toString());
+    Collections.sort(rt);
+    return rt.toString();
+  }
+
+  private EdmDataServices read() {
+    if (!file.exists())
+      return null;
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != FORMAT_VERSION || !fingerprint.equals(in.readUTF()))
+          return null;
+        return new EdmxFormatParser().parseMetadata(StaxUtil.newXMLEventReader(new InputStreamReader(in, "UTF-8")));
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      log.log(Level.WARNING, "Ignoring unreadable metadata cache " + file, e);
+      return null;
+    }
+  }
+
+  private void write(EdmDataServices metadata) {
+    // write to a temporary file first, so that concurrent readers never see a partial file
+    File tmp = new File(file.getPath() + ".tmp");
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(fingerprint);
+        Writer w = new OutputStreamWriter(out, "UTF-8");
+        EdmxFormatWriter.write(metadata, w);
+        w.flush();
+      } finally {
+        out.close();
+      }
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+        throw new IOException("Cannot rename " + tmp + " to " + file);
+    } catch (Exception e) {
+      log.log(Level.WARNING, "Cannot write metadata cache " + file, e);
+      tmp.delete();
+    }
+  }
+
+}
@@ -4,9 +4,16 @@ package org.odata4j.format;
  * <code>Feed</code> and <code>Entry</code> are buildings block for the ODATA payload.
  * There are differences between the Atom and Json format. These interfaces are used
  * where we can handle both formats the same way.
+ *
+ * <p>The feeds parsed from a response stream their entries, see {@link StreamingEntries}.</p>
  */
 public interface Feed {
 
+  /**
+   * Gets the next link of the feed; for a streamed feed, parses the remaining entries first.
+   *
+   * @return the next link, or null
+   */
   String getNext();
 
   Iterable<Entry> getEntries();
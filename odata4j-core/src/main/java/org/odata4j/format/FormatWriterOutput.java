@@ -0,0 +1,78 @@
+package org.odata4j.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+import org.odata4j.core.Throwables;
+
+/**
+ * Writes an object with a {@link FormatWriter} as UTF-8 straight into the output stream of a
+ * response, see {@link Utf8Writer}, instead of into a String the container encodes again.
+ *
+ * <p>Used as the entity of a response, the object is written when the response is sent, after its
+ * status has been committed, so a write error can no longer change the status. That is only worth
+ * it for feeds streamed from their producer; any other response is written with
+ * {@link #toByteArray()} before it is built. {@link #toString()} writes the object into a
+ * String.</p>
+ *
+ * <p>Only streamed feeds get the pooled chunks of the {@link Utf8Writer} straight into the
+ * response. The other responses are still held in memory as a whole: once as UTF-8 bytes, instead
+ * of a String and its encoding.</p>
+ *
+ * @param <T> the type of the object
+ */
+public class FormatWriterOutput<T> implements StreamingOutput {
+
+  private final FormatWriter<T> formatWriter;
+  private final UriInfo uriInfo;
+  private final T target;
+
+  public FormatWriterOutput(FormatWriter<T> formatWriter, UriInfo uriInfo, T target) {
+    this.formatWriter = formatWriter;
+    this.uriInfo = uriInfo;
+    this.target = target;
+  }
+
+  public FormatWriter<T> getFormatWriter() {
+    return formatWriter;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    Utf8Writer writer = new Utf8Writer(output);
+    try {
+      formatWriter.write(uriInfo, writer, target);
+      writer.flush();
+    } finally {
+      writer.release();
+    }
+  }
+
+  /**
+   * Writes the object into a byte array, as UTF-8. The bytes go through a
+   * {@link ByteArrayOutputStream}, which grows to the size of the whole response and is copied
+   * once more into the array returned.
+   */
+  public byte[] toByteArray() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      write(output);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    return output.toByteArray();
+  }
+
+  @Override
+  public String toString() {
+    StringWriter sw = new StringWriter();
+    formatWriter.write(uriInfo, sw, target);
+    return sw.toString();
+  }
+
+}
@@ -0,0 +1,87 @@
+package org.odata4j.format;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The entries of a feed, parsed from the open input as they are iterated, so that a feed of any
+ * size is read in constant memory.
+ *
+ * <p>The entries can be iterated once. The properties of the feed that follow the entries, as the
+ * next link, are known when the entries have been iterated, or after {@link #finish()}.</p>
+ */
+public abstract class StreamingEntries implements Iterable<Entry> {
+
+  private boolean iterated;
+  private boolean finished;
+
+  /**
+   * Parses the next entry, or the rest of the feed after the last entry.
+   *
+   * @return the entry, or null after the last entry
+   */
+  protected abstract Entry parseNext();
+
+  @Override
+  public Iterator<Entry> iterator() {
+    if (iterated)
+      throw new IllegalStateException("The entries of a streamed feed can only be iterated once");
+    iterated = true;
+
+    // not a ReadOnlyIterator, which would wrap the exceptions of the parser
+    return new Iterator<Entry>() {
+      private Entry next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null)
+          next = nextEntry();
+        return next != null;
+      }
+
+      @Override
+      public Entry next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        Entry entry = next;
+        next = null;
+        return entry;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Parses the remaining entries, without keeping them, and the rest of the feed.
+   */
+  public void finish() {
+    Entry entry;
+    do {
+      entry = nextEntry();
+    } while (entry != null);
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  private Entry nextEntry() {
+    if (finished)
+      return null;
+    try {
+      Entry entry = parseNext();
+      if (entry == null)
+        finished = true;
+      return entry;
+    } catch (RuntimeException e) {
+      // the input is not read after an error
+      finished = true;
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+package org.odata4j.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes characters as UTF-8 straight into an output stream, through a byte buffer taken from a
+ * pool.
+ *
+ * <p>Call {@link #release()} when done, to return the buffer to the pool; it does not write the
+ * buffered bytes, call {@link #flush()} before. Unpaired surrogates are written as '?', as by
+ * {@link String#getBytes(String)}; a high surrogate ending the output only on close.</p>
+ */
+public class Utf8Writer extends Writer {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_POOLED = 64;
+
+  private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<byte[]>();
+  // the size of the pool, which the queue counts by iterating
+  private static final AtomicInteger POOLED = new AtomicInteger();
+
+  private final OutputStream out;
+  private byte[] buffer;
+  private int position;
+  // a high surrogate written last, whose low surrogate is expected next
+  private char highSurrogate;
+  private char[] chars;
+
+  public Utf8Writer(OutputStream out) {
+    this.out = out;
+    this.buffer = POOL.poll();
+    if (buffer != null)
+      POOLED.decrementAndGet();
+    else
+      buffer = new byte[BUFFER_SIZE];
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (buffer.length - position < 4)
+      writeBuffer();
+    write((char) c);
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    if (chars == null)
+      chars = new char[BUFFER_SIZE / 4];
+    while (len > 0) {
+      int n = Math.min(len, chars.length);
+      str.getChars(off, off + n, chars, 0);
+      write(chars, 0, n);
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    byte[] buffer = this.buffer;
+    int end = off + len;
+    while (off < end) {
+      if (buffer.length - position < 4)
+        writeBuffer();
+
+      // ASCII runs, as far as the buffer takes them
+      int asciiEnd = Math.min(end, off + buffer.length - position);
+      char c;
+      while (off < asciiEnd && (c = cbuf[off]) < 0x80 && highSurrogate == 0) {
+        buffer[position++] = (byte) c;
+        off++;
+      }
+      if (off == end || buffer.length - position < 4)
+        continue;
+
+      write(cbuf[off++]);
+    }
+  }
+
+  /**
+   * Encodes a character into the buffer, which must have room for four bytes.
+   */
+  private void write(char c) {
+    byte[] buffer = this.buffer;
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int cp = Character.toCodePoint(high, c);
+        buffer[position++] = (byte) (0xf0 | (cp >> 18));
+        buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+        buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+        buffer[position++] = (byte) (0x80 | (cp & 0x3f));
+        return;
+      }
+      // the character itself takes at most the remaining three bytes
+      buffer[position++] = '?';
+    }
+    if (c < 0x80) {
+      buffer[position++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[position++] = (byte) (0xc0 | (c >> 6));
+      buffer[position++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer[position++] = '?';
+    } else {
+      buffer[position++] = (byte) (0xe0 | (c >> 12));
+      buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      buffer[position++] = (byte) (0x80 | (c & 0x3f));
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writeBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        write('?');
+      }
+      flush();
+      out.close();
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool; the writer cannot be used afterwards.
+   */
+  public void release() {
+    if (buffer == null)
+      return;
+    if (POOLED.incrementAndGet() <= MAX_POOLED)
+      POOL.offer(buffer);
+    else
+      POOLED.decrementAndGet();
+    buffer = null;
+  }
+
+  private void writeBuffer() throws IOException {
+    if (position > 0) {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+}
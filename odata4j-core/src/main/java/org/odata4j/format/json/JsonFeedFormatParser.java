@@ -1,7 +1,7 @@
 package org.odata4j.format.json;
 
 import java.io.Reader;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.ws.rs.core.MediaType;
@@ -17,18 +17,22 @@ import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
 import org.odata4j.format.Settings;
+import org.odata4j.format.StreamingEntries;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader.JsonEvent;
 
 public class JsonFeedFormatParser extends JsonFormatParser implements FormatParser<Feed> {
 
   static class JsonFeed implements Feed {
-    List<Entry> entries;
+    Iterable<Entry> entries;
     String next;
     Integer inlineCount;
 
     @Override
     public String getNext() {
+      // the next link follows the entries
+      if (entries instanceof StreamingEntries)
+        ((StreamingEntries) entries).finish();
       return next;
     }
 
@@ -102,9 +106,14 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
     super(settings);
   }
 
+  /**
+   * Parses a feed, whose entries are parsed as they are iterated; see {@link StreamingEntries}.
+   * The reader is closed after the feed.
+   */
   @Override
   public JsonFeed parse(Reader reader) {
-    JsonStreamReader jsr = JsonStreamReaderFactory.createJsonStreamReader(reader);
+    final JsonStreamReader jsr = JsonStreamReaderFactory.createJsonStreamReader(reader);
+    boolean streaming = false;
     try {
       // {
       ensureStartObject(jsr.nextEvent());
@@ -121,53 +130,74 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
 
       // skip [ or {
       JsonEvent event = jsr.nextEvent();
-      JsonFeed feed;
+      final JsonFeed feed = new JsonFeed();
+      final EdmEntitySet ees = metadata.getEdmEntitySet(entitySetName);
       if (event.isStartArray()) {
-        feed = parseFeed(metadata.getEdmEntitySet(entitySetName), jsr);
-        // ] already processed by parseFeed
+        feed.entries = new StreamingEntries() {
+          @Override
+          protected Entry parseNext() {
+            boolean done = true;
+            try {
+              JsonEntry entry = parseNextEntry(ees, jsr);
+              if (entry != null) {
+                done = false;
+                return entry;
+              }
+              // ] already processed by parseNextEntry
+              parseEnd(feed, jsr);
+              return null;
+            } finally {
+              if (done)
+                jsr.close();
+            }
+          }
+        };
+        streaming = true;
       } else {
-        feed = new JsonFeed();
-        feed.entries = new ArrayList<Entry>();
-        feed.entries.add(parseEntry(metadata.getEdmEntitySet(entitySetName), jsr));
+        feed.entries = Collections.<Entry> singletonList(parseEntry(ees, jsr));
         // } already processed by parseEntry
+        parseEnd(feed, jsr);
       }
+      return feed;
 
-      if (version.compareTo(ODataVersion.V1) > 0) {
-        // EndProperty of "results" :
-        ensureEndProperty(jsr.nextEvent());
-      }
+    } finally {
+      if (!streaming)
+        jsr.close();
+    }
+  }
 
-      event = jsr.nextEvent();
+  // parses the rest of the feed after its entries
+  private void parseEnd(JsonFeed feed, JsonStreamReader jsr) {
+    if (version.compareTo(ODataVersion.V1) > 0) {
+      // EndProperty of "results" :
+      ensureEndProperty(jsr.nextEvent());
+    }
 
-      while (event.isStartProperty()) {
-        String pname = event.asStartProperty().getName();
-        ensureNext(jsr);
-        ensureEndProperty(event = jsr.nextEvent());
-        if (NEXT_PROPERTY.equals(pname)) {
-          feed.next = event.asEndProperty().getValue();
-        } else if (COUNT_PROPERTY.equals(pname)) {
-          feed.inlineCount = Integer.parseInt(event.asEndProperty().getValue());
-        }
-        ensureNext(jsr);
-        event = jsr.nextEvent();
-      }
+    JsonEvent event = jsr.nextEvent();
 
-      if (version.compareTo(ODataVersion.V1) > 0) {
-        // EndObject and EndProperty of "result" :
-        ensureEndObject(event);
-        ensureEndProperty(jsr.nextEvent());
+    while (event.isStartProperty()) {
+      String pname = event.asStartProperty().getName();
+      ensureNext(jsr);
+      ensureEndProperty(event = jsr.nextEvent());
+      if (NEXT_PROPERTY.equals(pname)) {
+        feed.next = event.asEndProperty().getValue();
+      } else if (COUNT_PROPERTY.equals(pname)) {
+        feed.inlineCount = Integer.parseInt(event.asEndProperty().getValue());
       }
+      ensureNext(jsr);
+      event = jsr.nextEvent();
+    }
 
-      ensureEndObject(jsr.nextEvent());
-
-      if (jsr.hasNext())
-        throw new IllegalArgumentException("garbage after the feed");
+    if (version.compareTo(ODataVersion.V1) > 0) {
+      // EndObject and EndProperty of "result" :
+      ensureEndObject(event);
+      ensureEndProperty(jsr.nextEvent());
+    }
 
-      return feed;
+    ensureEndObject(jsr.nextEvent());
 
-    } finally {
-      jsr.close();
-    }
+    if (jsr.hasNext())
+      throw new IllegalArgumentException("garbage after the feed");
   }
 
 }
@@ -5,6 +5,7 @@ import javax.ws.rs.core.UriInfo;
 
 import org.odata4j.core.OEntity;
 import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.StreamingEntitiesResponse;
 
 /**
  *  Write an RSS Feed in JSON format
@@ -18,6 +19,12 @@ public class JsonFeedFormatWriter extends JsonFormatWriter<EntitiesResponse> {
   @Override
   public void writeContent(UriInfo uriInfo, JsonWriter jw, EntitiesResponse target) {
 
+    // a streaming response is read once, so the entities are counted while they are written
+    Iterable<OEntity> entities = target instanceof StreamingEntitiesResponse
+        ? ((StreamingEntitiesResponse) target).streamEntities()
+        : target.getEntities();
+    int count = 0;
+
     jw.startObject();
     {
       jw.writeName("results");
@@ -25,7 +32,7 @@ public class JsonFeedFormatWriter extends JsonFormatWriter<EntitiesResponse> {
       jw.startArray();
       {
         boolean isFirst = true;
-        for (OEntity oe : target.getEntities()) {
+        for (OEntity oe : entities) {
 
           if (isFirst) {
             isFirst = false;
@@ -34,6 +41,7 @@ public class JsonFeedFormatWriter extends JsonFormatWriter<EntitiesResponse> {
           }
 
           writeOEntity(uriInfo, jw, oe, target.getEntitySet(), true);
+          count++;
         }
 
       }
@@ -55,7 +63,7 @@ public class JsonFeedFormatWriter extends JsonFormatWriter<EntitiesResponse> {
         if (tops != null) {
           // query param value already validated
           top = Integer.parseInt(tops);
-          top -= target.getEntities().size();
+          top -= count;
         }
         UriBuilder uri = uriInfo.getRequestUriBuilder();
         if (top > 0) {
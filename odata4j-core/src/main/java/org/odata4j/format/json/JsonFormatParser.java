@@ -81,20 +81,32 @@ public class JsonFormatParser {
 
   protected JsonFeed parseFeed(EdmEntitySet ees, JsonStreamReader jsr) {
     JsonFeed feed = new JsonFeed();
-    feed.entries = new ArrayList<Entry>();
+    List<Entry> entries = new ArrayList<Entry>();
 
+    JsonEntry entry;
+    while ((entry = parseNextEntry(ees, jsr)) != null)
+      entries.add(entry);
+    feed.entries = entries;
+
+    return feed;
+  }
+
+  /**
+   * Parses the next entry of a feed.
+   *
+   * @return the entry, or null after the ] of the feed
+   */
+  protected JsonEntry parseNextEntry(EdmEntitySet ees, JsonStreamReader jsr) {
     while (jsr.hasNext()) {
       JsonEvent event = jsr.nextEvent();
 
       if (event.isStartObject()) {
-        JsonEntry entry = parseEntry(ees, jsr);
-        feed.entries.add(entry);
+        return parseEntry(ees, jsr);
       } else if (event.isEndArray()) {
         break;
       }
     }
-
-    return feed;
+    return null;
   }
 
   protected void resolveEntityType(JsonEntry entry) {
@@ -95,7 +95,7 @@ public abstract class JsonFormatWriter<T> implements FormatWriter<T> {
     if (getJsonpCallback() != null) {
       jw.endCallback();
     }
-
+    jw.flush();
   }
 
   protected void writeProperty(JsonWriter jw, OProperty<?> prop) {
@@ -128,7 +128,7 @@ public abstract class JsonFormatWriter<T> implements FormatWriter<T> {
     } else if (type.equals(EdmSimpleType.INT32)) {
       jw.writeNumber((Integer) pvalue);
     } else if (type.equals(EdmSimpleType.INT64)) {
-      jw.writeString(pvalue.toString());
+      jw.writeQuotedNumber((Long) pvalue);
     } else if (type.equals(EdmSimpleType.SINGLE)) {
       jw.writeNumber((Float) pvalue);
     } else if (type.equals(EdmSimpleType.TIME)) {
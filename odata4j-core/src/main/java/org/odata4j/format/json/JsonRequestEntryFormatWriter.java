@@ -27,6 +27,7 @@ public class JsonRequestEntryFormatWriter extends JsonFormatWriter<Entry> {
     }
 
     writeContent(uriInfo, jw, target);
+    jw.flush();
   }
 
   @Override
@@ -2,10 +2,6 @@ package org.odata4j.format.json;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.util.Locale;
-import java.util.Stack;
 
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonParseException;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader;
@@ -17,6 +13,14 @@ import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamTokenizer;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamTokenizer.JsonToken;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamTokenizer.JsonTokenType;
 
+/**
+ * Creates pull readers of JSON.
+ *
+ * <p>The tokenizer reads the input in blocks into a char buffer, and creates strings only for the
+ * values of tokens: numbers are checked on the buffer, punctuation and constants are shared
+ * tokens, and property names are interned, so that the names repeated by each entry of a feed
+ * are the same strings.</p>
+ */
 public class JsonStreamReaderFactory {
 
   public static class JsonParseException extends RuntimeException {
@@ -239,6 +243,12 @@ class JsonEventImpl implements JsonEvent {
 
 class JsonStartPropertyEventImpl extends JsonEventImpl implements JsonStartPropertyEvent {
 
+  private final String name;
+
+  JsonStartPropertyEventImpl(String name) {
+    this.name = name;
+  }
+
   @Override
   public boolean isStartProperty() {
     return true;
@@ -246,13 +256,21 @@ class JsonStartPropertyEventImpl extends JsonEventImpl implements JsonStartPrope
 
   @Override
   public String getName() {
-    return null;
+    return name;
   }
 
 }
 
 class JsonEndPropertyEventImpl extends JsonEventImpl implements JsonEndPropertyEvent {
 
+  private final String value;
+  private final JsonTokenType valueTokenType;
+
+  JsonEndPropertyEventImpl(String value, JsonTokenType valueTokenType) {
+    this.value = value;
+    this.valueTokenType = valueTokenType;
+  }
+
   @Override
   public boolean isEndProperty() {
     return true;
@@ -260,17 +278,23 @@ class JsonEndPropertyEventImpl extends JsonEventImpl implements JsonEndPropertyE
 
   @Override
   public String getValue() {
-    return null;
+    return value;
   }
 
   @Override
   public JsonTokenType getValueTokenType() {
-    return null;
+    return valueTokenType;
   }
 }
 
 class JsonValueEventImpl extends JsonEventImpl implements JsonValueEvent {
 
+  private final String value;
+
+  JsonValueEventImpl(String value) {
+    this.value = value;
+  }
+
   @Override
   public boolean isValue() {
     return true;
@@ -278,33 +302,90 @@ class JsonValueEventImpl extends JsonEventImpl implements JsonValueEvent {
 
   @Override
   public String getValue() {
-    return null;
+    return value;
   }
 
 }
 
 class JsonStreamTokenizerImpl implements JsonStreamTokenizer {
-  private Reader reader;
-  private JsonToken token;
-  private NumberFormat nf = DecimalFormat.getNumberInstance(Locale.US);
-  private int pushedBack = -1;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  // the interned property names, shared by all tokenizers; a racing write only replaces a name by
+  // another, and strings are safely published
+  private static final int NAMES_SIZE = 1024;
+  private static final int MAX_NAME_LENGTH = 64;
+  private static final String[] NAMES = new String[NAMES_SIZE];
+
+  private static final JsonToken LEFT_CURLY_BRACKET = new JsonToken(JsonTokenType.LEFT_CURLY_BRACKET);
+  private static final JsonToken RIGHT_CURLY_BRACKET = new JsonToken(JsonTokenType.RIGHT_CURLY_BRACKET);
+  private static final JsonToken LEFT_BRACKET = new JsonToken(JsonTokenType.LEFT_BRACKET);
+  private static final JsonToken RIGHT_BRACKET = new JsonToken(JsonTokenType.RIGHT_BRACKET);
+  private static final JsonToken COMMA = new JsonToken(JsonTokenType.COMMA);
+  private static final JsonToken COLON = new JsonToken(JsonTokenType.COLON);
+  private static final JsonToken TRUE = new JsonToken(JsonTokenType.TRUE, "true");
+  private static final JsonToken FALSE = new JsonToken(JsonTokenType.FALSE, "false");
+  private static final JsonToken NULL = new JsonToken(JsonTokenType.NULL, "null");
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+
+  // the type of the next token, scanned on demand; null at the end of the input
+  private JsonTokenType type;
+  private boolean scanned;
+
+  // the characters of a string or number token: in the buffer, or in the scratch array if the
+  // token was unescaped or spans reads
+  private char[] valueChars;
+  private int valueOffset;
+  private int valueLength;
+  private char[] scratch = new char[256];
+  private int scratchLength;
 
   JsonStreamTokenizerImpl(Reader reader) {
     if (reader == null)
       throw new NullPointerException();
 
     this.reader = reader;
-    move();
   }
 
   public boolean hasNext() {
-    return token != null;
+    if (!scanned) {
+      scan();
+      scanned = true;
+    }
+    return type != null;
   }
 
   public JsonToken nextToken() {
-    JsonToken cur = token;
-    move();
-    return cur;
+    JsonTokenType type = next();
+    if (type == null)
+      return null;
+
+    switch (type) {
+    case LEFT_CURLY_BRACKET:
+      return LEFT_CURLY_BRACKET;
+    case RIGHT_CURLY_BRACKET:
+      return RIGHT_CURLY_BRACKET;
+    case LEFT_BRACKET:
+      return LEFT_BRACKET;
+    case RIGHT_BRACKET:
+      return RIGHT_BRACKET;
+    case COMMA:
+      return COMMA;
+    case COLON:
+      return COLON;
+    case TRUE:
+      return TRUE;
+    case FALSE:
+      return FALSE;
+    case NULL:
+      return NULL;
+    default:
+      return new JsonToken(type, value());
+    }
   }
 
   public void close() {
@@ -315,184 +396,306 @@ class JsonStreamTokenizerImpl implements JsonStreamTokenizer {
     }
   }
 
-  enum TokenizerState {
-    DEFAULT,
-    STRING,
-    NUMBER
+  /**
+   * Moves to the next token; its value is available until {@link #hasNext()} or {@link #next()}
+   * is called again.
+   *
+   * @return the type of the token, or null at the end of the input
+   */
+  JsonTokenType next() {
+    hasNext();
+    scanned = false;
+    return type;
+  }
+
+  /**
+   * @return the value of the current token, null for punctuation
+   */
+  String value() {
+    switch (type) {
+    case STRING:
+    case NUMBER:
+      return new String(valueChars, valueOffset, valueLength);
+    case TRUE:
+      return TRUE.value;
+    case FALSE:
+      return FALSE.value;
+    case NULL:
+      return NULL.value;
+    default:
+      return null;
+    }
   }
 
-  private void move() {
-    token = null;
-
-    StringBuilder buffer = new StringBuilder();
-    boolean quote = false;
-    TokenizerState state = TokenizerState.DEFAULT;
-    int i;
-    while (token == null && (i = next()) != -1) {
-      char c = (char) i;
-      if (state == TokenizerState.DEFAULT) {
-        if ('{' == c) {
-          token = new JsonToken(JsonTokenType.LEFT_CURLY_BRACKET);
-        } else if ('}' == c) {
-          if (hasConstantParsed(buffer)) {
-            pushBack(i);
-          } else {
-            token = new JsonToken(JsonTokenType.RIGHT_CURLY_BRACKET);
-          }
-        } else if ('[' == c) {
-          token = new JsonToken(JsonTokenType.LEFT_BRACKET);
-        } else if (']' == c) {
-          if (hasConstantParsed(buffer)) {
-            pushBack(i);
-          } else {
-            token = new JsonToken(JsonTokenType.RIGHT_BRACKET);
-          }
-        } else if (':' == c) {
-          token = new JsonToken(JsonTokenType.COLON);
-        } else if (',' == c) {
-          if (hasConstantParsed(buffer)) {
-            pushBack(i);
-          } else {
-            token = new JsonToken(JsonTokenType.COMMA);
-          }
-        } else if ('"' == c) {
-          if (buffer.length() > 0) {
-            throw new JsonParseException("no JSON format");
-          }
-          state = TokenizerState.STRING;
-        } else if ('-' == c || Character.isDigit(c)) {
-          buffer.append(c);
-          state = TokenizerState.NUMBER;
-        } else if (Character.isWhitespace(c)) {
-          hasConstantParsed(buffer);
-        } else {
-          buffer.append(c);
-        }
-      } else if (state == TokenizerState.STRING) {
-        if (quote) {
-          if ('b' == c) {
-            buffer.append('\b');
-          } else if ('f' == c) {
-            buffer.append('\f');
-          } else if ('n' == c) {
-            buffer.append('\n');
-          } else if ('r' == c) {
-            buffer.append('\r');
-          } else if ('t' == c) {
-            buffer.append('\t');
-          } else if ('/' == c) {
-            buffer.append('/');
-          } else if ('\\' == c) {
-            buffer.append('\\');
-          } else if ('"' == c) {
-            buffer.append('"');
-          } else if ('u' == c) {
-            buffer.append((char) Integer.parseInt(new String(next(4)), 16));
-          } else {
-            throw new JsonParseException("illegal escaped character " + c);
-          }
-          quote = false;
-        } else if ('\\' == c) {
-          quote = true;
-        } else if ('"' == c) {
-          token = new JsonToken(JsonTokenType.STRING, buffer.toString());
-        } else {
-          buffer.append(c);
-          quote = false;
-        }
-      } else {
-        if ('-' == c || Character.isDigit(c)
-            || 'E' == c || 'e' == c
-            || '+' == c || '.' == c) {
-          buffer.append(c); // a valid character in a number
-        } else {
-          // must be done with the number.
-          pushBack(i);
-          checkNumberFormat(buffer);
-          token = new JsonToken(JsonTokenType.NUMBER, buffer.toString());
-        }
-      }
+  /**
+   * @return the value of the current string token as property name, interned
+   */
+  String name() {
+    if (valueLength > MAX_NAME_LENGTH)
+      return value();
+
+    char[] chars = valueChars;
+    int end = valueOffset + valueLength;
+    int hash = 0;
+    for (int i = valueOffset; i < end; i++)
+      hash = 31 * hash + chars[i];
+    int index = (hash ^ (hash >>> 16)) & (NAMES_SIZE - 1);
+
+    String name = NAMES[index];
+    if (name != null && name.length() == valueLength) {
+      int i = 0;
+      while (i < valueLength && name.charAt(i) == chars[valueOffset + i])
+        i++;
+      if (i == valueLength)
+        return name;
     }
+    name = value();
+    NAMES[index] = name;
+    return name;
+  }
+
+  private void scan() {
+    type = null;
 
-    if (state == TokenizerState.NUMBER) {
-      checkNumberFormat(buffer);
-      token = new JsonToken(JsonTokenType.NUMBER, buffer.toString());
+    int c = skipWhitespace();
+    switch (c) {
+    case -1:
+      return;
+    case '{':
+      type = JsonTokenType.LEFT_CURLY_BRACKET;
+      break;
+    case '}':
+      type = JsonTokenType.RIGHT_CURLY_BRACKET;
+      break;
+    case '[':
+      type = JsonTokenType.LEFT_BRACKET;
+      break;
+    case ']':
+      type = JsonTokenType.RIGHT_BRACKET;
+      break;
+    case ',':
+      type = JsonTokenType.COMMA;
+      break;
+    case ':':
+      type = JsonTokenType.COLON;
+      break;
+    case '"':
+      scanString();
+      type = JsonTokenType.STRING;
+      break;
+    case 't':
+      expect("rue");
+      type = JsonTokenType.TRUE;
+      break;
+    case 'f':
+      expect("alse");
+      type = JsonTokenType.FALSE;
+      break;
+    case 'n':
+      expect("ull");
+      type = JsonTokenType.NULL;
+      break;
+    default:
+      if (c != '-' && (c < '0' || c > '9'))
+        throw new JsonParseException("no JSON format unexpected character " + (char) c);
+      // the character was just read from the buffer
+      position--;
+      scanNumber();
+      type = JsonTokenType.NUMBER;
     }
   }
 
-  private Number checkNumberFormat(StringBuilder memory) {
-    try {
-      return nf.parse(memory.toString());
-    } catch (Exception nfe) {
-      throw new JsonParseException("", nfe);
+  private int skipWhitespace() {
+    while (true) {
+      if (position == limit && !fill())
+        return -1;
+      char c = buffer[position++];
+      // a byte order mark the reader did not remove counts as whitespace
+      if (!Character.isWhitespace(c) && c != '\uFEFF')
+        return c;
     }
   }
 
-  private boolean hasConstantParsed(StringBuilder memory) {
-    if (isTrue(memory)) {
-      token = new JsonToken(JsonTokenType.TRUE, "true");
-    } else if (isFalse(memory)) {
-      token = new JsonToken(JsonTokenType.FALSE, "false");
-    } else if (isNull(memory)) {
-      token = new JsonToken(JsonTokenType.NULL, "null");
+  private void expect(String rest) {
+    for (int i = 0; i < rest.length(); i++) {
+      if (read() != rest.charAt(i))
+        throw new JsonParseException("no JSON format");
     }
-    return token != null;
   }
 
-  private void pushBack(int c) {
-    if (pushedBack != -1) {
-      throw new IllegalStateException("can push back only one character");
-    } else {
-      pushedBack = c;
+  private void scanString() {
+    int start = position;
+    boolean copied = false;
+    scratchLength = 0;
+    while (true) {
+      int p = position;
+      while (p < limit) {
+        char c = buffer[p];
+        if (c == '"' || c == '\\')
+          break;
+        p++;
+      }
+      if (p < limit && !copied && buffer[p] == '"') {
+        // the common case, a string without escapes in the buffer
+        setValue(buffer, start, p - start);
+        position = p + 1;
+        return;
+      }
+
+      append(buffer, start, p - start);
+      copied = true;
+      if (p == limit) {
+        position = p;
+        if (!fill())
+          throw new JsonParseException("no JSON format premature end");
+      } else {
+        position = p + 1;
+        if (buffer[p] == '"') {
+          setValue(scratch, 0, scratchLength);
+          return;
+        }
+        append(unescape());
+      }
+      start = position;
     }
   }
 
-  private char[] next(int count) {
-    char[] ret = new char[count];
-    for (int i = 0; i < count; i++) {
-      ret[i] = (char) next();
+  private char unescape() {
+    int c = read();
+    switch (c) {
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case '/':
+    case '\\':
+    case '"':
+      return (char) c;
+    case 'u':
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        int digit = Character.digit(read(), 16);
+        if (digit < 0)
+          throw new JsonParseException("illegal unicode escape");
+        value = value << 4 | digit;
+      }
+      return (char) value;
+    default:
+      throw new JsonParseException("illegal escaped character " + (char) c);
     }
-
-    return ret;
   }
 
-  private int next() {
-    if (pushedBack != -1) {
-      int ret = pushedBack;
-      pushedBack = -1;
-      return ret;
-    } else {
-      try {
-        return reader.read();
-      } catch (IOException ioe) {
-        throw new JsonParseException(ioe);
+  private void scanNumber() {
+    int start = position;
+    boolean copied = false;
+    scratchLength = 0;
+    while (true) {
+      int p = position;
+      while (p < limit && isNumberCharacter(buffer[p]))
+        p++;
+      position = p;
+      if (p < limit && !copied) {
+        setValue(buffer, start, p - start);
+        break;
+      }
+
+      append(buffer, start, p - start);
+      copied = true;
+      if (p < limit || !fill()) {
+        setValue(scratch, 0, scratchLength);
+        break;
       }
+      start = position;
+    }
+    checkNumber();
+  }
+
+  private static boolean isNumberCharacter(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+  }
+
+  // checks the number against the JSON grammar, but allows leading zeros and an empty fraction
+  private void checkNumber() {
+    char[] chars = valueChars;
+    int i = valueOffset;
+    int end = valueOffset + valueLength;
+    if (i < end && chars[i] == '-')
+      i++;
+    int digits = i;
+    i = skipDigits(chars, i, end);
+    boolean valid = i > digits;
+    if (valid && i < end && chars[i] == '.')
+      i = skipDigits(chars, i + 1, end);
+    if (valid && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+      i++;
+      if (i < end && (chars[i] == '+' || chars[i] == '-'))
+        i++;
+      digits = i;
+      i = skipDigits(chars, i, end);
+      valid = i > digits;
     }
+    if (!valid || i != end)
+      throw new JsonParseException("no JSON format illegal number " + new String(chars, valueOffset, valueLength));
+  }
+
+  private static int skipDigits(char[] chars, int i, int end) {
+    while (i < end && chars[i] >= '0' && chars[i] <= '9')
+      i++;
+    return i;
+  }
+
+  private void setValue(char[] chars, int offset, int length) {
+    valueChars = chars;
+    valueOffset = offset;
+    valueLength = length;
   }
 
-  private boolean isTrue(StringBuilder str) {
-    return str.length() == 4
-        && str.charAt(0) == 't'
-        && str.charAt(1) == 'r'
-        && str.charAt(2) == 'u'
-        && str.charAt(3) == 'e';
+  private void append(char c) {
+    if (scratchLength == scratch.length)
+      grow(1);
+    scratch[scratchLength++] = c;
   }
 
-  private boolean isFalse(StringBuilder str) {
-    return str.length() == 5
-        && str.charAt(0) == 'f'
-        && str.charAt(1) == 'a'
-        && str.charAt(2) == 'l'
-        && str.charAt(3) == 's'
-        && str.charAt(4) == 'e';
+  private void append(char[] chars, int offset, int length) {
+    if (scratchLength + length > scratch.length)
+      grow(length);
+    System.arraycopy(chars, offset, scratch, scratchLength, length);
+    scratchLength += length;
   }
 
-  private boolean isNull(StringBuilder str) {
-    return str.length() == 4
-        && str.charAt(0) == 'n'
-        && str.charAt(1) == 'u'
-        && str.charAt(2) == 'l'
-        && str.charAt(3) == 'l';
+  private void grow(int length) {
+    char[] grown = new char[Math.max(scratch.length * 2, scratchLength + length)];
+    System.arraycopy(scratch, 0, grown, 0, scratchLength);
+    scratch = grown;
+  }
+
+  private int read() {
+    if (position == limit && !fill())
+      return -1;
+    return buffer[position++];
+  }
+
+  // reads the next block into the buffer, which must have been consumed
+  private boolean fill() {
+    try {
+      int n;
+      do {
+        n = reader.read(buffer, 0, buffer.length);
+      } while (n == 0);
+      if (n < 0)
+        return false;
+      position = 0;
+      limit = n;
+      return true;
+    } catch (IOException ioe) {
+      throw new JsonParseException(ioe);
+    }
   }
 
 }
@@ -505,21 +708,50 @@ enum ReaderState {
 }
 
 class JsonStreamReaderImpl implements JsonStreamReader {
-  private static final boolean DUMP = false;
-
-  private static void dump(String msg) {
-    if (DUMP) System.out.println(msg);
-  }
 
-  private JsonStreamTokenizerImpl tokenizer;
-  private Stack<ReaderState> state = new Stack<ReaderState>();
-  private Stack<Boolean> expectCommaOrEndStack = new Stack<Boolean>();
+  // the events without values are shared
+  private static final JsonEvent START_OBJECT = new JsonEventImpl() {
+    @Override
+    public boolean isStartObject() {
+      return true;
+    }
+  };
+  private static final JsonEvent END_OBJECT = new JsonEventImpl() {
+    @Override
+    public boolean isEndObject() {
+      return true;
+    }
+  };
+  private static final JsonEvent START_ARRAY = new JsonEventImpl() {
+    @Override
+    public boolean isStartArray() {
+      return true;
+    }
+  };
+  private static final JsonEvent END_ARRAY = new JsonEventImpl() {
+    @Override
+    public boolean isEndArray() {
+      return true;
+    }
+  };
+  private static final JsonEvent END_PROPERTY_NULL = new JsonEndPropertyEventImpl(null, JsonTokenType.NULL);
+  private static final JsonEvent END_PROPERTY_TRUE = new JsonEndPropertyEventImpl("true", JsonTokenType.TRUE);
+  private static final JsonEvent END_PROPERTY_FALSE = new JsonEndPropertyEventImpl("false", JsonTokenType.FALSE);
+  private static final JsonEvent VALUE_NULL = new JsonValueEventImpl(null);
+  private static final JsonEvent VALUE_TRUE = new JsonValueEventImpl("true");
+  private static final JsonEvent VALUE_FALSE = new JsonValueEventImpl("false");
+
+  private final JsonStreamTokenizerImpl tokenizer;
+  private ReaderState[] state = new ReaderState[16];
+  private int stateSize;
+  private boolean[] expectCommaOrEndStack = new boolean[16];
+  private int expectCommaOrEndSize;
   private boolean expectCommaOrEnd;
   private boolean fireEndPropertyEvent;
   private JsonEvent previousEvent = null;
 
   JsonStreamReaderImpl(Reader reader) {
-    this.state.push(ReaderState.NONE);
+    pushState(ReaderState.NONE);
     this.tokenizer = new JsonStreamTokenizerImpl(reader);
   }
 
@@ -532,19 +764,19 @@ class JsonStreamReaderImpl implements JsonStreamReader {
   public JsonEvent nextEvent() {
 
     if (fireEndPropertyEvent) {
-      if (state.peek() != ReaderState.PROPERTY) {
-        throw new IllegalStateException("State is " + state.peek());
+      if (peekState() != ReaderState.PROPERTY) {
+        throw new IllegalStateException("State is " + peekState());
       }
       fireEndPropertyEvent = false;
-      return createEndPropertyEvent(null, JsonTokenType.NULL);
+      return createEndPropertyEvent(END_PROPERTY_NULL);
     }
 
     if (hasNext()) {
-      JsonToken token = tokenizer.nextToken();
+      JsonTokenType type = tokenizer.next();
 
-      switch (state.peek()) {
+      switch (peekState()) {
       case NONE:
-        if (token.type != JsonTokenType.LEFT_CURLY_BRACKET) {
+        if (type != JsonTokenType.LEFT_CURLY_BRACKET) {
           throw new JsonParseException("no JSON format must start with {");
         } else {
           return createStartObjectEvent();
@@ -552,24 +784,26 @@ class JsonStreamReaderImpl implements JsonStreamReader {
 
       case OBJECT:
         if (expectCommaOrEnd) {
-          if (token.type == JsonTokenType.COMMA) {
+          if (type == JsonTokenType.COMMA) {
             if (!tokenizer.hasNext()) {
               throw new JsonParseException("no JSON format premature end");
             }
-            token = tokenizer.nextToken();
-          } else if (token.type != JsonTokenType.RIGHT_CURLY_BRACKET) {
-            throw new JsonParseException("no JSON format expected , or ] got " + token.type);
+            type = tokenizer.next();
+          } else if (type != JsonTokenType.RIGHT_CURLY_BRACKET) {
+            throw new JsonParseException("no JSON format expected , or ] got " + type);
           }
           expectCommaOrEnd = false;
         }
 
-        switch (token.type) {
+        switch (type) {
         case STRING:
-          if (!tokenizer.hasNext() || tokenizer.nextToken().type != JsonTokenType.COLON) {
-            throw new JsonParseException("no JSON format : expected afer " + token.value);
+          // the name must be taken before the tokenizer moves on
+          String name = tokenizer.name();
+          if (!tokenizer.hasNext() || tokenizer.next() != JsonTokenType.COLON) {
+            throw new JsonParseException("no JSON format : expected afer " + name);
           }
           expectCommaOrEnd = true;
-          return createStartPropertyEvent(token.value);
+          return createStartPropertyEvent(name);
         case RIGHT_CURLY_BRACKET:
           return createEndObjectEvent();
         default:
@@ -577,14 +811,16 @@ class JsonStreamReaderImpl implements JsonStreamReader {
         }
 
       case PROPERTY:
-        switch (token.type) {
+        switch (type) {
         case STRING:
         case NUMBER:
+          return createEndPropertyEvent(new JsonEndPropertyEventImpl(tokenizer.value(), type));
         case TRUE:
+          return createEndPropertyEvent(END_PROPERTY_TRUE);
         case FALSE:
-          return createEndPropertyEvent(token.value, token.type);
+          return createEndPropertyEvent(END_PROPERTY_FALSE);
         case NULL:
-          return createEndPropertyEvent(null, token.type);
+          return createEndPropertyEvent(END_PROPERTY_NULL);
         case LEFT_CURLY_BRACKET:
           return createStartObjectEvent();
         case LEFT_BRACKET:
@@ -594,27 +830,31 @@ class JsonStreamReaderImpl implements JsonStreamReader {
         }
       case ARRAY:
         if (expectCommaOrEnd) {
-          if (token.type == JsonTokenType.COMMA) {
+          if (type == JsonTokenType.COMMA) {
             if (!tokenizer.hasNext()) {
               throw new JsonParseException("no JSON format premature end");
             }
-            token = tokenizer.nextToken();
-          } else if (token.type != JsonTokenType.RIGHT_BRACKET) {
+            type = tokenizer.next();
+          } else if (type != JsonTokenType.RIGHT_BRACKET) {
             throw new JsonParseException("no JSON format expected , or ]");
           }
           expectCommaOrEnd = false;
         }
 
-        switch (token.type) {
+        switch (type) {
         case STRING:
         case NUMBER:
+          expectCommaOrEnd = true;
+          return createValueEvent(new JsonValueEventImpl(tokenizer.value()));
         case TRUE:
+          expectCommaOrEnd = true;
+          return createValueEvent(VALUE_TRUE);
         case FALSE:
           expectCommaOrEnd = true;
-          return createValueEvent(token.value);
+          return createValueEvent(VALUE_FALSE);
         case NULL:
           expectCommaOrEnd = true;
-          return createValueEvent(null);
+          return createValueEvent(VALUE_NULL);
         case LEFT_CURLY_BRACKET:
           expectCommaOrEnd = true;
           return createStartObjectEvent();
@@ -632,119 +872,91 @@ class JsonStreamReaderImpl implements JsonStreamReader {
     throw new RuntimeException("no event");
   }
 
-  private JsonEvent createStartPropertyEvent(final String name) {
-    state.push(ReaderState.PROPERTY);
-    dump("jsonp start property: " + name);
-    this.previousEvent = new JsonStartPropertyEventImpl() {
-
-      @Override
-      public String getName() {
-        return name;
-      }
-    };
+  private JsonEvent createStartPropertyEvent(String name) {
+    pushState(ReaderState.PROPERTY);
+    // not shared, as parsers keep start property events while reading the value
+    this.previousEvent = new JsonStartPropertyEventImpl(name);
     return this.previousEvent;
   }
 
-  private JsonEvent createEndPropertyEvent(final String value, final JsonTokenType valueTokenType) {
-    state.pop();
-    dump("jsonp end property: " + value);
-
-    this.previousEvent = new JsonEndPropertyEventImpl() {
-      @Override
-      public String getValue() {
-        return value;
-      }
-
-      @Override
-      public JsonTokenType getValueTokenType() {
-        return valueTokenType;
-      }
-    };
+  private JsonEvent createEndPropertyEvent(JsonEvent event) {
+    stateSize--;
+    this.previousEvent = event;
     return this.previousEvent;
   }
 
   private JsonEvent createStartObjectEvent() {
-    state.push(ReaderState.OBJECT);
-    dump("jsonp start object");
-
-    expectCommaOrEndStack.push(expectCommaOrEnd);
-    expectCommaOrEnd = false;
-    this.previousEvent = new JsonEventImpl() {
-      @Override
-      public boolean isStartObject() {
-        return true;
-      }
-    };
+    pushState(ReaderState.OBJECT);
+    pushExpectCommaOrEnd();
+    this.previousEvent = START_OBJECT;
     return this.previousEvent;
   }
 
   private JsonEvent createEndObjectEvent() {
-    state.pop();
-    dump("jsonp end object");
-    expectCommaOrEnd = expectCommaOrEndStack.pop();
+    stateSize--;
+    expectCommaOrEnd = expectCommaOrEndStack[--expectCommaOrEndSize];
 
     // if the end of the object is also the of
     // a property, we need to fire the
     //  endPropertyEvent before going forward.
-    if (state.peek() == ReaderState.PROPERTY) {
+    if (peekState() == ReaderState.PROPERTY) {
       fireEndPropertyEvent = true;
     }
 
-    this.previousEvent = new JsonEventImpl() {
-      @Override
-      public boolean isEndObject() {
-        return true;
-      }
-    };
+    this.previousEvent = END_OBJECT;
     return this.previousEvent;
   }
 
   private JsonEvent createStartArrayEvent() {
-    state.push(ReaderState.ARRAY);
-    dump("jsonp start array");
-    expectCommaOrEndStack.push(expectCommaOrEnd);
-    expectCommaOrEnd = false;
-    this.previousEvent = new JsonEventImpl() {
-      @Override
-      public boolean isStartArray() {
-        return true;
-      }
-    };
+    pushState(ReaderState.ARRAY);
+    pushExpectCommaOrEnd();
+    this.previousEvent = START_ARRAY;
     return this.previousEvent;
   }
 
   private JsonEvent createEndArrayEvent() {
-    state.pop();
-    dump("jsonp end array");
-    expectCommaOrEnd = expectCommaOrEndStack.pop();
+    stateSize--;
+    expectCommaOrEnd = expectCommaOrEndStack[--expectCommaOrEndSize];
 
     // if the end of the array is also the of
     // a property, we need to fire the
     // endPropertyEvent before going forward.
-    if (state.peek() == ReaderState.PROPERTY) {
+    if (peekState() == ReaderState.PROPERTY) {
       fireEndPropertyEvent = true;
     }
 
-    this.previousEvent = new JsonEventImpl() {
-      @Override
-      public boolean isEndArray() {
-        return true;
-      }
-    };
+    this.previousEvent = END_ARRAY;
     return this.previousEvent;
   }
 
-  private JsonEvent createValueEvent(final String value) {
-    dump("jsonp value: " + value);
-    this.previousEvent = new JsonValueEventImpl() {
-      @Override
-      public String getValue() {
-        return value;
-      }
-    };
+  private JsonEvent createValueEvent(JsonEvent event) {
+    this.previousEvent = event;
     return this.previousEvent;
   }
 
+  private void pushState(ReaderState readerState) {
+    if (stateSize == state.length) {
+      ReaderState[] grown = new ReaderState[stateSize * 2];
+      System.arraycopy(state, 0, grown, 0, stateSize);
+      state = grown;
+    }
+    state[stateSize++] = readerState;
+  }
+
+  private ReaderState peekState() {
+    return state[stateSize - 1];
+  }
+
+  private void pushExpectCommaOrEnd() {
+    if (expectCommaOrEndSize == expectCommaOrEndStack.length) {
+      boolean[] grown = new boolean[expectCommaOrEndSize * 2];
+      System.arraycopy(expectCommaOrEndStack, 0, grown, 0, expectCommaOrEndSize);
+      expectCommaOrEndStack = grown;
+    }
+    expectCommaOrEndStack[expectCommaOrEndSize++] = expectCommaOrEnd;
+    expectCommaOrEnd = false;
+  }
+
   @Override
   public JsonEvent previousEvent() {
     return previousEvent;
@@ -756,8 +968,8 @@ class JsonStreamReaderImpl implements JsonStreamReader {
       return;
 
     // skip until stack element pushed by a start event has been removed by the corresponding end event
-    int stackSize = state.size();
-    while (hasNext() && state.size() >= stackSize)
+    int stackSize = stateSize;
+    while (hasNext() && stateSize >= stackSize)
       nextEvent();
   }
 
@@ -2,157 +2,266 @@ package org.odata4j.format.json;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.odata4j.core.Throwables;
 
+/**
+ * Writes JSON tokens to a writer.
+ *
+ * <p>The output is buffered; call {@link #flush()} when done, the underlying writer is not flushed
+ * itself. Strings are escaped through a table, numbers written without intermediate strings, and
+ * names written from pre-escaped tokens, which are kept across writers.</p>
+ *
+ * <p>By default the output is indented by line breaks; compact output without whitespace is
+ * chosen per writer, or by default with the system property {@link #COMPACT_PROPERTY}.</p>
+ */
 public class JsonWriter {
 
+  /** The system property making compact output the default, if set to {@code true}. */
+  public static final String COMPACT_PROPERTY = "odata4j.json.compact";
+
+  private static final int BUFFER_SIZE = 8192;
+  // names are property names of the metadata, but are not cached without limit anyway
+  private static final int MAX_NAMES = 4096;
+
+  // the escape sequences of the ASCII characters, null for the characters written as they are
+  private static final char[][] ESCAPES = new char[128][];
+  static {
+    for (int c = 0; c < 0x20; c++)
+      ESCAPES[c] = String.format("\\u%04x", c).toCharArray();
+    ESCAPES['"'] = "\\\"".toCharArray();
+    ESCAPES['\\'] = "\\\\".toCharArray();
+    ESCAPES['\n'] = "\\n".toCharArray();
+    ESCAPES['\r'] = "\\r".toCharArray();
+    ESCAPES['\f'] = "\\f".toCharArray();
+    ESCAPES['\b'] = "\\b".toCharArray();
+    ESCAPES['\t'] = "\\t".toCharArray();
+  }
+
+  private static final char[] TRUE = "true".toCharArray();
+  private static final char[] FALSE = "false".toCharArray();
+  private static final char[] NULL = "null".toCharArray();
+  private static final char[] MIN_LONG = Long.toString(Long.MIN_VALUE).toCharArray();
+
+  // the quoted and escaped names, by name
+  private static final ConcurrentMap<String, char[]> NAMES = new ConcurrentHashMap<String, char[]>();
+
   private final Writer writer;
+  private final boolean compact;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private final char[] digits = new char[20];
+  private int position;
 
   public JsonWriter(Writer writer) {
+    this(writer, Boolean.getBoolean(COMPACT_PROPERTY));
+  }
+
+  /**
+   * Creates the writer.
+   *
+   * @param writer  the underlying writer
+   * @param compact  whether the output has no whitespace between tokens
+   */
+  public JsonWriter(Writer writer, boolean compact) {
     this.writer = writer;
+    this.compact = compact;
+  }
+
+  public boolean isCompact() {
+    return compact;
   }
 
   public void startCallback(String functionName) {
-    try {
-      writer.write(encode(functionName) + "(");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    writeEscaped(functionName);
+    write('(');
   }
 
   public void endCallback() {
-    try {
-      writer.write(");");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write(')');
+    write(';');
   }
 
   public void startObject() {
-    try {
-      writer.write("{\n");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write('{');
+    if (!compact)
+      write('\n');
   }
 
   public void endObject() {
-    try {
-      writer.write("\n}");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    if (!compact)
+      write('\n');
+    write('}');
   }
 
   public void writeName(String name) {
-    try {
-      writer.write("\"" + encode(name) + "\" : ");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    char[] token = NAMES.get(name);
+    if (token == null) {
+      token = quote(name);
+      if (NAMES.size() < MAX_NAMES)
+        NAMES.putIfAbsent(name, token);
+    }
+    write(token);
+    if (compact) {
+      write(':');
+    } else {
+      write(' ');
+      write(':');
+      write(' ');
     }
   }
 
   public void startArray() {
-    try {
-      writer.write("[\n");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write('[');
+    if (!compact)
+      write('\n');
   }
 
   public void endArray() {
-    try {
-      writer.write("\n]");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    if (!compact)
+      write('\n');
+    write(']');
   }
 
   public void writeSeparator() {
-    try {
-      writer.write(", ");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write(',');
+    if (!compact)
+      write(' ');
   }
 
   public void writeString(String value) {
-    try {
-      writer.write("\"" + encode(value) + "\"");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write('"');
+    writeEscaped(value);
+    write('"');
   }
 
   public void writeNull() {
-    try {
-      writer.write("null");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write(NULL);
   }
 
   public void writeNumber(int value) {
-    try {
-      writer.write(Integer.toString(value));
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    writeNumber((long) value);
+  }
+
+  public void writeNumber(long value) {
+    if (value == Long.MIN_VALUE) {
+      write(MIN_LONG);
+      return;
+    }
+    if (value < 0) {
+      write('-');
+      value = -value;
     }
+    int i = digits.length;
+    do {
+      digits[--i] = (char) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    write(digits, i, digits.length - i);
+  }
+
+  /**
+   * Writes a number as string, as Edm.Int64 values are.
+   */
+  public void writeQuotedNumber(long value) {
+    write('"');
+    writeNumber(value);
+    write('"');
   }
 
   public void writeNumber(float value) {
-    try {
-      String fvalue = Float.toString(value);
-      while (fvalue.contains(".") && fvalue.endsWith("0"))
-        fvalue = fvalue.substring(0, fvalue.length() - 1);
-      if (fvalue.endsWith("."))
-        fvalue = fvalue.substring(0, fvalue.length() - 1);
-      writer.write(fvalue);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    String fvalue = Float.toString(value);
+    int end = fvalue.length();
+    // drop the trailing zeros of the fraction, unless there is an exponent
+    if (fvalue.indexOf('.') >= 0 && fvalue.indexOf('E') < 0) {
+      while (fvalue.charAt(end - 1) == '0')
+        end--;
+      if (fvalue.charAt(end - 1) == '.')
+        end--;
     }
+    write(fvalue, 0, end);
   }
 
   public void writeBoolean(boolean value) {
-    try {
-      writer.write(value ? "true" : "false");
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    write(value ? TRUE : FALSE);
   }
 
   public void writeRaw(String value) {
+    write(value, 0, value.length());
+  }
+
+  /**
+   * Writes the buffered output to the underlying writer.
+   */
+  public void flush() {
     try {
-      writer.write(value);
+      writer.write(buffer, 0, position);
+      position = 0;
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
   }
 
-  private String encode(String unencoded) {
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < unencoded.length(); i++) {
-      char c = unencoded.charAt(i);
-      if (c == '\\')
-        sb.append("\\\\");
-      else if (c == '"')
-        sb.append("\\\"");
-      else if (c == '\n')
-        sb.append("\\n");
-      else if (c == '\r')
-        sb.append("\\r");
-      else if (c == '\f')
-        sb.append("\\f");
-      else if (c == '\b')
-        sb.append("\\b");
-      else if (c == '\t')
-        sb.append("\\t");
-
+  private static char[] quote(String name) {
+    StringBuilder sb = new StringBuilder(name.length() + 2);
+    sb.append('"');
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c < ESCAPES.length && ESCAPES[c] != null)
+        sb.append(ESCAPES[c]);
       else
         sb.append(c);
     }
-    return sb.toString();
+    sb.append('"');
+    return sb.toString().toCharArray();
+  }
+
+  private void writeEscaped(String value) {
+    int start = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < ESCAPES.length && ESCAPES[c] != null) {
+        write(value, start, i);
+        write(ESCAPES[c]);
+        start = i + 1;
+      }
+    }
+    write(value, start, length);
+  }
+
+  private void write(char c) {
+    if (position == buffer.length)
+      flush();
+    buffer[position++] = c;
+  }
+
+  private void write(char[] chars) {
+    write(chars, 0, chars.length);
+  }
+
+  private void write(char[] chars, int offset, int length) {
+    while (length > 0) {
+      if (position == buffer.length)
+        flush();
+      int n = Math.min(length, buffer.length - position);
+      System.arraycopy(chars, offset, buffer, position, n);
+      position += n;
+      offset += n;
+      length -= n;
+    }
+  }
+
+  private void write(String value, int start, int end) {
+    while (start < end) {
+      if (position == buffer.length)
+        flush();
+      int n = Math.min(end - start, buffer.length - position);
+      value.getChars(start, start + n, buffer, position);
+      position += n;
+      start += n;
+    }
   }
 
 }
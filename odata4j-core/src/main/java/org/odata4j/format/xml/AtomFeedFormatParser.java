@@ -31,6 +31,7 @@ import org.odata4j.edm.EdmType;
 import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
+import org.odata4j.format.StreamingEntries;
 import org.odata4j.internal.InternalUtil;
 import org.odata4j.stax2.Attribute2;
 import org.odata4j.stax2.QName2;
@@ -66,6 +67,9 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
 
     @Override
     public String getNext() {
+      // the next link may follow the entries
+      if (entries instanceof StreamingEntries)
+        ((StreamingEntries) entries).finish();
       return next;
     }
   }
@@ -151,9 +155,22 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     }
   }
 
+  /**
+   * Parses a feed, whose entries are parsed as they are iterated; see {@link StreamingEntries}.
+   * Inline feeds are parsed with their entry.
+   */
   @Override
   public AtomFeed parse(Reader reader) {
-    return parseFeed(StaxUtil.newXMLEventReader(reader), getEntitySet());
+    final XMLEventReader2 xmlReader = StaxUtil.newXMLEventReader(reader);
+    final EdmEntitySet entitySet = getEntitySet();
+    final AtomFeed feed = new AtomFeed();
+    feed.entries = new StreamingEntries() {
+      @Override
+      protected Entry parseNext() {
+        return parseNextEntry(xmlReader, feed, entitySet);
+      }
+    };
+    return feed;
   }
 
   AtomFeed parseFeed(XMLEventReader2 reader, EdmEntitySet entitySet) {
@@ -161,11 +178,22 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     AtomFeed feed = new AtomFeed();
     List<AtomEntry> rt = new ArrayList<AtomEntry>();
 
+    AtomEntry entry;
+    while ((entry = parseNextEntry(reader, feed, entitySet)) != null)
+      rt.add(entry);
+    feed.entries = Enumerable.create(rt).cast(Entry.class);
+
+    return feed;
+
+  }
+
+  // reads up to the next entry of the feed and parses it, returns null at the end of the feed
+  private AtomEntry parseNextEntry(XMLEventReader2 reader, AtomFeed feed, EdmEntitySet entitySet) {
     while (reader.hasNext()) {
       XMLEvent2 event = reader.nextEvent();
 
       if (isStartElement(event, ATOM_ENTRY)) {
-        rt.add(parseEntry(reader, event.asStartElement(), entitySet));
+        return parseEntry(reader, event.asStartElement(), entitySet);
       } else if (isStartElement(event, ATOM_LINK)) {
         if ("next".equals(event.asStartElement().getAttributeByName(new QName2("rel")).getValue())) {
           feed.next = event.asStartElement().getAttributeByName(new QName2("href")).getValue();
@@ -176,10 +204,7 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
       }
 
     }
-    feed.entries = Enumerable.create(rt).cast(Entry.class);
-
-    return feed;
-
+    return null;
   }
 
   public static Iterable<OProperty<?>> parseProperties(XMLEventReader2 reader, StartElement2 propertiesElement, EdmDataServices metadata, EdmStructuralType structuralType) {
@@ -14,6 +14,7 @@ import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.format.FormatWriter;
 import org.odata4j.internal.InternalUtil;
 import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.StreamingEntitiesResponse;
 import org.odata4j.stax2.QName2;
 import org.odata4j.stax2.XMLFactoryProvider2;
 import org.odata4j.stax2.XMLWriter2;
@@ -55,10 +56,16 @@ public class AtomFeedFormatWriter extends XmlFormatWriter implements FormatWrite
       writeElement(writer, "m:count", inlineCount.toString());
     }
 
-    for (OEntity entity : response.getEntities()) {
+    // a streaming response is read once, so the entities are counted while they are written
+    Iterable<OEntity> entities = response instanceof StreamingEntitiesResponse
+        ? ((StreamingEntitiesResponse) response).streamEntities()
+        : response.getEntities();
+    int count = 0;
+    for (OEntity entity : entities) {
       writer.startElement("entry");
       writeEntry(writer, entity, entity.getProperties(), entity.getLinks(), baseUri, updated, ees, true);
       writer.endElement("entry");
+      count++;
     }
 
     if (response.getSkipToken() != null) {
@@ -67,7 +74,7 @@ public class AtomFeedFormatWriter extends XmlFormatWriter implements FormatWrite
       List<String> topParam = uriInfo.getQueryParameters().get("$top");
       if (topParam != null) {
         long top = Long.valueOf(topParam.get(0));
-        top -= response.getEntities().size();
+        top -= count;
         if (top > 0) {
           builder.replaceQueryParam("$top", top);
         } else {
@@ -1,5 +1,6 @@
 package org.odata4j.internal;
 
+import java.math.BigDecimal;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
@@ -36,6 +37,8 @@ public class TypeConverter {
         return (T) (Object) ((Number) obj).floatValue();
       else if (desiredClass.equals(Double.TYPE) || desiredClass.equals(Double.class))
         return (T) (Object) ((Number) obj).doubleValue();
+      else if (desiredClass.equals(BigDecimal.class))
+        return (T) new BigDecimal(obj.toString());
     }
 
     // date / time conversions
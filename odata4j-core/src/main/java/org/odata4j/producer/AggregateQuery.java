@@ -0,0 +1,255 @@
+package org.odata4j.producer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.odata4j.core.OCollection;
+import org.odata4j.core.OCollections;
+import org.odata4j.core.OComplexObject;
+import org.odata4j.core.OComplexObjects;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.core.OSimpleObjects;
+import org.odata4j.edm.EdmComplexType;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.exceptions.BadRequestException;
+import org.odata4j.internal.TypeConverter;
+
+/**
+ * <code>AggregateQuery</code> represents a grouping and aggregation of the entities of an entity set
+ * as a strongly-typed immutable data structure.
+ *
+ * <p>It is given as two custom query options: {@code groupby}, a comma-separated list of property
+ * names, and {@code aggregate}, a comma-separated list of aggregates like {@code sum(Freight) as Total}.
+ * The functions are sum, min, max, avg and count; {@code count()} counts the entities of a group.
+ * An aggregate without an alias is named after its function and property, e.g. {@code SumFreight}.</p>
+ *
+ * <p>Every group becomes one complex object, with a property for each group-by property followed
+ * by a property for each aggregate.</p>
+ *
+ * @see AggregationExtension
+ */
+public class AggregateQuery {
+
+  /** The custom query option holding the group-by properties. */
+  public static final String GROUP_BY_OPTION = "groupby";
+
+  /** The custom query option holding the aggregates. */
+  public static final String AGGREGATE_OPTION = "aggregate";
+
+  private static final Pattern AGGREGATE_PATTERN = Pattern.compile(
+      "(\\w+)\\s*\\(\\s*(\\w*)\\s*\\)(?:\\s+as\\s+(\\w+))?", Pattern.CASE_INSENSITIVE);
+
+  public enum Function {
+    SUM, MIN, MAX, AVG, COUNT
+  }
+
+  /**
+   * An aggregate function applied to a property.
+   */
+  public static class Aggregate {
+
+    /** The aggregate function. */
+    public final Function function;
+
+    /** The property name, null for counting entities. */
+    public final String propertyName;
+
+    /** The name of the result property. */
+    public final String alias;
+
+    public Aggregate(Function function, String propertyName, String alias) {
+      this.function = function;
+      this.propertyName = propertyName;
+      this.alias = alias;
+    }
+
+    @Override
+    public String toString() {
+      return function.name().toLowerCase() + "(" + (propertyName == null ? "" : propertyName) + ") as " + alias;
+    }
+  }
+
+  /** The names of the properties to group by, in order; empty for a single group. */
+  public final List<String> groupBy;
+
+  /** The aggregates to compute for every group. */
+  public final List<Aggregate> aggregates;
+
+  public AggregateQuery(List<String> groupBy, List<Aggregate> aggregates) {
+    this.groupBy = groupBy == null ? Collections.<String> emptyList() : Collections.unmodifiableList(new ArrayList<String>(groupBy));
+    this.aggregates = aggregates == null ? Collections.<Aggregate> emptyList() : Collections.unmodifiableList(new ArrayList<Aggregate>(aggregates));
+  }
+
+  /**
+   * Parses the aggregation custom query options.
+   *
+   * @param customOptions  the custom query options, may be null
+   * @return the query, or null if neither option is present
+   * @throws BadRequestException if an option is malformed
+   */
+  public static AggregateQuery parse(Map<String, String> customOptions) {
+    if (customOptions == null)
+      return null;
+    return parse(customOptions.get(GROUP_BY_OPTION), customOptions.get(AGGREGATE_OPTION));
+  }
+
+  /**
+   * Parses the values of the aggregation custom query options.
+   *
+   * @param groupBy  the value of the {@code groupby} option, may be null
+   * @param aggregate  the value of the {@code aggregate} option, may be null
+   * @return the query, or null if both values are null
+   * @throws BadRequestException if a value is malformed
+   */
+  public static AggregateQuery parse(String groupBy, String aggregate) {
+    if (groupBy == null && aggregate == null)
+      return null;
+
+    List<String> groupByList = new ArrayList<String>();
+    if (groupBy != null) {
+      for (String propertyName : groupBy.split(",")) {
+        propertyName = propertyName.trim();
+        if (!propertyName.matches("\\w+"))
+          throw new BadRequestException("Invalid group by property: " + propertyName);
+        groupByList.add(propertyName);
+      }
+    }
+
+    List<Aggregate> aggregates = new ArrayList<Aggregate>();
+    if (aggregate != null) {
+      for (String token : aggregate.split(",")) {
+        Matcher matcher = AGGREGATE_PATTERN.matcher(token.trim());
+        if (!matcher.matches())
+          throw new BadRequestException("Invalid aggregate: " + token.trim());
+        Function function;
+        try {
+          function = Function.valueOf(matcher.group(1).toUpperCase());
+        } catch (IllegalArgumentException e) {
+          throw new BadRequestException("Unknown aggregate function: " + matcher.group(1));
+        }
+        String propertyName = matcher.group(2).length() == 0 ? null : matcher.group(2);
+        if (propertyName == null && function != Function.COUNT)
+          throw new BadRequestException("Aggregate function " + matcher.group(1) + " requires a property");
+        String alias = matcher.group(3);
+        if (alias == null) {
+          String functionName = function.name().charAt(0) + function.name().substring(1).toLowerCase();
+          alias = propertyName == null ? functionName : functionName + propertyName;
+        }
+        aggregates.add(new Aggregate(function, propertyName, alias));
+      }
+    }
+    return new AggregateQuery(groupByList, aggregates);
+  }
+
+  /**
+   * Gets the type of the objects the query returns for an entity set.
+   *
+   * @param entitySet  the entity set
+   * @return the complex type
+   * @throws BadRequestException if the query refers to unknown properties or cannot be applied to their types
+   */
+  public EdmComplexType getResultType(EdmEntitySet entitySet) {
+    EdmEntityType entityType = entitySet.getType();
+    Set<String> names = new HashSet<String>();
+    List<EdmProperty.Builder> properties = new ArrayList<EdmProperty.Builder>();
+    for (String propertyName : groupBy) {
+      properties.add(EdmProperty.newBuilder(propertyName).setType(getPropertyType(entityType, propertyName)).setNullable(true));
+      names.add(propertyName);
+    }
+    for (Aggregate aggregate : aggregates) {
+      if (!names.add(aggregate.alias))
+        throw new BadRequestException("Duplicate aggregate name: " + aggregate.alias);
+      properties.add(EdmProperty.newBuilder(aggregate.alias).setType(getResultType(entityType, aggregate)).setNullable(true));
+    }
+    return EdmComplexType.newBuilder()
+        .setNamespace(entityType.getNamespace())
+        .setName(entityType.getName() + "Aggregate")
+        .addProperties(properties)
+        .build();
+  }
+
+  /**
+   * Gets the type of the value an aggregate computes: Int64 for counts and sums of integral
+   * values, Double for averages and sums of floating-point values, Decimal for averages and sums
+   * of decimals, and the property type for min and max.
+   */
+  public static EdmSimpleType<?> getResultType(EdmEntityType entityType, Aggregate aggregate) {
+    if (aggregate.function == Function.COUNT) {
+      if (aggregate.propertyName != null)
+        getPropertyType(entityType, aggregate.propertyName);
+      return EdmSimpleType.INT64;
+    }
+
+    EdmSimpleType<?> type = getPropertyType(entityType, aggregate.propertyName);
+    if (aggregate.function == Function.MIN || aggregate.function == Function.MAX)
+      return type;
+    if (type.equals(EdmSimpleType.DECIMAL))
+      return EdmSimpleType.DECIMAL;
+    if (type.equals(EdmSimpleType.DOUBLE) || type.equals(EdmSimpleType.SINGLE))
+      return EdmSimpleType.DOUBLE;
+    if (isIntegral(type))
+      return aggregate.function == Function.AVG ? EdmSimpleType.DOUBLE : EdmSimpleType.INT64;
+    throw new BadRequestException("Cannot compute " + aggregate.function.name().toLowerCase() + " of " + type.getFullyQualifiedTypeName() + " property " + aggregate.propertyName);
+  }
+
+  private static boolean isIntegral(EdmSimpleType<?> type) {
+    return type.equals(EdmSimpleType.INT64) || type.equals(EdmSimpleType.INT32) || type.equals(EdmSimpleType.INT16)
+        || type.equals(EdmSimpleType.BYTE) || type.equals(EdmSimpleType.SBYTE);
+  }
+
+  private static EdmSimpleType<?> getPropertyType(EdmEntityType entityType, String propertyName) {
+    EdmProperty property = entityType.findProperty(propertyName);
+    if (property == null)
+      throw new BadRequestException("Property " + propertyName + " not found in " + entityType.getFullyQualifiedTypeName());
+    if (!property.getType().isSimple())
+      throw new BadRequestException("Property " + propertyName + " is not of a simple type");
+    return (EdmSimpleType<?>) property.getType();
+  }
+
+  /**
+   * Creates the response for the groups computed by a producer.
+   *
+   * @param entitySet  the entity set
+   * @param rows  one row per group: the values of the group-by properties followed by the aggregate values
+   * @return a collection of complex objects
+   */
+  public CollectionResponse<OComplexObject> createResponse(EdmEntitySet entitySet, Iterable<Object[]> rows) {
+    EdmComplexType type = getResultType(entitySet);
+    List<EdmProperty> properties = type.getProperties().toList();
+    OCollection.Builder<OComplexObject> collection = OCollections.newBuilder(type);
+    for (Object[] row : rows) {
+      List<OProperty<?>> values = new ArrayList<OProperty<?>>(properties.size());
+      for (int i = 0; i < properties.size(); i++) {
+        EdmSimpleType<?> propertyType = (EdmSimpleType<?>) properties.get(i).getType();
+        Object value = row[i];
+        // producers return the values of their stores, e.g. Integer counts or java.sql.Timestamps
+        if (value instanceof Number || value instanceof java.util.Date)
+          value = TypeConverter.convert(value, propertyType.getCanonicalJavaType());
+        value = OSimpleObjects.create(propertyType, value).getValue();
+        values.add(OProperties.simple(properties.get(i).getName(), propertyType, value));
+      }
+      collection.add(OComplexObjects.create(type, values));
+    }
+
+    @SuppressWarnings("unchecked")
+    CollectionResponse<OComplexObject> rt = (CollectionResponse<OComplexObject>) Responses.collection(
+        collection.build(), null, null, null, entitySet.getName());
+    return rt;
+  }
+
+  @Override
+  public String toString() {
+    return "AggregateQuery[groupBy=" + groupBy + ", aggregates=" + aggregates + "]";
+  }
+
+}
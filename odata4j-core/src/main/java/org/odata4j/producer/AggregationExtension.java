@@ -0,0 +1,30 @@
+package org.odata4j.producer;
+
+import org.odata4j.core.OComplexObject;
+import org.odata4j.core.OExtension;
+
+/**
+ * An optional extension that a producer can expose to group and aggregate the entities of an
+ * entity set itself, instead of returning all of them to the client.
+ *
+ * <p>To expose this extension, the producer implementation has to return an instance of this
+ * interface when method {@code findExtension} is called and the first parameter is equal to
+ * {@code AggregationExtension.class}. Entity set requests with the {@code groupby} or
+ * {@code aggregate} custom query option are then passed to this extension.</p>
+ *
+ * @see AggregateQuery
+ */
+public interface AggregationExtension extends OExtension<ODataProducer> {
+
+  /**
+   * Groups and aggregates the entities of an entity set.
+   *
+   * @param context  the request context
+   * @param entitySetName  the entity set name
+   * @param queryInfo  the query; its filter selects the entities to aggregate
+   * @param aggregateQuery  the grouping and aggregates
+   * @return one complex object per group, see {@link AggregateQuery#createResponse}
+   */
+  CollectionResponse<OComplexObject> aggregate(ODataContext context, String entitySetName, QueryInfo queryInfo, AggregateQuery aggregateQuery);
+
+}
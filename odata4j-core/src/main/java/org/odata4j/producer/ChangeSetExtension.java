@@ -0,0 +1,56 @@
+package org.odata4j.producer;
+
+import java.util.List;
+
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OExtension;
+
+/**
+ * An optional extension that a producer can expose to apply the operations of a $batch change set
+ * as a single unit of work, e.g. in one database transaction.
+ *
+ * <p>To expose this extension, the producer implementation has to return an instance of this
+ * interface when method {@code findExtension} is called and the first parameter is equal to
+ * {@code ChangeSetExtension.class}. Batch requests consisting of creates and deletes only are then
+ * recorded into a change set and committed at once; other batch requests are processed one
+ * operation at a time as before.</p>
+ */
+public interface ChangeSetExtension extends OExtension<ODataProducer> {
+
+  /**
+   * Operations recorded for a single commit. Nothing is applied before {@link #commit()}, and if
+   * commit fails none of the operations are applied.
+   */
+  interface ChangeSet {
+
+    /**
+     * Records the creation of an entity.
+     *
+     * @param context  the context of the operation, for its {@link ReturnPreference}
+     * @param entitySetName  the entity set
+     * @param entity  the entity to create
+     */
+    void createEntity(ODataContext context, String entitySetName, OEntity entity);
+
+    void deleteEntity(String entitySetName, OEntityKey entityKey);
+
+    /**
+     * Applies the recorded operations, in order.
+     *
+     * @return one element per operation, in order: the created entity for creates, null for deletes;
+     *   if the client of a create prefers no content, the entity may only carry its key
+     */
+    List<EntityResponse> commit();
+
+  }
+
+  /**
+   * Starts a new change set.
+   *
+   * @param context  the request context
+   * @return the change set
+   */
+  ChangeSet newChangeSet(ODataContext context);
+
+}
@@ -2,13 +2,17 @@ package org.odata4j.producer;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.odata4j.core.OCollection;
 import org.odata4j.core.OComplexObject;
+import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityId;
+import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OError;
+import org.odata4j.core.OLink;
 import org.odata4j.core.OObject;
 import org.odata4j.core.OProperty;
 import org.odata4j.edm.EdmEntitySet;
@@ -85,6 +89,18 @@ public class Responses {
     };
   }
 
+  /**
+   * Creates a new <code>EntityResponse</code> instance for an entity known by its key only, e.g.
+   * a created entity that is not returned to the client.
+   *
+   * @param entitySet  the entity set
+   * @param entityKey  the entity key
+   * @return a new <code>EntityResponse</code> instance
+   */
+  public static EntityResponse entity(EdmEntitySet entitySet, OEntityKey entityKey) {
+    return entity(OEntities.create(entitySet, entityKey, Collections.<OProperty<?>> emptyList(), Collections.<OLink> emptyList()));
+  }
+
   /**
    * Creates a new <code>PropertyResponse</code> instance.
    *
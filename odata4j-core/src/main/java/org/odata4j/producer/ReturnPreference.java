@@ -0,0 +1,90 @@
+package org.odata4j.producer;
+
+import org.odata4j.core.ODataConstants;
+
+/**
+ * The return preference of a write request, given by its Prefer header.
+ *
+ * <p>Both the OData tokens ({@code return-no-content}, {@code return-content}) and the RFC 7240
+ * ones ({@code return=minimal}, {@code return=representation}) are accepted. A producer may skip
+ * reading back a created entity if the client prefers no content; it then only has to return
+ * the key of the entity, see {@link Responses#entity(org.odata4j.edm.EdmEntitySet, org.odata4j.core.OEntityKey)}.</p>
+ */
+public enum ReturnPreference {
+
+  NO_CONTENT("return-no-content"),
+  CONTENT("return-content"),
+  MINIMAL("return=minimal"),
+  REPRESENTATION("return=representation");
+
+  private final String token;
+
+  private ReturnPreference(String token) {
+    this.token = token;
+  }
+
+  /**
+   * Whether the client prefers responses without the written entity.
+   */
+  public boolean isNoContent() {
+    return this == NO_CONTENT || this == MINIMAL;
+  }
+
+  /**
+   * Gets the token of the preference, for the Preference-Applied response header.
+   */
+  @Override
+  public String toString() {
+    return token;
+  }
+
+  /**
+   * Parses the value of a Prefer header.
+   *
+   * @param prefer  the header value, a comma-separated list of preferences
+   * @return the first return preference of the list, or null if there is none
+   */
+  public static ReturnPreference parse(String prefer) {
+    if (prefer == null)
+      return null;
+    for (String preference : prefer.split(",")) {
+      // the preference may carry parameters, e.g. return=minimal; foo="bar"
+      int end = preference.indexOf(';');
+      String token = (end < 0 ? preference : preference.substring(0, end)).trim();
+      for (ReturnPreference rt : values())
+        if (rt.token.equalsIgnoreCase(token))
+          return rt;
+    }
+    return null;
+  }
+
+  /**
+   * Gets the return preference of a request.
+   *
+   * @param context  the request context, may be null
+   * @return the return preference, or null if the client has none
+   */
+  public static ReturnPreference of(ODataContext context) {
+    ODataHeadersContext headers = context == null ? null : context.getRequestHeadersContext();
+    Iterable<String> values = headers == null ? null : headers.getRequestHeaderValues(ODataConstants.Headers.PREFER);
+    if (values != null) {
+      for (String value : values) {
+        ReturnPreference rt = parse(value);
+        if (rt != null)
+          return rt;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Whether the client of a request prefers responses without the written entity.
+   *
+   * @param context  the request context, may be null
+   */
+  public static boolean isNoContent(ODataContext context) {
+    ReturnPreference preference = of(context);
+    return preference != null && preference.isNoContent();
+  }
+
+}
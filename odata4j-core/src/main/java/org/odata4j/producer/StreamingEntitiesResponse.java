@@ -0,0 +1,30 @@
+package org.odata4j.producer;
+
+import java.io.Closeable;
+
+import org.odata4j.core.OEntity;
+
+/**
+ * An {@link EntitiesResponse} whose entities can be read from an open cursor while they are written.
+ *
+ * <p>The cursor is only opened when {@link #streamEntities()} is iterated, and released after the
+ * last entity or on {@link #close()}. {@link #getEntities()} reads all entities into a list instead,
+ * releasing the cursor, so that callers unaware of streaming never keep it open.</p>
+ */
+public interface StreamingEntitiesResponse extends EntitiesResponse, Closeable {
+
+  /**
+   * Gets the entities, read from the cursor as they are iterated; they can be iterated once, and
+   * not after {@link #getEntities()}.
+   *
+   * @return the entities
+   */
+  Iterable<OEntity> streamEntities();
+
+  /**
+   * Releases the cursor, if it is open.
+   */
+  @Override
+  void close();
+
+}
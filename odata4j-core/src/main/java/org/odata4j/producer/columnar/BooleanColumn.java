@@ -0,0 +1,83 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A column of Boolean values, stored as one byte per row.
+ */
+public class BooleanColumn extends Column {
+
+  private final ByteBuffer data;
+
+  public BooleanColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer data, ByteBuffer nulls) {
+    super(name, type, size, nulls);
+    this.data = data;
+  }
+
+  public ByteBuffer getData() {
+    return data;
+  }
+
+  public boolean getBoolean(int row) {
+    return data.get(row) != 0;
+  }
+
+  @Override
+  public Object getValue(int row) {
+    return isNull(row) ? null : (Object) getBoolean(row);
+  }
+
+  @Override
+  public int compare(int row1, int row2) {
+    if (isNull(row1) || isNull(row2))
+      return isNull(row1) ? (isNull(row2) ? 0 : -1) : 1;
+    return data.get(row1) - data.get(row2);
+  }
+
+  @Override
+  public int compareTo(int row, Object value) {
+    if (isNull(row))
+      return value == null ? 0 : -1;
+    if (value == null)
+      return 1;
+    return data.get(row) - (((Boolean) value) ? 1 : 0);
+  }
+
+  @Override
+  protected boolean selectMatching(Comparison comparison, Object literal, BitSet rows) {
+    if (comparison != Comparison.EQ || !(literal instanceof Boolean))
+      return false;
+
+    byte value = (byte) (((Boolean) literal) ? 1 : 0);
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      if (data.get(row) == value)
+        rows.set(row);
+    }
+    return true;
+  }
+
+  static class Builder extends Column.Builder {
+
+    private ByteBuffer data = allocate(1024, false);
+
+    Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      super(name, type, direct);
+    }
+
+    @Override
+    protected void append(Object value) {
+      data = ensureCapacity(data, size + 1);
+      data.put(size, (byte) (Boolean.TRUE.equals(value) ? 1 : 0));
+    }
+
+    @Override
+    public Column build() {
+      return new BooleanColumn(name, type, size, copy(data, size, direct), buildNulls());
+    }
+  }
+
+}
@@ -0,0 +1,293 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+import org.odata4j.core.OSimpleObjects;
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * The values of one property of all rows of a {@link ColumnarTable}.
+ *
+ * <p>Values are held in a {@link ByteBuffer}, usually a direct one outside of the Java heap,
+ * in a fixed-width encoding per row. Null values are tracked in a separate bitmap.</p>
+ *
+ * <p>Columns are immutable and safe for concurrent readers.</p>
+ */
+public abstract class Column {
+
+  /**
+   * A comparison of a column value with a literal.
+   */
+  public enum Comparison {
+    EQ, NE, LT, LE, GT, GE;
+
+    /**
+     * Gets the comparison with swapped operands, e.g. {@code 1 lt X} is {@code X gt 1}.
+     */
+    public Comparison swap() {
+      switch (this) {
+      case LT:
+        return GT;
+      case LE:
+        return GE;
+      case GT:
+        return LT;
+      case GE:
+        return LE;
+      default:
+        return this;
+      }
+    }
+  }
+
+  private final String name;
+  private final EdmSimpleType<?> type;
+  private final int size;
+  private final ByteBuffer nulls;
+
+  /**
+   * Creates a new column.
+   *
+   * @param name  the property name
+   * @param type  the property type
+   * @param size  the number of rows
+   * @param nulls  a bitmap of the null rows, one bit per row; null if no row is null
+   */
+  protected Column(String name, EdmSimpleType<?> type, int size, ByteBuffer nulls) {
+    this.name = name;
+    this.type = type;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public EdmSimpleType<?> getType() {
+    return type;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the null bitmap.
+   *
+   * @return the bitmap, or null if no row is null
+   */
+  public ByteBuffer getNulls() {
+    return nulls;
+  }
+
+  public boolean isNull(int row) {
+    return nulls != null && (nulls.get(row >>> 3) & (1 << (row & 7))) != 0;
+  }
+
+  /**
+   * Gets the value of a row.
+   *
+   * @param row  the row index
+   * @return the value as an instance of the canonical java type of the column type, or null
+   */
+  public abstract Object getValue(int row);
+
+  /**
+   * Compares the values of two rows; nulls sort first.
+   */
+  public abstract int compare(int row1, int row2);
+
+  /**
+   * Compares the value of a row with the given value; nulls sort first.
+   *
+   * @param row  the row index
+   * @param value  a value of the column type
+   */
+  public abstract int compareTo(int row, Object value);
+
+  /**
+   * Selects the rows whose value compares to the literal as requested.
+   * Rows with a null value only match {@code ne}.
+   *
+   * @param comparison  the comparison
+   * @param literal  a non-null literal value
+   * @param rows  an empty set, receives the matching rows
+   * @return false if the literal cannot be compared by this column, nothing has been selected then
+   */
+  public boolean select(Comparison comparison, Object literal, BitSet rows) {
+    if (!selectMatching(comparison == Comparison.NE ? Comparison.EQ : comparison, literal, rows))
+      return false;
+    if (nulls != null) {
+      for (int i = 0; i < nulls.capacity(); i++) {
+        int bits = nulls.get(i) & 0xff;
+        for (int bit = 0; bits != 0; bit++, bits >>>= 1) {
+          if ((bits & 1) != 0)
+            rows.clear((i << 3) + bit);
+        }
+      }
+    }
+    if (comparison == Comparison.NE)
+      rows.flip(0, size);
+    return true;
+  }
+
+  /**
+   * Selects the rows whose value compares to the literal as requested, in a single loop over the
+   * column. Null rows may be selected, they are removed afterwards.
+   *
+   * @param comparison  the comparison, never {@link Comparison#NE}
+   * @param literal  a non-null literal value
+   * @param rows  an empty set, receives the matching rows
+   * @return false if the literal cannot be compared by this column
+   */
+  protected abstract boolean selectMatching(Comparison comparison, Object literal, BitSet rows);
+
+  /**
+   * Gets the inclusive range of integral values matching a comparison with an integral literal.
+   *
+   * @return {lo, hi}, empty if lo > hi
+   */
+  protected static long[] range(Comparison comparison, long literal) {
+    switch (comparison) {
+    case LT:
+      return literal == Long.MIN_VALUE ? new long[] { 1, 0 } : new long[] { Long.MIN_VALUE, literal - 1 };
+    case LE:
+      return new long[] { Long.MIN_VALUE, literal };
+    case GT:
+      return literal == Long.MAX_VALUE ? new long[] { 1, 0 } : new long[] { literal + 1, Long.MAX_VALUE };
+    case GE:
+      return new long[] { literal, Long.MAX_VALUE };
+    default:
+      return new long[] { literal, literal };
+    }
+  }
+
+  /**
+   * Gets the inclusive range of integral values matching a comparison with a floating point literal.
+   */
+  protected static long[] range(Comparison comparison, double literal) {
+    switch (comparison) {
+    case LT:
+      return new long[] { Long.MIN_VALUE, (long) Math.ceil(literal) - 1 };
+    case LE:
+      return new long[] { Long.MIN_VALUE, (long) Math.floor(literal) };
+    case GT:
+      return new long[] { (long) Math.floor(literal) + 1, Long.MAX_VALUE };
+    case GE:
+      return new long[] { (long) Math.ceil(literal), Long.MAX_VALUE };
+    default:
+      return literal == Math.rint(literal) ? new long[] { (long) literal, (long) literal } : new long[] { 1, 0 };
+    }
+  }
+
+  /**
+   * Builds a column row by row. Values are collected on the heap and copied into
+   * the final buffers by {@link #build()}.
+   */
+  public abstract static class Builder {
+
+    protected final String name;
+    protected final EdmSimpleType<?> type;
+    protected final boolean direct;
+    protected int size;
+    private final BitSet nulls = new BitSet();
+
+    protected Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      this.name = name;
+      this.type = type;
+      this.direct = direct;
+    }
+
+    /**
+     * Appends the value of the next row.
+     *
+     * @param value  the value, converted to the canonical java type of the column type
+     */
+    public void add(Object value) {
+      value = value == null ? null : OSimpleObjects.create(type, value).getValue();
+      if (value == null)
+        nulls.set(size);
+      append(value);
+      size++;
+    }
+
+    /**
+     * Appends the value of the next row.
+     *
+     * @param value  a value of the canonical java type, or null
+     */
+    protected abstract void append(Object value);
+
+    public abstract Column build();
+
+    protected ByteBuffer buildNulls() {
+      if (nulls.isEmpty())
+        return null;
+      ByteBuffer rt = allocate((size + 7) >>> 3, direct);
+      for (int row = nulls.nextSetBit(0); row >= 0; row = nulls.nextSetBit(row + 1))
+        rt.put(row >>> 3, (byte) (rt.get(row >>> 3) | (1 << (row & 7))));
+      return rt;
+    }
+  }
+
+  /**
+   * Allocates a zeroed buffer in native byte order.
+   */
+  static ByteBuffer allocate(int capacity, boolean direct) {
+    return (direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity)).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Copies the first bytes of a buffer into a new buffer of exactly that size.
+   */
+  static ByteBuffer copy(ByteBuffer source, int length, boolean direct) {
+    ByteBuffer rt = allocate(length, direct);
+    ByteBuffer src = source.duplicate();
+    src.clear();
+    src.limit(length);
+    rt.put(src);
+    rt.clear();
+    return rt;
+  }
+
+  /**
+   * Makes sure a growing buffer can hold the given number of bytes.
+   */
+  static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+    if (buffer.capacity() >= capacity)
+      return buffer;
+    ByteBuffer rt = allocate(Math.max(capacity, buffer.capacity() * 2), false);
+    ByteBuffer src = buffer.duplicate();
+    src.clear();
+    rt.put(src);
+    rt.clear();
+    return rt;
+  }
+
+  /**
+   * Creates the builder for a column of the given type.
+   *
+   * <p>Integral types up to Int32 are stored as ints, Int64 and DateTime as longs,
+   * Double and Single as doubles, Boolean as bytes; all other types are dictionary-encoded.</p>
+   *
+   * @param name  the property name
+   * @param type  the property type
+   * @param direct  whether to allocate the column outside of the Java heap
+   * @return a new column builder
+   */
+  public static Builder newBuilder(String name, EdmSimpleType<?> type, boolean direct) {
+    if (type.equals(EdmSimpleType.INT32) || type.equals(EdmSimpleType.INT16) || type.equals(EdmSimpleType.SBYTE))
+      return new IntColumn.Builder(name, type, direct);
+    if (type.equals(EdmSimpleType.INT64) || type.equals(EdmSimpleType.DATETIME))
+      return new LongColumn.Builder(name, type, direct);
+    if (type.equals(EdmSimpleType.DOUBLE) || type.equals(EdmSimpleType.SINGLE))
+      return new DoubleColumn.Builder(name, type, direct);
+    if (type.equals(EdmSimpleType.BOOLEAN))
+      return new BooleanColumn.Builder(name, type, direct);
+    return new DictionaryColumn.Builder(name, type, direct);
+  }
+
+}
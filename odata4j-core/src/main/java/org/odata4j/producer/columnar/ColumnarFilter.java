@@ -0,0 +1,145 @@
+package org.odata4j.producer.columnar;
+
+import java.util.BitSet;
+
+import org.odata4j.expression.AndExpression;
+import org.odata4j.expression.BinaryCommonExpression;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.BoolParenExpression;
+import org.odata4j.expression.BooleanLiteral;
+import org.odata4j.expression.CommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.EqExpression;
+import org.odata4j.expression.Expression;
+import org.odata4j.expression.GeExpression;
+import org.odata4j.expression.GtExpression;
+import org.odata4j.expression.LeExpression;
+import org.odata4j.expression.LiteralExpression;
+import org.odata4j.expression.LtExpression;
+import org.odata4j.expression.NeExpression;
+import org.odata4j.expression.NotExpression;
+import org.odata4j.expression.OrExpression;
+import org.odata4j.producer.columnar.Column.Comparison;
+import org.odata4j.producer.inmemory.InMemoryEvaluation;
+import org.odata4j.producer.inmemory.PropertyModel;
+
+/**
+ * Evaluates a $filter over a {@link ColumnarTable} into the set of matching rows.
+ *
+ * <p>Comparisons of a property with a literal run as a single loop over the column;
+ * and, or and not combine the row sets. Any other expression is evaluated row by row,
+ * but only for the rows still in question.</p>
+ */
+class ColumnarFilter {
+
+  private final ColumnarTable table;
+  private final PropertyModel properties;
+
+  ColumnarFilter(ColumnarTable table, PropertyModel properties) {
+    this.table = table;
+    this.properties = properties;
+  }
+
+  /**
+   * Gets the rows of the table matching the filter.
+   */
+  public BitSet select(BoolCommonExpression filter) {
+    BitSet all = new BitSet(table.size());
+    all.set(0, table.size());
+    return select(filter, all);
+  }
+
+  /**
+   * Gets the candidate rows matching the filter.
+   */
+  private BitSet select(CommonExpression filter, BitSet candidates) {
+    if (filter instanceof AndExpression) {
+      AndExpression e = (AndExpression) filter;
+      return select(e.getRHS(), select(e.getLHS(), candidates));
+    }
+    if (filter instanceof OrExpression) {
+      OrExpression e = (OrExpression) filter;
+      BitSet rt = select(e.getLHS(), candidates);
+      BitSet rest = (BitSet) candidates.clone();
+      rest.andNot(rt);
+      rt.or(select(e.getRHS(), rest));
+      return rt;
+    }
+    if (filter instanceof NotExpression) {
+      BitSet rt = (BitSet) candidates.clone();
+      rt.andNot(select(((NotExpression) filter).getExpression(), candidates));
+      return rt;
+    }
+    if (filter instanceof BoolParenExpression)
+      return select(((BoolParenExpression) filter).getExpression(), candidates);
+    if (filter instanceof BooleanLiteral)
+      return ((BooleanLiteral) filter).getValue() ? (BitSet) candidates.clone() : new BitSet();
+
+    BitSet rt = selectByColumn(filter);
+    if (rt != null) {
+      rt.and(candidates);
+      return rt;
+    }
+    return selectByRow(filter, candidates);
+  }
+
+  private BitSet selectByColumn(CommonExpression filter) {
+    Comparison comparison = comparison(filter);
+    if (comparison == null)
+      return null;
+
+    BinaryCommonExpression e = (BinaryCommonExpression) filter;
+    if (e.getLHS() instanceof EntitySimpleProperty && e.getRHS() instanceof LiteralExpression)
+      return selectByColumn(((EntitySimpleProperty) e.getLHS()).getPropertyName(), comparison, (LiteralExpression) e.getRHS());
+    if (e.getRHS() instanceof EntitySimpleProperty && e.getLHS() instanceof LiteralExpression)
+      return selectByColumn(((EntitySimpleProperty) e.getRHS()).getPropertyName(), comparison.swap(), (LiteralExpression) e.getLHS());
+    return null;
+  }
+
+  private BitSet selectByColumn(String propertyName, Comparison comparison, LiteralExpression literal) {
+    Column column = table.getColumn(propertyName);
+    if (column == null)
+      return null;
+
+    Object value = Expression.literalValue(literal);
+    BitSet rt = new BitSet(table.size());
+    if (value == null) {
+      if (comparison != Comparison.EQ && comparison != Comparison.NE)
+        return null;
+      for (int row = 0; row < column.size(); row++) {
+        if (column.isNull(row))
+          rt.set(row);
+      }
+      if (comparison == Comparison.NE)
+        rt.flip(0, column.size());
+      return rt;
+    }
+    return column.select(comparison, value, rt) ? rt : null;
+  }
+
+  private static Comparison comparison(CommonExpression filter) {
+    if (filter instanceof EqExpression)
+      return Comparison.EQ;
+    if (filter instanceof NeExpression)
+      return Comparison.NE;
+    if (filter instanceof LtExpression)
+      return Comparison.LT;
+    if (filter instanceof LeExpression)
+      return Comparison.LE;
+    if (filter instanceof GtExpression)
+      return Comparison.GT;
+    if (filter instanceof GeExpression)
+      return Comparison.GE;
+    return null;
+  }
+
+  private BitSet selectByRow(CommonExpression filter, BitSet candidates) {
+    BitSet rt = new BitSet(table.size());
+    for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+      if (Boolean.TRUE.equals(InMemoryEvaluation.evaluate(filter, (Object) row, properties)))
+        rt.set(row);
+    }
+    return rt;
+  }
+
+}
@@ -0,0 +1,414 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityId;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OExtension;
+import org.odata4j.core.OFunctionParameter;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmDataServices;
+import org.odata4j.edm.EdmEntityContainer;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmFunctionImport;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSchema;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.exceptions.NotImplementedException;
+import org.odata4j.producer.BaseResponse;
+import org.odata4j.producer.CountResponse;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.EntityIdResponse;
+import org.odata4j.producer.EntityQueryInfo;
+import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.InlineCount;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.ODataProducer;
+import org.odata4j.producer.PropertyPathHelper;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.Responses;
+import org.odata4j.producer.edm.MetadataProducer;
+import org.odata4j.producer.inmemory.PropertyModel;
+
+/**
+ * A read-only producer serving large, read-mostly entity sets from {@link ColumnarTable}s.
+ *
+ * <p>Rows are not held as objects: every property is stored in its own column, primitive types
+ * in fixed-width buffers outside of the Java heap and all others dictionary-encoded. A $filter is
+ * evaluated into a set of row numbers by loops over the columns, $orderby sorts the row numbers by
+ * comparing column values, and OEntities are only built for the rows on the page returned.</p>
+ *
+ * <p>To change the data of an entity set, build a new table and register it again; requests
+ * already running keep using the table they started with.</p>
+ */
+public class ColumnarProducer implements ODataProducer {
+
+  private static final int DEFAULT_MAX_RESULTS = 100;
+
+  private final String namespace;
+  private final String containerName;
+  private final int maxResults;
+  private final MetadataProducer metadataProducer;
+  private final Map<String, ColumnarTable> tables = new LinkedHashMap<String, ColumnarTable>();
+  private volatile EdmDataServices metadata;
+
+  /**
+   * Creates a new instance of a columnar producer.
+   *
+   * @param namespace  the namespace of the schema registrations
+   */
+  public ColumnarProducer(String namespace) {
+    this(namespace, null, DEFAULT_MAX_RESULTS);
+  }
+
+  /**
+   * Creates a new instance of a columnar producer.
+   *
+   * @param namespace  the namespace of the schema registrations
+   * @param containerName  the container name for generated metadata
+   * @param maxResults  the maximum number of entities to return in a single call
+   */
+  public ColumnarProducer(String namespace, String containerName, int maxResults) {
+    this.namespace = namespace;
+    this.containerName = containerName != null && !containerName.isEmpty() ? containerName : "Container";
+    this.maxResults = maxResults;
+    this.metadataProducer = new MetadataProducer(this, null);
+  }
+
+  /**
+   * Registers a table as an entity set, replacing a table registered for the same entity set before.
+   *
+   * @param table  the table
+   */
+  public synchronized void register(ColumnarTable table) {
+    ColumnarTable previous = tables.put(table.getEntitySetName(), table);
+    if (previous == null || !sameStructure(previous, table))
+      metadata = null;
+  }
+
+  /**
+   * Gets the table registered for an entity set.
+   *
+   * @param entitySetName  the entity set name
+   * @return the table
+   * @throws NotFoundException if there is no such entity set
+   */
+  public synchronized ColumnarTable getTable(String entitySetName) {
+    ColumnarTable table = tables.get(entitySetName);
+    if (table == null)
+      throw new NotFoundException("Entity set " + entitySetName + " not found");
+    return table;
+  }
+
+  private static boolean sameStructure(ColumnarTable t1, ColumnarTable t2) {
+    if (!t1.getEntityTypeName().equals(t2.getEntityTypeName()) || t1.getColumns().size() != t2.getColumns().size())
+      return false;
+    for (int i = 0; i < t1.getColumns().size(); i++) {
+      Column c1 = t1.getColumns().get(i);
+      Column c2 = t2.getColumns().get(i);
+      if (!c1.getName().equals(c2.getName()) || !c1.getType().equals(c2.getType()))
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized EdmDataServices getMetadata() {
+    if (metadata == null) {
+      List<EdmEntityType.Builder> entityTypes = new ArrayList<EdmEntityType.Builder>();
+      List<EdmEntitySet.Builder> entitySets = new ArrayList<EdmEntitySet.Builder>();
+      for (ColumnarTable table : tables.values()) {
+        List<EdmProperty.Builder> properties = new ArrayList<EdmProperty.Builder>();
+        List<String> keys = Arrays.asList(table.getKeys());
+        for (Column column : table.getColumns())
+          properties.add(EdmProperty.newBuilder(column.getName()).setType(column.getType()).setNullable(!keys.contains(column.getName())));
+        EdmEntityType.Builder entityType = EdmEntityType.newBuilder()
+            .setNamespace(namespace)
+            .setName(table.getEntityTypeName())
+            .addKeys(keys)
+            .addProperties(properties);
+        entityTypes.add(entityType);
+        entitySets.add(EdmEntitySet.newBuilder().setName(table.getEntitySetName()).setEntityType(entityType));
+      }
+
+      EdmEntityContainer.Builder container = EdmEntityContainer.newBuilder().setName(containerName).setIsDefault(true)
+          .addEntitySets(entitySets);
+      EdmSchema.Builder schema = EdmSchema.newBuilder().setNamespace(namespace)
+          .addEntityTypes(entityTypes)
+          .addEntityContainers(container);
+      metadata = EdmDataServices.newBuilder().addSchemas(schema).build();
+    }
+    return metadata;
+  }
+
+  @Override
+  public MetadataProducer getMetadataProducer() {
+    return metadataProducer;
+  }
+
+  @Override
+  public EntitiesResponse getEntities(ODataContext context, String entitySetName, final QueryInfo queryInfo) {
+    final ColumnarTable table = getTable(entitySetName);
+    EdmEntitySet entitySet = getMetadata().getEdmEntitySet(entitySetName);
+    PropertyModel properties = new ColumnarPropertyModel(table);
+
+    // filter into a set of row numbers
+    BitSet rows = select(table, properties, queryInfo);
+    Integer inlineCount = queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES
+        ? rows.cardinality()
+        : null;
+
+    // apply limit
+    int limit = this.maxResults;
+    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit)
+      limit = queryInfo.top;
+
+    // rows are returned in key order unless ordered otherwise
+    RowCursor cursor = new KeyOrderCursor(table, rows);
+    if (queryInfo != null && queryInfo.orderBy != null) {
+      int sortLimit = -1;
+      if (queryInfo.skipToken == null) {
+        long needed = (queryInfo.skip != null ? (long) queryInfo.skip : 0L) + limit + 1L;
+        sortLimit = needed > Integer.MAX_VALUE ? -1 : (int) needed;
+      }
+      int[] keyOrder = new int[rows.cardinality()];
+      for (int i = 0; i < keyOrder.length; i++)
+        keyOrder[i] = cursor.next();
+      cursor = new ArrayCursor(new ColumnarSort(table, properties, queryInfo.orderBy).sort(keyOrder, sortLimit));
+    }
+
+    // skip records by $skipToken, up to and including the row with the token's key
+    if (queryInfo != null && queryInfo.skipToken != null) {
+      for (int row = cursor.next(); row >= 0; row = cursor.next()) {
+        if (queryInfo.skipToken.equals(toOEntityKey(table, row).toKeyString()))
+          break;
+      }
+    }
+
+    // skip records by $skip amount
+    if (queryInfo != null && queryInfo.skip != null) {
+      for (int i = 0; i < queryInfo.skip; i++) {
+        if (cursor.next() < 0)
+          break;
+      }
+    }
+
+    // one extra row tells whether there is a next page
+    int[] page = new int[limit + 1];
+    int pageSize = 0;
+    for (int row; pageSize < page.length && (row = cursor.next()) >= 0;)
+      page[pageSize++] = row;
+    String skipToken = null;
+    if (pageSize > limit) {
+      pageSize = limit;
+      skipToken = pageSize == 0 ? null : toOEntityKey(table, page[pageSize - 1]).toKeyString();
+    }
+
+    // only the rows on the page become OEntities
+    PropertyPathHelper pathHelper = new PropertyPathHelper(queryInfo);
+    List<OEntity> entities = new ArrayList<OEntity>(pageSize);
+    for (int i = 0; i < pageSize; i++)
+      entities.add(toOEntity(table, entitySet, page[i], pathHelper));
+
+    return Responses.entities(entities, entitySet, inlineCount, skipToken);
+  }
+
+  @Override
+  public CountResponse getEntitiesCount(ODataContext context, String entitySetName, QueryInfo queryInfo) {
+    ColumnarTable table = getTable(entitySetName);
+
+    if (queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES)
+      throw new UnsupportedOperationException("$inlinecount cannot be applied to the resource segment '$count'");
+    if (queryInfo != null && queryInfo.skipToken != null)
+      throw new UnsupportedOperationException("Skip tokens can only be provided for requests that return collections of entities.");
+
+    long count = select(table, new ColumnarPropertyModel(table), queryInfo).cardinality();
+    if (queryInfo != null && queryInfo.skip != null)
+      count = Math.max(0, count - queryInfo.skip);
+    if (queryInfo != null && queryInfo.top != null)
+      count = Math.min(count, queryInfo.top);
+    return Responses.count(count);
+  }
+
+  private static BitSet select(ColumnarTable table, PropertyModel properties, QueryInfo queryInfo) {
+    if (queryInfo != null && queryInfo.filter != null)
+      return new ColumnarFilter(table, properties).select(queryInfo.filter);
+    BitSet rt = new BitSet(table.size());
+    rt.set(0, table.size());
+    return rt;
+  }
+
+  /**
+   * Reads row numbers one by one, without boxing them.
+   */
+  private interface RowCursor {
+
+    /**
+     * Gets the next row number, or -1 after the last one.
+     */
+    int next();
+  }
+
+  /**
+   * Reads the row numbers in a set, in key order.
+   */
+  private static class KeyOrderCursor implements RowCursor {
+
+    private final ColumnarTable table;
+    private final BitSet rows;
+    private final ByteBuffer keyIndex;
+    private int position = -1;
+
+    KeyOrderCursor(ColumnarTable table, BitSet rows) {
+      this.table = table;
+      this.rows = rows;
+      this.keyIndex = table.getKeyIndex();
+    }
+
+    @Override
+    public int next() {
+      while (++position < table.size()) {
+        int row = keyIndex.getInt(position << 2);
+        if (rows.get(row))
+          return row;
+      }
+      position = table.size();
+      return -1;
+    }
+  }
+
+  /**
+   * Reads the row numbers in an array.
+   */
+  private static class ArrayCursor implements RowCursor {
+
+    private final int[] rows;
+    private int position;
+
+    ArrayCursor(int[] rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public int next() {
+      return position < rows.length ? rows[position++] : -1;
+    }
+  }
+
+  @Override
+  public EntityResponse getEntity(ODataContext context, String entitySetName, OEntityKey entityKey, EntityQueryInfo queryInfo) {
+    ColumnarTable table = getTable(entitySetName);
+    int row = table.findRow(entityKey);
+    if (row < 0)
+      throw new NotFoundException("No entity found in entityset " + entitySetName
+          + " for key " + entityKey.toKeyStringWithoutParentheses());
+    return Responses.entity(toOEntity(table, getMetadata().getEdmEntitySet(entitySetName), row, new PropertyPathHelper(queryInfo)));
+  }
+
+  @Override
+  public BaseResponse getNavProperty(ODataContext context, String entitySetName, OEntityKey entityKey, String navProp, QueryInfo queryInfo) {
+    ColumnarTable table = getTable(entitySetName);
+    Column column = table.getColumn(navProp);
+    if (column == null)
+      throw new NotFoundException("Property " + navProp + " is not found");
+    int row = table.findRow(entityKey);
+    if (row < 0)
+      throw new NotFoundException("No entity found in entityset " + entitySetName
+          + " for key " + entityKey.toKeyStringWithoutParentheses());
+    return Responses.property(OProperties.simple(navProp, column.getType(), column.getValue(row)));
+  }
+
+  protected OEntity toOEntity(ColumnarTable table, EdmEntitySet entitySet, int row, PropertyPathHelper pathHelper) {
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
+    for (Column column : table.getColumns()) {
+      if (pathHelper.isSelected(column.getName()))
+        properties.add(OProperties.simple(column.getName(), column.getType(), column.getValue(row)));
+    }
+    return OEntities.create(entitySet, toOEntityKey(table, row), properties, new ArrayList<OLink>());
+  }
+
+  protected OEntityKey toOEntityKey(ColumnarTable table, int row) {
+    Map<String, Object> keyKVPair = new HashMap<String, Object>();
+    for (String key : table.getKeys())
+      keyKVPair.put(key, table.getColumn(key).getValue(row));
+    return OEntityKey.create(keyKVPair);
+  }
+
+  @Override
+  public CountResponse getNavPropertyCount(ODataContext context, String entitySetName, OEntityKey entityKey, String navProp, QueryInfo queryInfo) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void close() {
+
+  }
+
+  @Override
+  public EntityResponse createEntity(ODataContext context, String entitySetName, OEntity entity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public EntityResponse createEntity(ODataContext context, String entitySetName, OEntityKey entityKey, String navProp, OEntity entity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void deleteEntity(ODataContext context, String entitySetName, OEntityKey entityKey) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void mergeEntity(ODataContext context, String entitySetName, OEntity entity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void updateEntity(ODataContext context, String entitySetName, OEntity entity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public EntityIdResponse getLinks(ODataContext context, OEntityId sourceEntity, String targetNavProp) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void createLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityId targetEntity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void updateLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityKey oldTargetEntityKey, OEntityId newTargetEntity) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public void deleteLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityKey targetEntityKey) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public BaseResponse callFunction(ODataContext context, EdmFunctionImport name, Map<String, OFunctionParameter> params, QueryInfo queryInfo) {
+    throw new NotImplementedException();
+  }
+
+  @Override
+  public <TExtension extends OExtension<ODataProducer>> TExtension findExtension(Class<TExtension> clazz) {
+    return null;
+  }
+
+}
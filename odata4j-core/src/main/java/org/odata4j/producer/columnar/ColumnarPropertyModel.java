@@ -0,0 +1,82 @@
+package org.odata4j.producer.columnar;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.odata4j.producer.inmemory.PropertyModel;
+
+/**
+ * Exposes the rows of a {@link ColumnarTable} to the in-memory expression evaluation and
+ * sorting; the objects are row numbers ({@link Integer}s).
+ */
+class ColumnarPropertyModel implements PropertyModel {
+
+  private final ColumnarTable table;
+
+  ColumnarPropertyModel(ColumnarTable table) {
+    this.table = table;
+  }
+
+  @Override
+  public Object getPropertyValue(Object target, String propertyName) {
+    return getColumn(propertyName).getValue((Integer) target);
+  }
+
+  @Override
+  public void setPropertyValue(Object target, String propertyName, Object value) {
+    throw new UnsupportedOperationException("Columnar tables are read-only");
+  }
+
+  @Override
+  public Iterable<String> getPropertyNames() {
+    List<String> rt = new ArrayList<String>();
+    for (Column column : table.getColumns())
+      rt.add(column.getName());
+    return rt;
+  }
+
+  @Override
+  public Iterable<String> getDeclaredPropertyNames() {
+    return getPropertyNames();
+  }
+
+  @Override
+  public Class<?> getPropertyType(String propertyName) {
+    return getColumn(propertyName).getType().getCanonicalJavaType();
+  }
+
+  @Override
+  public Iterable<?> getCollectionValue(Object target, String collectionName) {
+    return null;
+  }
+
+  @Override
+  public void setCollectionValue(Object target, String collectionName, Collection<?> value) {
+    throw new UnsupportedOperationException("Columnar tables are read-only");
+  }
+
+  @Override
+  public Iterable<String> getCollectionNames() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public Iterable<String> getDeclaredCollectionNames() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public Class<?> getCollectionElementType(String collectionName) {
+    return null;
+  }
+
+  private Column getColumn(String propertyName) {
+    Column column = table.getColumn(propertyName);
+    if (column == null)
+      throw new IllegalArgumentException("Property " + propertyName + " not found in " + table.getEntitySetName());
+    return column;
+  }
+
+}
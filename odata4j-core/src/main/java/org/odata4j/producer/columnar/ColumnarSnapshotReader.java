@@ -0,0 +1,137 @@
+package org.odata4j.producer.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.odata4j.core.Throwables;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.edm.EdmType;
+
+/**
+ * Maps the tables of a snapshot file written by the {@link ColumnarSnapshotWriter} into memory.
+ *
+ * <p>Reading a snapshot only decodes its directory. The columns and key indexes are slices
+ * of the mapped file, so that the operating system pulls in pages as queries touch them, and
+ * dictionary values are decoded on first use.</p>
+ *
+ * <p>The file must not be modified while its tables are in use; write a new file and
+ * register the tables read from it instead.</p>
+ */
+public class ColumnarSnapshotReader {
+
+  private ColumnarSnapshotReader() {}
+
+  /**
+   * Maps the tables of a snapshot file.
+   *
+   * @param file  the snapshot file
+   * @return the tables, in the order written
+   * @throws IllegalArgumentException if the file is not a snapshot file or of an unsupported version
+   */
+  public static List<ColumnarTable> read(File file) {
+    try {
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = raf.getChannel();
+        if (channel.size() < ColumnarSnapshotWriter.HEADER_SIZE)
+          throw new IllegalArgumentException(file + " is not a snapshot file");
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, ColumnarSnapshotWriter.HEADER_SIZE);
+        byte[] magic = new byte[ColumnarSnapshotWriter.MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, ColumnarSnapshotWriter.MAGIC))
+          throw new IllegalArgumentException(file + " is not a snapshot file");
+        int version = header.getInt();
+        if (version != ColumnarSnapshotWriter.VERSION)
+          throw new IllegalArgumentException("Unsupported snapshot version " + version + " in " + file);
+        long directoryOffset = header.getLong();
+
+        ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, channel.size() - directoryOffset);
+        int tableCount = directory.getInt();
+        List<ColumnarTable> rt = new ArrayList<ColumnarTable>(tableCount);
+        for (int i = 0; i < tableCount; i++)
+          rt.add(readTable(channel, directory));
+        return rt;
+      } finally {
+        // mappings stay valid after the channel is closed
+        raf.close();
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static ColumnarTable readTable(FileChannel channel, ByteBuffer directory) throws IOException {
+    String entitySetName = readString(directory);
+    String entityTypeName = readString(directory);
+    String[] keys = new String[directory.getInt()];
+    for (int i = 0; i < keys.length; i++)
+      keys[i] = readString(directory);
+    int size = directory.getInt();
+    ByteOrder keyIndexOrder = readOrder(directory);
+    ByteBuffer keyIndex = readRegion(channel, directory, keyIndexOrder);
+
+    int columnCount = directory.getInt();
+    List<Column> columns = new ArrayList<Column>(columnCount);
+    for (int i = 0; i < columnCount; i++) {
+      String name = readString(directory);
+      String typeName = readString(directory);
+      EdmSimpleType<?> type = EdmType.getSimple(typeName);
+      if (type == null)
+        throw new IllegalArgumentException("Unknown type " + typeName + " of column " + name);
+      byte kind = directory.get();
+      ByteOrder order = readOrder(directory);
+      ByteBuffer data = readRegion(channel, directory, order);
+      ByteBuffer nulls = readRegion(channel, directory, order);
+
+      switch (kind) {
+      case ColumnarSnapshotWriter.INT_COLUMN:
+        columns.add(new IntColumn(name, type, size, data, nulls));
+        break;
+      case ColumnarSnapshotWriter.LONG_COLUMN:
+        columns.add(new LongColumn(name, type, size, data, nulls));
+        break;
+      case ColumnarSnapshotWriter.DOUBLE_COLUMN:
+        columns.add(new DoubleColumn(name, type, size, data, nulls));
+        break;
+      case ColumnarSnapshotWriter.BOOLEAN_COLUMN:
+        columns.add(new BooleanColumn(name, type, size, data, nulls));
+        break;
+      case ColumnarSnapshotWriter.DICTIONARY_COLUMN:
+        boolean sorted = directory.get() != 0;
+        int dictionarySize = directory.getInt();
+        ByteBuffer dictionary = readRegion(channel, directory, ByteOrder.BIG_ENDIAN);
+        columns.add(new MappedDictionaryColumn(name, type, size, data, dictionary, dictionarySize, sorted, nulls));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown kind " + kind + " of column " + name);
+      }
+    }
+    return new ColumnarTable(entitySetName, entityTypeName, keys, columns, keyIndex);
+  }
+
+  private static ByteBuffer readRegion(FileChannel channel, ByteBuffer directory, ByteOrder order) throws IOException {
+    long offset = directory.getLong();
+    long length = directory.getLong();
+    if (offset < 0)
+      return null;
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(order);
+  }
+
+  private static ByteOrder readOrder(ByteBuffer directory) {
+    return directory.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
+  private static String readString(ByteBuffer directory) {
+    byte[] bytes = new byte[directory.getInt()];
+    directory.get(bytes);
+    return new String(bytes, ColumnarSnapshotWriter.UTF8);
+  }
+
+}
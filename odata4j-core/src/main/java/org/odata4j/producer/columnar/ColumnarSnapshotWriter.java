@@ -0,0 +1,237 @@
+package org.odata4j.producer.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.odata4j.core.Throwables;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.internal.InternalUtil;
+import org.odata4j.repack.org.apache.commons.codec.binary.Base64;
+
+/**
+ * Writes {@link ColumnarTable}s to a snapshot file, to be mapped into memory by the
+ * {@link ColumnarSnapshotReader} later on.
+ *
+ * <p>Layout of a snapshot file, version 1:</p>
+ * <pre>
+ * header     magic "ODCOLSNP", int version, long directory offset (big-endian)
+ * regions    column values, null bitmaps, dictionaries and key indexes, 8-byte aligned,
+ *            each in the byte order noted in the directory
+ * directory  int table count, then per table (big-endian):
+ *              entity set name, entity type name, int key count, key names, int row count,
+ *              key index region, int column count, then per column:
+ *                name, type name, byte kind, byte order, data region, nulls region,
+ *                and for dictionary columns: boolean sorted, int dictionary size, dictionary region
+ * </pre>
+ *
+ * <p>Strings are stored as an int length followed by UTF-8 bytes, regions as a long offset
+ * (-1 if absent) followed by a long length. A dictionary region holds (size + 1) int offsets into
+ * the text following them, and the text of every value in its XML literal form.</p>
+ */
+public class ColumnarSnapshotWriter {
+
+  static final byte[] MAGIC = { 'O', 'D', 'C', 'O', 'L', 'S', 'N', 'P' };
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 20;
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  static final byte INT_COLUMN = 1;
+  static final byte LONG_COLUMN = 2;
+  static final byte DOUBLE_COLUMN = 3;
+  static final byte BOOLEAN_COLUMN = 4;
+  static final byte DICTIONARY_COLUMN = 5;
+
+  private ColumnarSnapshotWriter() {}
+
+  /**
+   * Writes a snapshot file, replacing an existing file.
+   *
+   * @param file  the snapshot file
+   * @param tables  the tables
+   */
+  public static void write(File file, ColumnarTable... tables) {
+    write(file, Arrays.asList(tables));
+  }
+
+  /**
+   * Writes a snapshot file, replacing an existing file.
+   *
+   * @param file  the snapshot file
+   * @param tables  the tables
+   */
+  public static void write(File file, Iterable<ColumnarTable> tables) {
+    try {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.setLength(0);
+        FileChannel channel = raf.getChannel();
+
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        List<ColumnarTable> list = new ArrayList<ColumnarTable>();
+        for (ColumnarTable table : tables)
+          list.add(table);
+
+        channel.position(HEADER_SIZE);
+        directory.writeInt(list.size());
+        for (ColumnarTable table : list)
+          writeTable(channel, directory, table);
+
+        long directoryOffset = align(channel);
+        directory.flush();
+        writeFully(channel, ByteBuffer.wrap(directoryBytes.toByteArray()));
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(VERSION).putLong(directoryOffset);
+        header.flip();
+        channel.position(0);
+        writeFully(channel, header);
+        channel.force(true);
+      } finally {
+        raf.close();
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static void writeTable(FileChannel channel, DataOutputStream directory, ColumnarTable table) throws IOException {
+    writeString(directory, table.getEntitySetName());
+    writeString(directory, table.getEntityTypeName());
+    directory.writeInt(table.getKeys().length);
+    for (String key : table.getKeys())
+      writeString(directory, key);
+    directory.writeInt(table.size());
+    directory.writeByte(order(table.getKeyIndex()));
+    writeRegion(channel, directory, table.getKeyIndex());
+
+    directory.writeInt(table.getColumns().size());
+    for (Column column : table.getColumns()) {
+      if (!(column instanceof IntColumn || column instanceof LongColumn || column instanceof DoubleColumn
+          || column instanceof BooleanColumn || column instanceof DictionaryColumn))
+        column = reencode(column);
+
+      writeString(directory, column.getName());
+      writeString(directory, column.getType().getFullyQualifiedTypeName());
+      if (column instanceof IntColumn) {
+        writeColumn(channel, directory, INT_COLUMN, ((IntColumn) column).getData(), column.getNulls());
+      } else if (column instanceof LongColumn) {
+        writeColumn(channel, directory, LONG_COLUMN, ((LongColumn) column).getData(), column.getNulls());
+      } else if (column instanceof DoubleColumn) {
+        writeColumn(channel, directory, DOUBLE_COLUMN, ((DoubleColumn) column).getData(), column.getNulls());
+      } else if (column instanceof BooleanColumn) {
+        writeColumn(channel, directory, BOOLEAN_COLUMN, ((BooleanColumn) column).getData(), column.getNulls());
+      } else {
+        DictionaryColumn dictionaryColumn = (DictionaryColumn) column;
+        writeColumn(channel, directory, DICTIONARY_COLUMN, dictionaryColumn.getCodes(), column.getNulls());
+        directory.writeBoolean(dictionaryColumn.isSorted());
+        directory.writeInt(dictionaryColumn.getDictionarySize());
+        writeRegion(channel, directory, encodeDictionary(dictionaryColumn));
+      }
+    }
+  }
+
+  /**
+   * Encodes a column of an unknown implementation the way a table builder would.
+   */
+  private static Column reencode(Column column) {
+    Column.Builder builder = Column.newBuilder(column.getName(), column.getType(), false);
+    for (int row = 0; row < column.size(); row++)
+      builder.add(column.getValue(row));
+    return builder.build();
+  }
+
+  private static void writeColumn(FileChannel channel, DataOutputStream directory, byte kind, ByteBuffer data, ByteBuffer nulls) throws IOException {
+    directory.writeByte(kind);
+    directory.writeByte(order(data));
+    writeRegion(channel, directory, data);
+    writeRegion(channel, directory, nulls);
+  }
+
+  private static ByteBuffer encodeDictionary(DictionaryColumn column) {
+    int size = column.getDictionarySize();
+    byte[][] values = new byte[size][];
+    int length = 0;
+    for (int i = 0; i < size; i++) {
+      values[i] = format(column.getType(), column.getDictionaryValue(i)).getBytes(UTF8);
+      length += values[i].length;
+    }
+
+    ByteBuffer rt = ByteBuffer.allocate(((size + 1) << 2) + length);
+    int offset = 0;
+    for (int i = 0; i < size; i++) {
+      rt.putInt(offset);
+      offset += values[i].length;
+    }
+    rt.putInt(offset);
+    for (byte[] value : values)
+      rt.put(value);
+    rt.clear();
+    return rt;
+  }
+
+  /**
+   * Formats a value in the literal form {@link org.odata4j.core.OSimpleObjects#parse(EdmSimpleType, String)} reads.
+   */
+  private static String format(EdmSimpleType<?> type, Object value) {
+    if (type.equals(EdmSimpleType.DATETIME))
+      return InternalUtil.formatDateTimeForXml((LocalDateTime) value);
+    if (type.equals(EdmSimpleType.DATETIMEOFFSET))
+      return InternalUtil.formatDateTimeOffsetForXml((DateTime) value);
+    if (type.equals(EdmSimpleType.TIME))
+      return InternalUtil.formatTimeForXml((LocalTime) value);
+    if (type.equals(EdmSimpleType.BINARY))
+      return Base64.encodeBase64String((byte[]) value);
+    return value.toString();
+  }
+
+  private static void writeRegion(FileChannel channel, DataOutputStream directory, ByteBuffer region) throws IOException {
+    if (region == null) {
+      directory.writeLong(-1);
+      directory.writeLong(0);
+      return;
+    }
+    ByteBuffer source = region.duplicate();
+    source.clear();
+    directory.writeLong(align(channel));
+    directory.writeLong(source.remaining());
+    writeFully(channel, source);
+  }
+
+  private static long align(FileChannel channel) throws IOException {
+    long position = channel.position();
+    int padding = (int) ((8 - (position & 7)) & 7);
+    if (padding > 0)
+      writeFully(channel, ByteBuffer.allocate(padding));
+    return channel.position();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  private static byte order(ByteBuffer buffer) {
+    return (byte) (buffer.order() == ByteOrder.BIG_ENDIAN ? 0 : 1);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+}
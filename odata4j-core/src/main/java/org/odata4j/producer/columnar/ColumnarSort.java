@@ -0,0 +1,191 @@
+package org.odata4j.producer.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.odata4j.expression.CommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.OrderByExpression;
+import org.odata4j.expression.OrderByExpression.Direction;
+import org.odata4j.producer.inmemory.InMemorySortEngine;
+import org.odata4j.producer.inmemory.PropertyModel;
+
+/**
+ * Sorts row numbers of a {@link ColumnarTable} according to a list of $orderby expressions.
+ *
+ * <p>When every expression is a property of the table, rows are compared by their column values
+ * in place and row numbers stay primitive ints: a merge sort orders all of them, or a bounded
+ * heap selects the first few without sorting the rest. Any other expression is evaluated by an
+ * {@link InMemorySortEngine} over boxed row numbers.</p>
+ *
+ * <p>The sort is stable; {@code null} values sort before any other value.</p>
+ */
+class ColumnarSort {
+
+  /** A bounded heap is used when the requested limit is at most 1/TOP_N_RATIO of the rows. */
+  private static final int TOP_N_RATIO = 8;
+
+  /** Runs up to this length are sorted by insertion. */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  private final Column[] columns;
+  private final boolean[] descending;
+  private final InMemorySortEngine sortEngine;
+
+  ColumnarSort(ColumnarTable table, PropertyModel properties, List<OrderByExpression> orderBys) {
+    Column[] columns = new Column[orderBys.size()];
+    boolean[] descending = new boolean[orderBys.size()];
+    for (int i = 0; columns != null && i < columns.length; i++) {
+      CommonExpression expression = orderBys.get(i).getExpression();
+      columns[i] = expression instanceof EntitySimpleProperty
+          ? table.getColumn(((EntitySimpleProperty) expression).getPropertyName())
+          : null;
+      descending[i] = orderBys.get(i).getDirection() == Direction.DESCENDING;
+      if (columns[i] == null)
+        columns = null;
+    }
+    this.columns = columns;
+    this.descending = descending;
+    this.sortEngine = columns == null ? new InMemorySortEngine(orderBys, properties) : null;
+  }
+
+  /**
+   * Sorts row numbers.
+   *
+   * @param rows  the row numbers, in the order kept for rows with equal values; reordered in place
+   * @param limit  the number of leading rows the caller needs, or a negative value for all of them
+   * @return the sorted row numbers, at most {@code limit} of them if limit is not negative
+   */
+  public int[] sort(int[] rows, int limit) {
+    if (sortEngine != null)
+      return sortBoxed(rows, limit);
+
+    int count = limit < 0 ? rows.length : Math.min(limit, rows.length);
+    if (count == 0)
+      return new int[0];
+    if (limit > 0 && limit <= rows.length / TOP_N_RATIO)
+      return selectTop(rows, count);
+
+    mergeSort(rows, new int[rows.length], 0, rows.length);
+    return count == rows.length ? rows : Arrays.copyOf(rows, count);
+  }
+
+  private int[] sortBoxed(int[] rows, int limit) {
+    List<Object> boxed = new ArrayList<Object>(rows.length);
+    for (int row : rows)
+      boxed.add(row);
+    List<Object> sorted = sortEngine.sort(boxed, limit);
+    int[] rt = new int[sorted.size()];
+    for (int i = 0; i < rt.length; i++)
+      rt[i] = (Integer) sorted.get(i);
+    return rt;
+  }
+
+  private int compare(int row1, int row2) {
+    for (int i = 0; i < columns.length; i++) {
+      int result = columns[i].compare(row1, row2);
+      if (result != 0)
+        return descending[i] ? -result : result;
+    }
+    return 0;
+  }
+
+  /**
+   * Compares the rows at two positions, equal rows by their position.
+   */
+  private int compareAt(int[] rows, int position1, int position2) {
+    int result = compare(rows[position1], rows[position2]);
+    return result != 0 ? result : (position1 < position2 ? -1 : (position1 == position2 ? 0 : 1));
+  }
+
+  private void mergeSort(int[] rows, int[] buffer, int from, int to) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      insertionSort(rows, from, to);
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    mergeSort(rows, buffer, from, middle);
+    mergeSort(rows, buffer, middle, to);
+    if (compare(rows[middle - 1], rows[middle]) <= 0)
+      return;
+
+    System.arraycopy(rows, from, buffer, from, to - from);
+    int i = from;
+    int j = middle;
+    int k = from;
+    while (i < middle && j < to)
+      rows[k++] = compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+    while (i < middle)
+      rows[k++] = buffer[i++];
+    while (j < to)
+      rows[k++] = buffer[j++];
+  }
+
+  private void insertionSort(int[] rows, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      int row = rows[i];
+      int j = i;
+      for (; j > from && compare(rows[j - 1], row) > 0; j--)
+        rows[j] = rows[j - 1];
+      rows[j] = row;
+    }
+  }
+
+  /**
+   * Selects the first rows with a max-heap of their positions.
+   */
+  private int[] selectTop(int[] rows, int limit) {
+    int[] heap = new int[limit];
+    int size = 0;
+    for (int position = 0; position < rows.length; position++) {
+      if (size < limit) {
+        heap[size] = position;
+        siftUp(rows, heap, size++);
+      } else if (compareAt(rows, position, heap[0]) < 0) {
+        heap[0] = position;
+        siftDown(rows, heap, size);
+      }
+    }
+
+    // in position order the selected rows are in input order, which the stable sort keeps for equal rows
+    Arrays.sort(heap, 0, size);
+    int[] rt = new int[size];
+    for (int i = 0; i < size; i++)
+      rt[i] = rows[heap[i]];
+    mergeSort(rt, new int[size], 0, size);
+    return rt;
+  }
+
+  private void siftUp(int[] rows, int[] heap, int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (compareAt(rows, heap[i], heap[parent]) <= 0)
+        return;
+      swap(heap, i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int[] rows, int[] heap, int size) {
+    int i = 0;
+    while (true) {
+      int largest = 2 * i + 1;
+      if (largest >= size)
+        return;
+      if (largest + 1 < size && compareAt(rows, heap[largest + 1], heap[largest]) > 0)
+        largest++;
+      if (compareAt(rows, heap[largest], heap[i]) <= 0)
+        return;
+      swap(heap, i, largest);
+      i = largest;
+    }
+  }
+
+  private static void swap(int[] array, int i, int j) {
+    int tmp = array[i];
+    array[i] = array[j];
+    array[j] = tmp;
+  }
+
+}
@@ -0,0 +1,324 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.ODataProducer;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.inmemory.InMemoryEntityInfo;
+import org.odata4j.producer.inmemory.InMemoryProducer;
+import org.odata4j.producer.inmemory.PropertyModel;
+
+/**
+ * The rows of an entity set, stored column by column.
+ *
+ * <p>Tables are immutable; to change the data of an entity set, build a new table and
+ * register it with the producer again. Rows are found by key through a key index, which
+ * holds the row numbers ordered by key.</p>
+ *
+ * @see ColumnarProducer
+ */
+public class ColumnarTable {
+
+  private final String entitySetName;
+  private final String entityTypeName;
+  private final String[] keys;
+  private final Map<String, Column> columns;
+  private final int size;
+  private final ByteBuffer keyIndex;
+
+  /**
+   * Creates a new table from existing columns.
+   *
+   * @param entitySetName  the entity set name
+   * @param entityTypeName  the entity type name
+   * @param keys  the names of the key columns
+   * @param columns  the columns, all of the same size
+   * @param keyIndex  the row numbers as 4-byte ints, ordered by key; null to build the key index
+   */
+  public ColumnarTable(String entitySetName, String entityTypeName, String[] keys, List<Column> columns, ByteBuffer keyIndex) {
+    this(entitySetName, entityTypeName, keys, columns, keyIndex, true);
+  }
+
+  private ColumnarTable(String entitySetName, String entityTypeName, String[] keys, List<Column> columns, ByteBuffer keyIndex, boolean direct) {
+    this.entitySetName = entitySetName;
+    this.entityTypeName = entityTypeName;
+    this.keys = keys;
+    this.columns = new LinkedHashMap<String, Column>();
+    for (Column column : columns)
+      this.columns.put(column.getName(), column);
+    this.size = columns.isEmpty() ? 0 : columns.get(0).size();
+    for (String key : keys) {
+      if (!this.columns.containsKey(key))
+        throw new IllegalArgumentException("Key column " + key + " not found");
+    }
+    this.keyIndex = keyIndex != null ? keyIndex : buildKeyIndex(direct);
+  }
+
+  public String getEntitySetName() {
+    return entitySetName;
+  }
+
+  public String getEntityTypeName() {
+    return entityTypeName;
+  }
+
+  public String[] getKeys() {
+    return keys;
+  }
+
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(new ArrayList<Column>(columns.values()));
+  }
+
+  /**
+   * Gets a column by name.
+   *
+   * @return the column, or null if not found
+   */
+  public Column getColumn(String name) {
+    return columns.get(name);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public ByteBuffer getKeyIndex() {
+    return keyIndex;
+  }
+
+  /**
+   * Finds a row by key.
+   *
+   * @param entityKey  the entity key
+   * @return the row number, or -1 if not found
+   */
+  public int findRow(OEntityKey entityKey) {
+    Object[] values = new Object[keys.length];
+    if (keys.length == 1 && entityKey.getKeyType() == OEntityKey.KeyType.SINGLE) {
+      values[0] = entityKey.asSingleValue();
+    } else {
+      for (OProperty<?> keyProp : entityKey.asComplexProperties()) {
+        for (int i = 0; i < keys.length; i++) {
+          if (keyProp.getName().equalsIgnoreCase(keys[i]))
+            values[i] = keyProp.getValue();
+        }
+      }
+    }
+
+    int lo = 0;
+    int hi = size - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int row = keyIndex.getInt(mid << 2);
+      int cmp = 0;
+      for (int i = 0; i < keys.length && cmp == 0; i++)
+        cmp = columns.get(keys[i]).compareTo(row, values[i]);
+      if (cmp < 0)
+        lo = mid + 1;
+      else if (cmp > 0)
+        hi = mid - 1;
+      else
+        return row;
+    }
+    return -1;
+  }
+
+  private ByteBuffer buildKeyIndex(boolean direct) {
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++)
+      rows[i] = i;
+    sort(rows, new int[size], 0, size);
+
+    ByteBuffer rt = Column.allocate(size << 2, direct);
+    for (int i = 0; i < size; i++)
+      rt.putInt(i << 2, rows[i]);
+    return rt;
+  }
+
+  private int compareKeys(int row1, int row2) {
+    for (String key : keys) {
+      int cmp = columns.get(key).compare(row1, row2);
+      if (cmp != 0)
+        return cmp;
+    }
+    return 0;
+  }
+
+  /**
+   * Merge sort over primitive row numbers, avoids boxing millions of rows.
+   */
+  private void sort(int[] rows, int[] buffer, int from, int to) {
+    if (to - from < 2)
+      return;
+    int middle = (from + to) >>> 1;
+    sort(rows, buffer, from, middle);
+    sort(rows, buffer, middle, to);
+    if (compareKeys(rows[middle - 1], rows[middle]) <= 0)
+      return;
+    System.arraycopy(rows, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && compareKeys(buffer[left], buffer[right]) <= 0))
+        rows[i] = buffer[left++];
+      else
+        rows[i] = buffer[right++];
+    }
+  }
+
+  public static Builder newBuilder(String entitySetName) {
+    return new Builder(entitySetName);
+  }
+
+  /**
+   * Copies the simple properties of all entities of an entity set, e.g. to write a snapshot
+   * of the data an {@link InMemoryProducer} has loaded.
+   *
+   * <p>The objects of an entity set registered with an {@link InMemoryProducer} are read once,
+   * through its property model. Other producers are paged through with skip tokens.</p>
+   *
+   * @param producer  the producer serving the entity set
+   * @param entitySetName  the entity set name
+   * @return a new table
+   */
+  public static ColumnarTable copyOf(ODataProducer producer, String entitySetName) {
+    EdmEntitySet entitySet = producer.getMetadata().getEdmEntitySet(entitySetName);
+    EdmEntityType entityType = entitySet.getType();
+    Builder builder = newBuilder(entitySetName)
+        .setEntityTypeName(entityType.getName())
+        .setKeys(entityType.getKeys().toArray(new String[0]));
+    List<String> names = new ArrayList<String>();
+    for (EdmProperty property : entityType.getProperties()) {
+      if (property.getType().isSimple()) {
+        builder.addColumn(property.getName(), (EdmSimpleType<?>) property.getType());
+        names.add(property.getName());
+      }
+    }
+
+    InMemoryEntityInfo<?> ei = producer instanceof InMemoryProducer
+        ? ((InMemoryProducer) producer).getEntityInfo(entitySetName)
+        : null;
+    // entity sets that are only served with a request context are paged through as well
+    if (ei != null && ei.getGet() != null) {
+      PropertyModel properties = ei.getPropertyModel();
+      for (Object obj : ei.getGet().apply()) {
+        Object[] row = new Object[names.size()];
+        for (int i = 0; i < row.length; i++)
+          row[i] = properties.getPropertyValue(obj, names.get(i));
+        builder.addRow(row);
+      }
+      return builder.build();
+    }
+
+    // page through the entity set with skip tokens
+    String skipToken = null;
+    do {
+      QueryInfo queryInfo = new QueryInfo(null, null, null, null, null, skipToken, null, null, null);
+      EntitiesResponse response = producer.getEntities(null, entitySetName, queryInfo);
+      for (OEntity entity : response.getEntities()) {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (OProperty<?> property : entity.getProperties())
+          values.put(property.getName(), property.getValue());
+        Object[] row = new Object[names.size()];
+        for (int i = 0; i < row.length; i++)
+          row[i] = values.get(names.get(i));
+        builder.addRow(row);
+      }
+      skipToken = response.getSkipToken();
+    } while (skipToken != null);
+    return builder.build();
+  }
+
+  /**
+   * Builds a table row by row.
+   */
+  public static class Builder {
+
+    private final String entitySetName;
+    private String entityTypeName;
+    private String[] keys = new String[0];
+    private boolean direct = true;
+    private final List<String> names = new ArrayList<String>();
+    private final List<EdmSimpleType<?>> types = new ArrayList<EdmSimpleType<?>>();
+    private List<Column.Builder> columns;
+
+    private Builder(String entitySetName) {
+      this.entitySetName = entitySetName;
+      this.entityTypeName = entitySetName;
+    }
+
+    public Builder setEntityTypeName(String entityTypeName) {
+      this.entityTypeName = entityTypeName;
+      return this;
+    }
+
+    public Builder setKeys(String... keys) {
+      this.keys = keys;
+      return this;
+    }
+
+    /**
+     * Sets whether the columns are allocated outside of the Java heap, the default.
+     */
+    public Builder setDirect(boolean direct) {
+      this.direct = direct;
+      return this;
+    }
+
+    /**
+     * Adds a column; all columns must be added before the first row.
+     */
+    public Builder addColumn(String name, EdmSimpleType<?> type) {
+      if (columns != null)
+        throw new IllegalStateException("Columns cannot be added after rows");
+      names.add(name);
+      types.add(type);
+      return this;
+    }
+
+    /**
+     * Adds a row.
+     *
+     * @param values  the values, in the order of the columns
+     */
+    public Builder addRow(Object... values) {
+      if (values.length != names.size())
+        throw new IllegalArgumentException("Expected " + names.size() + " values, got " + values.length);
+      startRows();
+      for (int i = 0; i < values.length; i++)
+        columns.get(i).add(values[i]);
+      return this;
+    }
+
+    public ColumnarTable build() {
+      startRows();
+      List<Column> rt = new ArrayList<Column>();
+      for (Column.Builder column : columns)
+        rt.add(column.build());
+      return new ColumnarTable(entitySetName, entityTypeName, keys, rt, null, direct);
+    }
+
+    private void startRows() {
+      if (columns == null) {
+        columns = new ArrayList<Column.Builder>();
+        for (int i = 0; i < names.size(); i++)
+          columns.add(Column.newBuilder(names.get(i), types.get(i), direct));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,241 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A dictionary-encoded column, used for strings and all other types without a fixed-width encoding.
+ *
+ * <p>Every distinct value is stored once in the dictionary, rows hold the 4-byte code of their value.
+ * If the values are comparable, the dictionary is sorted, so that the order of the codes is the
+ * order of the values and range comparisons run over the codes as well.</p>
+ */
+public class DictionaryColumn extends Column {
+
+  private final ByteBuffer codes;
+  private final Object[] dictionary;
+  private final boolean sorted;
+
+  /**
+   * Creates a new dictionary column.
+   *
+   * @param name  the property name
+   * @param type  the property type
+   * @param size  the number of rows
+   * @param codes  the code of every row
+   * @param dictionary  the distinct values
+   * @param sorted  whether the dictionary is sorted
+   * @param nulls  the null bitmap, or null
+   */
+  public DictionaryColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer codes, Object[] dictionary, boolean sorted, ByteBuffer nulls) {
+    super(name, type, size, nulls);
+    this.codes = codes;
+    this.dictionary = dictionary;
+    this.sorted = sorted;
+  }
+
+  /**
+   * Creates a new dictionary column for subclasses providing the dictionary values themselves.
+   *
+   * @see #getDictionarySize()
+   * @see #getDictionaryValue(int)
+   */
+  protected DictionaryColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer codes, boolean sorted, ByteBuffer nulls) {
+    this(name, type, size, codes, null, sorted, nulls);
+  }
+
+  public ByteBuffer getCodes() {
+    return codes;
+  }
+
+  public Object[] getDictionary() {
+    if (dictionary != null)
+      return dictionary;
+    Object[] rt = new Object[getDictionarySize()];
+    for (int i = 0; i < rt.length; i++)
+      rt[i] = getDictionaryValue(i);
+    return rt;
+  }
+
+  /**
+   * Gets the number of distinct values.
+   */
+  protected int getDictionarySize() {
+    return dictionary.length;
+  }
+
+  /**
+   * Gets the value of a code.
+   */
+  protected Object getDictionaryValue(int code) {
+    return dictionary[code];
+  }
+
+  public boolean isSorted() {
+    return sorted;
+  }
+
+  public int getCode(int row) {
+    return codes.getInt(row << 2);
+  }
+
+  @Override
+  public Object getValue(int row) {
+    return isNull(row) ? null : getDictionaryValue(getCode(row));
+  }
+
+  @Override
+  public int compare(int row1, int row2) {
+    if (isNull(row1) || isNull(row2))
+      return isNull(row1) ? (isNull(row2) ? 0 : -1) : 1;
+    int c1 = getCode(row1);
+    int c2 = getCode(row2);
+    return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+  }
+
+  @Override
+  public int compareTo(int row, Object value) {
+    if (isNull(row))
+      return value == null ? 0 : -1;
+    if (value == null)
+      return 1;
+    int code = getCode(row);
+    int valueCode = indexOf(value);
+    if (valueCode < 0) {
+      if (!sorted)
+        return -1; // unknown values sort after all known ones
+      // compare with the insertion point
+      return code < -(valueCode + 1) ? -1 : 1;
+    }
+    return code < valueCode ? -1 : (code == valueCode ? 0 : 1);
+  }
+
+  /**
+   * Finds the code of a value.
+   *
+   * @return the code, or a negative value if not in the dictionary; for sorted dictionaries
+   * (-(insertion point) - 1) as returned by {@link Arrays#binarySearch(Object[], Object)}
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private int indexOf(Object value) {
+    if (sorted) {
+      int lo = 0;
+      int hi = getDictionarySize() - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int cmp = ((Comparable) getDictionaryValue(mid)).compareTo(value);
+        if (cmp < 0)
+          lo = mid + 1;
+        else if (cmp > 0)
+          hi = mid - 1;
+        else
+          return mid;
+      }
+      return -(lo + 1);
+    }
+    for (int i = 0; i < getDictionarySize(); i++) {
+      if (getDictionaryValue(i).equals(value))
+        return i;
+    }
+    return -1;
+  }
+
+  @Override
+  protected boolean selectMatching(Comparison comparison, Object literal, BitSet rows) {
+    if (getDictionarySize() > 0 && !getDictionaryValue(0).getClass().equals(literal.getClass()))
+      return false;
+    if (!sorted && comparison != Comparison.EQ)
+      return false;
+
+    int index = indexOf(literal);
+    boolean found = index >= 0;
+    int insertion = found ? index : -(index + 1);
+    int lo;
+    int hi;
+    switch (comparison) {
+    case LT:
+      lo = 0;
+      hi = insertion - 1;
+      break;
+    case LE:
+      lo = 0;
+      hi = found ? index : insertion - 1;
+      break;
+    case GT:
+      lo = found ? index + 1 : insertion;
+      hi = Integer.MAX_VALUE;
+      break;
+    case GE:
+      lo = insertion;
+      hi = Integer.MAX_VALUE;
+      break;
+    default:
+      if (!found)
+        return true;
+      lo = index;
+      hi = index;
+    }
+
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      int code = codes.getInt(row << 2);
+      if (code >= lo && code <= hi)
+        rows.set(row);
+    }
+    return true;
+  }
+
+  static class Builder extends Column.Builder {
+
+    private ByteBuffer codes = allocate(1024, false);
+    private final Map<Object, Integer> provisionalCodes = new HashMap<Object, Integer>();
+    private boolean comparable = true;
+
+    Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      super(name, type, direct);
+    }
+
+    @Override
+    protected void append(Object value) {
+      int code = 0;
+      if (value != null) {
+        Integer existing = provisionalCodes.get(value);
+        if (existing == null) {
+          existing = provisionalCodes.size();
+          provisionalCodes.put(value, existing);
+          comparable &= value instanceof Comparable;
+        }
+        code = existing;
+      }
+      codes = ensureCapacity(codes, (size + 1) << 2);
+      codes.putInt(size << 2, code);
+    }
+
+    @Override
+    public Column build() {
+      Object[] dictionary = new Object[provisionalCodes.size()];
+      for (Map.Entry<Object, Integer> entry : provisionalCodes.entrySet())
+        dictionary[entry.getValue()] = entry.getKey();
+
+      ByteBuffer rt = copy(codes, size << 2, direct);
+      if (comparable) {
+        // sort the dictionary and translate the codes
+        Object[] sortedDictionary = dictionary.clone();
+        Arrays.sort(sortedDictionary);
+        int[] translation = new int[dictionary.length];
+        for (int i = 0; i < sortedDictionary.length; i++)
+          translation[provisionalCodes.get(sortedDictionary[i])] = i;
+        for (int row = 0; row < size; row++)
+          rt.putInt(row << 2, translation[rt.getInt(row << 2)]);
+        dictionary = sortedDictionary;
+      }
+      return new DictionaryColumn(name, type, size, rt, dictionary, comparable, buildNulls());
+    }
+  }
+
+}
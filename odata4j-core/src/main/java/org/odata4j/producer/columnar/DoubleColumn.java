@@ -0,0 +1,108 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A column of Double or Single values, stored as 8-byte doubles.
+ */
+public class DoubleColumn extends Column {
+
+  private final ByteBuffer data;
+
+  public DoubleColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer data, ByteBuffer nulls) {
+    super(name, type, size, nulls);
+    this.data = data;
+  }
+
+  public ByteBuffer getData() {
+    return data;
+  }
+
+  public double getDouble(int row) {
+    return data.getDouble(row << 3);
+  }
+
+  @Override
+  public Object getValue(int row) {
+    if (isNull(row))
+      return null;
+    double value = getDouble(row);
+    return getType().equals(EdmSimpleType.SINGLE) ? (Object) (float) value : (Object) value;
+  }
+
+  @Override
+  public int compare(int row1, int row2) {
+    if (isNull(row1) || isNull(row2))
+      return isNull(row1) ? (isNull(row2) ? 0 : -1) : 1;
+    return Double.compare(getDouble(row1), getDouble(row2));
+  }
+
+  @Override
+  public int compareTo(int row, Object value) {
+    if (isNull(row))
+      return value == null ? 0 : -1;
+    if (value == null)
+      return 1;
+    return Double.compare(getDouble(row), ((Number) value).doubleValue());
+  }
+
+  @Override
+  protected boolean selectMatching(Comparison comparison, Object literal, BitSet rows) {
+    if (!(literal instanceof Integer || literal instanceof Long || literal instanceof Short
+        || literal instanceof Byte || literal instanceof Double || literal instanceof Float))
+      return false;
+
+    double value = ((Number) literal).doubleValue();
+    double lo = Double.NEGATIVE_INFINITY;
+    double hi = Double.POSITIVE_INFINITY;
+    switch (comparison) {
+    case LT:
+      hi = Math.nextAfter(value, Double.NEGATIVE_INFINITY);
+      break;
+    case LE:
+      hi = value;
+      break;
+    case GT:
+      lo = Math.nextUp(value);
+      break;
+    case GE:
+      lo = value;
+      break;
+    default:
+      lo = value;
+      hi = value;
+    }
+
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      double v = data.getDouble(row << 3);
+      if (v >= lo && v <= hi)
+        rows.set(row);
+    }
+    return true;
+  }
+
+  static class Builder extends Column.Builder {
+
+    private ByteBuffer data = allocate(1024, false);
+
+    Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      super(name, type, direct);
+    }
+
+    @Override
+    protected void append(Object value) {
+      data = ensureCapacity(data, (size + 1) << 3);
+      data.putDouble(size << 3, value == null ? 0 : ((Number) value).doubleValue());
+    }
+
+    @Override
+    public Column build() {
+      return new DoubleColumn(name, type, size, copy(data, size << 3, direct), buildNulls());
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A column of Int32, Int16 or SByte values, stored as 4-byte ints.
+ */
+public class IntColumn extends Column {
+
+  private final ByteBuffer data;
+
+  public IntColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer data, ByteBuffer nulls) {
+    super(name, type, size, nulls);
+    this.data = data;
+  }
+
+  public ByteBuffer getData() {
+    return data;
+  }
+
+  public int getInt(int row) {
+    return data.getInt(row << 2);
+  }
+
+  @Override
+  public Object getValue(int row) {
+    if (isNull(row))
+      return null;
+    int value = getInt(row);
+    if (getType().equals(EdmSimpleType.INT16))
+      return (short) value;
+    if (getType().equals(EdmSimpleType.SBYTE))
+      return (byte) value;
+    return value;
+  }
+
+  @Override
+  public int compare(int row1, int row2) {
+    if (isNull(row1) || isNull(row2))
+      return isNull(row1) ? (isNull(row2) ? 0 : -1) : 1;
+    int v1 = getInt(row1);
+    int v2 = getInt(row2);
+    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+  }
+
+  @Override
+  public int compareTo(int row, Object value) {
+    if (isNull(row))
+      return value == null ? 0 : -1;
+    if (value == null)
+      return 1;
+    long v1 = getInt(row);
+    long v2 = ((Number) value).longValue();
+    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+  }
+
+  @Override
+  protected boolean selectMatching(Comparison comparison, Object literal, BitSet rows) {
+    long[] range;
+    if (literal instanceof Integer || literal instanceof Long || literal instanceof Short || literal instanceof Byte)
+      range = range(comparison, ((Number) literal).longValue());
+    else if (literal instanceof Double || literal instanceof Float)
+      range = range(comparison, ((Number) literal).doubleValue());
+    else
+      return false;
+
+    long lo = range[0];
+    long hi = range[1];
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      int value = data.getInt(row << 2);
+      if (value >= lo && value <= hi)
+        rows.set(row);
+    }
+    return true;
+  }
+
+  static class Builder extends Column.Builder {
+
+    private ByteBuffer data = allocate(1024, false);
+
+    Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      super(name, type, direct);
+    }
+
+    @Override
+    protected void append(Object value) {
+      data = ensureCapacity(data, (size + 1) << 2);
+      data.putInt(size << 2, value == null ? 0 : ((Number) value).intValue());
+    }
+
+    @Override
+    public Column build() {
+      return new IntColumn(name, type, size, copy(data, size << 2, direct), buildNulls());
+    }
+  }
+
+}
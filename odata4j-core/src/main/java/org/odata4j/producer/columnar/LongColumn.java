@@ -0,0 +1,112 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A column of Int64 values, or of DateTime values stored as milliseconds since the epoch (UTC).
+ */
+public class LongColumn extends Column {
+
+  private final ByteBuffer data;
+  private final boolean dateTime;
+
+  public LongColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer data, ByteBuffer nulls) {
+    super(name, type, size, nulls);
+    this.data = data;
+    this.dateTime = type.equals(EdmSimpleType.DATETIME);
+  }
+
+  public ByteBuffer getData() {
+    return data;
+  }
+
+  public long getLong(int row) {
+    return data.getLong(row << 3);
+  }
+
+  @Override
+  public Object getValue(int row) {
+    if (isNull(row))
+      return null;
+    long value = getLong(row);
+    return dateTime ? new LocalDateTime(value, DateTimeZone.UTC) : (Object) value;
+  }
+
+  @Override
+  public int compare(int row1, int row2) {
+    if (isNull(row1) || isNull(row2))
+      return isNull(row1) ? (isNull(row2) ? 0 : -1) : 1;
+    long v1 = getLong(row1);
+    long v2 = getLong(row2);
+    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+  }
+
+  @Override
+  public int compareTo(int row, Object value) {
+    if (isNull(row))
+      return value == null ? 0 : -1;
+    if (value == null)
+      return 1;
+    long v1 = getLong(row);
+    long v2 = toLong(value);
+    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+  }
+
+  private long toLong(Object value) {
+    return dateTime ? ((LocalDateTime) value).toDateTime(DateTimeZone.UTC).getMillis() : ((Number) value).longValue();
+  }
+
+  @Override
+  protected boolean selectMatching(Comparison comparison, Object literal, BitSet rows) {
+    long[] range;
+    if (dateTime && literal instanceof LocalDateTime)
+      range = range(comparison, toLong(literal));
+    else if (!dateTime && (literal instanceof Integer || literal instanceof Long || literal instanceof Short || literal instanceof Byte))
+      range = range(comparison, ((Number) literal).longValue());
+    else if (!dateTime && (literal instanceof Double || literal instanceof Float))
+      range = range(comparison, ((Number) literal).doubleValue());
+    else
+      return false;
+
+    long lo = range[0];
+    long hi = range[1];
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      long value = data.getLong(row << 3);
+      if (value >= lo && value <= hi)
+        rows.set(row);
+    }
+    return true;
+  }
+
+  static class Builder extends Column.Builder {
+
+    private ByteBuffer data = allocate(1024, false);
+
+    Builder(String name, EdmSimpleType<?> type, boolean direct) {
+      super(name, type, direct);
+    }
+
+    @Override
+    protected void append(Object value) {
+      data = ensureCapacity(data, (size + 1) << 3);
+      long v = 0;
+      if (value instanceof LocalDateTime)
+        v = ((LocalDateTime) value).toDateTime(DateTimeZone.UTC).getMillis();
+      else if (value != null)
+        v = ((Number) value).longValue();
+      data.putLong(size << 3, v);
+    }
+
+    @Override
+    public Column build() {
+      return new LongColumn(name, type, size, copy(data, size << 3, direct), buildNulls());
+    }
+  }
+
+}
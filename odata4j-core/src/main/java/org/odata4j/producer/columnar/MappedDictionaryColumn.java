@@ -0,0 +1,56 @@
+package org.odata4j.producer.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.odata4j.core.OSimpleObjects;
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A dictionary column whose dictionary stays in a snapshot file; values are decoded
+ * on first use only.
+ *
+ * @see ColumnarSnapshotReader
+ */
+class MappedDictionaryColumn extends DictionaryColumn {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer values;
+  private final int dictionarySize;
+  private final Object[] decoded;
+
+  /**
+   * @param values  the dictionary region: (size + 1) 4-byte offsets into the text following them, then the text
+   */
+  MappedDictionaryColumn(String name, EdmSimpleType<?> type, int size, ByteBuffer codes, ByteBuffer values, int dictionarySize, boolean sorted, ByteBuffer nulls) {
+    super(name, type, size, codes, sorted, nulls);
+    this.values = values;
+    this.dictionarySize = dictionarySize;
+    this.decoded = new Object[dictionarySize];
+  }
+
+  @Override
+  protected int getDictionarySize() {
+    return dictionarySize;
+  }
+
+  @Override
+  protected Object getDictionaryValue(int code) {
+    // decoded values are immutable, racing threads decode the same value at worst
+    Object rt = decoded[code];
+    if (rt == null) {
+      int textStart = (dictionarySize + 1) << 2;
+      int start = values.getInt(code << 2);
+      int end = values.getInt((code + 1) << 2);
+      byte[] bytes = new byte[end - start];
+      ByteBuffer text = values.duplicate();
+      text.position(textStart + start);
+      text.get(bytes);
+      rt = OSimpleObjects.parse(getType(), new String(bytes, UTF8)).getValue();
+      decoded[code] = rt;
+    }
+    return rt;
+  }
+
+}
@@ -22,6 +22,7 @@ import org.odata4j.producer.EntityResponse;
 import org.odata4j.producer.ODataContext;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.ReturnPreference;
 import org.odata4j.producer.edm.MetadataProducer;
 
 public class CommandProducer implements ODataProducer {
@@ -92,7 +93,11 @@ public class CommandProducer implements ODataProducer {
 
   @Override
   public EntityResponse createEntity(ODataContext context, String entitySetName, OEntity entity) {
-    return executeCommand(CreateEntityCommandContext.class, EntityResponse.class, backend.newCreateEntityCommandContext(entitySetName, entity));
+    ReturnPreference returnPreference = ReturnPreference.of(context);
+    CreateEntityCommandContext commandContext = returnPreference == null
+        ? backend.newCreateEntityCommandContext(entitySetName, entity)
+        : backend.newCreateEntityCommandContext(entitySetName, entity, returnPreference);
+    return executeCommand(CreateEntityCommandContext.class, EntityResponse.class, commandContext);
   }
 
   @Override
@@ -12,6 +12,7 @@ import org.odata4j.core.OFunctionParameter;
 import org.odata4j.edm.EdmFunctionImport;
 import org.odata4j.producer.EntityQueryInfo;
 import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.ReturnPreference;
 
 public interface CommandProducerBackend {
 
@@ -37,6 +38,17 @@ public interface CommandProducerBackend {
 
   CreateEntityCommandContext newCreateEntityCommandContext(String entitySetName, OEntity entity);
 
+  /**
+   * Creates the context of a create request with a Prefer header; requests without one use
+   * {@link #newCreateEntityCommandContext(String, OEntity)}.
+   *
+   * @param entitySetName  the entity set name
+   * @param entity  the entity to create
+   * @param returnPreference  the return preference of the client
+   * @return the context
+   */
+  CreateEntityCommandContext newCreateEntityCommandContext(String entitySetName, OEntity entity, ReturnPreference returnPreference);
+
   CreateEntityAtPropertyCommandContext newCreateEntityAtPropertyCommandContext(String entitySetName, OEntityKey entityKey, String navProp, OEntity entity);
 
   DeleteEntityCommandContext newDeleteEntityCommandContext(String entitySetName, OEntityKey entityKey);
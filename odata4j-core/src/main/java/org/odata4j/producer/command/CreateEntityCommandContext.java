@@ -2,6 +2,7 @@ package org.odata4j.producer.command;
 
 import org.odata4j.core.OEntity;
 import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ReturnPreference;
 
 public interface CreateEntityCommandContext extends ProducerCommandContext<EntityResponse> {
 
@@ -9,4 +10,11 @@ public interface CreateEntityCommandContext extends ProducerCommandContext<Entit
 
   OEntity getEntity();
 
+  /**
+   * Gets the return preference of the client.
+   *
+   * @return the preference, null if the client has none
+   */
+  ReturnPreference getReturnPreference();
+
 }
@@ -0,0 +1,220 @@
+package org.odata4j.producer.inmemory;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregateQuery.Aggregate;
+
+/**
+ * Groups and aggregates objects in a single pass, keeping one set of accumulators per group
+ * in a hash table.
+ *
+ * <p>Aggregates follow SQL semantics: null values are ignored, count() counts all objects of a
+ * group, and the sum, average, minimum and maximum of a group without values are null.</p>
+ */
+public class InMemoryAggregator {
+
+  private final AggregateQuery query;
+  private final PropertyModel properties;
+
+  public InMemoryAggregator(AggregateQuery query, PropertyModel properties) {
+    this.query = query;
+    this.properties = properties;
+  }
+
+  /**
+   * Aggregates objects.
+   *
+   * @param objects  the objects
+   * @return one row per group, ordered by the group-by values: the group-by values followed by
+   *     the aggregate values
+   */
+  public List<Object[]> aggregate(Iterable<?> objects) {
+    Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<List<Object>, Accumulator[]>();
+    int groupBySize = query.groupBy.size();
+    if (groupBySize == 0)
+      groups.put(Collections.emptyList(), newAccumulators());
+
+    for (Object object : objects) {
+      Object[] key = new Object[groupBySize];
+      for (int i = 0; i < groupBySize; i++)
+        key[i] = properties.getPropertyValue(object, query.groupBy.get(i));
+      List<Object> groupKey = Arrays.asList(key);
+      Accumulator[] accumulators = groups.get(groupKey);
+      if (accumulators == null) {
+        accumulators = newAccumulators();
+        groups.put(groupKey, accumulators);
+      }
+      for (int i = 0; i < accumulators.length; i++) {
+        Aggregate aggregate = query.aggregates.get(i);
+        accumulators[i].add(aggregate.propertyName == null ? object : properties.getPropertyValue(object, aggregate.propertyName));
+      }
+    }
+
+    List<Object[]> rt = new ArrayList<Object[]>(groups.size());
+    for (Map.Entry<List<Object>, Accumulator[]> group : groups.entrySet()) {
+      Object[] row = new Object[groupBySize + query.aggregates.size()];
+      for (int i = 0; i < groupBySize; i++)
+        row[i] = group.getKey().get(i);
+      for (int i = 0; i < group.getValue().length; i++)
+        row[groupBySize + i] = group.getValue()[i].getResult();
+      rt.add(row);
+    }
+    Collections.sort(rt, new GroupComparator(groupBySize));
+    return rt;
+  }
+
+  private Accumulator[] newAccumulators() {
+    Accumulator[] rt = new Accumulator[query.aggregates.size()];
+    for (int i = 0; i < rt.length; i++) {
+      switch (query.aggregates.get(i).function) {
+      case COUNT:
+        rt[i] = new CountAccumulator();
+        break;
+      case SUM:
+        rt[i] = new SumAccumulator(false);
+        break;
+      case AVG:
+        rt[i] = new SumAccumulator(true);
+        break;
+      case MIN:
+        rt[i] = new ExtremeAccumulator(-1);
+        break;
+      default:
+        rt[i] = new ExtremeAccumulator(1);
+      }
+    }
+    return rt;
+  }
+
+  private abstract static class Accumulator {
+
+    abstract void add(Object value);
+
+    abstract Object getResult();
+  }
+
+  private static class CountAccumulator extends Accumulator {
+
+    private long count;
+
+    @Override
+    void add(Object value) {
+      if (value != null)
+        count++;
+    }
+
+    @Override
+    Object getResult() {
+      return count;
+    }
+  }
+
+  /**
+   * Sums up integral values as longs, floating-point values as doubles and decimals as BigDecimals.
+   */
+  private static class SumAccumulator extends Accumulator {
+
+    private final boolean average;
+    private long count;
+    private long longSum;
+    private double doubleSum;
+    private BigDecimal decimalSum;
+    private boolean floatingPoint;
+
+    SumAccumulator(boolean average) {
+      this.average = average;
+    }
+
+    @Override
+    void add(Object value) {
+      if (value == null)
+        return;
+      count++;
+      if (value instanceof BigDecimal) {
+        decimalSum = decimalSum == null ? (BigDecimal) value : decimalSum.add((BigDecimal) value);
+      } else if (value instanceof Double || value instanceof Float) {
+        floatingPoint = true;
+        doubleSum += ((Number) value).doubleValue();
+      } else {
+        longSum += ((Number) value).longValue();
+      }
+    }
+
+    @Override
+    Object getResult() {
+      if (count == 0)
+        return null;
+      if (decimalSum != null)
+        return average ? decimalSum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128) : decimalSum;
+      if (floatingPoint)
+        return average ? doubleSum / count : doubleSum;
+      return average ? (double) longSum / count : (Object) longSum;
+    }
+  }
+
+  private static class ExtremeAccumulator extends Accumulator {
+
+    private final int sign;
+    private Comparable<Object> extreme;
+
+    /**
+     * @param sign  -1 for the minimum, 1 for the maximum
+     */
+    ExtremeAccumulator(int sign) {
+      this.sign = sign;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void add(Object value) {
+      if (value != null && (extreme == null || sign * extreme.compareTo(value) < 0))
+        extreme = (Comparable<Object>) value;
+    }
+
+    @Override
+    Object getResult() {
+      return extreme;
+    }
+  }
+
+  /**
+   * Orders groups by their group-by values, nulls first.
+   */
+  private static class GroupComparator implements Comparator<Object[]> {
+
+    private final int groupBySize;
+
+    GroupComparator(int groupBySize) {
+      this.groupBySize = groupBySize;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int compare(Object[] row1, Object[] row2) {
+      for (int i = 0; i < groupBySize; i++) {
+        Object value1 = row1[i];
+        Object value2 = row2[i];
+        int cmp;
+        if (value1 == null || value2 == null)
+          cmp = value1 == null ? (value2 == null ? 0 : -1) : 1;
+        else if (value1 instanceof Comparable)
+          cmp = ((Comparable<Object>) value1).compareTo(value2);
+        else
+          cmp = 0;
+        if (cmp != 0)
+          return cmp;
+      }
+      return 0;
+    }
+  }
+
+}
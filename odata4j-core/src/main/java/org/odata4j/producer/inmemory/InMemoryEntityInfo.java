@@ -17,6 +17,7 @@ public class InMemoryEntityInfo<TEntity> {
   Func1<Object, HashMap<String, Object>> id;
   PropertyModel properties;
   boolean hasStream;
+  InMemoryEntityStore<TEntity> store;
 
   public String getEntitySetName() {
     return entitySetName;
@@ -54,6 +55,15 @@ public class InMemoryEntityInfo<TEntity> {
     return hasStream;
   }
 
+  /**
+   * Gets the store holding the entities of a writable entity set.
+   *
+   * @return the store, or null if the entity set is read-only
+   */
+  public InMemoryEntityStore<TEntity> getStore() {
+    return store;
+  }
+
   public Class<?> getSuperClass() {
     return entityClass.getSuperclass() != null && !entityClass.getSuperclass().equals(Object.class) ? entityClass.getSuperclass() : null;
   }
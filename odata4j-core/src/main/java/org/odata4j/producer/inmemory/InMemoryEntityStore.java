@@ -0,0 +1,491 @@
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.core4j.Func1;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OProperty;
+import org.odata4j.exceptions.BadRequestException;
+import org.odata4j.exceptions.NotFoundException;
+
+/**
+ * A concurrent, writable store for the entities of an in-memory entity set.
+ *
+ * <p>Readers never lock: {@link #snapshot()} returns the current immutable version of the store,
+ * which stays consistent for as long as it is used. Writers are serialized; a {@link ChangeSet}
+ * collects inserts, updates and deletes, and {@link ChangeSet#commit()} publishes all of them
+ * atomically as a new snapshot. The key index and the secondary indexes are maintained on every
+ * commit.</p>
+ *
+ * <p>A snapshot shares all unchanged entries with the previous one (see {@link PersistentHashMap}),
+ * so a commit costs the same for small and large stores, proportional to the number of changes.
+ * Change sets of several stores are committed together by {@link #commit(Collection)}.</p>
+ *
+ * <p>Stored objects must not be modified once they have been added to the store, store a modified
+ * copy instead.</p>
+ *
+ * @param <TEntity>  the entity class
+ * @see InMemoryProducer#registerStore(Class, String, String[], String...)
+ */
+public class InMemoryEntityStore<TEntity> {
+
+  private static final AtomicLong NEXT_ID = new AtomicLong();
+  private static final Object NULL_VALUE = new Object();
+
+  private final PropertyModel propertyModel;
+  private final String[] keys;
+  private final String[] indexedProperties;
+  // stores are locked in the order of their ids when change sets of several stores are committed
+  private final long id = NEXT_ID.incrementAndGet();
+  private final Lock writeLock = new ReentrantLock();
+  private volatile Snapshot<TEntity> snapshot;
+
+  /**
+   * Creates a new, empty entity store.
+   *
+   * @param propertyModel  the property model used to read keys and indexed properties
+   * @param keys  the key properties
+   * @param indexedProperties  the properties to maintain secondary indexes for
+   */
+  public InMemoryEntityStore(PropertyModel propertyModel, String[] keys, String... indexedProperties) {
+    this.propertyModel = propertyModel;
+    this.keys = keys;
+    this.indexedProperties = indexedProperties;
+
+    Map<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>> indexes = new HashMap<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>>();
+    for (String indexedProperty : indexedProperties)
+      indexes.put(indexedProperty, PersistentHashMap.<Object, PersistentHashMap<Object, TEntity>> empty());
+    this.snapshot = new Snapshot<TEntity>(0, PersistentHashMap.<Object, TEntity> empty(), indexes);
+  }
+
+  public PropertyModel getPropertyModel() {
+    return propertyModel;
+  }
+
+  public String[] getKeys() {
+    return keys;
+  }
+
+  public String[] getIndexedProperties() {
+    return indexedProperties;
+  }
+
+  /**
+   * Gets the current version of the store.
+   *
+   * @return an immutable snapshot
+   */
+  public Snapshot<TEntity> snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Loads entities into the store in a single commit, replacing entities with the same key.
+   *
+   * @param entities  the entities to load
+   * @return the new snapshot
+   */
+  public Snapshot<TEntity> load(Iterable<? extends TEntity> entities) {
+    ChangeSet changeSet = newChangeSet();
+    for (TEntity entity : entities)
+      changeSet.upsert(entity);
+    return changeSet.commit();
+  }
+
+  /**
+   * Starts collecting changes.
+   *
+   * @return a new change set
+   */
+  public ChangeSet newChangeSet() {
+    return new ChangeSet();
+  }
+
+  /**
+   * Applies the change sets of several stores as one unit: if any change fails, none of the change
+   * sets is applied. Readers see the new snapshot of each store as soon as it is published, one
+   * store after the other.
+   *
+   * @param changeSets  the change sets, at most one for each store
+   */
+  public static void commit(Collection<? extends InMemoryEntityStore<?>.ChangeSet> changeSets) {
+    List<InMemoryEntityStore<?>.ChangeSet> ordered = new ArrayList<InMemoryEntityStore<?>.ChangeSet>(changeSets);
+    Collections.sort(ordered, new Comparator<InMemoryEntityStore<?>.ChangeSet>() {
+      @Override
+      public int compare(InMemoryEntityStore<?>.ChangeSet a, InMemoryEntityStore<?>.ChangeSet b) {
+        long ida = a.store().id;
+        long idb = b.store().id;
+        return ida < idb ? -1 : ida == idb ? 0 : 1;
+      }
+    });
+    for (int i = 1; i < ordered.size(); i++) {
+      if (ordered.get(i).store() == ordered.get(i - 1).store())
+        throw new IllegalArgumentException("Only one change set per store can be committed at once");
+    }
+
+    int locked = 0;
+    try {
+      for (InMemoryEntityStore<?>.ChangeSet changeSet : ordered) {
+        changeSet.store().writeLock.lock();
+        locked++;
+      }
+      for (InMemoryEntityStore<?>.ChangeSet changeSet : ordered)
+        changeSet.prepare();
+      for (InMemoryEntityStore<?>.ChangeSet changeSet : ordered)
+        changeSet.publish();
+    } finally {
+      for (int i = 0; i < locked; i++)
+        ordered.get(i).discard();
+      while (locked > 0)
+        ordered.get(--locked).store().writeLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the key of an entity as used by the key index.
+   *
+   * @param entity  the entity
+   * @return a single value for single-property keys, a list of values for composite keys
+   */
+  public Object getKey(TEntity entity) {
+    if (keys.length == 1)
+      return normalize(propertyModel.getPropertyValue(entity, keys[0]));
+    List<Object> values = new ArrayList<Object>(keys.length);
+    for (String key : keys)
+      values.add(normalize(propertyModel.getPropertyValue(entity, key)));
+    return values;
+  }
+
+  /**
+   * Gets the key of an entity as used by the key index.
+   *
+   * @param entityKey  the entity key
+   * @return a single value for single-property keys, a list of values for composite keys
+   */
+  public Object getKey(OEntityKey entityKey) {
+    if (keys.length == 1)
+      return normalize(entityKey.getKeyType() == OEntityKey.KeyType.SINGLE
+          ? entityKey.asSingleValue()
+          : entityKey.asComplexProperties().iterator().next().getValue());
+    List<Object> values = new ArrayList<Object>(keys.length);
+    for (String key : keys) {
+      Object value = null;
+      for (OProperty<?> keyProp : entityKey.asComplexProperties()) {
+        if (keyProp.getName().equalsIgnoreCase(key))
+          value = keyProp.getValue();
+      }
+      values.add(normalize(value));
+    }
+    return values;
+  }
+
+  /**
+   * Integral numbers are indexed as longs, so that lookups do not depend on the
+   * exact integral type of a value.
+   */
+  static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+      return Long.valueOf(((Number) value).longValue());
+    return value;
+  }
+
+  /**
+   * Gets the key of a property value in a secondary index, which also indexes null values.
+   */
+  private static Object indexKey(Object value) {
+    return value == null ? NULL_VALUE : normalize(value);
+  }
+
+  /**
+   * Gets the class of the indexed values of a property of the given type.
+   */
+  static Class<?> normalize(Class<?> type) {
+    if (type == Integer.class || type == Short.class || type == Byte.class || type == Long.class
+        || type == int.class || type == short.class || type == byte.class || type == long.class)
+      return Long.class;
+    if (type == boolean.class)
+      return Boolean.class;
+    if (type == double.class)
+      return Double.class;
+    if (type == float.class)
+      return Float.class;
+    if (type == char.class)
+      return Character.class;
+    return type;
+  }
+
+  /**
+   * An immutable version of the store.
+   *
+   * @param <TEntity>  the entity class
+   */
+  public static class Snapshot<TEntity> implements Iterable<TEntity> {
+
+    private final long version;
+    private final PersistentHashMap<Object, TEntity> entities;
+    private final Map<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>> indexes;
+
+    private Snapshot(long version, PersistentHashMap<Object, TEntity> entities,
+        Map<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>> indexes) {
+      this.version = version;
+      this.entities = entities;
+      this.indexes = indexes;
+    }
+
+    /**
+     * Gets the version of this snapshot; every commit increments the version by one.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    public int size() {
+      return entities.size();
+    }
+
+    /**
+     * Iterates over the entities in the order of the hashes of their keys, which is the same in
+     * every snapshot; it is not the insertion order.
+     */
+    @Override
+    public Iterator<TEntity> iterator() {
+      return entities.values().iterator();
+    }
+
+    /**
+     * Looks up an entity by key.
+     *
+     * @param key  the key, see {@link InMemoryEntityStore#getKey(OEntityKey)}
+     * @return the entity, or null if not found
+     */
+    public TEntity get(Object key) {
+      return entities.get(key);
+    }
+
+    public boolean isIndexed(String propertyName) {
+      return indexes.containsKey(propertyName);
+    }
+
+    /**
+     * Looks up entities by the value of an indexed property.
+     *
+     * @param propertyName  the indexed property
+     * @param value  the property value
+     * @return the matching entities, in the order of {@link #iterator()}
+     */
+    public List<TEntity> find(String propertyName, Object value) {
+      PersistentHashMap<Object, PersistentHashMap<Object, TEntity>> index = indexes.get(propertyName);
+      if (index == null)
+        throw new IllegalArgumentException("Property " + propertyName + " is not indexed");
+      PersistentHashMap<Object, TEntity> bucket = index.get(indexKey(value));
+      if (bucket == null)
+        return Collections.<TEntity> emptyList();
+      List<TEntity> rt = new ArrayList<TEntity>(bucket.size());
+      for (TEntity entity : bucket.values())
+        rt.add(entity);
+      return Collections.unmodifiableList(rt);
+    }
+  }
+
+  /**
+   * Collects changes to be applied to the store atomically.
+   */
+  public class ChangeSet {
+
+    private final List<Change> changes = new ArrayList<Change>();
+    private Snapshot<TEntity> next;
+
+    /**
+     * Adds a new entity; the commit fails if an entity with the same key exists.
+     */
+    public ChangeSet insert(TEntity entity) {
+      changes.add(new Change(ChangeType.INSERT, getKey(entity), entity, null));
+      return this;
+    }
+
+    /**
+     * Replaces an existing entity with the same key; the commit fails if there is none.
+     */
+    public ChangeSet update(TEntity entity) {
+      changes.add(new Change(ChangeType.UPDATE, getKey(entity), entity, null));
+      return this;
+    }
+
+    /**
+     * Replaces an existing entity with a changed copy; the commit fails if there is none.
+     *
+     * <p>The copy is made during the commit from the latest version of the entity, so
+     * concurrent read-modify-write changes of the same entity do not overwrite each other.</p>
+     *
+     * @param key  the key, see {@link InMemoryEntityStore#getKey(OEntityKey)}
+     * @param change  returns a changed copy of the entity passed in, must not change the key
+     */
+    public ChangeSet update(Object key, Func1<TEntity, TEntity> change) {
+      changes.add(new Change(ChangeType.UPDATE, key, null, change));
+      return this;
+    }
+
+    /**
+     * Adds a new entity or replaces an existing entity with the same key.
+     */
+    public ChangeSet upsert(TEntity entity) {
+      changes.add(new Change(ChangeType.UPSERT, getKey(entity), entity, null));
+      return this;
+    }
+
+    /**
+     * Removes an existing entity; the commit fails if there is none.
+     *
+     * @param key  the key, see {@link InMemoryEntityStore#getKey(OEntityKey)}
+     */
+    public ChangeSet delete(Object key) {
+      changes.add(new Change(ChangeType.DELETE, key, null, null));
+      return this;
+    }
+
+    /**
+     * Applies all changes of this change set as one new snapshot. If any change fails,
+     * none of them becomes visible.
+     *
+     * @return the new snapshot
+     */
+    public Snapshot<TEntity> commit() {
+      writeLock.lock();
+      try {
+        prepare();
+        return publish();
+      } finally {
+        discard();
+        writeLock.unlock();
+      }
+    }
+
+    private InMemoryEntityStore<TEntity> store() {
+      return InMemoryEntityStore.this;
+    }
+
+    /**
+     * Builds the next snapshot from the current one; the write lock must be held.
+     */
+    private void prepare() {
+      Snapshot<TEntity> current = snapshot;
+      Writer writer = new Writer(current);
+      for (Change change : changes)
+        writer.apply(change);
+      next = new Snapshot<TEntity>(current.version + 1, writer.entities, writer.indexes);
+    }
+
+    private Snapshot<TEntity> publish() {
+      snapshot = next;
+      changes.clear();
+      return next;
+    }
+
+    private void discard() {
+      next = null;
+    }
+  }
+
+  private enum ChangeType {
+    INSERT, UPDATE, UPSERT, DELETE
+  }
+
+  private class Change {
+
+    private final ChangeType type;
+    private final Object key;
+    private final TEntity entity;
+    private final Func1<TEntity, TEntity> function;
+
+    private Change(ChangeType type, Object key, TEntity entity, Func1<TEntity, TEntity> function) {
+      this.type = type;
+      this.key = key;
+      this.entity = entity;
+      this.function = function;
+    }
+  }
+
+  /**
+   * Builds the next snapshot; every change replaces only the paths to the changed entries of the
+   * key index and the secondary indexes.
+   */
+  private class Writer {
+
+    private PersistentHashMap<Object, TEntity> entities;
+    // the secondary indexes map property values to buckets of entities by key
+    private final Map<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>> indexes;
+
+    private Writer(Snapshot<TEntity> current) {
+      entities = current.entities;
+      indexes = new HashMap<String, PersistentHashMap<Object, PersistentHashMap<Object, TEntity>>>(current.indexes);
+    }
+
+    private void apply(Change change) {
+      Object key = change.key;
+      TEntity entity = change.entity;
+      TEntity existing = entities.get(key);
+      switch (change.type) {
+      case INSERT:
+        if (existing != null)
+          throw new BadRequestException("An entity with key " + key + " already exists");
+        break;
+      case UPDATE:
+      case DELETE:
+        if (existing == null)
+          throw new NotFoundException("No entity found for key " + key);
+        break;
+      case UPSERT:
+        break;
+      }
+
+      if (change.function != null) {
+        entity = change.function.apply(existing);
+        if (!key.equals(getKey(entity)))
+          throw new BadRequestException("The key of entity " + key + " cannot be changed");
+      }
+
+      if (existing != null)
+        unindex(key, existing);
+      if (change.type == ChangeType.DELETE) {
+        entities = entities.minus(key);
+      } else {
+        entities = entities.plus(key, entity);
+        index(key, entity);
+      }
+    }
+
+    private void index(Object key, TEntity entity) {
+      for (String property : indexedProperties) {
+        PersistentHashMap<Object, PersistentHashMap<Object, TEntity>> index = indexes.get(property);
+        Object value = indexKey(propertyModel.getPropertyValue(entity, property));
+        PersistentHashMap<Object, TEntity> bucket = index.get(value);
+        if (bucket == null)
+          bucket = PersistentHashMap.empty();
+        indexes.put(property, index.plus(value, bucket.plus(key, entity)));
+      }
+    }
+
+    private void unindex(Object key, TEntity entity) {
+      for (String property : indexedProperties) {
+        PersistentHashMap<Object, PersistentHashMap<Object, TEntity>> index = indexes.get(property);
+        Object value = indexKey(propertyModel.getPropertyValue(entity, property));
+        PersistentHashMap<Object, TEntity> bucket = index.get(value);
+        if (bucket == null)
+          continue;
+        bucket = bucket.minus(key);
+        indexes.put(property, bucket.size() == 0 ? index.minus(value) : index.plus(value, bucket));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,188 @@
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.core4j.Func;
+import org.core4j.Func1;
+import org.core4j.Predicate1;
+import org.odata4j.core.Throwables;
+
+/**
+ * Runs the filter and projection steps of an in-memory query on an executor.
+ *
+ * <p>The source is split into contiguous chunks, each chunk is processed by its own task
+ * and the partial results are concatenated in chunk order, so the result keeps the order of
+ * the source.</p>
+ */
+public class InMemoryParallelQuery {
+
+  /** Chunks are never made smaller than this, tiny tasks cost more than they save. */
+  private static final int MIN_CHUNK_SIZE = 64;
+
+  /** Projecting an object costs more than filtering it, so projections are split into smaller chunks. */
+  private static final int MIN_PROJECTION_CHUNK_SIZE = MIN_CHUNK_SIZE / 2;
+
+  /** The default minimum number of objects projected in parallel, enough for two chunks. */
+  public static final int DEFAULT_PROJECTION_THRESHOLD = 2 * MIN_PROJECTION_CHUNK_SIZE;
+
+  private final ExecutorService executor;
+  private final int parallelism;
+
+  public InMemoryParallelQuery(ExecutorService executor) {
+    this(executor, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a new parallel query.
+   *
+   * @param executor  the executor running the tasks
+   * @param parallelism  the maximum number of tasks a list is split into
+   */
+  public InMemoryParallelQuery(ExecutorService executor, int parallelism) {
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns the elements of the source that match the predicate, in source order.
+   *
+   * <p>The source is read once and never copied as a whole. If it ends within the first
+   * {@code threshold} elements, they are filtered on the calling thread. Otherwise it is read in
+   * chunks while earlier chunks are filtered by tasks, with at most two tasks per thread of
+   * parallelism pending at any time.</p>
+   *
+   * @param source  the source
+   * @param predicate  the predicate, called concurrently from several threads
+   * @param threshold  the minimum number of elements filtered in parallel
+   * @return the matching elements
+   */
+  public <T> List<T> where(Iterable<T> source, final Predicate1<T> predicate, int threshold) {
+    final Func1<List<T>, List<T>> filter = new Func1<List<T>, List<T>>() {
+      @Override
+      public List<T> apply(List<T> chunk) {
+        List<T> rt = new ArrayList<T>();
+        for (T element : chunk) {
+          if (predicate.apply(element))
+            rt.add(element);
+        }
+        return rt;
+      }
+    };
+
+    Iterator<T> iterator = source.iterator();
+    List<T> head = read(iterator, threshold);
+    if (!iterator.hasNext())
+      return filter.apply(head);
+
+    int chunkSize = Math.max(MIN_CHUNK_SIZE, threshold / parallelism);
+    List<T> rt = new ArrayList<T>();
+    LinkedList<Future<List<T>>> pending = new LinkedList<Future<List<T>>>();
+    try {
+      for (int from = 0; from < head.size(); from += chunkSize)
+        submit(filter, head.subList(from, Math.min(from + chunkSize, head.size())), pending, rt);
+      while (iterator.hasNext())
+        submit(filter, read(iterator, chunkSize), pending, rt);
+      while (!pending.isEmpty())
+        rt.addAll(pending.removeFirst().get());
+      return rt;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      for (Future<List<T>> future : pending)
+        future.cancel(true);
+    }
+  }
+
+  private static <T> List<T> read(Iterator<T> iterator, int count) {
+    List<T> rt = new ArrayList<T>();
+    while (rt.size() < count && iterator.hasNext())
+      rt.add(iterator.next());
+    return rt;
+  }
+
+  /**
+   * Submits a task for a chunk, after collecting the result of the oldest pending task if too many are pending.
+   */
+  private <T, TResult> void submit(final Func1<List<T>, List<TResult>> chunkFunction, final List<T> chunk,
+      LinkedList<Future<List<TResult>>> pending, List<TResult> rt) throws InterruptedException, ExecutionException {
+    if (pending.size() >= 2 * parallelism)
+      rt.addAll(pending.removeFirst().get());
+    pending.add(executor.submit(new Callable<List<TResult>>() {
+      @Override
+      public List<TResult> call() throws Exception {
+        return chunkFunction.apply(chunk);
+      }
+    }));
+  }
+
+  /**
+   * Projects every element of the source list, in source order.
+   *
+   * <p>A new projection is obtained from the factory for every chunk, so projections
+   * carrying state (like a {@code PropertyPathHelper}) are never shared between threads.</p>
+   *
+   * @param source  the source list
+   * @param projectionFactory  creates the projection used for one chunk
+   * @return the projected elements
+   */
+  public <T, TResult> List<TResult> select(List<T> source, final Func<Func1<T, TResult>> projectionFactory) {
+    return execute(source, MIN_PROJECTION_CHUNK_SIZE, new Func<Func1<List<T>, List<TResult>>>() {
+      @Override
+      public Func1<List<T>, List<TResult>> apply() {
+        final Func1<T, TResult> projection = projectionFactory.apply();
+        return new Func1<List<T>, List<TResult>>() {
+          @Override
+          public List<TResult> apply(List<T> chunk) {
+            List<TResult> rt = new ArrayList<TResult>(chunk.size());
+            for (T element : chunk)
+              rt.add(projection.apply(element));
+            return rt;
+          }
+        };
+      }
+    });
+  }
+
+  private <T, TResult> List<TResult> execute(List<T> source, int minChunkSize, Func<Func1<List<T>, List<TResult>>> chunkFunctionFactory) {
+    int size = source.size();
+    int chunks = Math.min(parallelism, (size + minChunkSize - 1) / minChunkSize);
+    if (chunks <= 1)
+      return chunkFunctionFactory.apply().apply(source);
+
+    int chunkSize = (size + chunks - 1) / chunks;
+    List<Callable<List<TResult>>> tasks = new ArrayList<Callable<List<TResult>>>(chunks);
+    for (int from = 0; from < size; from += chunkSize) {
+      final List<T> chunk = source.subList(from, Math.min(from + chunkSize, size));
+      final Func1<List<T>, List<TResult>> chunkFunction = chunkFunctionFactory.apply();
+      tasks.add(new Callable<List<TResult>>() {
+        @Override
+        public List<TResult> call() throws Exception {
+          return chunkFunction.apply(chunk);
+        }
+      });
+    }
+
+    try {
+      List<TResult> rt = new ArrayList<TResult>();
+      for (Future<List<TResult>> future : executor.invokeAll(tasks))
+        rt.addAll(future.get());
+      return rt;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+}
@@ -1,19 +1,22 @@
 package org.odata4j.producer.inmemory;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.core4j.Enumerable;
 import org.core4j.Func;
 import org.core4j.Func1;
+import org.core4j.Funcs;
 import org.core4j.Predicate1;
 import org.odata4j.core.OAtomStreamEntity;
 import org.odata4j.core.OCollection;
@@ -23,6 +26,7 @@ import org.odata4j.core.OComplexObjects;
 import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityId;
+import org.odata4j.core.OEntityIds;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OExtension;
 import org.odata4j.core.OFunctionParameter;
@@ -34,6 +38,8 @@ import org.odata4j.core.OProperty;
 import org.odata4j.core.OSimpleObject;
 import org.odata4j.core.OSimpleObjects;
 import org.odata4j.core.OStructuralObject;
+import org.odata4j.core.Throwables;
+import org.odata4j.edm.CachedEdmGenerator;
 import org.odata4j.edm.EdmCollectionType;
 import org.odata4j.edm.EdmComplexType;
 import org.odata4j.edm.EdmDataServices;
@@ -41,18 +47,28 @@ import org.odata4j.edm.EdmDecorator;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmEntityType;
 import org.odata4j.edm.EdmFunctionImport;
+import org.odata4j.edm.EdmGenerator;
 import org.odata4j.edm.EdmMultiplicity;
 import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.edm.EdmProperty;
 import org.odata4j.edm.EdmSimpleType;
 import org.odata4j.edm.EdmStructuralType;
 import org.odata4j.edm.EdmType;
+import org.odata4j.exceptions.BadRequestException;
 import org.odata4j.exceptions.NotFoundException;
 import org.odata4j.exceptions.NotImplementedException;
+import org.odata4j.expression.AndExpression;
 import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.EqExpression;
+import org.odata4j.expression.Expression;
+import org.odata4j.expression.LiteralExpression;
 import org.odata4j.expression.OrderByExpression;
-import org.odata4j.expression.OrderByExpression.Direction;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
 import org.odata4j.producer.BaseResponse;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.CollectionResponse;
 import org.odata4j.producer.CountResponse;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.EntityIdResponse;
@@ -64,6 +80,7 @@ import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.PropertyPathHelper;
 import org.odata4j.producer.QueryInfo;
 import org.odata4j.producer.Responses;
+import org.odata4j.producer.ReturnPreference;
 import org.odata4j.producer.edm.MetadataProducer;
 import org.odata4j.producer.inmemory.InMemoryProducer.RequestContext.RequestType;
 
@@ -86,13 +103,19 @@ public class InMemoryProducer implements ODataProducer {
   // preserve the order of registration
   private final Map<String, InMemoryEntityInfo<?>> eis = new LinkedHashMap<String, InMemoryEntityInfo<?>>();
   private final Map<String, InMemoryComplexTypeInfo<?>> complexTypes = new LinkedHashMap<String, InMemoryComplexTypeInfo<?>>();
-  private EdmDataServices metadata;
+  // generated once, under the lock of eis, and reset by registrations
+  private volatile EdmDataServices metadata;
+  private File metadataCache;
   private final EdmDecorator decorator;
   private final MetadataProducer metadataProducer;
   private final InMemoryTypeMapping typeMapping;
 
   private boolean includeNullPropertyValues = true;
   private final boolean flattenEdm;
+  private ExecutorService executor;
+  private final ChangeSetExtension changeSetExtension = new InMemoryChangeSetExtension();
+  private int parallelThreshold = InMemorySortEngine.DEFAULT_PARALLEL_THRESHOLD;
+  private int parallelProjectionThreshold = InMemoryParallelQuery.DEFAULT_PROJECTION_THRESHOLD;
 
   private static final int DEFAULT_MAX_RESULTS = 100;
 
@@ -140,18 +163,85 @@ public class InMemoryProducer implements ODataProducer {
     this.flattenEdm = flattenEdm;
   }
 
+  /**
+   * Gets the metadata, generated from the registered classes on the first call after a
+   * registration; call it once all classes are registered to generate it before the first request.
+   * Concurrent callers wait for the metadata to be generated once.
+   */
   @Override
   public EdmDataServices getMetadata() {
+    EdmDataServices metadata = this.metadata;
     if (metadata == null) {
-      metadata = newEdmGenerator(namespace, typeMapping, ID_PROPNAME, eis, complexTypes).generateEdm(decorator).build();
+      synchronized (eis) {
+        metadata = this.metadata;
+        if (metadata == null) {
+          EdmGenerator generator = newEdmGenerator(namespace, typeMapping, ID_PROPNAME, eis, complexTypes);
+          if (metadataCache != null)
+            generator = new CachedEdmGenerator(generator, metadataCache, getFingerprint());
+          metadata = generator.generateEdm(decorator).build();
+          this.metadata = metadata;
+        }
+      }
     }
     return metadata;
   }
 
+  /**
+   * Sets the file the generated metadata is kept in, and read from on the next startup as long
+   * as the registrations are unchanged, see {@link CachedEdmGenerator}.
+   *
+   * <p>Custom property models are only told apart by their classes; delete the file when they
+   * expose other properties.</p>
+   *
+   * @param file  the file, or null to always generate the metadata
+   */
+  public void setMetadataCache(File file) {
+    synchronized (eis) {
+      this.metadataCache = file;
+      this.metadata = null;
+    }
+  }
+
+  /**
+   * Computes the fingerprint of the registrations, see {@link CachedEdmGenerator#fingerprint(Iterable, Object...)}.
+   */
+  protected String getFingerprint() {
+    List<Class<?>> classes = new ArrayList<Class<?>>();
+    List<Object> settings = new ArrayList<Object>();
+    settings.add(getClass().getName());
+    settings.add(namespace);
+    settings.add(containerName);
+    settings.add(flattenEdm);
+    settings.add(typeMapping.getClass().getName());
+    settings.add(decorator == null ? null : decorator.getClass().getName());
+    for (InMemoryComplexTypeInfo<?> i : complexTypes.values()) {
+      classes.add(i.entityClass);
+      settings.add(i.typeName + "|" + i.entityClass.getName() + "|" + i.propertyModel.getClass().getName());
+    }
+    for (InMemoryEntityInfo<?> ei : eis.values()) {
+      classes.add(ei.entityClass);
+      settings.add(ei.entitySetName + "|" + ei.entityTypeName + "|" + ei.entityClass.getName() + "|" + Arrays.toString(ei.keys)
+          + "|" + ei.properties.getClass().getName() + "|" + ei.hasStream);
+    }
+    return CachedEdmGenerator.fingerprint(classes, settings.toArray());
+  }
+
   public String getContainerName() {
     return containerName;
   }
 
+  /**
+   * Gets the registration of an entity set, e.g. to read its objects without building entities.
+   *
+   * @param entitySetName  the entity set name
+   * @return the entity info, or null if no such entity set is registered
+   */
+  public InMemoryEntityInfo<?> getEntityInfo(String entitySetName) {
+    synchronized (eis) {
+      return eis.get(entitySetName);
+    }
+  }
+
   protected InMemoryEdmGenerator newEdmGenerator(String namespace, InMemoryTypeMapping typeMapping, String idPropName, Map<String, InMemoryEntityInfo<?>> eis,
       Map<String, InMemoryComplexTypeInfo<?>> complexTypesInfo) {
     return new InMemoryEdmGenerator(namespace, containerName, typeMapping, ID_PROPNAME, eis, complexTypesInfo, this.flattenEdm);
@@ -171,6 +261,42 @@ public class InMemoryProducer implements ODataProducer {
     this.includeNullPropertyValues = value;
   }
 
+  /**
+   * Sets the executor used to query very large entity sets in parallel: the $filter predicate,
+   * the projection into OEntities and the $orderby sort are then split into tasks run on it.
+   * By default no executor is set and all work is done on the request thread.
+   *
+   * @param executor  the executor, or null to disable parallel execution
+   * @see #setParallelThreshold(int)
+   */
+  public void setExecutorService(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Sets the minimum number of objects the filter or sort step must process to run in parallel.
+   * Smaller steps always run on the request thread. The filter only runs in parallel if every
+   * filtered object is needed anyway, i.e. with $orderby or $inlinecount=allpages; otherwise it
+   * stops as soon as the page is full.
+   *
+   * @param value  the threshold, defaults to {@link InMemorySortEngine#DEFAULT_PARALLEL_THRESHOLD}
+   * @see #setExecutorService(ExecutorService)
+   * @see #setParallelProjectionThreshold(int)
+   */
+  public void setParallelThreshold(int value) {
+    this.parallelThreshold = value;
+  }
+
+  /**
+   * Sets the minimum number of objects on a page for projecting them into OEntities in parallel.
+   *
+   * @param value  the threshold, defaults to {@link InMemoryParallelQuery#DEFAULT_PROJECTION_THRESHOLD}
+   * @see #setExecutorService(ExecutorService)
+   */
+  public void setParallelProjectionThreshold(int value) {
+    this.parallelProjectionThreshold = value;
+  }
+
   /**
    * Registers a POJO class as an EdmComplexType.
    *
@@ -188,8 +314,10 @@ public class InMemoryProducer implements ODataProducer {
     i.entityClass = complexTypeClass;
     i.propertyModel = propertyModel;
 
-    complexTypes.put(i.typeName, i);
-    metadata = null;
+    synchronized (eis) {
+      complexTypes.put(i.typeName, i);
+      metadata = null;
+    }
   }
 
   /**
@@ -288,8 +416,47 @@ public class InMemoryProducer implements ODataProducer {
       }
     };
 
-    eis.put(entitySetName, ei);
-    metadata = null;
+    synchronized (eis) {
+      eis.put(entitySetName, ei);
+      metadata = null;
+    }
+  }
+
+  /**
+   * Registers a new, writable entity set based on a POJO. The entities are held by an
+   * {@link InMemoryEntityStore}, which allows to create, update and delete entities and links.
+   *
+   * @param entityClass  the class of the entities that are to be stored in the set
+   * @param entitySetName  the alias the set will be known by; this is what is used in the OData url
+   * @param keys  one or more keys for the entity
+   * @param indexedProperties  properties to maintain secondary indexes for, used by $filter equality comparisons
+   * @return the store, e.g. to load the initial entities
+   */
+  public <TEntity> InMemoryEntityStore<TEntity> registerStore(Class<TEntity> entityClass, String entitySetName, String[] keys, String... indexedProperties) {
+    PropertyModel model = new BeanBasedPropertyModel(entityClass, this.flattenEdm);
+    model = new EnumsAsStringsPropertyModelDelegate(model);
+    InMemoryEntityStore<TEntity> store = new InMemoryEntityStore<TEntity>(model, keys, indexedProperties);
+    registerStore(entityClass, entitySetName, entitySetName, store);
+    return store;
+  }
+
+  /**
+   * Registers a new, writable entity set based on a POJO and an existing store.
+   *
+   * @param entityClass  the class of the entities that are to be stored in the set
+   * @param entitySetName  the alias the set will be known by; this is what is used in the OData url
+   * @param entityTypeName  type name of the entity
+   * @param store  the store holding the entities
+   */
+  @SuppressWarnings("unchecked")
+  public <TEntity> void registerStore(Class<TEntity> entityClass, String entitySetName, String entityTypeName, final InMemoryEntityStore<TEntity> store) {
+    register(entityClass, store.getPropertyModel(), entitySetName, entityTypeName, new Func<Iterable<TEntity>>() {
+      @Override
+      public Iterable<TEntity> apply() {
+        return store.snapshot();
+      }
+    }, store.getKeys());
+    ((InMemoryEntityInfo<TEntity>) eis.get(entitySetName)).store = store;
   }
 
   protected InMemoryComplexTypeInfo<?> findComplexTypeInfoForClass(Class<?> clazz) {
@@ -411,12 +578,6 @@ public class InMemoryProducer implements ODataProducer {
     final List<OLink> links = new ArrayList<OLink>();
     final List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
 
-    Map<String, Object> keyKVPair = new HashMap<String, Object>();
-    for (String key : ei.getKeys()) {
-      Object keyValue = ei.getPropertyModel().getPropertyValue(obj, key);
-      keyKVPair.put(key, keyValue);
-    }
-
     // the entity set being queried may contain objects of subtypes of the entity set's type
     EdmEntityType edmEntityType = (EdmEntityType) this.getMetadata().findEdmEntityType(namespace + "." + ei.getEntityTypeName());
 
@@ -458,7 +619,7 @@ public class InMemoryProducer implements ODataProducer {
           // relation and href will be filled in later for atom or json
           links.add(OLinks.relatedEntitiesInline(null, navProp.getName(), null, relatedEntities));
         } else {
-          final Object entity = ei.getPropertyModel().getPropertyValue(obj, navProp.getName());
+          final Object entity = getRelatedPojos(navProp, obj, ei).iterator().next();
           OEntity relatedEntity = null;
 
           if (entity != null) {
@@ -473,19 +634,64 @@ public class InMemoryProducer implements ODataProducer {
       }
     }
 
-    return OEntities.create(ees, edmEntityType, OEntityKey.create(keyKVPair), properties, links, obj);
+    return OEntities.create(ees, edmEntityType, toOEntityKey(ei, obj), properties, links, obj);
+  }
+
+  /**
+   * Extracts the entity key of a POJO without transforming the whole POJO into an OEntity.
+   *
+   * @param ei  the entity info of the POJO's entity set
+   * @param obj  the POJO
+   * @return the entity key
+   */
+  protected OEntityKey toOEntityKey(InMemoryEntityInfo<?> ei, Object obj) {
+    Map<String, Object> keyKVPair = new HashMap<String, Object>();
+    for (String key : ei.getKeys()) {
+      Object keyValue = ei.getPropertyModel().getPropertyValue(obj, key);
+      keyKVPair.put(key, keyValue);
+    }
+    return OEntityKey.create(keyKVPair);
   }
 
   protected Iterable<?> getRelatedPojos(EdmNavigationProperty navProp, Object srcObject, InMemoryEntityInfo<?> srcInfo) {
     if (navProp.getToRole().getMultiplicity() == EdmMultiplicity.MANY) {
       Iterable<?> i = srcInfo.getPropertyModel().getCollectionValue(srcObject, navProp.getName());
-      return i == null ? Collections.EMPTY_LIST : i;
+      if (i == null)
+        return Collections.EMPTY_LIST;
+      List<Object> rt = new ArrayList<Object>();
+      for (Object related : i) {
+        Object current = getCurrentPojo(related);
+        if (current != null)
+          rt.add(current);
+      }
+      return rt;
     } else {
       // can be null
-      return Collections.singletonList(srcInfo.getPropertyModel().getPropertyValue(srcObject, navProp.getName()));
+      return Collections.singletonList(getCurrentPojo(srcInfo.getPropertyModel().getPropertyValue(srcObject, navProp.getName())));
     }
   }
 
+  /**
+   * Every change of a stored entity replaces it by a new version, so a link to a stored entity is
+   * followed by key to the version in the current snapshot.
+   *
+   * @return the current version of the pojo, or null if it has been deleted
+   */
+  private Object getCurrentPojo(Object pojo) {
+    if (pojo == null)
+      return null;
+    InMemoryEntityInfo<?> ei = findEntityInfoForClass(pojo.getClass());
+    if (ei == null || ei.store == null)
+      return pojo;
+    InMemoryEntityStore<Object> store = storeOf(ei);
+    return store.snapshot().get(store.getKey(pojo));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static InMemoryEntityStore<Object> storeOf(InMemoryEntityInfo<?> ei) {
+    return (InMemoryEntityStore<Object>) ei.store;
+  }
+
   private static Predicate1<Object> filterToPredicate(final BoolCommonExpression filter, final PropertyModel properties) {
     return new Predicate1<Object>() {
       public boolean apply(Object input) {
@@ -506,48 +712,109 @@ public class InMemoryProducer implements ODataProducer {
 
     final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
 
-    Enumerable<Object> objects = ei.getWithContext == null
+    Enumerable<Object> objects = getEntitiesSource(ei, rc);
+
+    return getEntitiesResponse(rc, rc.getEntitySet(), objects, ei.getPropertyModel());
+  }
+
+  /**
+   * Gets the objects a query over an entity set starts from. For stored entity sets, an equality
+   * comparison of an indexed property with a literal in the $filter is looked up in the index;
+   * the whole filter is still applied to the objects found.
+   */
+  private Enumerable<Object> getEntitiesSource(InMemoryEntityInfo<?> ei, RequestContext rc) {
+    if (ei.store != null) {
+      InMemoryEntityStore.Snapshot<?> snapshot = ei.store.snapshot();
+      QueryInfo queryInfo = rc.getQueryInfo();
+      List<?> indexed = queryInfo == null || queryInfo.filter == null
+          ? null
+          : findByIndex(snapshot, ei.getPropertyModel(), queryInfo.filter);
+      return indexed != null
+          ? Enumerable.create(indexed).cast(Object.class)
+          : Enumerable.create(snapshot).cast(Object.class);
+    }
+    return ei.getWithContext == null
         ? Enumerable.create(ei.get.apply()).cast(Object.class)
         : Enumerable.create(ei.getWithContext.apply(rc)).cast(Object.class);
+  }
 
-    return getEntitiesResponse(rc, rc.getEntitySet(), objects, ei.getPropertyModel());
+  private static List<?> findByIndex(InMemoryEntityStore.Snapshot<?> snapshot, PropertyModel properties, BoolCommonExpression filter) {
+    if (filter instanceof AndExpression) {
+      List<?> rt = findByIndex(snapshot, properties, ((AndExpression) filter).getLHS());
+      return rt != null ? rt : findByIndex(snapshot, properties, ((AndExpression) filter).getRHS());
+    }
+    if (filter instanceof EqExpression) {
+      EqExpression eq = (EqExpression) filter;
+      if (eq.getLHS() instanceof EntitySimpleProperty && eq.getRHS() instanceof LiteralExpression)
+        return findByIndex(snapshot, properties, (EntitySimpleProperty) eq.getLHS(), (LiteralExpression) eq.getRHS());
+      if (eq.getRHS() instanceof EntitySimpleProperty && eq.getLHS() instanceof LiteralExpression)
+        return findByIndex(snapshot, properties, (EntitySimpleProperty) eq.getRHS(), (LiteralExpression) eq.getLHS());
+    }
+    return null;
+  }
+
+  private static List<?> findByIndex(InMemoryEntityStore.Snapshot<?> snapshot, PropertyModel properties, EntitySimpleProperty property, LiteralExpression literal) {
+    String propertyName = property.getPropertyName();
+    Object value = Expression.literalValue(literal);
+    // the index compares values by equals, so only values of the property's own kind can be looked up
+    if (value == null || !snapshot.isIndexed(propertyName)
+        || InMemoryEntityStore.normalize(properties.getPropertyType(propertyName)) != InMemoryEntityStore.normalize(value.getClass()))
+      return null;
+    return snapshot.find(propertyName, value);
   }
 
   protected EntitiesResponse getEntitiesResponse(final RequestContext rc, final EdmEntitySet targetEntitySet, Enumerable<Object> objects, PropertyModel propertyModel) {
-    // apply filter
+    // the query runs in stages over the raw objects: filter -> order -> page.
+    // only the objects that end up on the page are projected into OEntities and expanded.
     final QueryInfo queryInfo = rc.getQueryInfo();
+    final InMemoryEntityInfo<?> ei = eis.get(targetEntitySet.getName());
+
+    // apply filter, in parallel if enabled, every filtered object is needed for sorting or counting,
+    // and the source turns out to be large; otherwise filtering stops once the page is full
     if (queryInfo != null && queryInfo.filter != null) {
-      objects = objects.where(filterToPredicate(queryInfo.filter, propertyModel));
+      Predicate1<Object> predicate = filterToPredicate(queryInfo.filter, propertyModel);
+      boolean filterAll = queryInfo.orderBy != null || queryInfo.inlineCount == InlineCount.ALLPAGES;
+      objects = executor != null && filterAll
+          ? Enumerable.create(new InMemoryParallelQuery(executor).where(objects, predicate, parallelThreshold))
+          : objects.where(predicate);
     }
 
-    // compute inlineCount, must be done after applying filter
-    Integer inlineCount = null;
-    if (queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES) {
-      objects = Enumerable.create(objects.toList()); // materialize up front, since we're about to count
-      inlineCount = objects.count();
+    // compute inlineCount, must be done after applying filter.
+    // the count is taken in the same pass that collects the page: every filtered object
+    // passing through the pipeline is counted and the remainder is drained afterwards
+    final CountingIterator countingIterator = queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES
+        ? new CountingIterator(objects.iterator())
+        : null;
+    if (countingIterator != null) {
+      objects = Enumerable.createFromIterator(Funcs.constant((Iterator<Object>) countingIterator));
     }
 
-    // apply ordering
-    if (queryInfo != null && queryInfo.orderBy != null) {
-      objects = orderBy(objects, queryInfo.orderBy, propertyModel);
+    // apply limit
+    int limit = this.maxResults;
+    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
+      limit = queryInfo.top;
     }
 
-    // work with oentities
-    Enumerable<OEntity> entities = objects.select(new Func1<Object, OEntity>() {
-      @Override
-      public OEntity apply(Object input) {
-        return toOEntity(targetEntitySet, input, rc.getPathHelper());
+    // apply ordering
+    if (queryInfo != null && queryInfo.orderBy != null) {
+      // without a skipToken only the objects up to the end of the page (plus one to detect the
+      // next page) are needed, with one the position of the page is not known before sorting
+      int sortLimit = -1;
+      if (queryInfo.skipToken == null) {
+        long needed = (queryInfo.skip != null ? (long) queryInfo.skip : 0L) + limit + 1L;
+        sortLimit = needed > Integer.MAX_VALUE ? -1 : (int) needed;
       }
-    });
+      objects = orderBy(objects, queryInfo.orderBy, propertyModel, sortLimit);
+    }
 
-    // skip records by $skipToken
+    // skip records by $skipToken, comparing keys extracted from the raw objects
     if (queryInfo != null && queryInfo.skipToken != null) {
       final Boolean[] skipping = new Boolean[] { true };
-      entities = entities.skipWhile(new Predicate1<OEntity>() {
+      objects = objects.skipWhile(new Predicate1<Object>() {
         @Override
-        public boolean apply(OEntity input) {
+        public boolean apply(Object input) {
           if (skipping[0]) {
-            String inputKey = input.getEntityKey().toKeyString();
+            String inputKey = toOEntityKey(ei, input).toKeyString();
             if (queryInfo.skipToken.equals(inputKey)) skipping[0] = false;
             return true;
           }
@@ -558,28 +825,44 @@ public class InMemoryProducer implements ODataProducer {
 
     // skip records by $skip amount
     if (queryInfo != null && queryInfo.skip != null) {
-      entities = entities.skip(queryInfo.skip);
+      objects = objects.skip(queryInfo.skip);
     }
 
-    // apply limit
-    int limit = this.maxResults;
-    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
-      limit = queryInfo.top;
-    }
-    entities = entities.take(limit + 1);
-
-    // materialize OEntities
-    List<OEntity> entitiesList = entities.toList();
+    // materialize the page, one extra object tells whether there is a next page
+    List<Object> page = objects.take(limit + 1).toList();
+    Integer inlineCount = countingIterator == null ? null : countingIterator.drain();
 
     // determine skipToken if necessary
     String skipToken = null;
-    if (entitiesList.size() > limit) {
-      entitiesList = Enumerable.create(entitiesList).take(limit).toList();
-      skipToken = entitiesList.size() == 0 ? null : Enumerable.create(entitiesList).last().getEntityKey().toKeyString();
+    if (page.size() > limit) {
+      page = page.subList(0, limit);
+      skipToken = page.size() == 0 ? null : toOEntityKey(ei, page.get(page.size() - 1)).toKeyString();
     }
 
-    return Responses.entities(entitiesList, targetEntitySet, inlineCount, skipToken);
+    // project and expand the objects on the page, in parallel if enabled and the page is large
+    List<OEntity> entities;
+    if (executor != null && page.size() >= parallelProjectionThreshold) {
+      // every task gets its own path helper, since $expand processing changes its state
+      entities = new InMemoryParallelQuery(executor).select(page, new Func<Func1<Object, OEntity>>() {
+        @Override
+        public Func1<Object, OEntity> apply() {
+          return toOEntityFunc(targetEntitySet, new PropertyPathHelper(queryInfo));
+        }
+      });
+    } else {
+      entities = Enumerable.create(page).select(toOEntityFunc(targetEntitySet, rc.getPathHelper())).toList();
+    }
 
+    return Responses.entities(entities, targetEntitySet, inlineCount, skipToken);
+  }
+
+  private Func1<Object, OEntity> toOEntityFunc(final EdmEntitySet entitySet, final PropertyPathHelper pathHelper) {
+    return new Func1<Object, OEntity>() {
+      @Override
+      public OEntity apply(Object input) {
+        return toOEntity(entitySet, input, pathHelper);
+      }
+    };
   }
 
   @Override
@@ -594,11 +877,7 @@ public class InMemoryProducer implements ODataProducer {
 
     final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
 
-    final PropertyPathHelper pathHelper = new PropertyPathHelper(queryInfo);
-
-    Enumerable<Object> objects = ei.getWithContext == null
-        ? Enumerable.create(ei.get.apply()).cast(Object.class)
-        : Enumerable.create(ei.getWithContext.apply(rc)).cast(Object.class);
+    Enumerable<Object> objects = getEntitiesSource(ei, rc);
 
     // apply filter
     if (queryInfo != null && queryInfo.filter != null) {
@@ -612,13 +891,7 @@ public class InMemoryProducer implements ODataProducer {
 
     // ignore ordering for count
 
-    // work with oentities.
-    Enumerable<OEntity> entities = objects.select(new Func1<Object, OEntity>() {
-      @Override
-      public OEntity apply(Object input) {
-        return toOEntity(rc.getEntitySet(), input, pathHelper);
-      }
-    });
+    // count the raw objects, there is no need to build OEntities just to count them
 
     // skipToken is not applicable to $count queries
     if (queryInfo != null && queryInfo.skipToken != null) {
@@ -628,7 +901,7 @@ public class InMemoryProducer implements ODataProducer {
     // skip records by $skip amount
     // http://services.odata.org/Northwind/Northwind.svc/Customers/$count/?$skip=5
     if (queryInfo != null && queryInfo.skip != null) {
-      entities = entities.skip(queryInfo.skip);
+      objects = objects.skip(queryInfo.skip);
     }
 
     // apply $top.  maxResults is not applicable to $count but $top is.
@@ -637,22 +910,58 @@ public class InMemoryProducer implements ODataProducer {
     if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
       limit = queryInfo.top;
     }
-    entities = entities.take(limit);
+    objects = objects.take(limit);
 
-    return Responses.count(entities.count());
+    return Responses.count(objects.count());
   }
 
-  private Enumerable<Object> orderBy(Enumerable<Object> iter, List<OrderByExpression> orderBys, final PropertyModel properties) {
-    for (final OrderByExpression orderBy : Enumerable.create(orderBys).reverse())
-      iter = iter.orderBy(new Comparator<Object>() {
-        @SuppressWarnings({ "unchecked", "rawtypes" })
-        public int compare(Object o1, Object o2) {
-          Comparable lhs = (Comparable) InMemoryEvaluation.evaluate(orderBy.getExpression(), o1, properties);
-          Comparable rhs = (Comparable) InMemoryEvaluation.evaluate(orderBy.getExpression(), o2, properties);
-          return (orderBy.getDirection() == Direction.ASCENDING ? 1 : -1) * lhs.compareTo(rhs);
-        }
-      });
-    return iter;
+  private Enumerable<Object> orderBy(Enumerable<Object> iter, List<OrderByExpression> orderBys, PropertyModel properties, int limit) {
+    InMemorySortEngine sortEngine = new InMemorySortEngine(orderBys, properties, executor, parallelThreshold);
+    return Enumerable.create(sortEngine.sort(iter, limit));
+  }
+
+  /**
+   * Counts the objects handed out by an iterator as they pass through a query pipeline,
+   * so that $inlinecount does not require the filtered objects to be materialized.
+   */
+  private static class CountingIterator implements Iterator<Object> {
+
+    private final Iterator<Object> iterator;
+    private int count;
+
+    public CountingIterator(Iterator<Object> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public Object next() {
+      Object next = iterator.next();
+      count++;
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Consumes the objects not yet pulled by the pipeline.
+     *
+     * @return the total number of objects
+     */
+    public int drain() {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+      return count;
+    }
   }
 
   @Override
@@ -681,28 +990,170 @@ public class InMemoryProducer implements ODataProducer {
   }
 
   @Override
-  public void mergeEntity(ODataContext context, String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+  public void mergeEntity(ODataContext context, String entitySetName, final OEntity entity) {
+    final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    final EdmEntitySet entitySet = getMetadata().getEdmEntitySet(entitySetName);
+    InMemoryEntityStore<Object> store = getStore(entitySetName);
+
+    store.newChangeSet().update(store.getKey(entity.getEntityKey()), new Func1<Object, Object>() {
+      @Override
+      public Object apply(Object existing) {
+        // apply the properties in the request to the current version of the entity
+        OEntity current = toOEntity(entitySet, existing, new PropertyPathHelper());
+        Map<String, OProperty<?>> properties = new LinkedHashMap<String, OProperty<?>>();
+        for (OProperty<?> property : current.getProperties())
+          properties.put(property.getName(), property);
+        for (OProperty<?> property : entity.getProperties())
+          properties.put(property.getName(), property);
+        OEntity merged = OEntities.create(entitySet, current.getEntityType(), current.getEntityKey(),
+            new ArrayList<OProperty<?>>(properties.values()), entity.getLinks());
+
+        Object pojo = newPojo(merged, ei);
+        copyLinks(existing, pojo, ei, merged);
+        return pojo;
+      }
+    }).commit();
   }
 
   @Override
-  public void updateEntity(ODataContext context, String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+  public void updateEntity(ODataContext context, String entitySetName, final OEntity entity) {
+    final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    InMemoryEntityStore<Object> store = getStore(entitySetName);
+
+    final Object pojo = newPojo(entity, ei);
+    setKey(pojo, ei, entity.getEntityKey());
+
+    store.newChangeSet().update(store.getKey(entity.getEntityKey()), new Func1<Object, Object>() {
+      @Override
+      public Object apply(Object existing) {
+        copyLinks(existing, pojo, ei, entity);
+        return pojo;
+      }
+    }).commit();
   }
 
   @Override
   public void deleteEntity(ODataContext context, String entitySetName, OEntityKey entityKey) {
-    throw new NotImplementedException();
+    InMemoryEntityStore<Object> store = getStore(entitySetName);
+    store.newChangeSet().delete(store.getKey(entityKey)).commit();
   }
 
   @Override
   public EntityResponse createEntity(ODataContext context, String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    InMemoryEntityStore<Object> store = getStore(entitySetName);
+
+    Object pojo = newPojo(entity, ei);
+    store.newChangeSet().insert(pojo).commit();
+
+    return createdResponse(context, entitySetName, pojo);
   }
 
   @Override
   public EntityResponse createEntity(ODataContext context, String entitySetName, OEntityKey entityKey, String navProp, OEntity entity) {
-    throw new NotImplementedException();
+    EdmNavigationProperty navProperty = findNavigationProperty(entitySetName, navProp);
+    EdmEntitySet targetEntitySet = findEntitySetForNavProperty(navProperty);
+    InMemoryEntityStore<Object> targetStore = getStore(targetEntitySet.getName());
+    InMemoryEntityStore<Object> sourceStore = getStore(entitySetName);
+
+    final Object pojo = newPojo(entity, eis.get(targetEntitySet.getName()));
+    final boolean many = navProperty.getToRole().getMultiplicity() == EdmMultiplicity.MANY;
+    Func1<Object, Object> link = linkChange(OEntityIds.create(entitySetName, entityKey), navProp, new Func1<List<Object>, List<Object>>() {
+      @Override
+      public List<Object> apply(List<Object> related) {
+        if (!many)
+          related.clear();
+        related.add(pojo);
+        return related;
+      }
+    });
+
+    // the entity and the link are committed at once, also if they are held by different stores
+    InMemoryEntityStore<Object>.ChangeSet targetChanges = targetStore.newChangeSet().insert(pojo);
+    if (sourceStore == targetStore) {
+      targetChanges.update(sourceStore.getKey(entityKey), link).commit();
+    } else {
+      List<InMemoryEntityStore<Object>.ChangeSet> changeSets = new ArrayList<InMemoryEntityStore<Object>.ChangeSet>(2);
+      changeSets.add(targetChanges);
+      changeSets.add(sourceStore.newChangeSet().update(sourceStore.getKey(entityKey), link));
+      InMemoryEntityStore.commit(changeSets);
+    }
+
+    return createdResponse(context, targetEntitySet.getName(), pojo);
+  }
+
+  private EntityResponse createdResponse(ODataContext context, String entitySetName, Object pojo) {
+    if (ReturnPreference.isNoContent(context))
+      return Responses.entity(getMetadata().getEdmEntitySet(entitySetName), toOEntityKey(eis.get(entitySetName), pojo));
+    return Responses.entity(toOEntity(getMetadata().getEdmEntitySet(entitySetName), pojo, new PropertyPathHelper()));
+  }
+
+  /**
+   * Gets the store of a writable entity set.
+   *
+   * @throws NotImplementedException if the entity set is read-only
+   */
+  private InMemoryEntityStore<Object> getStore(String entitySetName) {
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    if (ei == null)
+      throw new NotFoundException("Entity set " + entitySetName + " not found");
+    if (ei.store == null)
+      throw new NotImplementedException("Entity set " + entitySetName + " is read-only");
+    return storeOf(ei);
+  }
+
+  private Object newPojo(OEntity entity, InMemoryEntityInfo<?> ei) {
+    try {
+      return toPojo(entity, ei.getEntityClass());
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private void setKey(Object pojo, InMemoryEntityInfo<?> ei, OEntityKey entityKey) {
+    if (ei.keys.length == 1 && entityKey.getKeyType() == OEntityKey.KeyType.SINGLE) {
+      ei.getPropertyModel().setPropertyValue(pojo, ei.keys[0], entityKey.asSingleValue());
+      return;
+    }
+    for (OProperty<?> keyProp : entityKey.asComplexProperties()) {
+      for (String key : ei.keys) {
+        if (keyProp.getName().equalsIgnoreCase(key))
+          ei.getPropertyModel().setPropertyValue(pojo, key, keyProp.getValue());
+      }
+    }
+  }
+
+  /**
+   * Copies the links of an entity to its new version, except for the ones replaced by
+   * inline links in the request entity.
+   */
+  private void copyLinks(Object from, Object to, InMemoryEntityInfo<?> ei, OEntity entity) {
+    EdmEntityType edmEntityType = (EdmEntityType) getMetadata().findEdmEntityType(namespace + "." + ei.getEntityTypeName());
+    for (EdmNavigationProperty navProp : edmEntityType.getNavigationProperties()) {
+      if (isInline(entity, navProp.getName()))
+        continue;
+      if (navProp.getToRole().getMultiplicity() == EdmMultiplicity.MANY) {
+        Iterable<?> values = ei.getPropertyModel().getCollectionValue(from, navProp.getName());
+        ei.getPropertyModel().setCollectionValue(to, navProp.getName(), values == null ? null : Enumerable.create(values).cast(Object.class).toList());
+      } else {
+        ei.getPropertyModel().setPropertyValue(to, navProp.getName(), ei.getPropertyModel().getPropertyValue(from, navProp.getName()));
+      }
+    }
+  }
+
+  private static boolean isInline(OEntity entity, String navPropName) {
+    for (OLink link : entity.getLinks()) {
+      if (link.isInline() && navPropName.equals(link.getTitle()))
+        return true;
+    }
+    return false;
+  }
+
+  private EdmNavigationProperty findNavigationProperty(String entitySetName, String navPropName) {
+    EdmNavigationProperty navProp = getMetadata().getEdmEntitySet(entitySetName).getType().findNavigationProperty(navPropName);
+    if (navProp == null)
+      throw new NotFoundException("Navigation property " + navPropName + " is not found");
+    return navProp;
   }
 
   @Override
@@ -785,22 +1236,131 @@ public class InMemoryProducer implements ODataProducer {
 
   @Override
   public EntityIdResponse getLinks(ODataContext context, OEntityId sourceEntity, String targetNavProp) {
-    throw new NotImplementedException();
+    EdmNavigationProperty navProp = findNavigationProperty(sourceEntity.getEntitySetName(), targetNavProp);
+    EdmEntitySet targetEntitySet = findEntitySetForNavProperty(navProp);
+    InMemoryEntityInfo<?> targetInfo = eis.get(targetEntitySet.getName());
+
+    Object obj = findEntityPojo(context, sourceEntity.getEntitySetName(), sourceEntity.getEntityKey());
+    List<OEntityId> entityIds = new ArrayList<OEntityId>();
+    for (Object related : getRelatedPojos(navProp, obj, eis.get(sourceEntity.getEntitySetName()))) {
+      if (related != null)
+        entityIds.add(OEntityIds.create(targetEntitySet.getName(), toOEntityKey(targetInfo, related)));
+    }
+
+    return navProp.getToRole().getMultiplicity() == EdmMultiplicity.MANY
+        ? Responses.multipleIds(entityIds)
+        : Responses.singleId(entityIds.isEmpty() ? null : entityIds.get(0));
   }
 
   @Override
   public void createLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityId targetEntity) {
-    throw new NotImplementedException();
+    final Object target = findEntityPojo(context, targetEntity.getEntitySetName(), targetEntity.getEntityKey());
+    final boolean many = findNavigationProperty(sourceEntity.getEntitySetName(), targetNavProp).getToRole().getMultiplicity() == EdmMultiplicity.MANY;
+    changeLinks(sourceEntity, targetNavProp, new Func1<List<Object>, List<Object>>() {
+      @Override
+      public List<Object> apply(List<Object> related) {
+        if (!many)
+          related.clear();
+        related.add(target);
+        return related;
+      }
+    });
   }
 
   @Override
-  public void updateLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityKey oldTargetEntityKey, OEntityId newTargetEntity) {
-    throw new NotImplementedException();
+  public void updateLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, final OEntityKey oldTargetEntityKey, OEntityId newTargetEntity) {
+    final Object target = findEntityPojo(context, newTargetEntity.getEntitySetName(), newTargetEntity.getEntityKey());
+    changeLinks(sourceEntity, targetNavProp, new Func1<List<Object>, List<Object>>() {
+      @Override
+      public List<Object> apply(List<Object> related) {
+        removeLink(related, oldTargetEntityKey);
+        related.add(target);
+        return related;
+      }
+    });
   }
 
   @Override
-  public void deleteLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, OEntityKey targetEntityKey) {
-    throw new NotImplementedException();
+  public void deleteLink(ODataContext context, OEntityId sourceEntity, String targetNavProp, final OEntityKey targetEntityKey) {
+    changeLinks(sourceEntity, targetNavProp, new Func1<List<Object>, List<Object>>() {
+      @Override
+      public List<Object> apply(List<Object> related) {
+        removeLink(related, targetEntityKey);
+        return related;
+      }
+    });
+  }
+
+  /**
+   * Replaces the links of a stored entity by the result of the given function,
+   * which is called with the current links of the entity.
+   */
+  private void changeLinks(OEntityId sourceEntity, String targetNavProp, Func1<List<Object>, List<Object>> change) {
+    InMemoryEntityStore<Object> store = getStore(sourceEntity.getEntitySetName());
+    store.newChangeSet().update(store.getKey(sourceEntity.getEntityKey()), linkChange(sourceEntity, targetNavProp, change)).commit();
+  }
+
+  /**
+   * Gets the change of a stored entity that replaces its links by the result of the given
+   * function, see {@link #changeLinks(OEntityId, String, Func1)}.
+   */
+  private Func1<Object, Object> linkChange(OEntityId sourceEntity, final String targetNavProp, final Func1<List<Object>, List<Object>> change) {
+    final EdmNavigationProperty navProp = findNavigationProperty(sourceEntity.getEntitySetName(), targetNavProp);
+    final EdmEntitySet entitySet = getMetadata().getEdmEntitySet(sourceEntity.getEntitySetName());
+    final InMemoryEntityInfo<?> ei = eis.get(sourceEntity.getEntitySetName());
+
+    return new Func1<Object, Object>() {
+      @Override
+      public Object apply(Object existing) {
+        List<Object> related = new ArrayList<Object>();
+        for (Object obj : getRelatedPojos(navProp, existing, ei)) {
+          if (obj != null)
+            related.add(obj);
+        }
+        related = change.apply(related);
+
+        // copy the entity, including all of its links
+        OEntity current = toOEntity(entitySet, existing, new PropertyPathHelper());
+        Object pojo = newPojo(current, ei);
+        copyLinks(existing, pojo, ei, current);
+
+        if (navProp.getToRole().getMultiplicity() == EdmMultiplicity.MANY) {
+          ei.getPropertyModel().setCollectionValue(pojo, targetNavProp, related);
+        } else {
+          if (related.size() > 1)
+            throw new BadRequestException("Navigation property " + targetNavProp + " links to a single entity");
+          ei.getPropertyModel().setPropertyValue(pojo, targetNavProp, related.isEmpty() ? null : related.get(0));
+        }
+        return pojo;
+      }
+    };
+  }
+
+  /**
+   * Removes the linked entity with the given key, or all of them if the key is null.
+   */
+  private void removeLink(List<Object> related, OEntityKey entityKey) {
+    for (Iterator<Object> it = related.iterator(); it.hasNext();) {
+      Object obj = it.next();
+      if (entityKey == null || entityKey.equals(toOEntityKey(findEntityInfoForClass(obj.getClass()), obj)))
+        it.remove();
+    }
+  }
+
+  private Object findEntityPojo(ODataContext context, String entitySetName, OEntityKey entityKey) {
+    RequestContext rc = RequestContext.newBuilder(RequestType.GetEntity)
+        .entitySetName(entitySetName)
+        .entitySet(getMetadata().getEdmEntitySet(entitySetName))
+        .entityKey(entityKey)
+        .pathHelper(new PropertyPathHelper())
+        .odataContext(context)
+        .build();
+
+    Object rt = getEntityPojo(rc);
+    if (rt == null)
+      throw new NotFoundException("No entity found in entityset " + entitySetName
+          + " for key " + entityKey.toKeyStringWithoutParentheses());
+    return rt;
   }
 
   @Override
@@ -810,9 +1370,121 @@ public class InMemoryProducer implements ODataProducer {
 
   @Override
   public <TExtension extends OExtension<ODataProducer>> TExtension findExtension(Class<TExtension> clazz) {
+    if (clazz.equals(ChangeSetExtension.class))
+      return isChangeSetSupported() ? clazz.cast(changeSetExtension) : null;
+    if (clazz.equals(AggregationExtension.class))
+      return clazz.cast(new AggregationExtension() {
+        @Override
+        public CollectionResponse<OComplexObject> aggregate(ODataContext context, String entitySetName, QueryInfo queryInfo, AggregateQuery aggregateQuery) {
+          return InMemoryProducer.this.aggregate(context, entitySetName, queryInfo, aggregateQuery);
+        }
+      });
     return null;
   }
 
+  /**
+   * Whether the operations of a $batch change set can be applied to the stores directly: only if
+   * every entity set is held by a store, and a subclass does not implement writes itself by
+   * overriding {@link #createEntity(ODataContext, String, OEntity)} or
+   * {@link #deleteEntity(ODataContext, String, OEntityKey)}. Otherwise the operations are
+   * processed one by one.
+   */
+  private boolean isChangeSetSupported() {
+    try {
+      if (getClass().getMethod("createEntity", ODataContext.class, String.class, OEntity.class).getDeclaringClass() != InMemoryProducer.class
+          || getClass().getMethod("deleteEntity", ODataContext.class, String.class, OEntityKey.class).getDeclaringClass() != InMemoryProducer.class)
+        return false;
+    } catch (NoSuchMethodException e) {
+      throw Throwables.propagate(e);
+    }
+    synchronized (eis) {
+      for (InMemoryEntityInfo<?> ei : eis.values()) {
+        if (ei.store == null)
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Records the creates and deletes of a $batch change set per store, and commits the change sets
+   * of all stores at once, see {@link InMemoryEntityStore#commit(java.util.Collection)}.
+   */
+  private class InMemoryChangeSetExtension implements ChangeSetExtension {
+
+    @Override
+    public ChangeSet newChangeSet(ODataContext context) {
+      return new ChangeSet() {
+
+        private final Map<InMemoryEntityStore<Object>, InMemoryEntityStore<Object>.ChangeSet> changeSets = new LinkedHashMap<InMemoryEntityStore<Object>, InMemoryEntityStore<Object>.ChangeSet>();
+        // creates the response of each operation once all of them are committed
+        private final List<Func<EntityResponse>> responses = new ArrayList<Func<EntityResponse>>();
+
+        @Override
+        public void createEntity(final ODataContext context, final String entitySetName, OEntity entity) {
+          final Object pojo = newPojo(entity, eis.get(entitySetName));
+          changeSet(entitySetName).insert(pojo);
+          responses.add(new Func<EntityResponse>() {
+            @Override
+            public EntityResponse apply() {
+              return createdResponse(context, entitySetName, pojo);
+            }
+          });
+        }
+
+        @Override
+        public void deleteEntity(String entitySetName, OEntityKey entityKey) {
+          InMemoryEntityStore<Object> store = getStore(entitySetName);
+          changeSet(entitySetName).delete(store.getKey(entityKey));
+          responses.add(null);
+        }
+
+        @Override
+        public List<EntityResponse> commit() {
+          InMemoryEntityStore.commit(changeSets.values());
+          List<EntityResponse> rt = new ArrayList<EntityResponse>(responses.size());
+          for (Func<EntityResponse> response : responses)
+            rt.add(response == null ? null : response.apply());
+          return rt;
+        }
+
+        private InMemoryEntityStore<Object>.ChangeSet changeSet(String entitySetName) {
+          InMemoryEntityStore<Object> store = getStore(entitySetName);
+          InMemoryEntityStore<Object>.ChangeSet changeSet = changeSets.get(store);
+          if (changeSet == null) {
+            changeSet = store.newChangeSet();
+            changeSets.put(store, changeSet);
+          }
+          return changeSet;
+        }
+      };
+    }
+  }
+
+  /**
+   * Groups and aggregates the filtered objects of an entity set in a single pass over the raw
+   * objects, without building OEntities.
+   */
+  protected CollectionResponse<OComplexObject> aggregate(ODataContext context, String entitySetName, QueryInfo queryInfo, AggregateQuery aggregateQuery) {
+    EdmEntitySet entitySet = getMetadata().getEdmEntitySet(entitySetName);
+    // validate the query before scanning any objects
+    aggregateQuery.getResultType(entitySet);
+
+    RequestContext rc = RequestContext.newBuilder(RequestType.GetEntities)
+        .entitySetName(entitySetName)
+        .entitySet(entitySet)
+        .queryInfo(queryInfo)
+        .odataContext(context)
+        .build();
+
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    Enumerable<Object> objects = getEntitiesSource(ei, rc);
+    if (queryInfo != null && queryInfo.filter != null)
+      objects = objects.where(filterToPredicate(queryInfo.filter, ei.properties));
+
+    return aggregateQuery.createResponse(entitySet, new InMemoryAggregator(aggregateQuery, ei.properties).aggregate(objects));
+  }
+
   public static class RequestContext {
 
     public enum RequestType {
@@ -937,7 +1609,7 @@ public class InMemoryProducer implements ODataProducer {
   /**
    * Given an entity set and an entity key, returns the pojo that is that entity instance.
    * The default implementation iterates over the entire set of pojos to find the
-   * desired instance.
+   * desired instance, unless the entity set is held by an {@link InMemoryEntityStore}.
    *
    * @param rc  the current ReqeustContext, may be valuable to the ei.getWithContext impl
    * @return the pojo
@@ -946,6 +1618,12 @@ public class InMemoryProducer implements ODataProducer {
   protected Object getEntityPojo(final RequestContext rc) {
     final InMemoryEntityInfo<?> ei = eis.get(rc.getEntitySetName());
 
+    // stored entities are looked up in the key index
+    if (ei.store != null) {
+      InMemoryEntityStore<?> store = ei.store;
+      return store.snapshot().get(store.getKey(rc.getEntityKey()));
+    }
+
     final String[] keyList = ei.keys;
 
     Iterable<Object> iter = ei.getWithContext == null ? ((Iterable<Object>) ei.get.apply())
@@ -0,0 +1,247 @@
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.odata4j.core.Throwables;
+import org.odata4j.expression.OrderByExpression;
+import org.odata4j.expression.OrderByExpression.Direction;
+
+/**
+ * Sorts POJOs according to a list of $orderby expressions.
+ *
+ * <p>The sort keys of every object are evaluated exactly once and the objects are
+ * sorted by a single composite comparator over those keys (decorate-sort-undecorate).
+ * When the caller only needs the first few objects, a bounded heap selects them without
+ * sorting the whole input. Very large inputs are sorted in parallel if an executor is given.</p>
+ *
+ * <p>The sort is stable; {@code null} keys sort before any other value.</p>
+ */
+public class InMemorySortEngine {
+
+  /** Inputs smaller than this are always sorted on the calling thread. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+  /** A bounded heap is used when the requested limit is at most 1/TOP_N_RATIO of the input. */
+  private static final int TOP_N_RATIO = 8;
+
+  private final OrderByExpression[] orderBys;
+  private final PropertyModel properties;
+  private final ExecutorService executor;
+  private final int parallelThreshold;
+
+  public InMemorySortEngine(List<OrderByExpression> orderBys, PropertyModel properties) {
+    this(orderBys, properties, null, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Creates a new sort engine.
+   *
+   * @param orderBys  the $orderby expressions, most significant first
+   * @param properties  the property model used to evaluate the expressions
+   * @param executor  executes the tasks of a parallel sort, null to always sort on the calling thread
+   * @param parallelThreshold  the minimum number of objects to sort in parallel
+   */
+  public InMemorySortEngine(List<OrderByExpression> orderBys, PropertyModel properties, ExecutorService executor, int parallelThreshold) {
+    this.orderBys = orderBys.toArray(new OrderByExpression[orderBys.size()]);
+    this.properties = properties;
+    this.executor = executor;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /**
+   * Sorts the given objects.
+   *
+   * @param objects  the objects to sort
+   * @param limit  the number of leading objects the caller needs, or a negative value for all of them
+   * @return the sorted objects, at most {@code limit} of them if limit is not negative
+   */
+  public List<Object> sort(Iterable<?> objects, int limit) {
+    List<?> list = objects instanceof List && objects instanceof RandomAccess
+        ? (List<?>) objects
+        : toList(objects);
+
+    int size = list.size();
+    if (size == 0 || limit == 0)
+      return new ArrayList<Object>(0);
+
+    if (limit > 0 && limit <= size / TOP_N_RATIO)
+      return undecorate(selectTop(list, limit), limit);
+
+    SortEntry[] entries = executor != null && size >= parallelThreshold
+        ? sortParallel(list)
+        : sortSequential(list);
+    return undecorate(entries, limit < 0 ? size : Math.min(limit, size));
+  }
+
+  private static List<Object> toList(Iterable<?> objects) {
+    if (objects instanceof Collection)
+      return new ArrayList<Object>((Collection<?>) objects);
+    List<Object> list = new ArrayList<Object>();
+    for (Object object : objects)
+      list.add(object);
+    return list;
+  }
+
+  private static List<Object> undecorate(SortEntry[] entries, int count) {
+    List<Object> result = new ArrayList<Object>(count);
+    for (int i = 0; i < count; i++)
+      result.add(entries[i].object);
+    return result;
+  }
+
+  private SortEntry decorate(Object object, int index) {
+    Object[] keys = new Object[orderBys.length];
+    for (int i = 0; i < orderBys.length; i++)
+      keys[i] = InMemoryEvaluation.evaluate(orderBys[i].getExpression(), object, properties);
+    return new SortEntry(object, index, keys);
+  }
+
+  private void decorate(List<?> list, SortEntry[] entries, int from, int to) {
+    for (int i = from; i < to; i++)
+      entries[i] = decorate(list.get(i), i);
+  }
+
+  private SortEntry[] selectTop(List<?> list, int limit) {
+    Comparator<SortEntry> comparator = new SortEntryComparator();
+    PriorityQueue<SortEntry> heap = new PriorityQueue<SortEntry>(limit, Collections.reverseOrder(comparator));
+    int index = 0;
+    for (Object object : list) {
+      SortEntry entry = decorate(object, index++);
+      if (heap.size() < limit) {
+        heap.add(entry);
+      } else if (comparator.compare(entry, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+    }
+    SortEntry[] entries = heap.toArray(new SortEntry[heap.size()]);
+    Arrays.sort(entries, comparator);
+    return entries;
+  }
+
+  private SortEntry[] sortSequential(List<?> list) {
+    SortEntry[] entries = new SortEntry[list.size()];
+    decorate(list, entries, 0, entries.length);
+    Arrays.sort(entries, new SortEntryComparator());
+    return entries;
+  }
+
+  private SortEntry[] sortParallel(final List<?> list) {
+    final SortEntry[] entries = new SortEntry[list.size()];
+    int chunks = Math.max(2, Runtime.getRuntime().availableProcessors());
+    final int chunkSize = (entries.length + chunks - 1) / chunks;
+
+    // decorate and sort each chunk in its own task
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+    for (int from = 0; from < entries.length; from += chunkSize) {
+      final int start = from;
+      final int end = Math.min(from + chunkSize, entries.length);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          decorate(list, entries, start, end);
+          Arrays.sort(entries, start, end, new SortEntryComparator());
+          return null;
+        }
+      });
+    }
+    invokeAll(tasks);
+
+    // merge adjacent sorted runs pairwise until a single run is left
+    SortEntry[] source = entries;
+    SortEntry[] target = new SortEntry[entries.length];
+    for (int runSize = chunkSize; runSize < entries.length; runSize *= 2) {
+      tasks.clear();
+      for (int from = 0; from < entries.length; from += 2 * runSize) {
+        final SortEntry[] src = source;
+        final SortEntry[] dst = target;
+        final int start = from;
+        final int middle = Math.min(from + runSize, entries.length);
+        final int end = Math.min(from + 2 * runSize, entries.length);
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            merge(src, dst, start, middle, end, new SortEntryComparator());
+            return null;
+          }
+        });
+      }
+      invokeAll(tasks);
+      SortEntry[] swap = source;
+      source = target;
+      target = swap;
+    }
+    return source;
+  }
+
+  private static void merge(SortEntry[] src, SortEntry[] dst, int from, int middle, int to, Comparator<SortEntry> comparator) {
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && comparator.compare(src[left], src[right]) <= 0))
+        dst[i] = src[left++];
+      else
+        dst[i] = src[right++];
+    }
+  }
+
+  private void invokeAll(List<Callable<Void>> tasks) {
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks))
+        future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private static class SortEntry {
+
+    private final Object object;
+    private final int index;
+    private final Object[] keys;
+
+    public SortEntry(Object object, int index, Object[] keys) {
+      this.object = object;
+      this.index = index;
+      this.keys = keys;
+    }
+  }
+
+  private class SortEntryComparator implements Comparator<SortEntry> {
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public int compare(SortEntry e1, SortEntry e2) {
+      for (int i = 0; i < orderBys.length; i++) {
+        Comparable lhs = (Comparable) e1.keys[i];
+        Comparable rhs = (Comparable) e2.keys[i];
+        int result;
+        if (lhs == null)
+          result = rhs == null ? 0 : -1;
+        else if (rhs == null)
+          result = 1;
+        else
+          result = lhs.compareTo(rhs);
+        if (result != 0)
+          return orderBys[i].getDirection() == Direction.ASCENDING ? result : -result;
+      }
+      // keep the sort stable
+      return e1.index < e2.index ? -1 : (e1.index == e2.index ? 0 : 1);
+    }
+  }
+
+}
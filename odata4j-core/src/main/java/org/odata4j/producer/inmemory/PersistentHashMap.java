@@ -0,0 +1,359 @@
+package org.odata4j.producer.inmemory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map whose versions share their structure (a hash array mapped trie).
+ *
+ * <p>{@link #plus(Object, Object)} and {@link #minus(Object)} return a new version of the map and
+ * copy only the path to the changed entry, at most seven nodes of up to 32 slots each, so changing
+ * one entry costs the same for small and large maps. The entries are iterated in the order of the
+ * hashes of their keys, which is the same in every version of the map.</p>
+ *
+ * @param <K>  the key type
+ * @param <V>  the value type
+ */
+final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+  private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(null, 0);
+
+  /** A branch of the trie, a leaf, or a collision of leaves with the same hash. */
+  private final Object root;
+  private final int size;
+
+  private PersistentHashMap(Object root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(Object key) {
+    int hash = hash(key);
+    Object node = root;
+    for (int shift = 0; node != null; shift += 5) {
+      if (node instanceof Branch) {
+        Branch branch = (Branch) node;
+        int bit = bit(hash, shift);
+        node = (branch.bitmap & bit) == 0 ? null : branch.children[branch.index(bit)];
+      } else if (node instanceof Leaf) {
+        Leaf<K, V> leaf = (Leaf<K, V>) node;
+        return leaf.hash == hash && leaf.key.equals(key) ? leaf.value : null;
+      } else {
+        Leaf<K, V> leaf = ((Collision) node).find(key);
+        return leaf == null ? null : leaf.value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets a version of this map that maps the key to the value.
+   */
+  PersistentHashMap<K, V> plus(K key, V value) {
+    int[] added = new int[1];
+    Object newRoot = plus(root, 0, new Leaf<K, V>(hash(key), key, value), added);
+    return newRoot == root ? this : new PersistentHashMap<K, V>(newRoot, size + added[0]);
+  }
+
+  /**
+   * Gets a version of this map without the key.
+   */
+  PersistentHashMap<K, V> minus(Object key) {
+    Object newRoot = minus(root, 0, hash(key), key);
+    if (newRoot == root)
+      return this;
+    return newRoot == null ? PersistentHashMap.<K, V> empty() : new PersistentHashMap<K, V>(newRoot, size - 1);
+  }
+
+  /**
+   * Iterates over the values, in the order of the entries.
+   */
+  Iterable<V> values() {
+    return new Iterable<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        final Iterator<Map.Entry<K, V>> entries = PersistentHashMap.this.iterator();
+        return new Iterator<V>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public V next() {
+            return entries.next().getValue();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new EntryIterator<K, V>(root);
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & 31);
+  }
+
+  private static Object plus(Object node, int shift, Leaf<?, ?> leaf, int[] added) {
+    if (node == null) {
+      added[0] = 1;
+      return leaf;
+    }
+    if (node instanceof Branch) {
+      Branch branch = (Branch) node;
+      int bit = bit(leaf.hash, shift);
+      int index = branch.index(bit);
+      if ((branch.bitmap & bit) == 0) {
+        added[0] = 1;
+        Object[] children = new Object[branch.children.length + 1];
+        System.arraycopy(branch.children, 0, children, 0, index);
+        children[index] = leaf;
+        System.arraycopy(branch.children, index, children, index + 1, branch.children.length - index);
+        return new Branch(branch.bitmap | bit, children);
+      }
+      Object child = branch.children[index];
+      Object newChild = plus(child, shift + 5, leaf, added);
+      return newChild == child ? branch : branch.with(index, newChild);
+    }
+    if (node instanceof Leaf) {
+      Leaf<?, ?> existing = (Leaf<?, ?>) node;
+      if (existing.hash == leaf.hash && existing.key.equals(leaf.key))
+        return existing.value == leaf.value ? existing : leaf;
+      added[0] = 1;
+      if (existing.hash == leaf.hash)
+        return new Collision(leaf.hash, new Leaf<?, ?>[] { existing, leaf });
+      return merge(existing, existing.hash, leaf, shift);
+    }
+    Collision collision = (Collision) node;
+    if (collision.hash != leaf.hash) {
+      added[0] = 1;
+      return merge(collision, collision.hash, leaf, shift);
+    }
+    return collision.plus(leaf, added);
+  }
+
+  /**
+   * Builds the branches that separate a node from a leaf with another hash.
+   */
+  private static Object merge(Object node, int nodeHash, Leaf<?, ?> leaf, int shift) {
+    int nodeIndex = (nodeHash >>> shift) & 31;
+    int leafIndex = (leaf.hash >>> shift) & 31;
+    if (nodeIndex == leafIndex)
+      return new Branch(1 << nodeIndex, new Object[] { merge(node, nodeHash, leaf, shift + 5) });
+    return new Branch((1 << nodeIndex) | (1 << leafIndex), nodeIndex < leafIndex ? new Object[] { node, leaf } : new Object[] { leaf, node });
+  }
+
+  private static Object minus(Object node, int shift, int hash, Object key) {
+    if (node == null)
+      return null;
+    if (node instanceof Branch) {
+      Branch branch = (Branch) node;
+      int bit = bit(hash, shift);
+      if ((branch.bitmap & bit) == 0)
+        return branch;
+      int index = branch.index(bit);
+      Object child = branch.children[index];
+      Object newChild = minus(child, shift + 5, hash, key);
+      if (newChild == child)
+        return branch;
+      if (newChild != null)
+        return branch.with(index, newChild);
+      if (branch.children.length == 1)
+        return null;
+      if (branch.children.length == 2) {
+        // a single remaining leaf moves up, lookups compare the whole hash anyway
+        Object other = branch.children[1 - index];
+        if (!(other instanceof Branch))
+          return other;
+      }
+      Object[] children = new Object[branch.children.length - 1];
+      System.arraycopy(branch.children, 0, children, 0, index);
+      System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+      return new Branch(branch.bitmap & ~bit, children);
+    }
+    if (node instanceof Leaf) {
+      Leaf<?, ?> leaf = (Leaf<?, ?>) node;
+      return leaf.hash == hash && leaf.key.equals(key) ? null : leaf;
+    }
+    Collision collision = (Collision) node;
+    return collision.hash == hash ? collision.minus(key) : collision;
+  }
+
+  private static final class Branch {
+
+    private final int bitmap;
+    private final Object[] children;
+
+    private Branch(int bitmap, Object[] children) {
+      this.bitmap = bitmap;
+      this.children = children;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private Branch with(int index, Object child) {
+      Object[] newChildren = children.clone();
+      newChildren[index] = child;
+      return new Branch(bitmap, newChildren);
+    }
+  }
+
+  private static final class Collision {
+
+    private final int hash;
+    private final Leaf<?, ?>[] leaves;
+
+    private Collision(int hash, Leaf<?, ?>[] leaves) {
+      this.hash = hash;
+      this.leaves = leaves;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> Leaf<K, V> find(Object key) {
+      for (Leaf<?, ?> leaf : leaves) {
+        if (leaf.key.equals(key))
+          return (Leaf<K, V>) leaf;
+      }
+      return null;
+    }
+
+    private Object plus(Leaf<?, ?> leaf, int[] added) {
+      for (int i = 0; i < leaves.length; i++) {
+        if (leaves[i].key.equals(leaf.key)) {
+          Leaf<?, ?>[] newLeaves = leaves.clone();
+          newLeaves[i] = leaf;
+          return new Collision(hash, newLeaves);
+        }
+      }
+      added[0] = 1;
+      Leaf<?, ?>[] newLeaves = new Leaf<?, ?>[leaves.length + 1];
+      System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+      newLeaves[leaves.length] = leaf;
+      return new Collision(hash, newLeaves);
+    }
+
+    private Object minus(Object key) {
+      for (int i = 0; i < leaves.length; i++) {
+        if (leaves[i].key.equals(key)) {
+          if (leaves.length == 2)
+            return leaves[1 - i];
+          Leaf<?, ?>[] newLeaves = new Leaf<?, ?>[leaves.length - 1];
+          System.arraycopy(leaves, 0, newLeaves, 0, i);
+          System.arraycopy(leaves, i + 1, newLeaves, i, newLeaves.length - i);
+          return new Collision(hash, newLeaves);
+        }
+      }
+      return this;
+    }
+  }
+
+  private static final class Leaf<K, V> implements Map.Entry<K, V> {
+
+    private final int hash;
+    private final K key;
+    private final V value;
+
+    private Leaf(int hash, K key, V value) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Walks the trie depth first, with one level of the stack per branch.
+   */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+    // the root, up to seven levels of branches and a collision
+    private final Object[][] nodes = new Object[9][];
+    private final int[] positions = new int[9];
+    private int depth;
+    private Leaf<K, V> next;
+
+    private EntryIterator(Object root) {
+      nodes[0] = root == null ? new Object[0] : new Object[] { root };
+      advance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while (depth >= 0) {
+        if (positions[depth] == nodes[depth].length) {
+          depth--;
+          continue;
+        }
+        Object node = nodes[depth][positions[depth]++];
+        if (node instanceof Leaf) {
+          next = (Leaf<K, V>) node;
+          return;
+        }
+        depth++;
+        nodes[depth] = node instanceof Branch ? ((Branch) node).children : ((Collision) node).leaves;
+        positions[depth] = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (next == null)
+        throw new NoSuchElementException();
+      Leaf<K, V> rt = next;
+      advance();
+      return rt;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
@@ -3,17 +3,91 @@ package org.odata4j.producer.jdbc;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.core4j.Predicate1;
 import org.core4j.ThrowingFunc1;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKey;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKeyColumn;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcPrimaryKey;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcSchema;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
 
+/**
+ * Reads the model of a database from its {@link DatabaseMetaData}.
+ *
+ * <p>Without filters, tables, columns and primary keys are read with one query each for the whole
+ * database. A schema filter restricts these queries to the selected schemas, and a table filter
+ * makes the columns and primary keys be read per selected table, which pays off when only a few
+ * tables of a large schema are needed.</p>
+ */
 public class GenerateJdbcModel implements ThrowingFunc1<Connection, JdbcModel> {
 
+  /** Selects the default schemas of the database. */
+  public static final Predicate1<JdbcSchema> DEFAULT_SCHEMA = new Predicate1<JdbcSchema>() {
+    @Override
+    public boolean apply(JdbcSchema schema) {
+      return schema.isDefault;
+    }
+  };
+
+  private Predicate1<JdbcSchema> schemaFilter;
+  private Predicate1<JdbcTable> tableFilter;
+
+  /**
+   * Sets the filter selecting the schemas to read tables of.
+   *
+   * @param schemaFilter  the filter, null for all schemas
+   * @return this generator
+   */
+  public GenerateJdbcModel setSchemaFilter(Predicate1<JdbcSchema> schemaFilter) {
+    this.schemaFilter = schemaFilter;
+    return this;
+  }
+
+  /**
+   * Sets the filter selecting the tables to read columns and keys of; it is passed tables with
+   * their name and type only.
+   *
+   * @param tableFilter  the filter, null for all tables
+   * @return this generator
+   */
+  public GenerateJdbcModel setTableFilter(Predicate1<JdbcTable> tableFilter) {
+    this.tableFilter = tableFilter;
+    return this;
+  }
+
   @Override
   public JdbcModel apply(Connection conn) throws Exception {
+    JdbcModel model = readTables(conn);
+    readKeys(conn, model);
+    return model;
+  }
+
+  /**
+   * Reads the schemas, tables and columns of the database.
+   *
+   * @param conn  the connection
+   * @return the model, without keys
+   */
+  public JdbcModel readTables(Connection conn) throws Exception {
+    JdbcModel model = readTableList(conn);
+    readColumns(conn, model);
+    return model;
+  }
+
+  /**
+   * Reads the schemas and the names and types of the tables of the database, with one query per
+   * queried schema.
+   *
+   * @param conn  the connection
+   * @return the model, without columns and keys
+   */
+  public JdbcModel readTableList(Connection conn) throws Exception {
     JdbcModel model = new JdbcModel();
     DatabaseMetaData meta = conn.getMetaData();
 
@@ -25,43 +99,173 @@ public class GenerateJdbcModel implements ThrowingFunc1<Connection, JdbcModel> {
       schema.catalogName = schemas.getString("TABLE_CATALOG");
       schema.isDefault = schemas.getBoolean("IS_DEFAULT");
     }
+    schemas.close();
 
     // tables
-    ResultSet tables = meta.getTables(null, null, null, null);
-    while (tables.next()) {
-      String schemaName = tables.getString("TABLE_SCHEM");
-      String tableName = tables.getString("TABLE_NAME");
-      JdbcTable table = model.getOrCreateTable(schemaName, tableName);
-      table.tableType = tables.getString("TABLE_TYPE");
+    for (JdbcSchema schema : getQueriedSchemas(model)) {
+      ResultSet results = schema == null
+          ? meta.getTables(null, null, null, null)
+          : meta.getTables(schema.catalogName, escape(meta, schema.schemaName), null, null);
+      while (results.next()) {
+        String schemaName = results.getString("TABLE_SCHEM");
+        if (schema != null && !schema.schemaName.equals(schemaName))
+          continue;
+        JdbcTable table = new JdbcTable();
+        table.tableName = results.getString("TABLE_NAME");
+        table.tableType = results.getString("TABLE_TYPE");
+        if (tableFilter != null && !tableFilter.apply(table))
+          continue;
+        model.getOrCreateSchema(schemaName).tables.add(table);
+      }
+      results.close();
+    }
+    return model;
+  }
+
+  /**
+   * Reads the columns of the tables of a model.
+   *
+   * @param conn  the connection
+   * @param model  the model read by {@link #readTableList(Connection)}
+   */
+  public void readColumns(Connection conn, JdbcModel model) throws Exception {
+    DatabaseMetaData meta = conn.getMetaData();
+    Map<String, JdbcTable> tables = new HashMap<String, JdbcTable>();
+    for (JdbcSchema schema : model.schemas) {
+      for (JdbcTable table : schema.tables)
+        tables.put(qualify(schema.schemaName, table.tableName), table);
     }
 
-    // columns
-    ResultSet columns = meta.getColumns(null, null, null, null);
-    while (columns.next()) {
-      String schemaName = columns.getString("TABLE_SCHEM");
-      String tableName = columns.getString("TABLE_NAME");
-      String columnName = columns.getString("COLUMN_NAME");
-      JdbcColumn column = model.getOrCreateColumn(schemaName, tableName, columnName);
-      column.columnType = columns.getInt("DATA_TYPE");
-      column.columnTypeName = columns.getString("TYPE_NAME");
-      column.columnSize = (Integer) columns.getObject("COLUMN_SIZE");
-      column.isNullable = columns.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
-      column.ordinalPosition = columns.getInt("ORDINAL_POSITION");
+    for (JdbcSchema schema : getQueriedSchemas(model)) {
+      for (JdbcTable queriedTable : getQueriedTables(schema)) {
+        ResultSet results = schema == null
+            ? meta.getColumns(null, null, null, null)
+            : meta.getColumns(schema.catalogName, escape(meta, schema.schemaName),
+                queriedTable == null ? null : escape(meta, queriedTable.tableName), null);
+        while (results.next()) {
+          JdbcTable table = tables.get(qualify(results.getString("TABLE_SCHEM"), results.getString("TABLE_NAME")));
+          if (table == null || queriedTable != null && table != queriedTable)
+            continue;
+          JdbcColumn column = new JdbcColumn();
+          column.columnName = results.getString("COLUMN_NAME");
+          column.columnType = results.getInt("DATA_TYPE");
+          column.columnTypeName = results.getString("TYPE_NAME");
+          column.columnSize = (Integer) results.getObject("COLUMN_SIZE");
+          column.isNullable = results.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
+          column.ordinalPosition = results.getInt("ORDINAL_POSITION");
+          table.columns.add(column);
+        }
+        results.close();
+      }
     }
+  }
+
+  /**
+   * Reads the primary and foreign keys of the tables of a model.
+   *
+   * @param conn  the connection
+   * @param model  the model read by {@link #readTables(Connection)}
+   */
+  public void readKeys(Connection conn, JdbcModel model) throws Exception {
+    DatabaseMetaData meta = conn.getMetaData();
 
     // primary keys
-    ResultSet primaryKeys = meta.getPrimaryKeys(null, null, null);
-    while (primaryKeys.next()) {
-      String schemaName = primaryKeys.getString("TABLE_SCHEM");
-      String tableName = primaryKeys.getString("TABLE_NAME");
-      JdbcTable table = model.getTable(schemaName, tableName);
-      JdbcPrimaryKey primaryKey = new JdbcPrimaryKey();
-      primaryKey.columnName = primaryKeys.getString("COLUMN_NAME");
-      primaryKey.sequenceNumber = primaryKeys.getInt("KEY_SEQ");
-      primaryKey.primaryKeyName = primaryKeys.getString("PK_NAME");
-      table.primaryKeys.add(primaryKey);
+    for (JdbcSchema schema : getQueriedSchemas(model)) {
+      for (JdbcTable queriedTable : getQueriedTables(schema)) {
+        ResultSet primaryKeys = schema == null
+            ? meta.getPrimaryKeys(null, null, null)
+            : meta.getPrimaryKeys(schema.catalogName, schema.schemaName, queriedTable == null ? null : queriedTable.tableName);
+        while (primaryKeys.next()) {
+          String schemaName = primaryKeys.getString("TABLE_SCHEM");
+          String tableName = primaryKeys.getString("TABLE_NAME");
+          JdbcTable table = model.findTable(schemaName, tableName);
+          if (table == null || queriedTable != null && table != queriedTable)
+            continue;
+          JdbcPrimaryKey primaryKey = new JdbcPrimaryKey();
+          primaryKey.columnName = primaryKeys.getString("COLUMN_NAME");
+          primaryKey.sequenceNumber = primaryKeys.getInt("KEY_SEQ");
+          primaryKey.primaryKeyName = primaryKeys.getString("PK_NAME");
+          table.primaryKeys.add(primaryKey);
+        }
+        primaryKeys.close();
+      }
     }
-    return model;
+
+    // foreign keys, per table since the catalog-wide variant is not portable
+    for (JdbcSchema schema : model.schemas) {
+      for (JdbcTable table : schema.tables) {
+        ResultSet importedKeys = meta.getImportedKeys(schema.catalogName, schema.schemaName, table.tableName);
+        while (importedKeys.next()) {
+          String foreignKeyName = importedKeys.getString("FK_NAME");
+          int sequenceNumber = importedKeys.getInt("KEY_SEQ");
+          JdbcForeignKey foreignKey = foreignKeyName == null
+              ? (sequenceNumber == 1 || table.foreignKeys.isEmpty() ? null : table.foreignKeys.get(table.foreignKeys.size() - 1))
+              : findForeignKey(table, foreignKeyName);
+          if (foreignKey == null) {
+            foreignKey = new JdbcForeignKey();
+            foreignKey.foreignKeyName = foreignKeyName;
+            foreignKey.primaryKeySchemaName = importedKeys.getString("PKTABLE_SCHEM");
+            foreignKey.primaryKeyTableName = importedKeys.getString("PKTABLE_NAME");
+            table.foreignKeys.add(foreignKey);
+          }
+          JdbcForeignKeyColumn column = new JdbcForeignKeyColumn();
+          column.columnName = importedKeys.getString("FKCOLUMN_NAME");
+          column.primaryKeyColumnName = importedKeys.getString("PKCOLUMN_NAME");
+          column.sequenceNumber = sequenceNumber;
+          foreignKey.columns.add(column);
+        }
+        importedKeys.close();
+      }
+    }
+  }
+
+  /**
+   * Gets the schemas to query one by one, or a single null for querying the whole database at once.
+   */
+  private List<JdbcSchema> getQueriedSchemas(JdbcModel model) {
+    List<JdbcSchema> rt = new ArrayList<JdbcSchema>();
+    if (schemaFilter == null && tableFilter == null) {
+      rt.add(null);
+      return rt;
+    }
+    for (JdbcSchema schema : model.schemas) {
+      if (schemaFilter == null || schemaFilter.apply(schema))
+        rt.add(schema);
+    }
+    return rt;
+  }
+
+  /**
+   * Gets the tables of a schema to query one by one, or a single null for querying the whole schema at once.
+   */
+  private List<JdbcTable> getQueriedTables(JdbcSchema schema) {
+    List<JdbcTable> rt = new ArrayList<JdbcTable>();
+    if (schema == null || tableFilter == null)
+      rt.add(null);
+    else
+      rt.addAll(schema.tables);
+    return rt;
+  }
+
+  private static String qualify(String schemaName, String tableName) {
+    return schemaName + "." + tableName;
+  }
+
+  /**
+   * Escapes the wildcards of a name used as a search pattern, e.g. the underscores of CUSTOMER_PRODUCT.
+   */
+  private static String escape(DatabaseMetaData meta, String name) throws Exception {
+    String escape = meta.getSearchStringEscape();
+    if (name == null || escape == null || escape.length() == 0)
+      return name;
+    return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+  }
+
+  private static JdbcForeignKey findForeignKey(JdbcTable table, String foreignKeyName) {
+    for (JdbcForeignKey foreignKey : table.foreignKeys)
+      if (foreignKeyName.equals(foreignKey.foreignKeyName))
+        return foreignKey;
+    return null;
   }
 
-}
\ No newline at end of file
+}
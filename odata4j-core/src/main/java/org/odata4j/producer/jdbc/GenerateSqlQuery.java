@@ -5,7 +5,11 @@ import java.util.List;
 
 import org.odata4j.core.ImmutableList;
 import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.exceptions.BadRequestException;
 import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregateQuery.Aggregate;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
 import org.odata4j.producer.jdbc.SqlStatement.SqlParameter;
 
@@ -23,6 +27,66 @@ public class GenerateSqlQuery {
     return new SqlStatement(sb.toString(), ImmutableList.copyOf(params));
   }
 
+  /**
+   * Generates a GROUP BY query selecting the group-by columns followed by the aggregates,
+   * ordered by the group-by columns.
+   */
+  public SqlStatement generateAggregate(JdbcMetadataMapping mapping, EdmEntitySet entitySet, BoolCommonExpression filter, AggregateQuery aggregateQuery) {
+    JdbcTable table = mapping.getMappedTable(entitySet);
+    List<String> groupByColumns = new ArrayList<String>();
+    for (String propertyName : aggregateQuery.groupBy)
+      groupByColumns.add(getColumnName(mapping, entitySet, propertyName));
+
+    List<String> selectList = new ArrayList<String>(groupByColumns);
+    for (Aggregate aggregate : aggregateQuery.aggregates) {
+      if (aggregate.propertyName == null) {
+        selectList.add("COUNT(*)");
+        continue;
+      }
+      String columnName = getColumnName(mapping, entitySet, aggregate.propertyName);
+      switch (aggregate.function) {
+      case AVG:
+        // averages of integral columns are integral in most databases
+        selectList.add("AVG(" + columnName + " * 1.0)");
+        break;
+      default:
+        selectList.add(aggregate.function.name() + "(" + columnName + ")");
+      }
+    }
+
+    StringBuilder sb = new StringBuilder("SELECT ");
+    appendList(sb, selectList);
+    sb.append(" FROM " + table.tableName);
+    List<SqlParameter> params = new ArrayList<SqlParameter>();
+    if (filter != null) {
+      GenerateWhereClause whereClauseGen = newWhereClauseGenerator(entitySet, mapping);
+      filter.visit(whereClauseGen);
+      whereClauseGen.append(sb, params);
+    }
+    if (!groupByColumns.isEmpty()) {
+      sb.append(" GROUP BY ");
+      appendList(sb, groupByColumns);
+      sb.append(" ORDER BY ");
+      appendList(sb, groupByColumns);
+    }
+    return new SqlStatement(sb.toString(), ImmutableList.copyOf(params));
+  }
+
+  private static String getColumnName(JdbcMetadataMapping mapping, EdmEntitySet entitySet, String propertyName) {
+    EdmProperty property = entitySet.getType().findProperty(propertyName);
+    if (property == null)
+      throw new BadRequestException("Property " + propertyName + " not found in " + entitySet.getName());
+    return mapping.getMappedColumn(property).columnName;
+  }
+
+  private static void appendList(StringBuilder sb, List<String> items) {
+    for (int i = 0; i < items.size(); i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(items.get(i));
+    }
+  }
+
   public GenerateWhereClause newWhereClauseGenerator(EdmEntitySet entitySet, JdbcMetadataMapping mapping) {
     return new GenerateWhereClause(entitySet, mapping);
   }
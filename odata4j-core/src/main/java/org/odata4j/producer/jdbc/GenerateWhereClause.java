@@ -6,10 +6,13 @@ import java.util.List;
 import java.util.Stack;
 
 import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.edm.EdmProperty;
+import org.odata4j.exceptions.BadRequestException;
 import org.odata4j.expression.AddExpression;
 import org.odata4j.expression.AggregateAllFunction;
 import org.odata4j.expression.AggregateAnyFunction;
+import org.odata4j.expression.AggregateBoolFunction;
 import org.odata4j.expression.AndExpression;
 import org.odata4j.expression.BinaryLiteral;
 import org.odata4j.expression.BoolParenExpression;
@@ -68,6 +71,8 @@ import org.odata4j.expression.ToUpperMethodCallExpression;
 import org.odata4j.expression.TrimMethodCallExpression;
 import org.odata4j.expression.YearMethodCallExpression;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKey;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKeyColumn;
 import org.odata4j.producer.jdbc.SqlStatement.SqlParameter;
 
 public class GenerateWhereClause implements ExpressionVisitor {
@@ -78,11 +83,37 @@ public class GenerateWhereClause implements ExpressionVisitor {
   private final EdmEntitySet entitySet;
   private final JdbcMetadataMapping mapping;
 
+  // any/all lambdas become correlated subqueries with a nested generator, referring back to its parent
+  private final GenerateWhereClause parent;
+  private final String variable;
+  private final String tableAlias;
+
   private Stack<String> nextBetween = new Stack<String>();
 
+  // disjunctions are parenthesized, since AND binds stronger in SQL
+  private Stack<String> nextAfter = new Stack<String>();
+  private String nextBefore = "";
+
+  // >= 0 while the visitor descends into a lambda whose subquery has been generated already
+  private int skipDepth = -1;
+
   public GenerateWhereClause(EdmEntitySet entitySet, JdbcMetadataMapping mapping) {
+    this(entitySet, mapping, null, null);
+  }
+
+  protected GenerateWhereClause(EdmEntitySet entitySet, JdbcMetadataMapping mapping, GenerateWhereClause parent, String variable) {
     this.entitySet = entitySet;
     this.mapping = mapping;
+    this.parent = parent;
+    this.variable = variable;
+    this.tableAlias = parent == null ? null : "t" + (parent.tableAlias == null ? 1 : Integer.parseInt(parent.tableAlias.substring(1)) + 1);
+  }
+
+  /**
+   * Creates the generator for the predicate of an any/all lambda over a navigation property.
+   */
+  protected GenerateWhereClause newLambdaWhereClauseGenerator(EdmEntitySet targetEntitySet, String variable) {
+    return new GenerateWhereClause(targetEntitySet, mapping, this, variable);
   }
 
   public void append(StringBuilder sql, List<SqlParameter> params) {
@@ -93,16 +124,28 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void beforeDescend() {
-
+    if (skipDepth >= 0) {
+      skipDepth++;
+      return;
+    }
+    nextAfter.push(nextBefore.length() == 0 ? "" : ")");
+    nextBefore = "";
   }
 
   @Override
   public void afterDescend() {
-
+    if (skipDepth > 0) {
+      if (--skipDepth == 0)
+        skipDepth = -1;
+      return;
+    }
+    sb.append(nextAfter.pop());
   }
 
   @Override
   public void betweenDescend() {
+    if (skipDepth >= 0)
+      return;
     if (!nextBetween.isEmpty()) {
       sb.append(nextBetween.pop());
     }
@@ -130,11 +173,15 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(AndExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" AND ");
   }
 
   @Override
   public void visit(BooleanLiteral expr) {
+    if (skipDepth >= 0)
+      return;
     sb.append(expr.getValue() ? "TRUE" : "FALSE");
   }
 
@@ -175,23 +222,36 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(EntitySimpleProperty expr) {
-    EdmProperty edmProp = entitySet.getType().findProperty(expr.getPropertyName());
+    if (skipDepth >= 0)
+      return;
+    GenerateWhereClause scope = getScope(expr.getPropertyName());
+    String propertyName = scope.getLocalName(expr.getPropertyName());
+    EdmProperty edmProp = scope.entitySet.getType().findProperty(propertyName);
+    if (edmProp == null)
+      throw new BadRequestException("Property " + propertyName + " not found in " + scope.entitySet.getName());
     JdbcColumn column = mapping.getMappedColumn(edmProp);
-    sb.append(column.columnName);
+    // columns are qualified inside subqueries only, keeping top-level clauses unchanged
+    sb.append(parent == null ? column.columnName : scope.getQualifier() + "." + column.columnName);
   }
 
   @Override
   public void visit(EqExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" = ");
   }
 
   @Override
   public void visit(GeExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" >= ");
   }
 
   @Override
   public void visit(GtExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" > ");
   }
 
@@ -232,6 +292,8 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(IntegralLiteral expr) {
+    if (skipDepth >= 0)
+      return;
     sb.append("?");
     params.add(new SqlParameter(expr.getValue(), Types.INTEGER));
   }
@@ -248,6 +310,8 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(LeExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" <= ");
   }
 
@@ -258,6 +322,8 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(LtExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" < ");
   }
 
@@ -273,6 +339,8 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(NeExpression expr) {
+    if (skipDepth >= 0)
+      return;
     nextBetween.push(" <> ");
   }
 
@@ -293,7 +361,11 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(OrExpression expr) {
-    throw new UnsupportedOperationException();
+    if (skipDepth >= 0)
+      return;
+    sb.append('(');
+    nextBefore = "(";
+    nextBetween.push(" OR ");
   }
 
   @Override
@@ -303,7 +375,7 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(BoolParenExpression expr) {
-    throw new UnsupportedOperationException();
+    // nothing to do, disjunctions are parenthesized anyway
   }
 
   @Override
@@ -318,6 +390,8 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(StringLiteral expr) {
+    if (skipDepth >= 0)
+      return;
     sb.append("?");
     params.add(new SqlParameter(expr.getValue(), Types.VARCHAR));
   }
@@ -404,12 +478,82 @@ public class GenerateWhereClause implements ExpressionVisitor {
 
   @Override
   public void visit(AggregateAnyFunction expr) {
-    throw new UnsupportedOperationException();
+    if (skipDepth >= 0)
+      return;
+    appendExists(expr, false);
   }
 
   @Override
   public void visit(AggregateAllFunction expr) {
-    throw new UnsupportedOperationException();
+    if (skipDepth >= 0)
+      return;
+    appendExists(expr, true);
+  }
+
+  /**
+   * Appends a correlated subquery over the target table of the navigation property, joined by its
+   * foreign key: EXISTS (... AND predicate) for any, NOT EXISTS (... AND NOT predicate) for all.
+   * The database can then evaluate the lambda as an indexed semi-join.
+   */
+  private void appendExists(AggregateBoolFunction expr, boolean all) {
+    if (!(expr.getSource() instanceof EntitySimpleProperty))
+      throw new UnsupportedOperationException("Only navigation properties are supported as the source of " + expr.getFunctionType());
+    String sourcePath = ((EntitySimpleProperty) expr.getSource()).getPropertyName();
+    GenerateWhereClause scope = getScope(sourcePath);
+    String navigationPropertyName = scope.getLocalName(sourcePath);
+    EdmNavigationProperty navigationProperty = scope.entitySet.getType().findNavigationProperty(navigationPropertyName);
+    JdbcForeignKey foreignKey = navigationProperty == null ? null : mapping.getMappedForeignKey(navigationProperty);
+    if (foreignKey == null)
+      throw new BadRequestException("Navigation property " + navigationPropertyName + " not found in " + scope.entitySet.getName());
+
+    EdmEntitySet targetEntitySet = mapping.getMetadata().getEdmEntitySet(navigationProperty.getToRole().getType());
+    GenerateWhereClause lambda = newLambdaWhereClauseGenerator(targetEntitySet, expr.getVariable());
+    boolean fromForeignKey = mapping.isNavigationFromForeignKey(navigationProperty);
+
+    sb.append(all ? "NOT EXISTS (SELECT 1 FROM " : "EXISTS (SELECT 1 FROM ");
+    sb.append(mapping.getMappedTable(targetEntitySet).tableName).append(' ').append(lambda.tableAlias);
+    sb.append(" WHERE ");
+    for (int i = 0; i < foreignKey.columns.size(); i++) {
+      JdbcForeignKeyColumn column = foreignKey.columns.get(i);
+      if (i > 0)
+        sb.append(" AND ");
+      sb.append(lambda.tableAlias).append('.').append(fromForeignKey ? column.primaryKeyColumnName : column.columnName);
+      sb.append(" = ");
+      sb.append(scope.getQualifier()).append('.').append(fromForeignKey ? column.columnName : column.primaryKeyColumnName);
+    }
+    if (expr.getPredicate() != null) {
+      expr.getPredicate().visit(lambda);
+      sb.append(all ? " AND NOT (" : " AND (").append(lambda.sb).append(')');
+      params.addAll(lambda.params);
+    }
+    sb.append(')');
+
+    // the expression goes on to visit the source and predicate with this visitor, skip them
+    skipDepth = 0;
+  }
+
+  /**
+   * Gets the generator whose entity a property path refers to: the innermost lambda whose variable
+   * prefixes the path, or the top-level entity for unprefixed paths.
+   */
+  private GenerateWhereClause getScope(String propertyPath) {
+    for (GenerateWhereClause scope = this; scope != null; scope = scope.parent) {
+      if (scope.variable != null && propertyPath.startsWith(scope.variable + "/"))
+        return scope;
+      if (scope.parent == null)
+        return scope;
+    }
+    throw new IllegalStateException();
+  }
+
+  private String getLocalName(String propertyPath) {
+    return variable != null && propertyPath.startsWith(variable + "/")
+        ? propertyPath.substring(variable.length() + 1)
+        : propertyPath;
+  }
+
+  private String getQualifier() {
+    return tableAlias != null ? tableAlias : mapping.getMappedTable(entitySet).tableName;
   }
 
 }
\ No newline at end of file
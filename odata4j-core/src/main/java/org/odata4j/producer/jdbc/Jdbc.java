@@ -21,15 +21,22 @@ public class Jdbc {
     this.password = password;
   }
 
-  public <T> T execute(ThrowingFunc1<Connection, T> execute) {
+  /**
+   * Opens a new connection, which the caller has to close; prefer {@link #execute(ThrowingFunc1)}.
+   */
+  public Connection getConnection() throws SQLException {
     try {
       Class.forName(driverClassname);
     } catch (ClassNotFoundException e) {
       throw Throwables.propagate(e);
     }
+    return DriverManager.getConnection(url, user, password);
+  }
+
+  public <T> T execute(ThrowingFunc1<Connection, T> execute) {
     Connection conn = null;
     try {
-      conn = DriverManager.getConnection(url, user, password);
+      conn = getConnection();
       return execute.apply(conn);
     } catch (Exception e) {
       throw Throwables.propagate(e);
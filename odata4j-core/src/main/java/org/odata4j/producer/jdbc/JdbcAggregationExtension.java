@@ -0,0 +1,66 @@
+package org.odata4j.producer.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.core4j.ThrowingFunc1;
+import org.odata4j.core.OComplexObject;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
+import org.odata4j.producer.CollectionResponse;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.QueryInfo;
+
+/**
+ * Pushes aggregation down to the database as a single GROUP BY query.
+ *
+ * @see GenerateSqlQuery#generateAggregate
+ */
+public class JdbcAggregationExtension implements AggregationExtension {
+
+  private final JdbcProducerBackend backend;
+
+  public JdbcAggregationExtension(JdbcProducerBackend backend) {
+    this.backend = backend;
+  }
+
+  @Override
+  public CollectionResponse<OComplexObject> aggregate(ODataContext context, String entitySetName, QueryInfo queryInfo, AggregateQuery aggregateQuery) {
+    JdbcMetadataMapping mapping = backend.getMetadataMapping();
+    EdmEntitySet entitySet = mapping.getMetadata().findEdmEntitySet(entitySetName);
+    if (entitySet == null)
+      throw new NotFoundException();
+    // validate the query before it is sent to the database
+    aggregateQuery.getResultType(entitySet);
+
+    GenerateSqlQuery queryGen = backend.newJdbcCommandContext().get(GenerateSqlQuery.class);
+    BoolCommonExpression filter = queryInfo == null ? null : queryInfo.filter;
+    final SqlStatement sqlStatement = queryGen.generateAggregate(mapping, entitySet, filter, aggregateQuery);
+    final int columnCount = aggregateQuery.groupBy.size() + aggregateQuery.aggregates.size();
+    final List<Object[]> rows = new ArrayList<Object[]>();
+
+    backend.getJdbc().execute(new ThrowingFunc1<Connection, Void>() {
+      @Override
+      public Void apply(Connection conn) throws Exception {
+        PreparedStatement stmt = sqlStatement.asPreparedStatement(conn);
+        ResultSet results = stmt.executeQuery();
+        while (results.next()) {
+          Object[] row = new Object[columnCount];
+          for (int i = 0; i < columnCount; i++)
+            row[i] = results.getObject(i + 1);
+          rows.add(row);
+        }
+        return null;
+      }
+    });
+
+    return aggregateQuery.createResponse(entitySet, rows);
+  }
+
+}
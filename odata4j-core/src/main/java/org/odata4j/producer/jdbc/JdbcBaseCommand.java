@@ -3,39 +3,27 @@ package org.odata4j.producer.jdbc;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.core4j.Enumerable;
 import org.core4j.Func1;
 import org.odata4j.core.NamedValue;
-import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityKey;
-import org.odata4j.core.OLink;
-import org.odata4j.core.OProperties;
-import org.odata4j.core.OProperty;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmEntityType;
-import org.odata4j.edm.EdmProperty;
 import org.odata4j.expression.BoolCommonExpression;
 import org.odata4j.expression.Expression;
-import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
 
 public class JdbcBaseCommand {
 
+  /**
+   * Maps the current row of a result set; loops over many rows should bind a
+   * {@link JdbcRowMapper} once instead.
+   */
   protected OEntity toOEntity(JdbcMetadataMapping mapping, EdmEntitySet entitySet, ResultSet results) throws SQLException {
-    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
-    for (EdmProperty edmProperty : entitySet.getType().getProperties()) {
-      JdbcColumn column = mapping.getMappedColumn(edmProperty);
-      Object value = results.getObject(column.columnName);
-      OProperty<?> property = OProperties.simple(edmProperty.getName(), value);
-      properties.add(property);
-    }
-
-    OEntityKey entityKey = OEntityKey.infer(entitySet, properties);
-    return OEntities.create(entitySet, entityKey, properties, Collections.<OLink> emptyList());
+    return mapping.getRowMapper(entitySet).bind(results).map(results);
   }
 
   protected BoolCommonExpression prependPrimaryKeyFilter(JdbcMetadataMapping mapping, EdmEntityType entityType,
@@ -0,0 +1,186 @@
+package org.odata4j.producer.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.core4j.ThrowingFunc1;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.exceptions.BadRequestException;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.Responses;
+import org.odata4j.producer.ReturnPreference;
+
+/**
+ * Applies change sets on a single connection in one transaction.
+ *
+ * <p>Consecutive operations with the same statement, e.g. inserts into one table with the same
+ * properties, are sent as one JDBC batch. Operations are never reordered, so that inserts of
+ * referenced rows still precede the rows referencing them.</p>
+ */
+public class JdbcChangeSetExtension extends JdbcBaseCommand implements ChangeSetExtension {
+
+  /** The maximum number of statements sent in one JDBC batch. */
+  public static final int MAX_BATCH_SIZE = 1000;
+
+  private final JdbcProducerBackend backend;
+
+  public JdbcChangeSetExtension(JdbcProducerBackend backend) {
+    this.backend = backend;
+  }
+
+  @Override
+  public ChangeSet newChangeSet(ODataContext context) {
+    return new JdbcChangeSet();
+  }
+
+  private static class Operation {
+
+    final EdmEntitySet entitySet;
+    final SqlStatement statement;
+    final OEntityKey createdEntityKey;
+    final boolean returnContent;
+
+    Operation(EdmEntitySet entitySet, SqlStatement statement, OEntityKey createdEntityKey, boolean returnContent) {
+      this.entitySet = entitySet;
+      this.statement = statement;
+      this.createdEntityKey = createdEntityKey;
+      this.returnContent = returnContent;
+    }
+  }
+
+  private class JdbcChangeSet implements ChangeSet {
+
+    private final JdbcMetadataMapping mapping = backend.getMetadataMapping();
+    private final JdbcProducerCommandContext jdbcContext = backend.newJdbcCommandContext();
+    private final List<Operation> operations = new ArrayList<Operation>();
+
+    @Override
+    public void createEntity(ODataContext context, String entitySetName, OEntity entity) {
+      EdmEntitySet entitySet = getEntitySet(entitySetName);
+      SqlStatement statement = jdbcContext.get(GenerateSqlInsert.class).generate(mapping, entitySet, entity);
+      operations.add(new Operation(entitySet, statement, OEntityKey.infer(entitySet, entity.getProperties()),
+          !ReturnPreference.isNoContent(context)));
+    }
+
+    @Override
+    public void deleteEntity(String entitySetName, OEntityKey entityKey) {
+      EdmEntitySet entitySet = getEntitySet(entitySetName);
+      BoolCommonExpression filter = prependPrimaryKeyFilter(mapping, entitySet.getType(), entityKey, null);
+      SqlStatement statement = jdbcContext.get(GenerateSqlDelete.class).generate(mapping, entitySet, filter);
+      operations.add(new Operation(entitySet, statement, null, false));
+    }
+
+    private EdmEntitySet getEntitySet(String entitySetName) {
+      EdmEntitySet entitySet = mapping.getMetadata().findEdmEntitySet(entitySetName);
+      if (entitySet == null)
+        throw new NotFoundException();
+      return entitySet;
+    }
+
+    @Override
+    public List<EntityResponse> commit() {
+      return jdbcContext.getJdbc().execute(new ThrowingFunc1<Connection, List<EntityResponse>>() {
+        @Override
+        public List<EntityResponse> apply(Connection conn) throws Exception {
+          boolean autoCommit = conn.getAutoCommit();
+          conn.setAutoCommit(false);
+          try {
+            List<EntityResponse> rt = executeBatches(conn);
+            conn.commit();
+            return rt;
+          } catch (Exception e) {
+            conn.rollback();
+            throw e;
+          } finally {
+            conn.setAutoCommit(autoCommit);
+          }
+        }
+      });
+    }
+
+    private List<EntityResponse> executeBatches(Connection conn) throws Exception {
+      List<EntityResponse> rt = new ArrayList<EntityResponse>(operations.size());
+      int start = 0;
+      while (start < operations.size()) {
+        String sql = operations.get(start).statement.sql;
+        int end = start;
+        while (end < operations.size() && end - start < MAX_BATCH_SIZE && operations.get(end).statement.sql.equals(sql))
+          end++;
+
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        try {
+          for (int i = start; i < end; i++) {
+            operations.get(i).statement.bind(stmt);
+            stmt.addBatch();
+          }
+          int[] updateCounts = stmt.executeBatch();
+          for (int i = 0; i < updateCounts.length; i++) {
+            // drivers may report Statement.SUCCESS_NO_INFO instead of the actual count
+            if (updateCounts[i] == 0)
+              throw new BadRequestException(operations.get(start + i).createdEntityKey != null ? "Entity not inserted" : "Entity not deleted");
+            if (updateCounts[i] > 1 && operations.get(start + i).createdEntityKey == null)
+              throw new BadRequestException(updateCounts[i] + " entities deleted");
+          }
+        } finally {
+          stmt.close();
+        }
+
+        // re-query the created entities before later operations can change them, they may have database defaults
+        rt.addAll(readCreatedEntities(conn, operations.subList(start, end)));
+        start = end;
+      }
+      return rt;
+    }
+
+    private List<EntityResponse> readCreatedEntities(Connection conn, List<Operation> batch) throws Exception {
+      GenerateSqlQuery queryGen = jdbcContext.get(GenerateSqlQuery.class);
+      List<EntityResponse> rt = new ArrayList<EntityResponse>(batch.size());
+      PreparedStatement stmt = null;
+      String sql = null;
+      try {
+        for (Operation operation : batch) {
+          if (operation.createdEntityKey == null) {
+            rt.add(null);
+            continue;
+          }
+          if (!operation.returnContent) {
+            rt.add(Responses.entity(operation.entitySet, operation.createdEntityKey));
+            continue;
+          }
+          BoolCommonExpression filter = prependPrimaryKeyFilter(mapping, operation.entitySet.getType(), operation.createdEntityKey, null);
+          SqlStatement query = queryGen.generate(mapping, operation.entitySet, filter);
+          // the same query for another key, reuse the prepared statement
+          if (!query.sql.equals(sql)) {
+            if (stmt != null)
+              stmt.close();
+            stmt = conn.prepareStatement(query.sql);
+            sql = query.sql;
+          }
+          query.bind(stmt);
+          ResultSet results = stmt.executeQuery();
+          try {
+            if (!results.next())
+              throw new NotFoundException();
+            rt.add(Responses.entity(toOEntity(mapping, operation.entitySet, results)));
+          } finally {
+            results.close();
+          }
+        }
+      } finally {
+        if (stmt != null)
+          stmt.close();
+      }
+      return rt;
+    }
+  }
+
+}
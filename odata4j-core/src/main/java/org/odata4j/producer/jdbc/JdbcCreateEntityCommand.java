@@ -42,8 +42,13 @@ public class JdbcCreateEntityCommand implements Command<CreateEntityCommandConte
       }
     });
 
-    // now re-query for inserted entity
     OEntityKey entityKey = OEntityKey.infer(entitySet, context.getEntity().getProperties());
+    if (context.getReturnPreference() != null && context.getReturnPreference().isNoContent()) {
+      context.setResult(Responses.entity(entitySet, entityKey));
+      return CommandResult.CONTINUE;
+    }
+
+    // now re-query for inserted entity
     GetEntityCommandContext getEntityCommandContext = jdbcContext.getBackend().newGetEntityCommandContext(entitySetName, entityKey, null);
     jdbcContext.getBackend().getCommand(GetEntityCommandContext.class).execute(getEntityCommandContext);
     OEntity newEntity = getEntityCommandContext.getResult().getEntity();
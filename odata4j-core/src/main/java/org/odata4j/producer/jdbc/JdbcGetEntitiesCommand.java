@@ -3,25 +3,34 @@ package org.odata4j.producer.jdbc;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.core4j.ThrowingFunc1;
 import org.odata4j.command.Command;
 import org.odata4j.command.CommandResult;
+import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
+import org.odata4j.core.OLink;
+import org.odata4j.core.Throwables;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.exceptions.NotFoundException;
 import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.Responses;
+import org.odata4j.producer.StreamingEntitiesResponse;
 import org.odata4j.producer.command.GetEntitiesCommandContext;
 
 public class JdbcGetEntitiesCommand extends JdbcBaseCommand implements Command<GetEntitiesCommandContext> {
 
   @Override
   public CommandResult execute(GetEntitiesCommandContext context) throws Exception {
-    JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
+    final JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
 
     String entitySetName = context.getEntitySetName();
 
@@ -32,19 +41,28 @@ public class JdbcGetEntitiesCommand extends JdbcBaseCommand implements Command<G
 
     GenerateSqlQuery queryGen = jdbcContext.get(GenerateSqlQuery.class);
     BoolCommonExpression filter = context.getQueryInfo() == null ? null : context.getQueryInfo().filter;
+    final List<EntitySimpleProperty> expand = context.getQueryInfo() == null ? null : context.getQueryInfo().expand;
     final SqlStatement sqlStatement = queryGen.generate(mapping, entitySet, filter);
-    final List<OEntity> entities = new ArrayList<OEntity>();
 
-    jdbcContext.getJdbc().execute(new ThrowingFunc1<Connection, Void>() {
+    int fetchSize = jdbcContext.getBackend().getStreamingFetchSize();
+    if (fetchSize > 0 && (expand == null || expand.isEmpty())) {
+      context.setResult(new StreamingResponse(jdbcContext, mapping, entitySet, sqlStatement, fetchSize));
+      return CommandResult.CONTINUE;
+    }
+
+    List<OEntity> entities = jdbcContext.getJdbc().execute(new ThrowingFunc1<Connection, List<OEntity>>() {
       @Override
-      public Void apply(Connection conn) throws Exception {
+      public List<OEntity> apply(Connection conn) throws Exception {
+        List<OEntity> entities = new ArrayList<OEntity>();
         PreparedStatement stmt = sqlStatement.asPreparedStatement(conn);
         ResultSet results = stmt.executeQuery();
+        JdbcRowMapper rowMapper = mapping.getRowMapper(entitySet).bind(results);
         while (results.next()) {
-          OEntity entity = toOEntity(mapping, entitySet, results);
+          OEntity entity = rowMapper.map(results);
           entities.add(entity);
         }
-        return null;
+        // related entities of the whole result are loaded with one query per expanded navigation property
+        return jdbcContext.get(LoadRelatedEntities.class).expand(conn, jdbcContext, mapping, entitySet, entities, expand);
       }
     });
 
@@ -56,4 +74,182 @@ public class JdbcGetEntitiesCommand extends JdbcBaseCommand implements Command<G
     return CommandResult.CONTINUE;
   }
 
-}
\ No newline at end of file
+  /**
+   * The entities of a query, read from a forward-only, read-only cursor while they are streamed.
+   *
+   * <p>No connection is held until {@link #streamEntities()} is iterated; {@link #getEntities()}
+   * reads all rows with a cursor of its own and releases it right away.</p>
+   */
+  private class StreamingResponse implements StreamingEntitiesResponse {
+
+    private final JdbcProducerCommandContext jdbcContext;
+    private final JdbcMetadataMapping mapping;
+    private final EdmEntitySet entitySet;
+    private final SqlStatement sqlStatement;
+    private final int fetchSize;
+    // entities without expanded navigation properties all have the same deferred links
+    private final List<OLink> links;
+
+    private Cursor cursor;
+    private List<OEntity> entities;
+
+    StreamingResponse(JdbcProducerCommandContext jdbcContext, JdbcMetadataMapping mapping, EdmEntitySet entitySet,
+        SqlStatement sqlStatement, int fetchSize) {
+      this.jdbcContext = jdbcContext;
+      this.mapping = mapping;
+      this.entitySet = entitySet;
+      this.sqlStatement = sqlStatement;
+      this.fetchSize = fetchSize;
+      this.links = jdbcContext.get(LoadRelatedEntities.class).deferredLinks(entitySet);
+    }
+
+    @Override
+    public Iterable<OEntity> streamEntities() {
+      return new Iterable<OEntity>() {
+        @Override
+        public Iterator<OEntity> iterator() {
+          if (cursor != null)
+            throw new IllegalStateException("The entities can be streamed only once");
+          cursor = new Cursor(StreamingResponse.this);
+          return cursor;
+        }
+      };
+    }
+
+    @Override
+    public List<OEntity> getEntities() {
+      if (entities == null) {
+        List<OEntity> rt = new ArrayList<OEntity>();
+        Cursor all = new Cursor(this);
+        try {
+          while (all.hasNext())
+            rt.add(all.next());
+        } finally {
+          all.close();
+        }
+        entities = Collections.unmodifiableList(rt);
+      }
+      return entities;
+    }
+
+    @Override
+    public EdmEntitySet getEntitySet() {
+      return entitySet;
+    }
+
+    @Override
+    public Integer getInlineCount() {
+      return null;
+    }
+
+    @Override
+    public String getSkipToken() {
+      return null;
+    }
+
+    @Override
+    public void close() {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  /**
+   * A cursor over the rows of a query, holding its connection until the last row has been read,
+   * reading fails, or it is closed.
+   */
+  private static class Cursor implements Iterator<OEntity> {
+
+    private final StreamingResponse response;
+    private final JdbcRowMapper rowMapper;
+
+    private Connection conn;
+    private PreparedStatement stmt;
+    private ResultSet results;
+    private OEntity next;
+
+    Cursor(StreamingResponse response) {
+      this.response = response;
+      try {
+        conn = response.jdbcContext.getJdbc().getConnection();
+        // some drivers only use cursors, rather than reading the whole result, inside a transaction
+        conn.setAutoCommit(false);
+        stmt = conn.prepareStatement(response.sqlStatement.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(response.fetchSize);
+        response.sqlStatement.bind(stmt);
+        results = stmt.executeQuery();
+        rowMapper = response.mapping.getRowMapper(response.entitySet).bind(results);
+      } catch (SQLException e) {
+        close();
+        throw Throwables.propagate(e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null)
+        next = read();
+      return next != null;
+    }
+
+    @Override
+    public OEntity next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      OEntity rt = next;
+      next = null;
+      return rt;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads the next entity, releasing the connection after the last one.
+     */
+    private OEntity read() {
+      if (results == null)
+        return null;
+      try {
+        if (!results.next()) {
+          close();
+          return null;
+        }
+        OEntity entity = rowMapper.map(results);
+        return OEntities.create(response.entitySet, entity.getEntityKey(), entity.getProperties(), response.links);
+      } catch (SQLException e) {
+        close();
+        throw Throwables.propagate(e);
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    void close() {
+      if (conn == null)
+        return;
+      try {
+        if (results != null)
+          results.close();
+        if (stmt != null)
+          stmt.close();
+        conn.rollback();
+      } catch (SQLException e) {
+        // the connection is closed anyway
+      } finally {
+        results = null;
+        stmt = null;
+        try {
+          conn.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+        conn = null;
+      }
+    }
+  }
+
+}
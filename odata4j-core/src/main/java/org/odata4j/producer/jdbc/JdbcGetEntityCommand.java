@@ -3,6 +3,8 @@ package org.odata4j.producer.jdbc;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
 
 import org.core4j.ThrowingFunc1;
 import org.odata4j.command.Command;
@@ -11,6 +13,7 @@ import org.odata4j.core.OEntity;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.exceptions.NotFoundException;
 import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
 import org.odata4j.producer.EntityResponse;
 import org.odata4j.producer.Responses;
 import org.odata4j.producer.command.GetEntityCommandContext;
@@ -19,7 +22,7 @@ public class JdbcGetEntityCommand extends JdbcBaseCommand implements Command<Get
 
   @Override
   public CommandResult execute(final GetEntityCommandContext context) throws Exception {
-    JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
+    final JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
 
     String entitySetName = context.getEntitySetName();
 
@@ -38,7 +41,9 @@ public class JdbcGetEntityCommand extends JdbcBaseCommand implements Command<Get
         PreparedStatement stmt = sqlStatement.asPreparedStatement(conn);
         ResultSet results = stmt.executeQuery();
         if (results.next()) {
-          return toOEntity(mapping, entitySet, results);
+          OEntity entity = toOEntity(mapping, entitySet, results);
+          List<EntitySimpleProperty> expand = context.getQueryInfo() == null ? null : context.getQueryInfo().expand;
+          return jdbcContext.get(LoadRelatedEntities.class).expand(conn, jdbcContext, mapping, entitySet, Collections.singletonList(entity), expand).get(0);
         }
         return null;
       }
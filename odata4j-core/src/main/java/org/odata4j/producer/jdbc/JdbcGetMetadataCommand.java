@@ -1,30 +1,62 @@
 package org.odata4j.producer.jdbc;
 
+import java.sql.Connection;
+
+import org.core4j.ThrowingFunc1;
 import org.odata4j.command.Command;
 import org.odata4j.command.CommandResult;
 import org.odata4j.producer.command.GetMetadataCommandContext;
 
+/**
+ * Generates the metadata mapping once and keeps it until {@link #refresh()}; the backend uses a
+ * single instance of this command, so that requests do not read the database metadata again.
+ */
 public class JdbcGetMetadataCommand implements Command<GetMetadataCommandContext> {
 
+  private volatile JdbcMetadataMapping mapping;
+
   @Override
   public CommandResult execute(GetMetadataCommandContext context) throws Exception {
-    JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
+    JdbcMetadataMapping mapping = this.mapping;
+    if (mapping == null) {
+      synchronized (this) {
+        mapping = this.mapping;
+        if (mapping == null) {
+          JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
 
-    // 1. generate jdbc model
-    JdbcModel model = generateModel(jdbcContext);
+          // 1. generate jdbc model
+          JdbcModel model = generateModel(jdbcContext);
 
-    // 2. apply model cleanup
-    cleanupModel(model);
+          // 2. apply model cleanup
+          cleanupModel(model);
 
-    // 3. project jdbc model into edm metadata
-    JdbcMetadataMapping mapping = modelToMapping(jdbcContext, model);
+          // 3. project jdbc model into edm metadata
+          mapping = modelToMapping(jdbcContext, model);
+          this.mapping = mapping;
+        }
+      }
+    }
 
     context.setResult(mapping);
     return CommandResult.CONTINUE;
   }
 
+  /**
+   * Discards the metadata mapping, so that it is generated again on the next request.
+   */
+  public void refresh() {
+    mapping = null;
+  }
+
   public JdbcModel generateModel(JdbcProducerCommandContext jdbcContext) {
-    return jdbcContext.getJdbc().execute(new GenerateJdbcModel());
+    final GenerateJdbcModel generator = jdbcContext.get(GenerateJdbcModel.class);
+    final JdbcModelCache cache = jdbcContext.get(JdbcModelCache.class);
+    return jdbcContext.getJdbc().execute(new ThrowingFunc1<Connection, JdbcModel>() {
+      @Override
+      public JdbcModel apply(Connection conn) throws Exception {
+        return cache.apply(conn, generator);
+      }
+    });
   }
 
   public void cleanupModel(JdbcModel model) {
@@ -0,0 +1,77 @@
+package org.odata4j.producer.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.core4j.ThrowingFunc1;
+import org.odata4j.command.Command;
+import org.odata4j.command.CommandResult;
+import org.odata4j.core.OEntity;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmMultiplicity;
+import org.odata4j.edm.EdmNavigationProperty;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.producer.BaseResponse;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.Responses;
+import org.odata4j.producer.command.GetNavPropertyCommandContext;
+
+public class JdbcGetNavPropertyCommand extends JdbcBaseCommand implements Command<GetNavPropertyCommandContext> {
+
+  @Override
+  public CommandResult execute(final GetNavPropertyCommandContext context) throws Exception {
+    final JdbcProducerCommandContext jdbcContext = (JdbcProducerCommandContext) context;
+
+    String entitySetName = context.getEntitySetName();
+
+    final JdbcMetadataMapping mapping = jdbcContext.getBackend().getMetadataMapping();
+    final EdmEntitySet entitySet = mapping.getMetadata().findEdmEntitySet(entitySetName);
+    if (entitySet == null)
+      throw new NotFoundException();
+    final EdmNavigationProperty navigationProperty = entitySet.getType().findNavigationProperty(context.getNavProp());
+    if (navigationProperty == null)
+      throw new NotFoundException();
+    final EdmEntitySet targetEntitySet = mapping.getMetadata().getEdmEntitySet(navigationProperty.getToRole().getType());
+
+    QueryInfo queryInfo = context.getQueryInfo();
+    final BoolCommonExpression filter = queryInfo == null ? null : queryInfo.filter;
+    final List<EntitySimpleProperty> expand = queryInfo == null ? null : queryInfo.expand;
+
+    GenerateSqlQuery queryGen = jdbcContext.get(GenerateSqlQuery.class);
+    final SqlStatement sqlStatement = queryGen.generate(mapping, entitySet, prependPrimaryKeyFilter(mapping, entitySet.getType(), context.getEntityKey(), null));
+    List<OEntity> entities = jdbcContext.getJdbc().execute(new ThrowingFunc1<Connection, List<OEntity>>() {
+      @Override
+      public List<OEntity> apply(Connection conn) throws Exception {
+        PreparedStatement stmt = sqlStatement.asPreparedStatement(conn);
+        ResultSet results = stmt.executeQuery();
+        if (!results.next())
+          return null;
+        OEntity entity = toOEntity(mapping, entitySet, results);
+
+        LoadRelatedEntities related = jdbcContext.get(LoadRelatedEntities.class);
+        List<OEntity> rt = related.load(conn, jdbcContext, mapping, entitySet, Collections.singletonList(entity), navigationProperty, filter).get(0);
+        return related.expand(conn, jdbcContext, mapping, targetEntitySet, rt, expand);
+      }
+    });
+
+    if (entities == null)
+      throw new NotFoundException();
+
+    BaseResponse response;
+    if (navigationProperty.getToRole().getMultiplicity() == EdmMultiplicity.MANY) {
+      response = Responses.entities(entities, targetEntitySet, null, null);
+    } else {
+      if (entities.isEmpty())
+        throw new NotFoundException();
+      response = Responses.entity(entities.get(0));
+    }
+    context.setResult(response);
+    return CommandResult.CONTINUE;
+  }
+
+}
@@ -1,12 +1,18 @@
 package org.odata4j.producer.jdbc;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmDataServicesProvider;
 import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmMultiplicity;
+import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.edm.EdmProperty;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKey;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
 
 public class JdbcMetadataMapping implements EdmDataServicesProvider {
@@ -15,12 +21,20 @@ public class JdbcMetadataMapping implements EdmDataServicesProvider {
   private final JdbcModel model;
   private final Map<EdmEntitySet, JdbcTable> entitySetMapping;
   private final Map<EdmProperty, JdbcColumn> propertyMapping;
+  private final Map<EdmNavigationProperty, JdbcForeignKey> navigationMapping;
+  private final ConcurrentMap<EdmEntitySet, JdbcRowMapper> rowMappers = new ConcurrentHashMap<EdmEntitySet, JdbcRowMapper>();
 
   public JdbcMetadataMapping(EdmDataServices metadata, JdbcModel model, Map<EdmEntitySet, JdbcTable> entitySetMapping, Map<EdmProperty, JdbcColumn> propertyMapping) {
+    this(metadata, model, entitySetMapping, propertyMapping, Collections.<EdmNavigationProperty, JdbcForeignKey> emptyMap());
+  }
+
+  public JdbcMetadataMapping(EdmDataServices metadata, JdbcModel model, Map<EdmEntitySet, JdbcTable> entitySetMapping, Map<EdmProperty, JdbcColumn> propertyMapping,
+      Map<EdmNavigationProperty, JdbcForeignKey> navigationMapping) {
     this.metadata = metadata;
     this.model = model;
     this.entitySetMapping = entitySetMapping;
     this.propertyMapping = propertyMapping;
+    this.navigationMapping = navigationMapping;
   }
 
   @Override
@@ -41,4 +55,38 @@ public class JdbcMetadataMapping implements EdmDataServicesProvider {
     return propertyMapping.get(edmProperty);
   }
 
+  /**
+   * Gets the row mapper of an entity set, compiled on first use.
+   *
+   * @param entitySet  the entity set
+   * @return the mapper, to be bound to each result set
+   */
+  public JdbcRowMapper getRowMapper(EdmEntitySet entitySet) {
+    JdbcRowMapper rowMapper = rowMappers.get(entitySet);
+    if (rowMapper == null) {
+      rowMapper = JdbcRowMapper.compile(this, entitySet);
+      JdbcRowMapper existing = rowMappers.putIfAbsent(entitySet, rowMapper);
+      if (existing != null)
+        rowMapper = existing;
+    }
+    return rowMapper;
+  }
+
+  /**
+   * Gets the foreign key a navigation property follows, in either direction.
+   *
+   * @see #isNavigationFromForeignKey(EdmNavigationProperty)
+   */
+  public JdbcForeignKey getMappedForeignKey(EdmNavigationProperty navigationProperty) {
+    return navigationMapping.get(navigationProperty);
+  }
+
+  /**
+   * Whether a navigation property leads from the table holding the foreign key to the referenced table,
+   * rather than from the referenced table to the referencing rows.
+   */
+  public boolean isNavigationFromForeignKey(EdmNavigationProperty navigationProperty) {
+    return navigationProperty.getFromRole().getMultiplicity() == EdmMultiplicity.MANY;
+  }
+
 }
@@ -1,16 +1,21 @@
 package org.odata4j.producer.jdbc;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.core4j.Enumerable;
 import org.core4j.Predicate1;
 
-public class JdbcModel {
+public class JdbcModel implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   public final List<JdbcModel.JdbcSchema> schemas = new ArrayList<JdbcModel.JdbcSchema>();
 
-  public static class JdbcSchema {
+  public static class JdbcSchema implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String schemaName;
     public String catalogName;
     public boolean isDefault;
@@ -18,21 +23,47 @@ public class JdbcModel {
     public final List<JdbcModel.JdbcTable> tables = new ArrayList<JdbcModel.JdbcTable>();
   }
 
-  public static class JdbcTable {
+  public static class JdbcTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String tableName;
     public String tableType;
 
     public final List<JdbcModel.JdbcColumn> columns = new ArrayList<JdbcModel.JdbcColumn>();
     public final List<JdbcModel.JdbcPrimaryKey> primaryKeys = new ArrayList<JdbcModel.JdbcPrimaryKey>();
+    public final List<JdbcModel.JdbcForeignKey> foreignKeys = new ArrayList<JdbcModel.JdbcForeignKey>();
   }
 
-  public static class JdbcPrimaryKey {
+  public static class JdbcPrimaryKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String columnName;
     public int sequenceNumber;
     public String primaryKeyName;
   }
 
-  public static class JdbcColumn {
+  /** A foreign key of a table, referencing the primary key of another table. */
+  public static class JdbcForeignKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public String foreignKeyName;
+    public String primaryKeySchemaName;
+    public String primaryKeyTableName;
+
+    public final List<JdbcModel.JdbcForeignKeyColumn> columns = new ArrayList<JdbcModel.JdbcForeignKeyColumn>();
+  }
+
+  public static class JdbcForeignKeyColumn implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public String columnName;
+    public String primaryKeyColumnName;
+    public int sequenceNumber;
+  }
+
+  public static class JdbcColumn implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String columnName;
     public int columnType; // java.sql.Types
     public String columnTypeName;
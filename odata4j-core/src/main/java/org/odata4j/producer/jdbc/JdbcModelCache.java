@@ -0,0 +1,192 @@
+package org.odata4j.producer.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.odata4j.core.Throwables;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcSchema;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
+
+/**
+ * Keeps the model of a database in a file, so that the columns and keys of all tables need not be
+ * read again on startup.
+ *
+ * <p>The cached model is used as long as a cheap signal of the schema is unchanged. By default this
+ * is the list of tables, read with one query per schema: adding, removing or renaming a table
+ * invalidates the file, but changes to the columns or keys of existing tables alone are not
+ * detected. Where the schema is managed by migrations, a version query, e.g. one selecting the
+ * latest migration or the last DDL timestamp, detects every change the version covers without
+ * reading any metadata. Otherwise call {@link #invalidate()}, or delete the file, after changing
+ * columns or keys.</p>
+ *
+ * <p>Without a file, the model is always read from the database.</p>
+ */
+public class JdbcModelCache {
+
+  private static final Logger log = Logger.getLogger(JdbcModelCache.class.getName());
+
+  private static final int FORMAT_VERSION = 2;
+
+  private final File file;
+  private final String versionQuery;
+
+  public JdbcModelCache() {
+    this(null);
+  }
+
+  public JdbcModelCache(File file) {
+    this(file, null);
+  }
+
+  /**
+   * Creates a cache validated by the result of a query instead of the list of tables.
+   *
+   * @param file  the file
+   * @param versionQuery  a query selecting a single value that changes with the schema, or null
+   *                      for validating by the list of tables
+   */
+  public JdbcModelCache(File file, String versionQuery) {
+    this.file = file;
+    this.versionQuery = versionQuery;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public String getVersionQuery() {
+    return versionQuery;
+  }
+
+  /**
+   * Deletes the file, so that the model is read from the database again on the next startup.
+   */
+  public void invalidate() {
+    if (file != null && file.exists() && !file.delete())
+      log.warning("Cannot delete model cache " + file);
+  }
+
+  /**
+   * Gets the model of a database, from the file if it is up to date.
+   *
+   * @param conn  the connection
+   * @param generator  the generator reading the model
+   * @return the model
+   */
+  public JdbcModel apply(Connection conn, GenerateJdbcModel generator) throws Exception {
+    if (file == null)
+      return generator.apply(conn);
+
+    JdbcModel model = null;
+    String checksum;
+    if (versionQuery != null) {
+      checksum = "V|" + readVersion(conn);
+    } else {
+      model = generator.readTableList(conn);
+      checksum = checksum(model);
+    }
+    JdbcModel cached = read(checksum);
+    if (cached != null)
+      return cached;
+
+    if (model == null) {
+      model = generator.apply(conn);
+    } else {
+      generator.readColumns(conn, model);
+      generator.readKeys(conn, model);
+    }
+    write(checksum, model);
+    return model;
+  }
+
+  private String readVersion(Connection conn) throws Exception {
+    Statement stmt = conn.createStatement();
+    try {
+      ResultSet results = stmt.executeQuery(versionQuery);
+      return results.next() ? String.valueOf(results.getObject(1)) : "";
+    } finally {
+      stmt.close();
+    }
+  }
+
+  /**
+   * Computes a checksum over the schemas, tables and columns of a model; for a model read by
+   * {@link GenerateJdbcModel#readTableList(Connection)}, over the schemas and tables.
+   */
+  public static String checksum(JdbcModel model) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      StringBuilder sb = new StringBuilder();
+      for (JdbcSchema schema : model.schemas) {
+        sb.append("S|").append(schema.catalogName).append('|').append(schema.schemaName).append('|').append(schema.isDefault).append('\n');
+        for (JdbcTable table : schema.tables) {
+          sb.append("T|").append(table.tableName).append('|').append(table.tableType).append('\n');
+          for (JdbcColumn column : table.columns) {
+            sb.append("C|").append(column.columnName).append('|').append(column.columnType).append('|').append(column.columnTypeName)
+                .append('|').append(column.columnSize).append('|').append(column.isNullable).append('|').append(column.ordinalPosition).append('\n');
+          }
+        }
+        digest.update(sb.toString().getBytes("UTF-8"));
+        sb.setLength(0);
+      }
+      StringBuilder rt = new StringBuilder();
+      for (byte b : digest.digest())
+        rt.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      return rt.toString();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private JdbcModel read(String checksum) {
+    if (!file.exists())
+      return null;
+    try {
+      ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != FORMAT_VERSION || !checksum.equals(in.readUTF()))
+          return null;
+        return (JdbcModel) in.readObject();
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      log.log(Level.WARNING, "Ignoring unreadable model cache " + file, e);
+      return null;
+    }
+  }
+
+  private void write(String checksum, JdbcModel model) {
+    // write to a temporary file first, so that concurrent readers never see a partial file
+    File tmp = new File(file.getPath() + ".tmp");
+    try {
+      ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(checksum);
+        out.writeObject(model);
+      } finally {
+        out.close();
+      }
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+        throw new IOException("Cannot rename " + tmp + " to " + file);
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Cannot write model cache " + file, e);
+      tmp.delete();
+    }
+  }
+
+}
@@ -8,15 +8,23 @@ import java.util.Map;
 
 import org.core4j.Func1;
 import org.odata4j.core.ImmutableMap;
+import org.odata4j.edm.EdmAssociation;
+import org.odata4j.edm.EdmAssociationEnd;
+import org.odata4j.edm.EdmAssociationSet;
+import org.odata4j.edm.EdmAssociationSetEnd;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntityContainer;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmMultiplicity;
+import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.edm.EdmProperty;
 import org.odata4j.edm.EdmSchema;
 import org.odata4j.edm.EdmSimpleType;
 import org.odata4j.edm.EdmType;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKey;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKeyColumn;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcPrimaryKey;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcSchema;
 import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
@@ -52,6 +60,14 @@ public class JdbcModelToMetadata implements Func1<JdbcModel, JdbcMetadataMapping
     return rename(columnName);
   }
 
+  public String getNavigationPropertyName(String tableName) {
+    return rename(tableName);
+  }
+
+  public String getAssociationName(String fromEntityTypeName, String toEntityTypeName) {
+    return "FK_" + fromEntityTypeName + "_" + toEntityTypeName;
+  }
+
   public String rename(String dbName) {
     return dbName;
   }
@@ -69,11 +85,17 @@ public class JdbcModelToMetadata implements Func1<JdbcModel, JdbcMetadataMapping
     List<EdmEntityType.Builder> entityTypes = new ArrayList<EdmEntityType.Builder>();
     List<EdmEntityContainer.Builder> entityContainers = new ArrayList<EdmEntityContainer.Builder>();
     List<EdmEntitySet.Builder> entitySets = new ArrayList<EdmEntitySet.Builder>();
+    List<EdmAssociation.Builder> associations = new ArrayList<EdmAssociation.Builder>();
 
     Map<EdmEntitySet.Builder, JdbcTable> entitySetMapping = new HashMap<EdmEntitySet.Builder, JdbcTable>();
     Map<EdmProperty.Builder, JdbcColumn> propertyMapping = new HashMap<EdmProperty.Builder, JdbcColumn>();
+    Map<EdmNavigationProperty.Builder, JdbcForeignKey> navigationMapping = new HashMap<EdmNavigationProperty.Builder, JdbcForeignKey>();
 
     for (JdbcSchema jdbcSchema : jdbcModel.schemas) {
+      Map<String, EdmEntityType.Builder> tableEntityTypes = new HashMap<String, EdmEntityType.Builder>();
+      Map<String, EdmEntitySet.Builder> tableEntitySets = new HashMap<String, EdmEntitySet.Builder>();
+      List<EdmAssociationSet.Builder> associationSets = new ArrayList<EdmAssociationSet.Builder>();
+
       for (JdbcTable jdbcTable : jdbcSchema.tables) {
         if (jdbcTable.primaryKeys.isEmpty()) {
           System.err.println("Skipping JdbcTable " + jdbcTable.tableName + ", no keys");
@@ -107,20 +129,76 @@ public class JdbcModelToMetadata implements Func1<JdbcModel, JdbcMetadataMapping
             .setEntityType(entityType);
         entitySets.add(entitySet);
         entitySetMapping.put(entitySet, jdbcTable);
+        tableEntityTypes.put(jdbcTable.tableName, entityType);
+        tableEntitySets.put(jdbcTable.tableName, entitySet);
+      }
+
+      // a foreign key becomes an association between the referencing (many) and the referenced (one) table,
+      // navigable in both directions
+      for (JdbcTable jdbcTable : jdbcSchema.tables) {
+        EdmEntityType.Builder fromEntityType = tableEntityTypes.get(jdbcTable.tableName);
+        if (fromEntityType == null)
+          continue;
+        for (JdbcForeignKey foreignKey : jdbcTable.foreignKeys) {
+          EdmEntityType.Builder toEntityType = tableEntityTypes.get(foreignKey.primaryKeyTableName);
+          if (toEntityType == null || !jdbcSchema.schemaName.equals(foreignKey.primaryKeySchemaName))
+            continue;
+
+          boolean nullable = false;
+          for (JdbcForeignKeyColumn foreignKeyColumn : foreignKey.columns) {
+            for (JdbcColumn jdbcColumn : jdbcTable.columns)
+              if (jdbcColumn.columnName.equals(foreignKeyColumn.columnName) && jdbcColumn.isNullable)
+                nullable = true;
+          }
+
+          String associationName = getUniqueAssociationName(associations, fromEntityType, toEntityType);
+          EdmAssociationEnd.Builder fromEnd = EdmAssociationEnd.newBuilder()
+              .setRole(fromEntityType.getName())
+              .setType(fromEntityType)
+              .setMultiplicity(EdmMultiplicity.MANY);
+          EdmAssociationEnd.Builder toEnd = EdmAssociationEnd.newBuilder()
+              .setRole(toEntityType.getName().equals(fromEntityType.getName()) ? toEntityType.getName() + "1" : toEntityType.getName())
+              .setType(toEntityType)
+              .setMultiplicity(nullable ? EdmMultiplicity.ZERO_TO_ONE : EdmMultiplicity.ONE);
+          EdmAssociation.Builder association = EdmAssociation.newBuilder()
+              .setNamespace(modelNamespace)
+              .setName(associationName)
+              .setEnds(fromEnd, toEnd);
+          associations.add(association);
+          associationSets.add(EdmAssociationSet.newBuilder()
+              .setName(associationName)
+              .setAssociation(association)
+              .setEnds(EdmAssociationSetEnd.newBuilder().setRole(fromEnd).setEntitySet(tableEntitySets.get(jdbcTable.tableName)),
+                  EdmAssociationSetEnd.newBuilder().setRole(toEnd).setEntitySet(tableEntitySets.get(foreignKey.primaryKeyTableName))));
+
+          EdmNavigationProperty.Builder toOne = EdmNavigationProperty.newBuilder(getUniquePropertyName(fromEntityType, getNavigationPropertyName(foreignKey.primaryKeyTableName)))
+              .setRelationship(association)
+              .setFromTo(fromEnd, toEnd);
+          fromEntityType.addNavigationProperties(toOne);
+          navigationMapping.put(toOne, foreignKey);
+
+          EdmNavigationProperty.Builder toMany = EdmNavigationProperty.newBuilder(getUniquePropertyName(toEntityType, getNavigationPropertyName(jdbcTable.tableName)))
+              .setRelationship(association)
+              .setFromTo(toEnd, fromEnd);
+          toEntityType.addNavigationProperties(toMany);
+          navigationMapping.put(toMany, foreignKey);
+        }
       }
 
       String entityContainerName = getEntityContainerName(jdbcSchema.schemaName);
       EdmEntityContainer.Builder entityContainer = EdmEntityContainer.newBuilder()
           .setName(entityContainerName)
           .setIsDefault(jdbcSchema.isDefault)
-          .addEntitySets(entitySets);
+          .addEntitySets(entitySets)
+          .addAssociationSets(associationSets);
       entityContainers.add(entityContainer);
     }
 
     List<EdmSchema.Builder> edmSchemas = new ArrayList<EdmSchema.Builder>();
     EdmSchema.Builder modelSchema = EdmSchema.newBuilder()
         .setNamespace(modelNamespace)
-        .addEntityTypes(entityTypes);
+        .addEntityTypes(entityTypes)
+        .addAssociations(associations);
     edmSchemas.add(modelSchema);
     for (EdmEntityContainer.Builder entityContainer : entityContainers) {
       String containerSchemaNamespace = getContainerNamespace(entityContainer.getName());
@@ -141,7 +219,37 @@ public class JdbcModelToMetadata implements Func1<JdbcModel, JdbcMetadataMapping
     for (Map.Entry<EdmProperty.Builder, JdbcColumn> entry : propertyMapping.entrySet()) {
       finalPropertyMapping.put(entry.getKey().build(), entry.getValue());
     }
-    return new JdbcMetadataMapping(metadata, jdbcModel, finalEntitySetMapping, finalPropertyMapping);
+    Map<EdmNavigationProperty, JdbcForeignKey> finalNavigationMapping = new HashMap<EdmNavigationProperty, JdbcForeignKey>();
+    for (EdmEntityType.Builder entityType : entityTypes) {
+      for (EdmNavigationProperty.Builder navigationProperty : entityType.getNavigationProperties()) {
+        if (navigationMapping.containsKey(navigationProperty))
+          finalNavigationMapping.put(entityType.build().findNavigationProperty(navigationProperty.getName()), navigationMapping.get(navigationProperty));
+      }
+    }
+    return new JdbcMetadataMapping(metadata, jdbcModel, finalEntitySetMapping, finalPropertyMapping, finalNavigationMapping);
+  }
+
+  private String getUniqueAssociationName(List<EdmAssociation.Builder> associations, EdmEntityType.Builder fromEntityType, EdmEntityType.Builder toEntityType) {
+    String associationName = getAssociationName(fromEntityType.getName(), toEntityType.getName());
+    for (int i = 1;; i++) {
+      String candidate = i == 1 ? associationName : associationName + "_" + i;
+      boolean exists = false;
+      for (EdmAssociation.Builder association : associations)
+        exists |= association.getName().equals(candidate);
+      if (!exists)
+        return candidate;
+    }
+  }
+
+  private static String getUniquePropertyName(EdmEntityType.Builder entityType, String propertyName) {
+    for (int i = 1;; i++) {
+      String candidate = i == 1 ? propertyName : propertyName + i;
+      boolean exists = entityType.findProperty(candidate) != null;
+      for (EdmNavigationProperty.Builder navigationProperty : entityType.getNavigationProperties())
+        exists |= navigationProperty.getName().equals(candidate);
+      if (!exists)
+        return candidate;
+    }
   }
 
 }
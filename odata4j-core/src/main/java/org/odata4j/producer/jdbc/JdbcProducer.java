@@ -1,5 +1,6 @@
 package org.odata4j.producer.jdbc;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,7 +9,11 @@ import java.util.Map;
 import org.odata4j.command.Command;
 import org.odata4j.command.CommandContext;
 import org.odata4j.command.CommandExecution;
+import org.odata4j.core.OExtension;
 import org.odata4j.core.Throwables;
+import org.odata4j.producer.AggregationExtension;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.command.CommandProducer;
 import org.odata4j.producer.command.ProducerCommandContext;
 
@@ -21,12 +26,46 @@ public class JdbcProducer extends CommandProducer {
     private final Map<Class<?>, List<Command<?>>> postCommands = new HashMap<Class<?>, List<Command<?>>>();
 
     private Jdbc jdbc;
+    private int streamingFetchSize;
+
+    public Builder() {
+      // read the default schema only, the others are dropped from the model anyway
+      register(GenerateJdbcModel.class, new GenerateJdbcModel().setSchemaFilter(GenerateJdbcModel.DEFAULT_SCHEMA));
+    }
 
     public Builder jdbc(Jdbc jdbc) {
       this.jdbc = jdbc;
       return this;
     }
 
+    /**
+     * Streams the results of entity set queries without $expand from a forward-only cursor, instead
+     * of reading them completely before responding.
+     *
+     * @param fetchSize  the number of rows fetched at once, 0 to disable streaming
+     */
+    public Builder streaming(int fetchSize) {
+      if (fetchSize < 0)
+        throw new IllegalArgumentException("fetchSize must not be negative");
+      this.streamingFetchSize = fetchSize;
+      return this;
+    }
+
+    /**
+     * Keeps the database model in a file, see {@link JdbcModelCache}.
+     */
+    public Builder modelCache(File file) {
+      return register(JdbcModelCache.class, new JdbcModelCache(file));
+    }
+
+    /**
+     * Keeps the database model in a file that is valid as long as a version query returns the same
+     * value, see {@link JdbcModelCache}.
+     */
+    public Builder modelCache(File file, String versionQuery) {
+      return register(JdbcModelCache.class, new JdbcModelCache(file, versionQuery));
+    }
+
     public <TContext extends ProducerCommandContext<?>> Builder insert(Class<TContext> contextType, Command<?> command) {
       return preOrPost(contextType, command, preCommands);
     }
@@ -59,6 +98,11 @@ public class JdbcProducer extends CommandProducer {
           return jdbc;
         }
 
+        @Override
+        public int getStreamingFetchSize() {
+          return streamingFetchSize;
+        }
+
         @Override
         protected <TContext extends CommandContext> List<Command<?>> getPreCommands(Class<TContext> contextType) {
           return preCommands.get(contextType);
@@ -109,4 +153,21 @@ public class JdbcProducer extends CommandProducer {
     return jdbcBackend.getJdbc();
   }
 
+  /**
+   * Discards the metadata, so that it is read from the database again on the next request,
+   * e.g. after tables have been added.
+   */
+  public void refreshMetadata() {
+    jdbcBackend.refreshMetadata();
+  }
+
+  @Override
+  public <TExtension extends OExtension<ODataProducer>> TExtension findExtension(Class<TExtension> clazz) {
+    if (clazz.equals(AggregationExtension.class))
+      return clazz.cast(new JdbcAggregationExtension(jdbcBackend));
+    if (clazz.equals(ChangeSetExtension.class))
+      return clazz.cast(new JdbcChangeSetExtension(jdbcBackend));
+    return super.findExtension(clazz);
+  }
+
 }
@@ -16,6 +16,7 @@ import org.odata4j.core.Throwables;
 import org.odata4j.edm.EdmFunctionImport;
 import org.odata4j.producer.EntityQueryInfo;
 import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.ReturnPreference;
 import org.odata4j.producer.command.CallFunctionCommandContext;
 import org.odata4j.producer.command.CloseCommandContext;
 import org.odata4j.producer.command.CommandProducerBackend;
@@ -50,6 +51,17 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
 
   abstract protected <T> T get(Class<T> instanceType);
 
+  private final JdbcGetMetadataCommand metadataCommand = new JdbcGetMetadataCommand();
+
+  /**
+   * Gets the fetch size of streamed entity set queries.
+   *
+   * @return the number of rows fetched at once, or 0 to read the whole result before responding
+   */
+  public int getStreamingFetchSize() {
+    return 0;
+  }
+
   public JdbcMetadataMapping getMetadataMapping() {
     GetMetadataCommandContext context = newGetMetadataCommandContext();
     try {
@@ -60,6 +72,13 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
     }
   }
 
+  /**
+   * Discards the metadata mapping, so that it is read from the database again on the next request.
+   */
+  public void refreshMetadata() {
+    metadataCommand.refresh();
+  }
+
   public JdbcProducerCommandContext newJdbcCommandContext() {
     return new JdbcProducerCommandContext() {
 
@@ -90,7 +109,7 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
       chain.addAll(getPostCommands(CloseCommandContext.class));
     } else if (GetMetadataCommandContext.class.isAssignableFrom(contextType)) {
       chain.addAll(getPreCommands(GetMetadataCommandContext.class));
-      chain.add(new JdbcGetMetadataCommand());
+      chain.add(metadataCommand);
       chain.addAll(getPostCommands(GetMetadataCommandContext.class));
     } else if (GetEntitiesCommandContext.class.isAssignableFrom(contextType)) {
       chain.addAll(getPreCommands(GetEntitiesCommandContext.class));
@@ -100,6 +119,10 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
       chain.addAll(getPreCommands(GetEntityCommandContext.class));
       chain.add(new JdbcGetEntityCommand());
       chain.addAll(getPostCommands(GetEntityCommandContext.class));
+    } else if (GetNavPropertyCommandContext.class.isAssignableFrom(contextType)) {
+      chain.addAll(getPreCommands(GetNavPropertyCommandContext.class));
+      chain.add(new JdbcGetNavPropertyCommand());
+      chain.addAll(getPostCommands(GetNavPropertyCommandContext.class));
     } else if (CreateEntityCommandContext.class.isAssignableFrom(contextType)) {
       chain.addAll(getPreCommands(CreateEntityCommandContext.class));
       chain.add(new JdbcCreateEntityCommand());
@@ -160,7 +183,11 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
 
   @Override
   public GetNavPropertyCommandContext newGetNavPropertyCommandContext(String entitySetName, OEntityKey entityKey, String navProp, QueryInfo queryInfo) {
-    throw new UnsupportedOperationException();
+    return newContext(GetNavPropertyCommandContext.class,
+        "entitySetName", entitySetName,
+        "entityKey", entityKey,
+        "navProp", navProp,
+        "queryInfo", queryInfo);
   }
 
   @Override
@@ -170,9 +197,15 @@ public abstract class JdbcProducerBackend implements CommandProducerBackend {
 
   @Override
   public CreateEntityCommandContext newCreateEntityCommandContext(String entitySetName, OEntity entity) {
+    return newCreateEntityCommandContext(entitySetName, entity, null);
+  }
+
+  @Override
+  public CreateEntityCommandContext newCreateEntityCommandContext(String entitySetName, OEntity entity, ReturnPreference returnPreference) {
     return newContext(CreateEntityCommandContext.class,
         "entitySetName", entitySetName,
-        "entity", entity);
+        "entity", entity,
+        "returnPreference", returnPreference);
   }
 
   @Override
@@ -0,0 +1,204 @@
+package org.odata4j.producer.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * Maps the rows of a result set to entities of an entity set.
+ *
+ * <p>A mapper is compiled once per entity set, see {@link JdbcMetadataMapping#getRowMapper(EdmEntitySet)},
+ * choosing a type-specific getter for every property. Before reading a result set, it is bound to
+ * the column ordinals of that result set, so that rows are read without looking up columns by name.</p>
+ */
+public class JdbcRowMapper {
+
+  private enum Getter {
+    INT, LONG, SHORT, BYTE, BOOLEAN, STRING, DOUBLE, FLOAT, DECIMAL, TIMESTAMP, TIME, BYTES, OBJECT
+  }
+
+  private final EdmEntitySet entitySet;
+  private final String[] propertyNames;
+  private final EdmSimpleType<?>[] propertyTypes;
+  private final String[] columnNames;
+  private final Getter[] getters;
+  private final int[] keyIndexes;
+  private final int[] ordinals;
+
+  private JdbcRowMapper(EdmEntitySet entitySet, String[] propertyNames, EdmSimpleType<?>[] propertyTypes, String[] columnNames,
+      Getter[] getters, int[] keyIndexes, int[] ordinals) {
+    this.entitySet = entitySet;
+    this.propertyNames = propertyNames;
+    this.propertyTypes = propertyTypes;
+    this.columnNames = columnNames;
+    this.getters = getters;
+    this.keyIndexes = keyIndexes;
+    this.ordinals = ordinals;
+  }
+
+  /**
+   * Compiles the mapper of an entity set.
+   *
+   * @param mapping  the metadata mapping
+   * @param entitySet  the entity set
+   * @return an unbound mapper
+   */
+  public static JdbcRowMapper compile(JdbcMetadataMapping mapping, EdmEntitySet entitySet) {
+    List<EdmProperty> properties = entitySet.getType().getProperties().toList();
+    int n = properties.size();
+    String[] propertyNames = new String[n];
+    EdmSimpleType<?>[] propertyTypes = new EdmSimpleType<?>[n];
+    String[] columnNames = new String[n];
+    Getter[] getters = new Getter[n];
+    for (int i = 0; i < n; i++) {
+      EdmProperty property = properties.get(i);
+      propertyNames[i] = property.getName();
+      propertyTypes[i] = (EdmSimpleType<?>) property.getType();
+      columnNames[i] = mapping.getMappedColumn(property).columnName;
+      getters[i] = getGetter(propertyTypes[i]);
+    }
+
+    List<String> keys = entitySet.getType().getKeys();
+    int[] keyIndexes = null;
+    if (!keys.isEmpty()) {
+      keyIndexes = new int[keys.size()];
+      for (int i = 0; i < keyIndexes.length; i++) {
+        keyIndexes[i] = -1;
+        for (int j = 0; j < n; j++)
+          if (propertyNames[j].equals(keys.get(i)))
+            keyIndexes[i] = j;
+        if (keyIndexes[i] < 0) {
+          keyIndexes = null;
+          break;
+        }
+      }
+    }
+    return new JdbcRowMapper(entitySet, propertyNames, propertyTypes, columnNames, getters, keyIndexes, null);
+  }
+
+  private static Getter getGetter(EdmSimpleType<?> type) {
+    if (type.equals(EdmSimpleType.INT32))
+      return Getter.INT;
+    if (type.equals(EdmSimpleType.INT64))
+      return Getter.LONG;
+    if (type.equals(EdmSimpleType.INT16))
+      return Getter.SHORT;
+    if (type.equals(EdmSimpleType.SBYTE))
+      return Getter.BYTE;
+    if (type.equals(EdmSimpleType.BOOLEAN))
+      return Getter.BOOLEAN;
+    if (type.equals(EdmSimpleType.STRING))
+      return Getter.STRING;
+    if (type.equals(EdmSimpleType.DOUBLE))
+      return Getter.DOUBLE;
+    if (type.equals(EdmSimpleType.SINGLE))
+      return Getter.FLOAT;
+    if (type.equals(EdmSimpleType.DECIMAL))
+      return Getter.DECIMAL;
+    if (type.equals(EdmSimpleType.DATETIME))
+      return Getter.TIMESTAMP;
+    if (type.equals(EdmSimpleType.TIME))
+      return Getter.TIME;
+    if (type.equals(EdmSimpleType.BINARY))
+      return Getter.BYTES;
+    return Getter.OBJECT;
+  }
+
+  /**
+   * Binds the mapper to the columns of a result set.
+   *
+   * @param results  the result set
+   * @return a mapper for the rows of the result set
+   */
+  public JdbcRowMapper bind(ResultSet results) throws SQLException {
+    int[] ordinals = new int[columnNames.length];
+    for (int i = 0; i < ordinals.length; i++)
+      ordinals[i] = results.findColumn(columnNames[i]);
+    return new JdbcRowMapper(entitySet, propertyNames, propertyTypes, columnNames, getters, keyIndexes, ordinals);
+  }
+
+  /**
+   * Maps the current row of the result set this mapper is bound to.
+   *
+   * @param results  the result set, positioned on a row
+   * @return the entity, without links
+   */
+  public OEntity map(ResultSet results) throws SQLException {
+    if (ordinals == null)
+      throw new IllegalStateException("The row mapper is not bound to a result set");
+
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>(propertyNames.length);
+    for (int i = 0; i < propertyNames.length; i++) {
+      Object value = getValue(results, i);
+      properties.add(value == null
+          ? OProperties.null_(propertyNames[i], propertyTypes[i])
+          : OProperties.simple(propertyNames[i], propertyTypes[i], value));
+    }
+
+    OEntityKey entityKey;
+    if (keyIndexes == null) {
+      entityKey = OEntityKey.infer(entitySet, properties);
+    } else {
+      Object[] keyProperties = new Object[keyIndexes.length];
+      for (int i = 0; i < keyIndexes.length; i++)
+        keyProperties[i] = properties.get(keyIndexes[i]);
+      entityKey = OEntityKey.create(keyProperties);
+    }
+    return OEntities.create(entitySet, entityKey, properties, Collections.<OLink> emptyList());
+  }
+
+  private Object getValue(ResultSet results, int i) throws SQLException {
+    int column = ordinals[i];
+    Object value;
+    switch (getters[i]) {
+    case INT:
+      value = results.getInt(column);
+      break;
+    case LONG:
+      value = results.getLong(column);
+      break;
+    case SHORT:
+      value = results.getShort(column);
+      break;
+    case BYTE:
+      value = results.getByte(column);
+      break;
+    case BOOLEAN:
+      value = results.getBoolean(column);
+      break;
+    case STRING:
+      return results.getString(column);
+    case DOUBLE:
+      value = results.getDouble(column);
+      break;
+    case FLOAT:
+      value = results.getFloat(column);
+      break;
+    case DECIMAL:
+      return results.getBigDecimal(column);
+    case TIMESTAMP:
+      return results.getTimestamp(column);
+    case TIME:
+      return results.getTime(column);
+    case BYTES:
+      return results.getBytes(column);
+    default:
+      return results.getObject(column);
+    }
+    // primitive getters return 0 or false for nulls
+    return results.wasNull() ? null : value;
+  }
+
+}
@@ -0,0 +1,264 @@
+package org.odata4j.producer.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OLinks;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmMultiplicity;
+import org.odata4j.edm.EdmNavigationProperty;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.exceptions.BadRequestException;
+import org.odata4j.exceptions.NotImplementedException;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.Expression;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcColumn;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKey;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcForeignKeyColumn;
+
+/**
+ * Loads the entities related to a list of entities through a foreign key, with one query per
+ * navigation property for all of them instead of one query per entity.
+ *
+ * <p>The query selects the related rows by the distinct foreign key (or referenced key) values of
+ * the entities; the rows are then matched to the entities in memory.</p>
+ */
+public class LoadRelatedEntities extends JdbcBaseCommand {
+
+  /** The maximum number of distinct key values selected by one query. */
+  public static final int MAX_KEYS_PER_QUERY = 500;
+
+  /**
+   * Adds the navigation links to entities, inlining the related entities of the expanded navigation properties.
+   *
+   * @param conn  the connection
+   * @param jdbcContext  the command context
+   * @param mapping  the metadata mapping
+   * @param entitySet  the entity set of the entities
+   * @param entities  the entities
+   * @param expand  the navigation properties to expand, paths separated by slashes
+   * @return the entities with links, in the same order
+   */
+  public List<OEntity> expand(Connection conn, JdbcProducerCommandContext jdbcContext, JdbcMetadataMapping mapping, EdmEntitySet entitySet,
+      List<OEntity> entities, List<EntitySimpleProperty> expand) throws SQLException {
+    EdmEntityType entityType = entitySet.getType();
+
+    // group the expanded paths by their first navigation property
+    Map<String, List<EntitySimpleProperty>> paths = new LinkedHashMap<String, List<EntitySimpleProperty>>();
+    if (expand != null) {
+      for (EntitySimpleProperty path : expand) {
+        if (path == null)
+          continue;
+        String[] segments = path.getPropertyName().split("/", 2);
+        if (entityType.findNavigationProperty(segments[0]) == null)
+          throw new BadRequestException("Navigation property " + segments[0] + " not found in " + entityType.getFullyQualifiedTypeName());
+        if (!paths.containsKey(segments[0]))
+          paths.put(segments[0], new ArrayList<EntitySimpleProperty>());
+        if (segments.length > 1)
+          paths.get(segments[0]).add(Expression.simpleProperty(segments[1]));
+      }
+    }
+
+    Map<String, List<List<OEntity>>> expanded = new HashMap<String, List<List<OEntity>>>();
+    if (!entities.isEmpty()) {
+      for (Map.Entry<String, List<EntitySimpleProperty>> path : paths.entrySet()) {
+        EdmNavigationProperty navigationProperty = entityType.findNavigationProperty(path.getKey());
+        List<List<OEntity>> related = load(conn, jdbcContext, mapping, entitySet, entities, navigationProperty, null);
+
+        // expand the next level for the related entities of all entities at once
+        List<OEntity> allRelated = new ArrayList<OEntity>();
+        for (List<OEntity> relatedEntities : related)
+          allRelated.addAll(relatedEntities);
+        EdmEntitySet targetEntitySet = mapping.getMetadata().getEdmEntitySet(navigationProperty.getToRole().getType());
+        allRelated = expand(conn, jdbcContext, mapping, targetEntitySet, allRelated, path.getValue());
+        int i = 0;
+        for (List<OEntity> relatedEntities : related) {
+          for (int j = 0; j < relatedEntities.size(); j++)
+            relatedEntities.set(j, allRelated.get(i++));
+        }
+        expanded.put(path.getKey(), related);
+      }
+    }
+
+    List<OEntity> rt = new ArrayList<OEntity>(entities.size());
+    for (int i = 0; i < entities.size(); i++) {
+      OEntity entity = entities.get(i);
+      List<OLink> links = new ArrayList<OLink>();
+      for (EdmNavigationProperty navigationProperty : entityType.getNavigationProperties()) {
+        boolean many = navigationProperty.getToRole().getMultiplicity() == EdmMultiplicity.MANY;
+        List<List<OEntity>> related = expanded.get(navigationProperty.getName());
+        // relation and href will be filled in later for atom or json
+        if (related == null)
+          links.add(deferredLink(navigationProperty));
+        else if (many)
+          links.add(OLinks.relatedEntitiesInline(null, navigationProperty.getName(), null, related.get(i)));
+        else
+          links.add(OLinks.relatedEntityInline(null, navigationProperty.getName(), null, related.get(i).isEmpty() ? null : related.get(i).get(0)));
+      }
+      rt.add(OEntities.create(entitySet, entity.getEntityKey(), entity.getProperties(), links));
+    }
+    return rt;
+  }
+
+  /**
+   * Gets the deferred navigation links of the entities of an entity set, the links of entities
+   * without expanded navigation properties.
+   *
+   * @param entitySet  the entity set
+   * @return the links, one for each navigation property
+   */
+  public List<OLink> deferredLinks(EdmEntitySet entitySet) {
+    List<OLink> links = new ArrayList<OLink>();
+    for (EdmNavigationProperty navigationProperty : entitySet.getType().getNavigationProperties())
+      links.add(deferredLink(navigationProperty));
+    return Collections.unmodifiableList(links);
+  }
+
+  /**
+   * Loads the entities related to entities through a navigation property.
+   *
+   * @param conn  the connection
+   * @param jdbcContext  the command context
+   * @param mapping  the metadata mapping
+   * @param entitySet  the entity set of the entities
+   * @param entities  the entities
+   * @param navigationProperty  the navigation property
+   * @param filter  an additional filter for the related entities, may be null
+   * @return the related entities of each entity, in the same order; without links
+   */
+  public List<List<OEntity>> load(Connection conn, JdbcProducerCommandContext jdbcContext, JdbcMetadataMapping mapping, EdmEntitySet entitySet,
+      List<OEntity> entities, EdmNavigationProperty navigationProperty, BoolCommonExpression filter) throws SQLException {
+    JdbcForeignKey foreignKey = mapping.getMappedForeignKey(navigationProperty);
+    if (foreignKey == null)
+      throw new NotImplementedException("Navigation property " + navigationProperty.getName() + " does not follow a foreign key");
+    EdmEntitySet targetEntitySet = mapping.getMetadata().getEdmEntitySet(navigationProperty.getToRole().getType());
+
+    // the navigation joins the foreign key columns of one side to the referenced columns of the other side
+    boolean fromForeignKey = mapping.isNavigationFromForeignKey(navigationProperty);
+    List<EdmProperty> sourceProperties = new ArrayList<EdmProperty>();
+    List<EdmProperty> targetProperties = new ArrayList<EdmProperty>();
+    for (JdbcForeignKeyColumn column : foreignKey.columns) {
+      sourceProperties.add(findProperty(mapping, entitySet.getType(), fromForeignKey ? column.columnName : column.primaryKeyColumnName));
+      targetProperties.add(findProperty(mapping, targetEntitySet.getType(), fromForeignKey ? column.primaryKeyColumnName : column.columnName));
+    }
+
+    List<List<Object>> entityKeys = new ArrayList<List<Object>>(entities.size());
+    Map<List<Object>, List<Object>> distinctValues = new LinkedHashMap<List<Object>, List<Object>>();
+    for (OEntity entity : entities) {
+      List<Object> values = getValues(entity, sourceProperties);
+      List<Object> key = values == null ? null : toKey(values);
+      entityKeys.add(key);
+      if (key != null && !distinctValues.containsKey(key))
+        distinctValues.put(key, values);
+    }
+
+    Map<List<Object>, List<OEntity>> targets = new HashMap<List<Object>, List<OEntity>>();
+    List<List<Object>> values = new ArrayList<List<Object>>(distinctValues.values());
+    GenerateSqlQuery queryGen = jdbcContext.get(GenerateSqlQuery.class);
+    for (int start = 0; start < values.size(); start += MAX_KEYS_PER_QUERY) {
+      BoolCommonExpression joinFilter = joinFilter(targetProperties, values, start, Math.min(start + MAX_KEYS_PER_QUERY, values.size()));
+      SqlStatement sqlStatement = queryGen.generate(mapping, targetEntitySet, filter == null ? joinFilter : Expression.and(joinFilter, filter));
+      PreparedStatement stmt = sqlStatement.asPreparedStatement(conn);
+      try {
+        ResultSet results = stmt.executeQuery();
+        JdbcRowMapper rowMapper = mapping.getRowMapper(targetEntitySet).bind(results);
+        while (results.next()) {
+          OEntity target = rowMapper.map(results);
+          List<Object> key = toKey(getValues(target, targetProperties));
+          if (!targets.containsKey(key))
+            targets.put(key, new ArrayList<OEntity>());
+          targets.get(key).add(target);
+        }
+      } finally {
+        stmt.close();
+      }
+    }
+
+    List<List<OEntity>> rt = new ArrayList<List<OEntity>>(entities.size());
+    for (List<Object> key : entityKeys) {
+      List<OEntity> related = key == null ? null : targets.get(key);
+      rt.add(related == null ? new ArrayList<OEntity>() : new ArrayList<OEntity>(related));
+    }
+    return rt;
+  }
+
+  private static OLink deferredLink(EdmNavigationProperty navigationProperty) {
+    // relation and href will be filled in later for atom or json
+    return navigationProperty.getToRole().getMultiplicity() == EdmMultiplicity.MANY
+        ? OLinks.relatedEntities(null, navigationProperty.getName(), null)
+        : OLinks.relatedEntity(null, navigationProperty.getName(), null);
+  }
+
+  private static EdmProperty findProperty(JdbcMetadataMapping mapping, EdmEntityType entityType, String columnName) {
+    for (EdmProperty property : entityType.getProperties()) {
+      JdbcColumn column = mapping.getMappedColumn(property);
+      if (column != null && column.columnName.equals(columnName))
+        return property;
+    }
+    throw new IllegalStateException("Column " + columnName + " not mapped in " + entityType.getFullyQualifiedTypeName());
+  }
+
+  /**
+   * Gets the values of the join properties of an entity, null if any of them is null.
+   */
+  private static List<Object> getValues(OEntity entity, List<EdmProperty> properties) {
+    List<Object> rt = new ArrayList<Object>(properties.size());
+    for (EdmProperty property : properties) {
+      Object value = entity.getProperty(property.getName()).getValue();
+      if (value == null)
+        return null;
+      rt.add(value);
+    }
+    return rt;
+  }
+
+  /**
+   * Normalizes join values for matching, since a foreign key column can have another integral type
+   * than the column it references.
+   */
+  private static List<Object> toKey(List<Object> values) {
+    List<Object> rt = new ArrayList<Object>(values.size());
+    for (Object value : values) {
+      if (value instanceof BigDecimal)
+        value = ((BigDecimal) value).stripTrailingZeros();
+      else if (value instanceof Number && !(value instanceof Double || value instanceof Float))
+        value = ((Number) value).longValue();
+      rt.add(value);
+    }
+    return Collections.unmodifiableList(rt);
+  }
+
+  /**
+   * Builds a balanced tree of disjunctions, one for each combination of join values.
+   */
+  private static BoolCommonExpression joinFilter(List<EdmProperty> properties, List<List<Object>> values, int start, int end) {
+    if (end - start > 1) {
+      int middle = (start + end) >>> 1;
+      return Expression.or(joinFilter(properties, values, start, middle), joinFilter(properties, values, middle, end));
+    }
+    BoolCommonExpression rt = null;
+    for (int i = 0; i < properties.size(); i++) {
+      EdmProperty property = properties.get(i);
+      BoolCommonExpression eq = Expression.eq(Expression.simpleProperty(property.getName()),
+          Expression.literal((EdmSimpleType<?>) property.getType(), values.get(start).get(i)));
+      rt = rt == null ? eq : Expression.and(rt, eq);
+    }
+    return rt;
+  }
+
+}
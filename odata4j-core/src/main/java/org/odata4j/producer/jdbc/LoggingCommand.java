@@ -17,6 +17,7 @@ import org.odata4j.producer.command.DeleteEntityCommandContext;
 import org.odata4j.producer.command.GetEntitiesCommandContext;
 import org.odata4j.producer.command.GetEntityCommandContext;
 import org.odata4j.producer.command.GetMetadataCommandContext;
+import org.odata4j.producer.command.GetNavPropertyCommandContext;
 import org.odata4j.producer.command.ProducerCommandContext;
 
 public class LoggingCommand implements Command<ProducerCommandContext<?>> {
@@ -39,6 +40,13 @@ public class LoggingCommand implements Command<ProducerCommandContext<?>> {
           "entitySetName", c.getEntitySetName(),
           "entityKey", c.getEntityKey(),
           "queryInfo", c.getQueryInfo());
+    } else if (context instanceof GetNavPropertyCommandContext) {
+      GetNavPropertyCommandContext c = (GetNavPropertyCommandContext) context;
+      log("getNavProperty",
+          "entitySetName", c.getEntitySetName(),
+          "entityKey", c.getEntityKey(),
+          "navProp", c.getNavProp(),
+          "queryInfo", c.getQueryInfo());
     } else if (context instanceof CreateEntityCommandContext) {
       CreateEntityCommandContext c = (CreateEntityCommandContext) context;
       log("createEntity",
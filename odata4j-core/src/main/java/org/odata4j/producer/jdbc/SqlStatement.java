@@ -27,6 +27,14 @@ public class SqlStatement {
 
   public PreparedStatement asPreparedStatement(Connection conn) throws SQLException {
     PreparedStatement stmt = conn.prepareStatement(sql);
+    bind(stmt);
+    return stmt;
+  }
+
+  /**
+   * Sets the parameters of a statement prepared for {@link #sql}, e.g. before adding it to a batch.
+   */
+  public void bind(PreparedStatement stmt) throws SQLException {
     for (int i = 0; i < params.size(); i++) {
       SqlParameter p = params.get(i);
       if (p.sqlType == null) {
@@ -35,7 +43,6 @@ public class SqlStatement {
         stmt.setObject(i + 1, p.value, p.sqlType);
       }
     }
-    return stmt;
   }
 
 }
\ No newline at end of file
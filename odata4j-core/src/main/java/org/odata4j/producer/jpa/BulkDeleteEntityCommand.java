@@ -0,0 +1,102 @@
+package org.odata4j.producer.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.CascadeType;
+import javax.persistence.EntityManager;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.Query;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.odata4j.exceptions.NotFoundException;
+
+/**
+ * Deletes the entity of the context by its key with a JPQL DELETE statement, without loading it
+ * into the persistence context first.
+ *
+ * <p>Bulk deletes bypass the cascades of the persistence context, so entities with relationships
+ * that cascade removals, remove orphans, or are stored in join or collection tables are still
+ * loaded and removed with {@link EntityManager#remove(Object)}.</p>
+ */
+public class BulkDeleteEntityCommand implements Command {
+
+  private final Map<String, Boolean> bulkDeletable = Collections.synchronizedMap(new HashMap<String, Boolean>());
+
+  @Override
+  public boolean execute(JPAContext context) {
+    EntityType<?> jpaEntityType = context.getEntity().getJPAEntityType();
+    Object typeSafeEntityKey = context.getEntity().getTypeSafeEntityKey();
+
+    if (!isBulkDeletable(jpaEntityType)) {
+      Object jpaEntity = context.getEntityManager().find(jpaEntityType.getJavaType(), typeSafeEntityKey);
+      if (jpaEntity == null)
+        throw new NotFoundException(jpaEntityType.getJavaType() + " not found with key " + typeSafeEntityKey);
+      context.getEntityManager().remove(jpaEntity);
+      return false;
+    }
+
+    List<Object> parameters = new ArrayList<Object>();
+    String where = GenerateJPQLCommand.whereKeyEquals(jpaEntityType,
+        context.getEntity().getKeyAttributeName(), typeSafeEntityKey, "t0", parameters);
+    Query query = context.getEntityManager().createQuery(
+        String.format("DELETE FROM %s t0 WHERE %s", jpaEntityType.getName(), where));
+    int count = JPQLGenerator.setParameters(query, parameters).executeUpdate();
+    if (count == 0)
+      throw new NotFoundException(jpaEntityType.getJavaType() + " not found with key " + typeSafeEntityKey);
+
+    return false;
+  }
+
+  private boolean isBulkDeletable(EntityType<?> jpaEntityType) {
+    Boolean rt = bulkDeletable.get(jpaEntityType.getName());
+    if (rt == null) {
+      rt = true;
+      for (Attribute<?, ?> att : jpaEntityType.getAttributes()) {
+        if (!isBulkDeletable(att)) {
+          rt = false;
+          break;
+        }
+      }
+      bulkDeletable.put(jpaEntityType.getName(), rt);
+    }
+    return rt;
+  }
+
+  private static boolean isBulkDeletable(Attribute<?, ?> att) {
+    switch (att.getPersistentAttributeType()) {
+    case ELEMENT_COLLECTION:
+    case MANY_TO_MANY:
+      return false;
+    case ONE_TO_MANY:
+      OneToMany oneToMany = JPAMember.create(att, null).getAnnotation(OneToMany.class);
+      // without mappedBy, the relationship is stored in a join table
+      return oneToMany != null
+          && oneToMany.mappedBy() != null && !oneToMany.mappedBy().isEmpty()
+          && !oneToMany.orphanRemoval() && !cascadesRemove(oneToMany.cascade());
+    case ONE_TO_ONE:
+      OneToOne oneToOne = JPAMember.create(att, null).getAnnotation(OneToOne.class);
+      return oneToOne != null && !oneToOne.orphanRemoval() && !cascadesRemove(oneToOne.cascade());
+    case MANY_TO_ONE:
+      ManyToOne manyToOne = JPAMember.create(att, null).getAnnotation(ManyToOne.class);
+      return manyToOne != null && !cascadesRemove(manyToOne.cascade());
+    default:
+      return true;
+    }
+  }
+
+  private static boolean cascadesRemove(CascadeType[] cascade) {
+    if (cascade != null)
+      for (CascadeType type : cascade)
+        if (type == CascadeType.ALL || type == CascadeType.REMOVE)
+          return true;
+    return false;
+  }
+
+}
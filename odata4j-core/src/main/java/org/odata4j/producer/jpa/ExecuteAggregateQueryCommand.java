@@ -0,0 +1,28 @@
+package org.odata4j.producer.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Query;
+
+import org.odata4j.producer.AggregateQuery;
+
+public class ExecuteAggregateQueryCommand implements Command {
+
+  @Override
+  public boolean execute(JPAContext context) {
+    AggregateQuery aggregateQuery = context.getAggregateQuery();
+
+    // jpql -> jpa query
+    Query query = context.createJPQLQuery();
+
+    // queries selecting a single expression return its values instead of arrays
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for (Object result : query.getResultList())
+      rows.add(result instanceof Object[] ? (Object[]) result : new Object[] { result });
+
+    context.setResponse(aggregateQuery.createResponse(context.getEntity().getEdmEntitySet(), rows));
+    return false;
+  }
+
+}
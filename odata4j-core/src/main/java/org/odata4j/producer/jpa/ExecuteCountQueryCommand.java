@@ -8,11 +8,8 @@ public class ExecuteCountQueryCommand implements Command {
 
   @Override
   public boolean execute(JPAContext context) {
-    // get the jpql
-    String jpql = context.getJPQLQuery();
-
     // jpql -> jpa query
-    Query tq = context.getEntityManager().createQuery(jpql);
+    Query tq = context.createJPQLQuery();
 
     // execute jpa query
     Long count = (Long) tq.getSingleResult();
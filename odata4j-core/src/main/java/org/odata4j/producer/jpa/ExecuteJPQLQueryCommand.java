@@ -28,11 +28,8 @@ public class ExecuteJPQLQueryCommand implements Command {
 
   private JPAResult getEntitiesResponse(final JPAContext context) {
 
-    // get the jpql
-    String jpql = context.getJPQLQuery();
-
     // jpql -> jpa query
-    Query tq = context.getEntityManager().createQuery(jpql);
+    Query tq = context.createJPQLQuery();
 
     Integer inlineCount = context.getQueryInfo() != null
         && context.getQueryInfo().inlineCount == InlineCount.ALLPAGES
@@ -0,0 +1,62 @@
+package org.odata4j.producer.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.odata4j.expression.Expression;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregateQuery.Aggregate;
+
+/**
+ * Generates a GROUP BY query selecting the group-by properties followed by the aggregates,
+ * ordered by the group-by properties.
+ */
+public class GenerateAggregateJPQLCommand implements Command {
+
+  @Override
+  public boolean execute(JPAContext context) {
+    AggregateQuery aggregateQuery = context.getAggregateQuery();
+    // validate the query before it is sent to the database
+    aggregateQuery.getResultType(context.getEntity().getEdmEntitySet());
+
+    String alias = "t0";
+    List<Object> parameters = new ArrayList<Object>();
+    JPQLGenerator jpqlGen = new JPQLGenerator(context.getEntity().getKeyAttributeName(), alias, parameters,
+        context.getEntity().getJPAEntityType());
+
+    List<String> groupBy = new ArrayList<String>();
+    for (String propertyName : aggregateQuery.groupBy)
+      groupBy.add(jpqlGen.toJpql(Expression.simpleProperty(propertyName)));
+
+    List<String> select = new ArrayList<String>(groupBy);
+    for (Aggregate aggregate : aggregateQuery.aggregates) {
+      String path = aggregate.propertyName == null
+          ? alias
+          : jpqlGen.toJpql(Expression.simpleProperty(aggregate.propertyName));
+      select.add(aggregate.function.name() + "(" + path + ")");
+    }
+
+    String jpql = String.format("SELECT %s FROM %s %s", join(select),
+        context.getEntity().getJPAEntityType().getName(), alias);
+
+    if (context.getQueryInfo() != null && context.getQueryInfo().filter != null)
+      jpql = String.format("%s WHERE %s", jpql, jpqlGen.toJpql(context.getQueryInfo().filter));
+
+    if (!groupBy.isEmpty())
+      jpql = String.format("%s GROUP BY %s ORDER BY %2$s", jpql, join(groupBy));
+
+    context.setJPQLQuery(jpql, parameters);
+    return false;
+  }
+
+  private static String join(List<String> items) {
+    StringBuilder sb = new StringBuilder();
+    for (String item : items) {
+      if (sb.length() > 0)
+        sb.append(", ");
+      sb.append(item);
+    }
+    return sb.toString();
+  }
+
+}
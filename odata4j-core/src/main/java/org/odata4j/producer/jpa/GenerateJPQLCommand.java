@@ -1,7 +1,10 @@
 package org.odata4j.producer.jpa;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityNotFoundException;
 import javax.persistence.metamodel.Attribute;
@@ -21,23 +24,39 @@ import org.odata4j.expression.OrderByExpression.Direction;
 public class GenerateJPQLCommand implements Command {
 
   private boolean isCount;
+  private boolean tupleProjection;
+  // projections by entity set name, null for entity sets that cannot be projected
+  private final Map<String, JPAProjection> projections = Collections.synchronizedMap(new HashMap<String, JPAProjection>());
 
   public GenerateJPQLCommand() {
     this(false);
   }
 
   public GenerateJPQLCommand(boolean isCount) {
+    this(isCount, false);
+  }
+
+  /**
+   * Creates the command.
+   *
+   * @param isCount  whether the query counts the entities
+   * @param tupleProjection  whether entities without $expand are queried as tuples of their properties,
+   *   see {@link JPAProjection}
+   */
+  public GenerateJPQLCommand(boolean isCount, boolean tupleProjection) {
     this.isCount = isCount;
+    this.tupleProjection = tupleProjection;
   }
 
   @Override
   public boolean execute(JPAContext context) {
-    context.setJPQLQuery(generateJPQL(context));
+    List<Object> parameters = new ArrayList<Object>();
+    context.setJPQLQuery(generateJPQL(context, parameters), parameters);
 
     return false;
   }
 
-  private String generateJPQL(JPAContext context) {
+  private String generateJPQL(JPAContext context, List<Object> parameters) {
     String alias = "t0";
     String from = context.getEntity().getJPAEntityType().getName()
         + " " + alias;
@@ -46,7 +65,7 @@ public class GenerateJPQLCommand implements Command {
     if (context.getNavProperty() != null) {
       where = whereKeyEquals(context.getEntity().getJPAEntityType(),
           context.getEntity().getKeyAttributeName(),
-          context.getEntity().getTypeSafeEntityKey(), alias);
+          context.getEntity().getTypeSafeEntityKey(), alias, parameters);
 
       String prop = null;
       int propCount = 0;
@@ -86,11 +105,12 @@ public class GenerateJPQLCommand implements Command {
                 + propSplit[1]);
             context.getEntity().setOEntityKey(entityKey);
 
+            parameters.clear();
             where = whereKeyEquals(context.getEntity()
                 .getJPAEntityType(),
                 context.getEntity().getKeyAttributeName(),
                 context.getEntity().getTypeSafeEntityKey(),
-                alias);
+                alias, parameters);
           }
         } else if (context.getEdmPropertyBase() instanceof EdmProperty) {
           EdmProperty propInfo = (EdmProperty) context
@@ -109,12 +129,17 @@ public class GenerateJPQLCommand implements Command {
       }
     }
 
-    String select = isCount ? "COUNT(" + alias + ")" : alias;
+    JPAProjection projection = getProjection(context);
+    context.setProjection(projection);
+
+    String select = isCount
+        ? "COUNT(" + alias + ")"
+        : projection != null ? projection.getSelectClause(alias) : alias;
 
     String jpql = String.format("SELECT %s FROM %s", select, from);
 
     JPQLGenerator jpqlGen = new JPQLGenerator(context.getEntity()
-        .getKeyAttributeName(), alias);
+        .getKeyAttributeName(), alias, parameters, context.getEntity().getJPAEntityType());
 
     if (context.getQueryInfo() != null
         && context.getQueryInfo().filter != null) {
@@ -155,6 +180,23 @@ public class GenerateJPQLCommand implements Command {
     return jpql;
   }
 
+  private JPAProjection getProjection(JPAContext context) {
+    if (isCount || !tupleProjection || context.getEdmPropertyBase() instanceof EdmProperty)
+      return null;
+    if (context.getQueryInfo() != null && context.getQueryInfo().expand != null && !context.getQueryInfo().expand.isEmpty())
+      return null;
+
+    String entitySetName = context.getEntity().getEntitySetName();
+    JPAProjection projection;
+    if (projections.containsKey(entitySetName)) {
+      projection = projections.get(entitySetName);
+    } else {
+      projection = JPAProjection.create(context.getEntity().getEdmEntitySet(), context.getEntity().getJPAEntityType());
+      projections.put(entitySetName, projection);
+    }
+    return projection == null || context.getQueryInfo() == null ? projection : projection.select(context.getQueryInfo().select);
+  }
+
   private String addWhereExpression(String expression,
       String nextExpression, String condition) {
 
@@ -167,8 +209,8 @@ public class GenerateJPQLCommand implements Command {
             nextExpression);
   }
 
-  private String whereKeyEquals(EntityType<?> jpsEntityType,
-      String keyAttributeName, Object typeSafeEntityKey, String alias) {
+  static String whereKeyEquals(EntityType<?> jpsEntityType,
+      String keyAttributeName, Object typeSafeEntityKey, String alias, List<Object> parameters) {
     SingularAttribute<?, ?> idAtt = jpsEntityType
         .getSingularAttribute(keyAttributeName);
     if (idAtt.getPersistentAttributeType() == PersistentAttributeType.EMBEDDED) {
@@ -177,25 +219,22 @@ public class GenerateJPQLCommand implements Command {
       for (Attribute<?, ?> subAtt : et.getAttributes()) {
         Object subAttValue = JPAMember
             .create(subAtt, typeSafeEntityKey).get();
-        String jpqlLiteral = JPQLGenerator
-            .toJpqlLiteral(subAttValue);
         String predicate = String.format(
             "(%s.%s.%s = %s)",
             alias,
             keyAttributeName,
             subAtt.getName(),
-            jpqlLiteral);
+            JPQLGenerator.addParameter(parameters, subAttValue));
         predicates.add(predicate);
       }
 
       return "(" + Enumerable.create(predicates).join(" AND ") + ")";
     }
 
-    String jpqlLiteral = JPQLGenerator.toJpqlLiteral(typeSafeEntityKey);
     return String.format(
         "(%s.%s = %s)",
         alias,
         keyAttributeName,
-        jpqlLiteral);
+        JPQLGenerator.addParameter(parameters, typeSafeEntityKey));
   }
 }
\ No newline at end of file
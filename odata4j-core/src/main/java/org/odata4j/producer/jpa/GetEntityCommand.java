@@ -24,8 +24,9 @@ public class GetEntityCommand implements Command {
         .getJPAEntityType();
     Object typeSafeEntityKey = accessor.getEntity(context)
         .getTypeSafeEntityKey();
-    Object jpaEntity = context.getEntityManager().find(
-        jpaEntityType.getJavaType(), typeSafeEntityKey);
+    Object jpaEntity = context.getFindHints() == null
+        ? context.getEntityManager().find(jpaEntityType.getJavaType(), typeSafeEntityKey)
+        : context.getEntityManager().find(jpaEntityType.getJavaType(), typeSafeEntityKey, context.getFindHints());
 
     if (jpaEntity == null) {
       throw new NotFoundException(jpaEntityType
@@ -0,0 +1,223 @@
+package org.odata4j.producer.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.EntityTransaction;
+import javax.persistence.FlushModeType;
+
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.edm.EdmDataServices;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.ReturnPreference;
+
+/**
+ * Applies change sets with one EntityManager in one transaction.
+ *
+ * <p>The persistence context is flushed and cleared after every {@code batchSize} operations, so
+ * that its size stays bounded and the provider can send the inserts of a flush as JDBC batches.
+ * Deletes load and remove the entity, so that cascades and callbacks apply; with bulk deletes they
+ * run as JPQL DELETE statements instead, see {@link BulkDeleteEntityCommand}, and pending inserts
+ * are flushed before, so that operations are applied in order.</p>
+ */
+public class JPAChangeSetExtension implements ChangeSetExtension {
+
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  /** EclipseLink, PersistenceUnitProperties.BATCH_WRITING */
+  public static final String ECLIPSELINK_BATCH_WRITING = "eclipselink.jdbc.batch-writing";
+  /** EclipseLink, PersistenceUnitProperties.BATCH_WRITING_SIZE */
+  public static final String ECLIPSELINK_BATCH_WRITING_SIZE = "eclipselink.jdbc.batch-writing.size";
+  public static final String HIBERNATE_BATCH_SIZE = "hibernate.jdbc.batch_size";
+
+  private final EntityManagerFactory emf;
+  private final EdmDataServices metadata;
+  private final int batchSize;
+  private final boolean bulkDeletes;
+  private final Map<String, Object> properties;
+
+  private final Command createCommand;
+  private final Command deleteCommand;
+  private final Command responseCommand = new SetResponseCommand();
+  private final Command keyResponseCommand = new SetEntityKeyResponseCommand();
+
+  public JPAChangeSetExtension(EntityManagerFactory emf, EdmDataServices metadata) {
+    this(emf, metadata, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates the extension.
+   *
+   * @param emf  the factory of the EntityManagers
+   * @param metadata  the metadata of the producer
+   * @param batchSize  the number of operations between flushes; also passed as JDBC batch size to
+   *   the EntityManagers, see {@link #getBatchProperties(int)}
+   */
+  public JPAChangeSetExtension(EntityManagerFactory emf, EdmDataServices metadata, int batchSize) {
+    this(emf, metadata, batchSize, Collections.<String, JPAEntityBinder> emptyMap());
+  }
+
+  /**
+   * Creates the extension.
+   *
+   * @param emf  the factory of the EntityManagers
+   * @param metadata  the metadata of the producer
+   * @param batchSize  the number of operations between flushes
+   * @param entityBinders  the binders of the created entities by entity set name, see
+   *   {@link JPAEntityBinder#compile}
+   */
+  public JPAChangeSetExtension(EntityManagerFactory emf, EdmDataServices metadata, int batchSize,
+      Map<String, JPAEntityBinder> entityBinders) {
+    this(emf, metadata, batchSize, entityBinders, false);
+  }
+
+  /**
+   * Creates the extension.
+   *
+   * @param emf  the factory of the EntityManagers
+   * @param metadata  the metadata of the producer
+   * @param batchSize  the number of operations between flushes
+   * @param entityBinders  the binders of the created entities by entity set name, see
+   *   {@link JPAEntityBinder#compile}
+   * @param bulkDeletes  whether deletes run as JPQL DELETE statements, see {@link BulkDeleteEntityCommand}
+   */
+  public JPAChangeSetExtension(EntityManagerFactory emf, EdmDataServices metadata, int batchSize,
+      Map<String, JPAEntityBinder> entityBinders, boolean bulkDeletes) {
+    this.emf = emf;
+    this.metadata = metadata;
+    this.batchSize = batchSize;
+    this.bulkDeletes = bulkDeletes;
+    this.properties = getBatchProperties(batchSize);
+    this.createCommand = new Chain(Arrays.<Command> asList(
+        new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.ENTITY, true, entityBinders),
+        new PersistJPAEntityCommand()));
+    this.deleteCommand = bulkDeletes
+        ? new BulkDeleteEntityCommand()
+        : new Chain(Arrays.<Command> asList(new GetEntityCommand(), new DeleteEntityCommand()));
+  }
+
+  /**
+   * Gets the properties enabling JDBC batch writing with EclipseLink and Hibernate.
+   *
+   * <p>They are passed to the EntityManagers of the change sets; providers that only read them per
+   * persistence unit need them in persistence.xml or the properties of the factory as well.</p>
+   *
+   * @param batchSize  the maximum number of statements per JDBC batch
+   * @return the properties
+   */
+  public static Map<String, Object> getBatchProperties(int batchSize) {
+    Map<String, Object> properties = new HashMap<String, Object>();
+    properties.put(ECLIPSELINK_BATCH_WRITING, "JDBC");
+    properties.put(ECLIPSELINK_BATCH_WRITING_SIZE, String.valueOf(batchSize));
+    properties.put(HIBERNATE_BATCH_SIZE, String.valueOf(batchSize));
+    return Collections.unmodifiableMap(properties);
+  }
+
+  @Override
+  public ChangeSet newChangeSet(ODataContext context) {
+    return new JPAChangeSet();
+  }
+
+  private class JPAChangeSet implements ChangeSet {
+
+    private final List<JPAContext> operations = new ArrayList<JPAContext>();
+    private final BitSet noContent = new BitSet();
+
+    @Override
+    public void createEntity(ODataContext context, String entitySetName, OEntity entity) {
+      noContent.set(operations.size(), ReturnPreference.isNoContent(context));
+      operations.add(new JPAContext(metadata, entitySetName, null, entity));
+    }
+
+    @Override
+    public void deleteEntity(String entitySetName, OEntityKey entityKey) {
+      operations.add(new JPAContext(metadata, entitySetName, entityKey, null));
+    }
+
+    @Override
+    public List<EntityResponse> commit() {
+      EntityManager em = emf.createEntityManager(properties);
+      try {
+        // flushes are explicit, queries run by the provider need not flush first
+        em.setFlushMode(FlushModeType.COMMIT);
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+        try {
+          List<EntityResponse> rt = execute(em);
+          tx.commit();
+          return rt;
+        } finally {
+          if (tx.isActive())
+            tx.rollback();
+        }
+      } catch (EntityNotFoundException e) {
+        throw new NotFoundException(e);
+      } finally {
+        em.close();
+      }
+    }
+
+    private List<EntityResponse> execute(EntityManager em) {
+      EntityResponse[] rt = new EntityResponse[operations.size()];
+      List<Integer> created = new ArrayList<Integer>();
+      int unflushed = 0;
+      for (int i = 0; i < operations.size(); i++) {
+        JPAContext context = operations.get(i);
+        context.setEntityManager(em);
+        if (context.getEntity().getOEntity() != null) {
+          createCommand.execute(context);
+          created.add(i);
+        } else {
+          // bulk deletes run against the database, past the persistence context
+          if (bulkDeletes && !created.isEmpty())
+            unflushed = flush(em, created, rt);
+          deleteCommand.execute(context);
+        }
+        if (++unflushed >= batchSize)
+          unflushed = flush(em, created, rt);
+      }
+      flush(em, created, rt);
+      return Arrays.asList(rt);
+    }
+
+    /**
+     * Flushes the pending operations, sets the responses of the entities created since the last
+     * flush and clears the persistence context.
+     */
+    private int flush(EntityManager em, List<Integer> created, EntityResponse[] rt) {
+      em.flush();
+      for (int i : created) {
+        JPAContext context = operations.get(i);
+        Object jpaEntity = context.getEntity().getJpaEntity();
+        if (noContent.get(i)) {
+          keyResponseCommand.execute(context);
+        } else {
+          // as ReReadJPAEntityCommand, foreign keys set through links are read back
+          if (context.getEntity().getOEntity().getLinks() != null && !context.getEntity().getOEntity().getLinks().isEmpty())
+            em.refresh(jpaEntity);
+          context.setResult(JPAResults.entity(jpaEntity));
+          responseCommand.execute(context);
+        }
+        rt[i] = (EntityResponse) context.getResponse();
+        context.getEntity().setJpaEntity(null);
+        context.setEntityManager(null);
+      }
+      created.clear();
+      em.clear();
+      return 0;
+    }
+  }
+
+}
@@ -1,7 +1,11 @@
 package org.odata4j.producer.jpa;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
+import javax.persistence.Query;
 import javax.persistence.metamodel.EntityType;
 
 import org.odata4j.core.OEntity;
@@ -9,6 +13,7 @@ import org.odata4j.core.OEntityKey;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmPropertyBase;
+import org.odata4j.producer.AggregateQuery;
 import org.odata4j.producer.BaseResponse;
 import org.odata4j.producer.QueryInfo;
 
@@ -17,6 +22,8 @@ public class JPAContext implements Context {
   private EdmDataServices metadata;
   private EntityManager em;
   private EntityTransaction tx;
+  private Map<String, Object> queryHints;
+  private Map<String, Object> findHints;
 
   private ContextEntity entity;
   private ContextEntity otherEntity;
@@ -24,9 +31,12 @@ public class JPAContext implements Context {
   private String navProperty;
 
   private QueryInfo queryInfo;
+  private AggregateQuery aggregateQuery;
 
   private String jpqlQuery;
+  private List<Object> jpqlParameters;
   private EdmPropertyBase edmPropertyBase;
+  private JPAProjection projection;
 
   private JPAResult result;
 
@@ -85,6 +95,29 @@ public class JPAContext implements Context {
     this.tx = tx;
   }
 
+  /**
+   * Gets the hints applied to the queries of the command chain.
+   *
+   * @return the hints, null for none
+   */
+  public Map<String, Object> getQueryHints() {
+    return queryHints;
+  }
+
+  /**
+   * Gets the hints applied to the lookups of entities by key of the command chain.
+   *
+   * @return the hints, null for none
+   */
+  public Map<String, Object> getFindHints() {
+    return findHints;
+  }
+
+  public void setQueryHints(Map<String, Object> queryHints, Map<String, Object> findHints) {
+    this.queryHints = queryHints;
+    this.findHints = findHints;
+  }
+
   public ContextEntity getEntity() {
     return entity;
   }
@@ -101,12 +134,46 @@ public class JPAContext implements Context {
     return queryInfo;
   }
 
+  public AggregateQuery getAggregateQuery() {
+    return aggregateQuery;
+  }
+
+  public void setAggregateQuery(AggregateQuery aggregateQuery) {
+    this.aggregateQuery = aggregateQuery;
+  }
+
   public String getJPQLQuery() {
     return jpqlQuery;
   }
 
   public void setJPQLQuery(String jpqlQuery) {
+    setJPQLQuery(jpqlQuery, null);
+  }
+
+  public void setJPQLQuery(String jpqlQuery, List<Object> jpqlParameters) {
     this.jpqlQuery = jpqlQuery;
+    this.jpqlParameters = jpqlParameters;
+  }
+
+  /**
+   * Gets the values of the positional parameters of the JPQL query.
+   *
+   * @return the values, null for a query without parameters
+   */
+  public List<Object> getJPQLParameters() {
+    return jpqlParameters;
+  }
+
+  /**
+   * Creates the JPQL query, with its parameters bound and the query hints applied.
+   */
+  public Query createJPQLQuery() {
+    Query query = JPQLGenerator.setParameters(em.createQuery(jpqlQuery), jpqlParameters);
+    if (queryHints != null) {
+      for (Map.Entry<String, Object> hint : queryHints.entrySet())
+        query.setHint(hint.getKey(), hint.getValue());
+    }
+    return query;
   }
 
   public EdmPropertyBase getEdmPropertyBase() {
@@ -117,6 +184,19 @@ public class JPAContext implements Context {
     this.edmPropertyBase = edmPropertyBase;
   }
 
+  /**
+   * Gets the projection the query selects the entities with.
+   *
+   * @return the projection, null if the query selects JPA entities
+   */
+  public JPAProjection getProjection() {
+    return projection;
+  }
+
+  public void setProjection(JPAProjection projection) {
+    this.projection = projection;
+  }
+
   public JPAResult getResult() {
     return result;
   }
@@ -176,6 +256,13 @@ public class JPAContext implements Context {
       return jpaEntityType;
     }
 
+    /**
+     * Sets the JPA entity type of the entity, if it is known, to spare its lookup in the metamodel.
+     */
+    public void setJPAEntityType(EntityType<?> jpaEntityType) {
+      this.jpaEntityType = jpaEntityType;
+    }
+
     public EdmEntitySet getEdmEntitySet() {
       if (ees == null) {
         ees = getMetadata().getEdmEntitySet(getEntitySetName());
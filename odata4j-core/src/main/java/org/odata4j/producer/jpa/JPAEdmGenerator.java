@@ -30,6 +30,7 @@ import org.core4j.Enumerable;
 import org.core4j.Predicate1;
 import org.odata4j.core.OFuncs;
 import org.odata4j.core.OPredicates;
+import org.odata4j.edm.CachedEdmGenerator;
 import org.odata4j.edm.EdmAssociation;
 import org.odata4j.edm.EdmAssociationEnd;
 import org.odata4j.edm.EdmAssociationSet;
@@ -60,6 +61,19 @@ public class JPAEdmGenerator implements EdmGenerator {
     this.namespace = namespace;
   }
 
+  /**
+   * Computes the fingerprint of the managed types of the metamodel, to keep the generated metadata
+   * with a {@link CachedEdmGenerator}.
+   *
+   * @return the fingerprint
+   */
+  public String getFingerprint() {
+    List<Class<?>> classes = new ArrayList<Class<?>>();
+    for (ManagedType<?> mt : getEntityManagerFactory().getMetamodel().getManagedTypes())
+      classes.add(mt.getJavaType());
+    return CachedEdmGenerator.fingerprint(classes, getClass().getName(), getNamespace());
+  }
+
   protected EntityManagerFactory getEntityManagerFactory() {
     return emf;
   }
@@ -0,0 +1,398 @@
+package org.odata4j.producer.jpa;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.EntityManager;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EmbeddableType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type.PersistenceType;
+
+import org.core4j.CoreUtils;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperty;
+import org.odata4j.core.ORelatedEntitiesLinkInline;
+import org.odata4j.core.ORelatedEntityLink;
+import org.odata4j.core.ORelatedEntityLinkInline;
+import org.odata4j.core.Throwables;
+import org.odata4j.internal.TypeConverter;
+
+/**
+ * Binds OEntities to JPA entities of one entity type.
+ *
+ * <p>A binder is compiled once per entity type, see {@link #compile(Metamodel)}: the constructors,
+ * the fields or setters of the attributes with the types their values are converted to, and the
+ * members set by links to existing entities are resolved up front, so that binding an entity needs
+ * no metamodel searches or reflection lookups. Properties and links the binder does not know, e.g.
+ * inline entities, are applied as by {@link JPAProducer#applyOProperties} and
+ * {@link JPAProducer#applyOLinks}.</p>
+ */
+public class JPAEntityBinder {
+
+  private final EntityType<?> entityType;
+  private final Constructor<?> constructor;
+  private final Accessor idAccessor;
+  private final Constructor<?> idConstructor;
+  private final Map<String, Accessor> properties;
+  private final Map<String, LinkBinder> links;
+
+  private JPAEntityBinder(EntityType<?> entityType, Constructor<?> constructor, Accessor idAccessor, Constructor<?> idConstructor,
+      Map<String, Accessor> properties, Map<String, LinkBinder> links) {
+    this.entityType = entityType;
+    this.constructor = constructor;
+    this.idAccessor = idAccessor;
+    this.idConstructor = idConstructor;
+    this.properties = properties;
+    this.links = links;
+  }
+
+  /**
+   * Compiles the binders of all entity types of a metamodel.
+   *
+   * @param metamodel  the metamodel
+   * @return the binders by entity set name; types that cannot be compiled, e.g. without a no-arg
+   *   constructor, have none
+   */
+  public static Map<String, JPAEntityBinder> compile(Metamodel metamodel) {
+    Map<String, JPAEntityBinder> rt = new HashMap<String, JPAEntityBinder>();
+    for (EntityType<?> et : metamodel.getEntities()) {
+      try {
+        rt.put(JPAEdmGenerator.getEntitySetName(et), compile(et));
+      } catch (RuntimeException e) {
+        // bound as before, through the metamodel
+      }
+    }
+    return Collections.unmodifiableMap(rt);
+  }
+
+  /**
+   * Compiles the binder of an entity type.
+   *
+   * @param entityType  the entity type
+   * @return the binder
+   */
+  public static JPAEntityBinder compile(EntityType<?> entityType) {
+    Constructor<?> constructor = getConstructor(entityType.getJavaType());
+
+    Map<String, Accessor> properties = new HashMap<String, Accessor>();
+    Accessor idAccessor = null;
+    Constructor<?> idConstructor = null;
+    if (entityType.getIdType().getPersistenceType() == PersistenceType.EMBEDDABLE) {
+      EmbeddableType<?> idType = (EmbeddableType<?>) entityType.getIdType();
+      idAccessor = Accessor.create(entityType.getId(idType.getJavaType()), null);
+      idConstructor = getConstructor(idType.getJavaType());
+      // the properties of the key are set on the embedded id
+      for (Attribute<?, ?> idAtt : idType.getAttributes())
+        putAccessor(properties, idAtt, idAccessor);
+    }
+    for (Attribute<?, ?> att : entityType.getAttributes()) {
+      if (!properties.containsKey(att.getName()))
+        putAccessor(properties, att, null);
+    }
+
+    Map<String, LinkBinder> links = new HashMap<String, LinkBinder>();
+    for (SingularAttribute<?, ?> att : entityType.getSingularAttributes()) {
+      if (att.getPersistentAttributeType() != PersistentAttributeType.MANY_TO_ONE
+          && att.getPersistentAttributeType() != PersistentAttributeType.ONE_TO_ONE)
+        continue;
+      Accessor member = properties.get(att.getName());
+      if (member == null || !(att.getType() instanceof EntityType))
+        continue;
+
+      // the property mapped to the join column, if there is one, is set to the key of the linked entity
+      Accessor foreignKey = null;
+      JoinColumn joinColumn = member.getAnnotation(JoinColumn.class);
+      if (joinColumn != null && member.getAnnotation(ManyToOne.class) != null)
+        foreignKey = findByColumn(entityType, joinColumn.name());
+      links.put(att.getName(), new LinkBinder(member, (EntityType<?>) att.getType(), foreignKey));
+    }
+
+    return new JPAEntityBinder(entityType, constructor, idAccessor, idConstructor, properties, links);
+  }
+
+  private static void putAccessor(Map<String, Accessor> properties, Attribute<?, ?> att, Accessor parent) {
+    Accessor accessor = Accessor.create(att, parent);
+    if (accessor != null)
+      properties.put(att.getName(), accessor);
+  }
+
+  private static Accessor findByColumn(EntityType<?> entityType, String columnName) {
+    for (Attribute<?, ?> att : entityType.getAttributes()) {
+      Accessor accessor = Accessor.create(att, null);
+      if (accessor == null)
+        continue;
+      if (att.getPersistentAttributeType() == PersistentAttributeType.EMBEDDED) {
+        EmbeddableType<?> et = (EmbeddableType<?>) ((SingularAttribute<?, ?>) att).getType();
+        for (Attribute<?, ?> embeddedAtt : et.getAttributes()) {
+          Accessor embedded = Accessor.create(embeddedAtt, accessor);
+          if (embedded != null && embedded.hasColumn(columnName))
+            return embedded;
+        }
+      }
+      if (accessor.hasColumn(columnName))
+        return accessor;
+    }
+    return null;
+  }
+
+  private static Constructor<?> getConstructor(Class<?> javaType) {
+    try {
+      Constructor<?> ctor = javaType.getDeclaredConstructor();
+      ctor.setAccessible(true);
+      return ctor;
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static Object newInstance(Constructor<?> constructor) {
+    try {
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public EntityType<?> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * Creates a new JPA entity from an OEntity.
+   *
+   * @param em  the EntityManager, to look up linked entities
+   * @param oEntity  the entity
+   * @param withLinks  whether the links of the entity are applied
+   * @return the JPA entity, not persisted
+   */
+  public Object newEntity(EntityManager em, OEntity oEntity, boolean withLinks) {
+    Object jpaEntity = newInstance(constructor);
+    if (idAccessor != null)
+      idAccessor.set(jpaEntity, newInstance(idConstructor));
+
+    applyProperties(oEntity.getProperties(), jpaEntity);
+    if (withLinks)
+      applyLinks(em, oEntity.getLinks(), jpaEntity);
+    return jpaEntity;
+  }
+
+  /**
+   * Sets the properties of a JPA entity.
+   *
+   * @param properties  the properties
+   * @param jpaEntity  the JPA entity
+   */
+  public void applyProperties(Collection<OProperty<?>> properties, Object jpaEntity) {
+    for (OProperty<?> prop : properties) {
+      Accessor accessor = this.properties.get(prop.getName());
+      if (accessor != null)
+        accessor.set(jpaEntity, accessor.coerce(prop.getValue()));
+      else
+        JPAProducer.setAttribute(entityType.getAttribute(prop.getName()), prop, jpaEntity);
+    }
+  }
+
+  /**
+   * Applies the links of an OEntity to a JPA entity.
+   *
+   * @param em  the EntityManager, to look up linked entities
+   * @param links  the links, may be null
+   * @param jpaEntity  the JPA entity
+   */
+  public void applyLinks(EntityManager em, List<OLink> links, Object jpaEntity) {
+    if (links == null)
+      return;
+
+    for (OLink link : links) {
+      LinkBinder linkBinder = null;
+      if (link instanceof ORelatedEntityLink
+          && !(link instanceof ORelatedEntityLinkInline)
+          && !(link instanceof ORelatedEntitiesLinkInline)) {
+        String[] propNameSplit = link.getRelation().split("/");
+        linkBinder = this.links.get(propNameSplit[propNameSplit.length - 1]);
+      }
+      if (linkBinder == null) {
+        JPAProducer.applyOLinks(em, entityType, Collections.singletonList(link), jpaEntity);
+        continue;
+      }
+
+      // look up the linked entity, and set the member value
+      Object key = JPAProducer.typeSafeEntityKey(
+          em,
+          linkBinder.entityType,
+          OEntityKey.parse(link.getHref().substring(link.getHref().indexOf('('))));
+      linkBinder.member.set(jpaEntity, em.find(linkBinder.entityType.getJavaType(), key));
+      if (linkBinder.foreignKey != null)
+        linkBinder.foreignKey.set(jpaEntity, key);
+    }
+  }
+
+  private static class LinkBinder {
+
+    final Accessor member;
+    final EntityType<?> entityType;
+    final Accessor foreignKey;
+
+    LinkBinder(Accessor member, EntityType<?> entityType, Accessor foreignKey) {
+      this.member = member;
+      this.entityType = entityType;
+      this.foreignKey = foreignKey;
+    }
+  }
+
+  /**
+   * The field, or getter and setter, of an attribute, resolved as by {@link JPAMember#create}.
+   */
+  private static class Accessor {
+
+    private final Accessor parent;
+    private final Field field;
+    private final Method getter;
+    private final Method setter;
+    private final Class<?> javaType;
+    private final Class<?> valueType;
+
+    private Accessor(Accessor parent, Field field, Method getter, Method setter) {
+      this.parent = parent;
+      this.field = field;
+      this.getter = getter;
+      this.setter = setter;
+      this.javaType = field != null ? field.getType() : getter.getReturnType();
+      this.valueType = boxed(javaType);
+    }
+
+    /**
+     * Creates the accessor of an attribute.
+     *
+     * @param att  the attribute
+     * @param parent  the accessor of the embedded object declaring the attribute, or null
+     * @return the accessor, or null if the attribute has no field or getter
+     */
+    static Accessor create(Attribute<?, ?> att, Accessor parent) {
+      Member javaMember = att.getJavaMember();
+      if (javaMember instanceof Field)
+        return field(parent, (Field) javaMember);
+      if (javaMember instanceof Method)
+        return getter(parent, (Method) javaMember);
+
+      Class<?> type = att.getDeclaringType().getJavaType();
+      String name = att.getName();
+      try {
+        return field(parent, CoreUtils.getField(type, name));
+      } catch (Exception ignore) {}
+      String methodName = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      for (; !type.equals(Object.class); type = type.getSuperclass()) {
+        try {
+          return getter(parent, type.getDeclaredMethod(methodName));
+        } catch (Exception ignore) {}
+      }
+      return null;
+    }
+
+    private static Accessor field(Accessor parent, Field field) {
+      field.setAccessible(true);
+      return new Accessor(parent, field, null, null);
+    }
+
+    private static Accessor getter(Accessor parent, Method getter) {
+      getter.setAccessible(true);
+      String property = getter.getName().startsWith("is") ? getter.getName().substring(2) : getter.getName().substring(3);
+      Method setter = null;
+      for (Class<?> type = getter.getDeclaringClass(); setter == null && type != null; type = type.getSuperclass()) {
+        try {
+          setter = type.getDeclaredMethod("set" + property, getter.getReturnType());
+          setter.setAccessible(true);
+        } catch (NoSuchMethodException ignore) {}
+      }
+      return new Accessor(parent, null, getter, setter);
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+      if (!type.isPrimitive())
+        return type;
+      if (type == Integer.TYPE)
+        return Integer.class;
+      if (type == Long.TYPE)
+        return Long.class;
+      if (type == Boolean.TYPE)
+        return Boolean.class;
+      if (type == Double.TYPE)
+        return Double.class;
+      if (type == Float.TYPE)
+        return Float.class;
+      if (type == Short.TYPE)
+        return Short.class;
+      if (type == Byte.TYPE)
+        return Byte.class;
+      if (type == Character.TYPE)
+        return Character.class;
+      return type;
+    }
+
+    boolean hasColumn(String columnName) {
+      Column c = getAnnotation(Column.class);
+      return c != null && columnName.equals(c.name());
+    }
+
+    <T extends Annotation> T getAnnotation(Class<T> annotationClass) {
+      return field != null ? field.getAnnotation(annotationClass) : getter.getAnnotation(annotationClass);
+    }
+
+    /**
+     * Converts a property value to the type of the attribute, as {@link JPAProducer#coercePropertyValue}.
+     */
+    Object coerce(Object value) {
+      if (value == null || value.getClass() == valueType)
+        return value;
+      try {
+        return TypeConverter.convert(value, javaType);
+      } catch (UnsupportedOperationException ex) {
+        // let java complain
+        return value;
+      }
+    }
+
+    Object get(Object target) {
+      if (parent != null)
+        target = parent.get(target);
+      try {
+        return field != null ? field.get(target) : getter.invoke(target);
+      } catch (Exception e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
+    void set(Object target, Object value) {
+      if (parent != null)
+        target = parent.get(target);
+      if (field == null && setter == null)
+        throw new RuntimeException("Member is not writeable");
+      try {
+        if (field != null)
+          field.set(target, value);
+        else
+          setter.invoke(target, value);
+      } catch (Exception e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+
+}
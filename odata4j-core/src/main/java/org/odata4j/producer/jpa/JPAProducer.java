@@ -1,5 +1,6 @@
 package org.odata4j.producer.jpa;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,6 +27,7 @@ import javax.persistence.metamodel.Type.PersistenceType;
 
 import org.core4j.Enumerable;
 import org.core4j.Predicate1;
+import org.odata4j.core.OComplexObject;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityId;
 import org.odata4j.core.OEntityKey;
@@ -37,6 +39,7 @@ import org.odata4j.core.ORelatedEntitiesLinkInline;
 import org.odata4j.core.ORelatedEntityLink;
 import org.odata4j.core.ORelatedEntityLinkInline;
 import org.odata4j.core.Throwables;
+import org.odata4j.edm.CachedEdmGenerator;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmDecorator;
 import org.odata4j.edm.EdmFunctionImport;
@@ -44,7 +47,11 @@ import org.odata4j.exceptions.BadRequestException;
 import org.odata4j.exceptions.NotImplementedException;
 import org.odata4j.expression.EntitySimpleProperty;
 import org.odata4j.internal.TypeConverter;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
 import org.odata4j.producer.BaseResponse;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.CollectionResponse;
 import org.odata4j.producer.CountResponse;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.EntityIdResponse;
@@ -54,6 +61,7 @@ import org.odata4j.producer.ODataContext;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.QueryInfo;
 import org.odata4j.producer.Responses;
+import org.odata4j.producer.ReturnPreference;
 import org.odata4j.producer.edm.MetadataProducer;
 
 public class JPAProducer implements ODataProducer {
@@ -67,15 +75,19 @@ public class JPAProducer implements ODataProducer {
     MergeEntity,
     UpdateEntity,
     GetLinks,
-    GetCount
+    GetCount,
+    Aggregate
   };
 
   private final EntityManagerFactory emf;
   private final EdmDataServices metadata;
   private final int maxResults;
   private final MetadataProducer metadataProducer;
+  private final Map<String, JPAEntityBinder> entityBinders;
   private Command createEntityCommand;
+  private Command createEntityNoContentCommand;
   private Command createAndLinkCommand;
+  private Command createAndLinkNoContentCommand;
   private Command getEntitiesCommand;
   private Command getEntityCommand;
   private Command deleteEntityCommand;
@@ -83,7 +95,15 @@ public class JPAProducer implements ODataProducer {
   private Command updateEntityCommand;
   private Command getLinksCommand;
   private Command getCountCommand;
+  private Command aggregateCommand;
   private JPAProducerBehavior producerBehavior;
+  private boolean readOnlyQueries;
+  private boolean queryResultsCache;
+  private boolean tupleProjection;
+  private int changeSetBatchSize = JPAChangeSetExtension.DEFAULT_BATCH_SIZE;
+  private boolean bulkDeletes;
+  private ChangeSetExtension changeSetExtension;
+  private ReadOnlyEntityManagerCommand readOnlyEntityManagerCommand;
 
   public JPAProducer(
       EntityManagerFactory emf,
@@ -92,6 +112,23 @@ public class JPAProducer implements ODataProducer {
     this(emf, new JPAEdmGenerator(emf, namespace).generateEdm(null).build(), maxResults, null, null);
   }
 
+  /**
+   * Creates the producer, with the metadata kept in a file.
+   *
+   * @param emf  the factory of the EntityManagers
+   * @param namespace  the namespace of the metadata
+   * @param maxResults  the maximum number of entities returned at once
+   * @param metadataCache  the file the generated metadata is kept in, and read from on the next
+   *   startup as long as the metamodel is unchanged, see {@link CachedEdmGenerator}
+   */
+  public JPAProducer(
+      EntityManagerFactory emf,
+      String namespace,
+      int maxResults,
+      File metadataCache) {
+    this(emf, generateMetadata(new JPAEdmGenerator(emf, namespace), metadataCache), maxResults, null, null);
+  }
+
   public JPAProducer(
       EntityManagerFactory emf,
       EdmDataServices metadata,
@@ -119,17 +156,83 @@ public class JPAProducer implements ODataProducer {
     this.metadata = metadata;
     this.metadataProducer = new MetadataProducer(this, metadataDecorator);
     this.producerBehavior = producerBehavior;
+    this.entityBinders = JPAEntityBinder.compile(emf.getMetamodel());
+
+    initCommandChains();
+    initChangeSetExtension();
+  }
+
+  private static EdmDataServices generateMetadata(JPAEdmGenerator generator, File metadataCache) {
+    return new CachedEdmGenerator(generator, metadataCache, generator.getFingerprint()).generateEdm(null).build();
+  }
+
+  /**
+   * Makes the queries of getEntities, getEntity, getNavProperty, getLinks, the counts and
+   * aggregations read-only, see {@link ReadOnlyEntityManagerCommand}; call before serving requests.
+   *
+   * @param readOnlyQueries  whether the queries are read-only
+   * @param queryResultsCache  whether the results of read-only queries are cached
+   */
+  public void setReadOnlyQueries(boolean readOnlyQueries, boolean queryResultsCache) {
+    this.readOnlyQueries = readOnlyQueries;
+    this.queryResultsCache = queryResultsCache;
+    initCommandChains();
+  }
 
+  /**
+   * Makes getEntities and getNavProperty query entities without $expand as tuples of their
+   * properties rather than as JPA entities, see {@link JPAProjection}; call before serving requests.
+   *
+   * @param tupleProjection  whether entities are queried as tuples
+   */
+  public void setTupleProjection(boolean tupleProjection) {
+    this.tupleProjection = tupleProjection;
     initCommandChains();
   }
 
+  /**
+   * Sets the number of operations of a $batch change set flushed at once, see
+   * {@link JPAChangeSetExtension}.
+   *
+   * @param changeSetBatchSize  the number of operations between flushes
+   */
+  public void setChangeSetBatchSize(int changeSetBatchSize) {
+    this.changeSetBatchSize = changeSetBatchSize;
+    initChangeSetExtension();
+  }
+
+  /**
+   * Makes deleteEntity and the deletes of $batch change sets run as JPQL DELETE statements, without
+   * loading the entity, see {@link BulkDeleteEntityCommand}; call before serving requests. Bulk
+   * deletes bypass the persistence context and entity callbacks.
+   *
+   * @param bulkDeletes  whether deletes run as JPQL DELETE statements
+   */
+  public void setBulkDeletes(boolean bulkDeletes) {
+    this.bulkDeletes = bulkDeletes;
+    initCommandChains();
+    initChangeSetExtension();
+  }
+
+  private void initChangeSetExtension() {
+    changeSetExtension = new JPAChangeSetExtension(emf, metadata, changeSetBatchSize, entityBinders, bulkDeletes);
+  }
+
   protected void initCommandChains() {
+    // the read chains share their EntityManager per thread in read-only mode; those of the
+    // chains replaced are closed
+    if (readOnlyEntityManagerCommand != null)
+      readOnlyEntityManagerCommand.close();
+    readOnlyEntityManagerCommand = readOnlyQueries
+        ? new ReadOnlyEntityManagerCommand(emf, queryResultsCache)
+        : null;
+
     List<Command> commands = new ArrayList<Command>();
     /* query processors */
     // create an EntityManager
-    commands.add(new EntityManagerCommand(emf));
+    commands.add(readEntityManagerCommand(readOnlyEntityManagerCommand));
     // parse generate the JPQL query
-    commands.add(new GenerateJPQLCommand());
+    commands.add(new GenerateJPQLCommand(false, tupleProjection));
     // execute the JPQL query
     commands.add(new ExecuteJPQLQueryCommand(maxResults));
     // convert the query result to response
@@ -143,7 +246,7 @@ public class JPAProducer implements ODataProducer {
     // begin a transaction
     commands.add(new BeginTransactionCommand());
     // convert the given OEntity to a JPAEntity
-    commands.add(new OEntityToJPAEntityCommand(true));
+    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.ENTITY, true, entityBinders));
     // persist the JPAEntity
     commands.add(new PersistJPAEntityCommand());
     // commit the transaction
@@ -154,6 +257,22 @@ public class JPAProducer implements ODataProducer {
     commands.add(new SetResponseCommand());
     createEntityCommand = createChain(CommandType.CreateEntity, commands);
 
+    /* create processors for clients preferring no content */
+    commands = new ArrayList<Command>();
+    // create an EntityManager
+    commands.add(new EntityManagerCommand(emf));
+    // begin a transaction
+    commands.add(new BeginTransactionCommand());
+    // convert the given OEntity to a JPAEntity
+    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.ENTITY, true, entityBinders));
+    // persist the JPAEntity
+    commands.add(new PersistJPAEntityCommand());
+    // commit the transaction
+    commands.add(new CommitTransactionCommand());
+    // set the key of the JPAEntity as response, the entity is not reread
+    commands.add(new SetEntityKeyResponseCommand());
+    createEntityNoContentCommand = createChain(CommandType.CreateEntity, commands);
+
     /* create and link processors */
     commands = new ArrayList<Command>();
     // create an EntityManager
@@ -163,7 +282,7 @@ public class JPAProducer implements ODataProducer {
     // get the entity we want the new entity add to (parent entity)
     commands.add(new GetEntityCommand());
     // convert the given new OEntity to a new JPAEntity
-    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.OTHER, true));
+    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.OTHER, true, entityBinders));
     // add the new JPAEntity to the parent entity
     commands.add(new CreateAndLinkCommand());
     // commit the transaction
@@ -172,10 +291,28 @@ public class JPAProducer implements ODataProducer {
     commands.add(new SetResponseCommand(JPAContext.EntityAccessor.OTHER));
     createAndLinkCommand = createChain(CommandType.CreateAndLink, commands);
 
-    /* get entity processors */
+    /* create and link processors for clients preferring no content */
     commands = new ArrayList<Command>();
     // create an EntityManager
     commands.add(new EntityManagerCommand(emf));
+    // begin a transaction
+    commands.add(new BeginTransactionCommand());
+    // get the entity we want the new entity add to (parent entity)
+    commands.add(new GetEntityCommand());
+    // convert the given new OEntity to a new JPAEntity
+    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.OTHER, true, entityBinders));
+    // add the new JPAEntity to the parent entity
+    commands.add(new CreateAndLinkCommand());
+    // commit the transaction
+    commands.add(new CommitTransactionCommand());
+    // set the key of the new JPAEntity as response, the entity is not converted
+    commands.add(new SetEntityKeyResponseCommand(JPAContext.EntityAccessor.OTHER));
+    createAndLinkNoContentCommand = createChain(CommandType.CreateAndLink, commands);
+
+    /* get entity processors */
+    commands = new ArrayList<Command>();
+    // create an EntityManager
+    commands.add(readEntityManagerCommand(readOnlyEntityManagerCommand));
     // get the requested JPAEntity
     commands.add(new GetEntityCommand());
     // convert the JPAEntity to OEntity and set the response
@@ -188,10 +325,15 @@ public class JPAProducer implements ODataProducer {
     commands.add(new EntityManagerCommand(emf));
     // begin transaction
     commands.add(new BeginTransactionCommand());
-    // get the JPAEntity to delete
-    commands.add(new GetEntityCommand());
-    // delete the JPAEntity
-    commands.add(new DeleteEntityCommand());
+    if (bulkDeletes) {
+      // delete the JPAEntity by its key
+      commands.add(new BulkDeleteEntityCommand());
+    } else {
+      // get the JPAEntity to delete
+      commands.add(new GetEntityCommand());
+      // delete the JPAEntity
+      commands.add(new DeleteEntityCommand());
+    }
     // commit the transaction
     commands.add(new CommitTransactionCommand());
     // the response stays empty
@@ -206,7 +348,7 @@ public class JPAProducer implements ODataProducer {
     // get the JPAEntity to delete
     commands.add(new GetEntityCommand());
     // delete the JPAEntity
-    commands.add(new MergeEntityCommand());
+    commands.add(new MergeEntityCommand(entityBinders));
     // commit the transaction
     commands.add(new CommitTransactionCommand());
     // the response stays empty
@@ -219,7 +361,7 @@ public class JPAProducer implements ODataProducer {
     // begin transaction
     commands.add(new BeginTransactionCommand());
     // get the JPAEntity to delete
-    commands.add(new OEntityToJPAEntityCommand(true));
+    commands.add(new OEntityToJPAEntityCommand(JPAContext.EntityAccessor.ENTITY, true, entityBinders));
     // delete the JPAEntity
     commands.add(new UpdateEntityCommand());
     // commit the transaction
@@ -230,7 +372,7 @@ public class JPAProducer implements ODataProducer {
     /* get links command */
     commands = new ArrayList<Command>();
     // create an EntityManager
-    commands.add(new EntityManagerCommand(emf));
+    commands.add(readEntityManagerCommand(readOnlyEntityManagerCommand));
     // parse generate the JPQL query
     commands.add(new GenerateJPQLCommand());
     // execute the JPQL query
@@ -244,7 +386,7 @@ public class JPAProducer implements ODataProducer {
     // create an EntityManager
     commands.add(new ValidateCountRequestProcessor());
     // create an EntityManager
-    commands.add(new EntityManagerCommand(emf));
+    commands.add(readEntityManagerCommand(readOnlyEntityManagerCommand));
     // parse generate the JPQL query
     commands.add(new GenerateJPQLCommand(true));
     // execute the JPQL query
@@ -252,6 +394,20 @@ public class JPAProducer implements ODataProducer {
     // set the count into the response
     commands.add(new SetResponseCommand());
     getCountCommand = createChain(CommandType.GetCount, commands);
+
+    /* aggregate processors */
+    commands = new ArrayList<Command>();
+    // create an EntityManager
+    commands.add(readEntityManagerCommand(readOnlyEntityManagerCommand));
+    // generate the GROUP BY query
+    commands.add(new GenerateAggregateJPQLCommand());
+    // execute it and set the groups into the response
+    commands.add(new ExecuteAggregateQueryCommand());
+    aggregateCommand = createChain(CommandType.Aggregate, commands);
+  }
+
+  private Command readEntityManagerCommand(Command readOnlyEntityManagerCommand) {
+    return readOnlyEntityManagerCommand != null ? readOnlyEntityManagerCommand : new EntityManagerCommand(emf);
   }
 
   private Command createChain(CommandType type, List<Command> commands) {
@@ -296,12 +452,18 @@ public class JPAProducer implements ODataProducer {
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    if (readOnlyEntityManagerCommand != null)
+      readOnlyEntityManagerCommand.close();
+  }
 
   @Override
   public EntityResponse createEntity(ODataContext context, String entitySetName, OEntity entity) {
     JPAContext jpaContext = new JPAContext(metadata, entitySetName, null, entity);
-    createEntityCommand.execute(jpaContext);
+    if (ReturnPreference.isNoContent(context))
+      createEntityNoContentCommand.execute(jpaContext);
+    else
+      createEntityCommand.execute(jpaContext);
     return (EntityResponse) jpaContext.getResponse();
   }
 
@@ -309,7 +471,10 @@ public class JPAProducer implements ODataProducer {
   public EntityResponse createEntity(ODataContext context, String entitySetName, OEntityKey entityKey, String navProp, OEntity entity) {
     JPAContext jpaContext = new JPAContext(metadata, entitySetName, entityKey,
         navProp, entity);
-    createAndLinkCommand.execute(jpaContext);
+    if (ReturnPreference.isNoContent(context))
+      createAndLinkNoContentCommand.execute(jpaContext);
+    else
+      createAndLinkCommand.execute(jpaContext);
     return (EntityResponse) jpaContext.getResponse();
   }
 
@@ -398,6 +563,20 @@ public class JPAProducer implements ODataProducer {
 
   @Override
   public <TExtension extends OExtension<ODataProducer>> TExtension findExtension(Class<TExtension> clazz) {
+    if (clazz.equals(AggregationExtension.class))
+      return clazz.cast(new AggregationExtension() {
+        @Override
+        public CollectionResponse<OComplexObject> aggregate(ODataContext context, String entitySetName, QueryInfo queryInfo, AggregateQuery aggregateQuery) {
+          JPAContext jpaContext = new JPAContext(metadata, entitySetName, queryInfo);
+          jpaContext.setAggregateQuery(aggregateQuery);
+          aggregateCommand.execute(jpaContext);
+          @SuppressWarnings("unchecked")
+          CollectionResponse<OComplexObject> rt = (CollectionResponse<OComplexObject>) jpaContext.getResponse();
+          return rt;
+        }
+      });
+    if (clazz.equals(ChangeSetExtension.class))
+      return clazz.cast(changeSetExtension);
     return null;
   }
 
@@ -0,0 +1,200 @@
+package org.odata4j.producer.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OLinks;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmMultiplicity;
+import org.odata4j.edm.EdmNavigationProperty;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.expression.EntitySimpleProperty;
+
+/**
+ * Selects the properties of an entity set as a tuple query and builds OEntities from its rows,
+ * without instantiating JPA entities.
+ *
+ * <p>A projection is created once per entity set, mapping each column of the SELECT clause to a
+ * property, and restricted per request to the selected properties.</p>
+ */
+public class JPAProjection {
+
+  private final EdmEntitySet entitySet;
+  private final String[] propertyNames;
+  private final EdmSimpleType<?>[] propertyTypes;
+  private final String[] paths;
+  private final boolean[] output;
+  private final String[] keyNames;
+  private final int[] keyIndexes;
+
+  private JPAProjection(EdmEntitySet entitySet, String[] propertyNames, EdmSimpleType<?>[] propertyTypes, String[] paths,
+      boolean[] output, String[] keyNames, int[] keyIndexes) {
+    this.entitySet = entitySet;
+    this.propertyNames = propertyNames;
+    this.propertyTypes = propertyTypes;
+    this.paths = paths;
+    this.output = output;
+    this.keyNames = keyNames;
+    this.keyIndexes = keyIndexes;
+  }
+
+  /**
+   * Creates the projection of an entity set.
+   *
+   * @param ees  the entity set
+   * @param entityType  the JPA entity type of the entity set
+   * @return the projection, or null if a property is not a basic attribute or simple key attribute
+   */
+  public static JPAProjection create(EdmEntitySet ees, EntityType<?> entityType) {
+    SingularAttribute<?, ?> idAtt = JPAEdmGenerator.getIdAttribute(entityType);
+    if (idAtt == null)
+      return null;
+    boolean hasEmbeddedCompositeKey = idAtt.getPersistentAttributeType() == PersistentAttributeType.EMBEDDED;
+    List<String> keys = ees.getType().getKeys();
+
+    List<EdmProperty> properties = ees.getType().getProperties().toList();
+    int n = properties.size();
+    String[] propertyNames = new String[n];
+    EdmSimpleType<?>[] propertyTypes = new EdmSimpleType<?>[n];
+    String[] paths = new String[n];
+    boolean[] output = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      EdmProperty ep = properties.get(i);
+      if (!ep.getType().isSimple())
+        return null;
+      propertyNames[i] = ep.getName();
+      propertyTypes[i] = (EdmSimpleType<?>) ep.getType();
+      output[i] = true;
+      if (hasEmbeddedCompositeKey && keys.contains(ep.getName())) {
+        paths[i] = idAtt.getName() + "." + ep.getName();
+      } else {
+        Attribute<?, ?> att;
+        try {
+          att = entityType.getAttribute(ep.getName());
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+        if (att.getPersistentAttributeType() != PersistentAttributeType.BASIC)
+          return null;
+        paths[i] = ep.getName();
+      }
+    }
+
+    String[] keyNames = keys.toArray(new String[keys.size()]);
+    int[] keyIndexes = new int[keyNames.length];
+    for (int i = 0; i < keyNames.length; i++) {
+      keyIndexes[i] = indexOf(propertyNames, keyNames[i]);
+      if (keyIndexes[i] < 0)
+        return null;
+    }
+    return new JPAProjection(ees, propertyNames, propertyTypes, paths, output, keyNames, keyIndexes);
+  }
+
+  private static int indexOf(String[] names, String name) {
+    for (int i = 0; i < names.length; i++)
+      if (names[i].equals(name))
+        return i;
+    return -1;
+  }
+
+  /**
+   * Restricts the projection to the selected properties; the key properties are queried anyway.
+   *
+   * @param select  the selected properties, null or empty for all
+   * @return the restricted projection
+   */
+  public JPAProjection select(List<EntitySimpleProperty> select) {
+    if (select == null || select.isEmpty())
+      return this;
+
+    List<Integer> indexes = new ArrayList<Integer>();
+    for (int i = 0; i < propertyNames.length; i++) {
+      if (JPAProducer.isSelected(propertyNames[i], select) || indexOf(keyNames, propertyNames[i]) >= 0)
+        indexes.add(i);
+    }
+    int n = indexes.size();
+    String[] propertyNames = new String[n];
+    EdmSimpleType<?>[] propertyTypes = new EdmSimpleType<?>[n];
+    String[] paths = new String[n];
+    boolean[] output = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      int index = indexes.get(i);
+      propertyNames[i] = this.propertyNames[index];
+      propertyTypes[i] = this.propertyTypes[index];
+      paths[i] = this.paths[index];
+      output[i] = JPAProducer.isSelected(propertyNames[i], select);
+    }
+    int[] keyIndexes = new int[keyNames.length];
+    for (int i = 0; i < keyNames.length; i++)
+      keyIndexes[i] = indexOf(propertyNames, keyNames[i]);
+    return new JPAProjection(entitySet, propertyNames, propertyTypes, paths, output, keyNames, keyIndexes);
+  }
+
+  /**
+   * Gets the SELECT clause of the projection.
+   *
+   * @param alias  the alias of the queried entity
+   * @return the comma-separated paths of the properties
+   */
+  public String getSelectClause(String alias) {
+    StringBuilder sb = new StringBuilder();
+    for (String path : paths) {
+      if (sb.length() > 0)
+        sb.append(", ");
+      sb.append(alias).append('.').append(path);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Builds the entity of a row of the tuple query.
+   *
+   * @param row  the row, an array of values or the single value of a projection of one property
+   * @param select  the selected properties, for the deferred links
+   * @return the entity
+   */
+  public OEntity toOEntity(Object row, List<EntitySimpleProperty> select) {
+    Object[] values = row instanceof Object[] ? (Object[]) row : new Object[] { row };
+
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>(values.length);
+    for (int i = 0; i < values.length; i++) {
+      if (output[i])
+        properties.add(OProperties.simple(propertyNames[i], propertyTypes[i], values[i]));
+    }
+
+    List<OLink> links = new ArrayList<OLink>();
+    for (EdmNavigationProperty ep : entitySet.getType().getNavigationProperties()) {
+      if (JPAProducer.isSelected(ep.getName(), select)) {
+        links.add(ep.getToRole().getMultiplicity() == EdmMultiplicity.MANY
+            ? OLinks.relatedEntities(null, ep.getName(), null)
+            : OLinks.relatedEntity(null, ep.getName(), null));
+      }
+    }
+
+    OEntityKey entityKey;
+    if (keyIndexes.length == 1) {
+      entityKey = OEntityKey.create(values[keyIndexes[0]]);
+    } else {
+      Map<String, Object> nameValues = new HashMap<String, Object>();
+      for (int i = 0; i < keyIndexes.length; i++)
+        nameValues.put(keyNames[i], values[keyIndexes[i]]);
+      entityKey = OEntityKey.create(nameValues);
+    }
+    return OEntities.create(entitySet, entityKey, properties, links);
+  }
+
+}
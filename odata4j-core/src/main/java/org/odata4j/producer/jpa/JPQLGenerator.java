@@ -1,6 +1,16 @@
 package org.odata4j.producer.jpa;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+
+import javax.persistence.Query;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
 
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
@@ -43,14 +53,45 @@ import org.odata4j.expression.ToLowerMethodCallExpression;
 import org.odata4j.expression.ToUpperMethodCallExpression;
 import org.odata4j.expression.TrimMethodCallExpression;
 
+/**
+ * Translates filter expressions to JPQL.
+ *
+ * <p>Given a parameter list, literals compared against other expressions are generated as positional
+ * parameters and appended to the list, so that queries differing only in these values have the same
+ * text and share the parsed query of the JPA provider and the prepared statement of the database.
+ * Other literals, e.g. arguments of functions and LIKE patterns, are part of the query shape and
+ * stay inline.</p>
+ *
+ * <p>Since JPA providers may check the type of a parameter against the attribute it is compared
+ * with, a literal only becomes a parameter if it is compared with an attribute whose type is known
+ * from the metamodel, converted to the Java type of that attribute, e.g. the integer of
+ * {@code Price gt 5} to the BigDecimal of Price. A literal that cannot be converted without loss
+ * stays inline.</p>
+ */
 public class JPQLGenerator {
 
   private final String primaryKeyName;
   private final String tableAlias;
+  private final List<Object> parameters;
+  private final ManagedType<?> entityType;
 
   public JPQLGenerator(String primaryKeyName, String tableAlias) {
+    this(primaryKeyName, tableAlias, null, null);
+  }
+
+  /**
+   * Creates a generator of parameterized JPQL.
+   *
+   * @param primaryKeyName  the name of the key attribute
+   * @param tableAlias  the alias of the queried entity
+   * @param parameters  the parameters of the query so far, extended by generated parameters; null for inline literals
+   * @param entityType  the queried entity type, for the types of the compared attributes
+   */
+  public JPQLGenerator(String primaryKeyName, String tableAlias, List<Object> parameters, ManagedType<?> entityType) {
     this.primaryKeyName = primaryKeyName;
     this.tableAlias = tableAlias;
+    this.parameters = parameters;
+    this.entityType = entityType;
   }
 
   public String getPrimaryKeyName() {
@@ -77,6 +118,135 @@ public class JPQLGenerator {
     return value.toString();
   }
 
+  /**
+   * Appends a parameter to a parameter list.
+   *
+   * @param parameters  the parameters
+   * @param value  the value of the parameter; the caller converts it to the Java type of the
+   *               attribute it is compared with, which JPA providers may check
+   * @return the positional parameter
+   */
+  public static String addParameter(List<Object> parameters, Object value) {
+    parameters.add(value);
+    return "?" + parameters.size();
+  }
+
+  /**
+   * Binds the positional parameters of a query.
+   *
+   * @param query  the query
+   * @param parameters  the values of the parameters, null for none
+   * @return the query
+   */
+  public static Query setParameters(Query query, List<Object> parameters) {
+    if (parameters != null) {
+      for (int i = 0; i < parameters.size(); i++)
+        query.setParameter(i + 1, parameters.get(i));
+    }
+    return query;
+  }
+
+  /**
+   * Converts a literal value to the value of a parameter compared with an attribute of a type, or
+   * returns null if the literal is to be inlined.
+   */
+  private static Object toJpqlParameter(Object value, Class<?> type) {
+    if (value instanceof LocalTime)
+      value = new java.sql.Time(new LocalDateTime(((LocalTime) value).getMillisOfDay(), DateTimeZone.UTC).toDateTime().getMillis());
+    else if (value instanceof LocalDateTime)
+      value = new Timestamp(((LocalDateTime) value).toDateTime().getMillis());
+
+    type = boxed(type);
+    if (type.isInstance(value))
+      return value;
+    if (value instanceof Timestamp && type == Calendar.class) {
+      Calendar rt = Calendar.getInstance();
+      rt.setTime((Timestamp) value);
+      return rt;
+    }
+    if (!(value instanceof Number))
+      return null;
+
+    Number number = (Number) value;
+    boolean integral = number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    if (type == Long.class)
+      return integral ? (Object) number.longValue() : null;
+    if (type == Integer.class)
+      return integral && number.longValue() == number.intValue() ? (Object) number.intValue() : null;
+    if (type == Short.class)
+      return integral && number.longValue() == number.shortValue() ? (Object) number.shortValue() : null;
+    if (type == Byte.class)
+      return integral && number.longValue() == number.byteValue() ? (Object) number.byteValue() : null;
+    if (type == BigInteger.class)
+      return integral ? BigInteger.valueOf(number.longValue()) : null;
+    if (type == BigDecimal.class)
+      return integral ? BigDecimal.valueOf(number.longValue()) : new BigDecimal(number.toString());
+    if (type == Double.class)
+      return number instanceof BigDecimal ? null : (Object) number.doubleValue();
+    if (type == Float.class)
+      return number instanceof Float || integral && Math.abs(number.longValue()) <= 1 << 24 ? (Object) number.floatValue() : null;
+    return null;
+  }
+
+  private static Class<?> boxed(Class<?> type) {
+    if (!type.isPrimitive())
+      return type;
+    if (type == int.class)
+      return Integer.class;
+    if (type == long.class)
+      return Long.class;
+    if (type == short.class)
+      return Short.class;
+    if (type == byte.class)
+      return Byte.class;
+    if (type == double.class)
+      return Double.class;
+    if (type == float.class)
+      return Float.class;
+    if (type == boolean.class)
+      return Boolean.class;
+    if (type == char.class)
+      return Character.class;
+    return type;
+  }
+
+  /**
+   * Gets the Java type of the attribute of a property path, or null if it is not known.
+   */
+  private Class<?> getAttributeType(String path) {
+    ManagedType<?> type = entityType;
+    Class<?> rt = null;
+    for (String name : path.split("/")) {
+      if (type == null)
+        return null;
+      Attribute<?, ?> attribute;
+      try {
+        attribute = type.getAttribute(name);
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+      rt = attribute.getJavaType();
+      Type<?> attributeType = attribute instanceof SingularAttribute ? ((SingularAttribute<?, ?>) attribute).getType() : null;
+      type = attributeType instanceof ManagedType ? (ManagedType<?>) attributeType : null;
+    }
+    return rt;
+  }
+
+  /**
+   * Generates an operand of a comparison, as a parameter if it is a literal and the other operand
+   * is an attribute whose type the literal can be converted to.
+   */
+  private String toJpqlOperand(CommonExpression expression, CommonExpression other) {
+    if (parameters != null && expression instanceof LiteralExpression && !(expression instanceof NullLiteral)
+        && other instanceof EntitySimpleProperty) {
+      Class<?> type = getAttributeType(((EntitySimpleProperty) other).getPropertyName());
+      Object value = type == null ? null : toJpqlParameter(org.odata4j.expression.Expression.literalValue((LiteralExpression) expression), type);
+      if (value != null)
+        return addParameter(parameters, value);
+    }
+    return toJpql(expression);
+  }
+
   public String toJpql(CommonExpression expression) {
 
     if (expression instanceof BoolCommonExpression)
@@ -219,10 +389,10 @@ public class JPQLGenerator {
 
   public String toJpql(BoolCommonExpression expression) {
     if (expression instanceof EqExpression)
-      return binaryCommonExpressionToJpql("%s = %s", "%2s IS NULL", "%1s IS NULL", (EqExpression) expression);
+      return comparisonToJpql("%s = %s", "%2s IS NULL", "%1s IS NULL", (EqExpression) expression);
 
     if (expression instanceof NeExpression)
-      return binaryCommonExpressionToJpql("%s <> %s", "%2s IS NOT NULL", "%1s IS NOT NULL", (NeExpression) expression);
+      return comparisonToJpql("%s <> %s", "%2s IS NOT NULL", "%1s IS NOT NULL", (NeExpression) expression);
 
     if (expression instanceof AndExpression) {
       AndExpression e = (AndExpression) expression;
@@ -244,16 +414,16 @@ public class JPQLGenerator {
       return Boolean.toString(((BooleanLiteral) expression).getValue());
 
     if (expression instanceof GtExpression)
-      return binaryCommonExpressionToJpql("%s > %s", (GtExpression) expression);
+      return comparisonToJpql("%s > %s", null, null, (GtExpression) expression);
 
     if (expression instanceof LtExpression)
-      return binaryCommonExpressionToJpql("%s < %s", (LtExpression) expression);
+      return comparisonToJpql("%s < %s", null, null, (LtExpression) expression);
 
     if (expression instanceof GeExpression)
-      return binaryCommonExpressionToJpql("%s >= %s", (GeExpression) expression);
+      return comparisonToJpql("%s >= %s", null, null, (GeExpression) expression);
 
     if (expression instanceof LeExpression)
-      return binaryCommonExpressionToJpql("%s <= %s", (LeExpression) expression);
+      return comparisonToJpql("%s <= %s", null, null, (LeExpression) expression);
 
     if (expression instanceof NotExpression) {
       NotExpression e = (NotExpression) expression;
@@ -339,4 +509,15 @@ public class JPQLGenerator {
     return String.format(format, toJpql(bce.getLHS()), toJpql(bce.getRHS()));
   }
 
+  private String comparisonToJpql(String format, String ifLeftNullFormat, String ifRightNullFormat, BinaryCommonExpression bce) {
+    if (ifLeftNullFormat != null && bce.getLHS() instanceof NullLiteral)
+      format = ifLeftNullFormat;
+    else if (ifRightNullFormat != null && bce.getRHS() instanceof NullLiteral)
+      format = ifRightNullFormat;
+    // the left operand comes first in the query text, and so in the parameters
+    String lhs = toJpqlOperand(bce.getLHS(), bce.getRHS());
+    String rhs = toJpqlOperand(bce.getRHS(), bce.getLHS());
+    return String.format(format, lhs, rhs);
+  }
+
 }
@@ -1,5 +1,8 @@
 package org.odata4j.producer.jpa;
 
+import java.util.Collections;
+import java.util.Map;
+
 import javax.persistence.EntityManager;
 import javax.persistence.metamodel.EntityType;
 
@@ -7,14 +10,37 @@ import org.odata4j.core.OEntity;
 
 public class MergeEntityCommand implements Command {
 
+  private final Map<String, JPAEntityBinder> binders;
+
+  public MergeEntityCommand() {
+    this(Collections.<String, JPAEntityBinder> emptyMap());
+  }
+
+  /**
+   * Creates the command.
+   *
+   * @param binders  the binders of the entity types by entity set name, see {@link JPAEntityBinder#compile};
+   *   entities without one are merged through the metamodel
+   */
+  public MergeEntityCommand(Map<String, JPAEntityBinder> binders) {
+    this.binders = binders;
+  }
+
   @Override
   public boolean execute(JPAContext context) {
     EntityManager em = context.getEntityManager();
-    EntityType<?> jpaEntityType = context.getEntity()
-        .getJPAEntityType();
     Object jpaEntity = context.getEntity().getJpaEntity();
     OEntity entity = context.getEntity().getOEntity();
 
+    JPAEntityBinder binder = binders.get(context.getEntity().getEdmEntitySet().getType().getName());
+    if (binder != null) {
+      binder.applyProperties(entity.getProperties(), jpaEntity);
+      binder.applyLinks(em, entity.getLinks(), jpaEntity);
+      return false;
+    }
+
+    EntityType<?> jpaEntityType = context.getEntity()
+        .getJPAEntityType();
     JPAProducer.applyOProperties(em, jpaEntityType,
         entity.getProperties(),
         jpaEntity);
@@ -23,4 +49,4 @@ public class MergeEntityCommand implements Command {
 
     return false;
   }
-}
\ No newline at end of file
+}
@@ -1,9 +1,13 @@
 package org.odata4j.producer.jpa;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class OEntityToJPAEntityCommand implements Command {
 
   private boolean withLinks;
   private JPAContext.EntityAccessor accessor;
+  private Map<String, JPAEntityBinder> binders;
 
   public OEntityToJPAEntityCommand(boolean withLinks) {
     this(JPAContext.EntityAccessor.ENTITY, withLinks);
@@ -11,20 +15,45 @@ public class OEntityToJPAEntityCommand implements Command {
 
   public OEntityToJPAEntityCommand(JPAContext.EntityAccessor accessor,
       boolean withLinks) {
+    this(accessor, withLinks, Collections.<String, JPAEntityBinder> emptyMap());
+  }
+
+  /**
+   * Creates the command.
+   *
+   * @param accessor  the entity of the context to convert
+   * @param withLinks  whether the links of the entity are applied
+   * @param binders  the binders of the entity types by entity set name, see {@link JPAEntityBinder#compile};
+   *   entities without one are converted through the metamodel
+   */
+  public OEntityToJPAEntityCommand(JPAContext.EntityAccessor accessor,
+      boolean withLinks, Map<String, JPAEntityBinder> binders) {
     this.accessor = accessor;
     this.withLinks = withLinks;
+    this.binders = binders;
   }
 
   @Override
   public boolean execute(JPAContext context) {
+    JPAContext.ContextEntity entity = accessor.getEntity(context);
+    JPAEntityBinder binder = binders.get(entity.getEdmEntitySet().getType().getName());
 
-    Object jpaEntity = JPAProducer.createNewJPAEntity(
-        context.getEntityManager(),
-        accessor.getEntity(context).getJPAEntityType(),
-        accessor.getEntity(context).getOEntity(),
-        withLinks);
-    accessor.getEntity(context).setJpaEntity(jpaEntity);
+    Object jpaEntity;
+    if (binder != null) {
+      entity.setJPAEntityType(binder.getEntityType());
+      jpaEntity = binder.newEntity(
+          context.getEntityManager(),
+          entity.getOEntity(),
+          withLinks);
+    } else {
+      jpaEntity = JPAProducer.createNewJPAEntity(
+          context.getEntityManager(),
+          entity.getJPAEntityType(),
+          entity.getOEntity(),
+          withLinks);
+    }
+    entity.setJpaEntity(jpaEntity);
 
     return false;
   }
-}
\ No newline at end of file
+}
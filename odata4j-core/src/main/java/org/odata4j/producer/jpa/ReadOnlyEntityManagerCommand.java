@@ -0,0 +1,134 @@
+package org.odata4j.producer.jpa;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+
+/**
+ * Provides the EntityManager of read command chains, with hints making the queries read-only.
+ *
+ * <p>Read-only results are not tracked for changes by the persistence context; with EclipseLink
+ * they are the instances of the shared cache. Hints of other providers are ignored by them.</p>
+ *
+ * <p>The EntityManager is kept per thread and cleared after each request rather than closed, and
+ * replaced after a failed request. {@link #close()} closes the EntityManagers of all threads; those
+ * in use are closed when their request ends, and later requests get an EntityManager of their own.</p>
+ */
+public class ReadOnlyEntityManagerCommand implements Filter {
+
+  /** EclipseLink, QueryHints.READ_ONLY */
+  public static final String ECLIPSELINK_READ_ONLY = "eclipselink.read-only";
+  /** EclipseLink, QueryHints.QUERY_RESULTS_CACHE */
+  public static final String ECLIPSELINK_QUERY_RESULTS_CACHE = "eclipselink.query-results-cache";
+  public static final String HIBERNATE_READ_ONLY = "org.hibernate.readOnly";
+  public static final String HIBERNATE_CACHEABLE = "org.hibernate.cacheable";
+
+  private final EntityManagerFactory emf;
+  private final Map<String, Object> findHints;
+  private final Map<String, Object> queryHints;
+  private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<EntityManager>();
+  // the EntityManagers of all threads, and whether a request is using them
+  private final Map<EntityManager, Boolean> inUse = new IdentityHashMap<EntityManager, Boolean>();
+  private volatile boolean closed;
+
+  public ReadOnlyEntityManagerCommand(EntityManagerFactory emf) {
+    this(emf, false);
+  }
+
+  /**
+   * Creates the command.
+   *
+   * @param emf  the factory of the EntityManagers
+   * @param queryResultsCache  whether the results of queries are cached by their parameters, in
+   *   addition to the entities; results may then miss changes made outside of the producer
+   */
+  public ReadOnlyEntityManagerCommand(EntityManagerFactory emf, boolean queryResultsCache) {
+    this.emf = emf;
+    Map<String, Object> findHints = new HashMap<String, Object>();
+    findHints.put(ECLIPSELINK_READ_ONLY, "true");
+    findHints.put(HIBERNATE_READ_ONLY, Boolean.TRUE);
+    this.findHints = Collections.unmodifiableMap(findHints);
+
+    // lookups by key are served by the entity cache, and EclipseLink rejects the results cache for them
+    Map<String, Object> queryHints = new HashMap<String, Object>(findHints);
+    if (queryResultsCache) {
+      queryHints.put(ECLIPSELINK_QUERY_RESULTS_CACHE, "true");
+      queryHints.put(HIBERNATE_CACHEABLE, Boolean.TRUE);
+    }
+    this.queryHints = Collections.unmodifiableMap(queryHints);
+  }
+
+  public Map<String, Object> getFindHints() {
+    return findHints;
+  }
+
+  public Map<String, Object> getQueryHints() {
+    return queryHints;
+  }
+
+  @Override
+  public boolean execute(JPAContext context) {
+    EntityManager em = closed ? null : entityManagers.get();
+    if (em == null || !em.isOpen()) {
+      em = emf.createEntityManager();
+      // nothing is changed, so there is nothing to flush before queries
+      em.setFlushMode(FlushModeType.COMMIT);
+      if (!closed)
+        entityManagers.set(em);
+    }
+    synchronized (inUse) {
+      inUse.put(em, Boolean.TRUE);
+    }
+    context.setEntityManager(em);
+    context.setQueryHints(queryHints, findHints);
+
+    return false;
+  }
+
+  @Override
+  public boolean postProcess(JPAContext context, Exception exception) {
+    EntityManager em = context.getEntityManager();
+    context.setEntityManager(null);
+    if (em == null)
+      return false;
+
+    if (exception == null && !closed && em.isOpen() && em == entityManagers.get()) {
+      em.clear();
+      synchronized (inUse) {
+        inUse.put(em, Boolean.FALSE);
+      }
+    } else {
+      if (em == entityManagers.get())
+        entityManagers.remove();
+      synchronized (inUse) {
+        inUse.remove(em);
+      }
+      if (em.isOpen())
+        em.close();
+    }
+    return false;
+  }
+
+  /**
+   * Closes the EntityManagers of all threads, see the class description.
+   */
+  public void close() {
+    closed = true;
+    synchronized (inUse) {
+      for (Iterator<Map.Entry<EntityManager, Boolean>> it = inUse.entrySet().iterator(); it.hasNext();) {
+        Map.Entry<EntityManager, Boolean> entry = it.next();
+        if (!entry.getValue()) {
+          if (entry.getKey().isOpen())
+            entry.getKey().close();
+          it.remove();
+        }
+      }
+    }
+  }
+}
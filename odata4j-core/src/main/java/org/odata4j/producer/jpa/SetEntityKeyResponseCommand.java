@@ -0,0 +1,34 @@
+package org.odata4j.producer.jpa;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.odata4j.producer.Responses;
+import org.odata4j.producer.ReturnPreference;
+import org.odata4j.producer.jpa.JPAContext.ContextEntity;
+
+/**
+ * Sets the response of a created entity to its key only, without reading it back or converting
+ * its properties, for clients preferring no content, see {@link ReturnPreference}.
+ */
+public class SetEntityKeyResponseCommand implements Command {
+
+  private final JPAContext.EntityAccessor accessor;
+
+  public SetEntityKeyResponseCommand() {
+    this(JPAContext.EntityAccessor.ENTITY);
+  }
+
+  public SetEntityKeyResponseCommand(JPAContext.EntityAccessor accessor) {
+    this.accessor = accessor;
+  }
+
+  @Override
+  public boolean execute(JPAContext context) {
+    ContextEntity entity = accessor.getEntity(context);
+    SingularAttribute<?, ?> idAtt = JPAEdmGenerator.getIdAttribute(entity.getJPAEntityType());
+    context.setResponse(Responses.entity(entity.getEdmEntitySet(),
+        SetResponseCommand.toOEntityKey(entity.getJpaEntity(), idAtt)));
+
+    return false;
+  }
+}
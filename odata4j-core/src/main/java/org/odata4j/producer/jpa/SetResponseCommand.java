@@ -96,6 +96,12 @@ public class SetResponseCommand implements Command {
   }
 
   private OEntity makeEntity(JPAContext context, Object jpaEntity) {
+    // a row of a tuple query
+    if (context.getProjection() != null)
+      return context.getProjection().toOEntity(jpaEntity, context.getQueryInfo() == null
+          ? null
+          : context.getQueryInfo().select);
+
     return jpaEntityToOEntity(
         context.getMetadata(),
         accessor.getEntity(context).getEdmEntitySet(),
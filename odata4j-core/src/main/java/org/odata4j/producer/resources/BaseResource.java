@@ -7,9 +7,13 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import org.odata4j.core.ODataConstants;
@@ -23,12 +27,18 @@ import org.odata4j.exceptions.NotImplementedException;
 import org.odata4j.format.Entry;
 import org.odata4j.format.FormatParser;
 import org.odata4j.format.FormatParserFactory;
+import org.odata4j.format.FormatWriter;
+import org.odata4j.format.FormatWriterFactory;
+import org.odata4j.format.FormatWriterOutput;
 import org.odata4j.format.Settings;
 import org.odata4j.internal.InternalUtil;
+import org.odata4j.producer.EntityQueryInfo;
+import org.odata4j.producer.EntityResponse;
 import org.odata4j.producer.ODataContext;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.OMediaLinkExtension;
 import org.odata4j.producer.OMediaLinkExtensions;
+import org.odata4j.producer.ReturnPreference;
 
 public abstract class BaseResource {
 
@@ -111,4 +121,57 @@ public abstract class BaseResource {
     // more info about the mle may be available now.
     return mediaLinkExtension.updateMediaLinkEntry(context, mle, outStream);
   }
+
+  /**
+   * Builds the response of a created entity: 201 with the entity, or 204 with its location only
+   * if the client prefers no content.
+   */
+  protected static Response createdResponse(HttpHeaders httpHeaders, UriInfo uriInfo, EntityResponse response, ODataContext odataContext) {
+    String relid = InternalUtil.getEntityRelId(response.getEntity());
+    String entryId = uriInfo.getBaseUri().toString() + relid;
+
+    ReturnPreference preference = ReturnPreference.of(odataContext);
+    ResponseBuilder rb;
+    if (preference != null && preference.isNoContent()) {
+      rb = Response.noContent();
+    } else {
+      FormatWriter<EntityResponse> writer = FormatWriterFactory
+          .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null);
+      rb = Response.ok(new FormatWriterOutput<EntityResponse>(writer, uriInfo, response).toByteArray(), writer.getContentType()).status(Status.CREATED);
+    }
+    if (preference != null)
+      rb.header(ODataConstants.Headers.PREFERENCE_APPLIED, preference.toString());
+
+    return rb
+        .location(URI.create(entryId))
+        .header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER)
+        .build();
+  }
+
+  /**
+   * Builds the response of an updated entity: the entity, read back, if the client prefers content,
+   * 204 if it prefers no content, and an empty 200 response otherwise.
+   */
+  protected static Response updatedResponse(HttpHeaders httpHeaders, UriInfo uriInfo, ODataProducer producer, ODataContext odataContext,
+      String entitySetName, OEntityKey entityKey) {
+    ReturnPreference preference = ReturnPreference.of(odataContext);
+    if (preference == null) {
+      // TODO: hmmh..isn't this supposed to be HTTP 204 No Content?
+      return Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+    }
+
+    ResponseBuilder rb;
+    if (preference.isNoContent()) {
+      rb = Response.noContent();
+    } else {
+      EntityResponse response = producer.getEntity(odataContext, entitySetName, entityKey, EntityQueryInfo.newBuilder().build());
+      FormatWriter<EntityResponse> writer = FormatWriterFactory
+          .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null);
+      rb = Response.ok(new FormatWriterOutput<EntityResponse>(writer, uriInfo, response).toByteArray(), writer.getContentType());
+    }
+    return rb
+        .header(ODataConstants.Headers.PREFERENCE_APPLIED, preference.toString())
+        .header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER)
+        .build();
+  }
 }
\ No newline at end of file
@@ -21,8 +21,11 @@ public class BatchBodyPart {
     this.uriInfo = uriInfo;
   }
 
+  /**
+   * Gets the headers of this part, falling back to the headers of the batch request.
+   */
   public HttpHeaders getHttpHeaders() {
-    return httpHeaders;
+    return new BatchBodyPartHeaders(httpHeaders, headers);
   }
 
   public UriInfo getUriInfo() {
@@ -0,0 +1,75 @@
+package org.odata4j.producer.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * The headers of a body part of a batch: the headers of the part, and those of the batch request
+ * for the fields the part does not set. E.g. the Prefer and Content-Type headers of the part
+ * override the ones of the batch.
+ */
+class BatchBodyPartHeaders implements HttpHeaders {
+
+  private final HttpHeaders batchHeaders;
+  private final MultivaluedMap<String, String> partHeaders;
+
+  BatchBodyPartHeaders(HttpHeaders batchHeaders, MultivaluedMap<String, String> partHeaders) {
+    this.batchHeaders = batchHeaders;
+    this.partHeaders = partHeaders;
+  }
+
+  @Override
+  public List<String> getRequestHeader(String name) {
+    List<String> values = partHeaders.get(name);
+    return values != null || batchHeaders == null ? values : batchHeaders.getRequestHeader(name);
+  }
+
+  @Override
+  public MultivaluedMap<String, String> getRequestHeaders() {
+    MultivaluedMap<String, String> rt = new HeaderMap();
+    if (batchHeaders != null)
+      rt.putAll(batchHeaders.getRequestHeaders());
+    rt.putAll(partHeaders);
+    return rt;
+  }
+
+  @Override
+  public List<MediaType> getAcceptableMediaTypes() {
+    String accept = partHeaders.getFirst(ACCEPT);
+    if (accept == null)
+      return batchHeaders.getAcceptableMediaTypes();
+    List<MediaType> rt = new ArrayList<MediaType>();
+    for (String mediaType : accept.split(","))
+      rt.add(MediaType.valueOf(mediaType.trim()));
+    return rt;
+  }
+
+  @Override
+  public List<Locale> getAcceptableLanguages() {
+    return batchHeaders.getAcceptableLanguages();
+  }
+
+  @Override
+  public MediaType getMediaType() {
+    String contentType = partHeaders.getFirst(CONTENT_TYPE);
+    return contentType == null ? batchHeaders.getMediaType() : MediaType.valueOf(contentType);
+  }
+
+  @Override
+  public Locale getLanguage() {
+    return batchHeaders.getLanguage();
+  }
+
+  @Override
+  public Map<String, Cookie> getCookies() {
+    return batchHeaders.getCookies();
+  }
+
+}
@@ -1,8 +1,10 @@
 package org.odata4j.producer.resources;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,6 +25,7 @@ import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
@@ -30,13 +33,20 @@ import org.odata4j.core.Guid;
 import org.odata4j.core.ODataConstants;
 import org.odata4j.core.ODataHttpMethod;
 import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OComplexObject;
 import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.exceptions.NotImplementedException;
 import org.odata4j.exceptions.UnsupportedMediaTypeException;
 import org.odata4j.format.FormatWriter;
 import org.odata4j.format.FormatWriterFactory;
-import org.odata4j.internal.InternalUtil;
+import org.odata4j.format.FormatWriterOutput;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.CollectionResponse;
 import org.odata4j.producer.CountResponse;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.EntityResponse;
@@ -44,6 +54,8 @@ import org.odata4j.producer.ODataContext;
 import org.odata4j.producer.ODataContextImpl;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.StreamingEntitiesResponse;
+import org.odata4j.producer.resources.ODataBatchProvider.HTTP_METHOD;
 
 // ignoreParens below is there to trim the parentheses from the entity set name when they are present - e.g. '/my.svc/Users()'.
 @Path("{entitySetName: [^/()]+?}{ignoreParens: (?:\\(\\))?}")
@@ -122,23 +134,7 @@ public class EntitiesRequestResource extends BaseResource {
       ODataContext odataContext) throws Exception {
 
     EntityResponse response = producer.createEntity(odataContext, entitySetName, entity);
-
-    FormatWriter<EntityResponse> writer = FormatWriterFactory
-        .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null);
-    StringWriter sw = new StringWriter();
-    writer.write(uriInfo, sw, response);
-
-    String relid = InternalUtil.getEntityRelId(response.getEntity());
-    String entryId = uriInfo.getBaseUri().toString() + relid;
-
-    String responseEntity = sw.toString();
-
-    return Response
-        .ok(responseEntity, writer.getContentType())
-        .status(Status.CREATED)
-        .location(URI.create(entryId))
-        .header(ODataConstants.Headers.DATA_SERVICE_VERSION,
-            ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+    return createdResponse(httpHeaders, uriInfo, response, odataContext);
   }
 
   protected Response createMediaLinkEntry(
@@ -354,6 +350,8 @@ public class EntitiesRequestResource extends BaseResource {
       return FunctionResource.callFunction(ODataHttpMethod.GET, httpHeaders, uriInfo, securityContext, producer, entitySetName, format, callback, query);
     }
 
+    AggregateQuery aggregateQuery = isCount ? null : AggregateQuery.parse(query.customOptions);
+
     Response response = null;
     if (isCount) {
       CountResponse countResponse = producer.getEntitiesCount(odataContext, entitySetName, query);
@@ -368,33 +366,79 @@ public class EntitiesRequestResource extends BaseResource {
           .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
           .build();
     }
-    else {
-      EntitiesResponse entitiesResponse = producer.getEntities(odataContext, entitySetName, query);
+    else if (aggregateQuery != null) {
+      AggregationExtension aggregation = producer.findExtension(AggregationExtension.class);
+      if (aggregation == null)
+        throw new NotImplementedException("Aggregation is not supported by this producer");
 
-      if (entitiesResponse == null) {
-        throw new NotFoundException(entitySetName);
-      }
+      CollectionResponse<OComplexObject> collectionResponse = aggregation.aggregate(odataContext, entitySetName, query, aggregateQuery);
 
-      StringWriter sw = new StringWriter();
-      FormatWriter<EntitiesResponse> fw =
+      @SuppressWarnings("rawtypes")
+      FormatWriter<CollectionResponse> fw =
           FormatWriterFactory.getFormatWriter(
-              EntitiesResponse.class,
+              CollectionResponse.class,
               httpHeaders.getAcceptableMediaTypes(),
               format,
               callback);
 
-      fw.write(uriInfo, sw, entitiesResponse);
-      String entity = sw.toString();
-
-      // TODO remove this hack, check whether we are Version 2.0 compatible anyway
-      ODataVersion version = MediaType.valueOf(fw.getContentType()).isCompatible(MediaType.APPLICATION_JSON_TYPE)
-          ? ODataVersion.V2 : ODataVersion.V2;
+      @SuppressWarnings("rawtypes")
+      byte[] entity = new FormatWriterOutput<CollectionResponse>(fw, uriInfo, collectionResponse).toByteArray();
 
       response = Response
           .ok(entity, fw.getContentType())
-          .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
+          .header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataVersion.V2.asString)
           .build();
     }
+    else {
+      final EntitiesResponse entitiesResponse = producer.getEntities(odataContext, entitySetName, query);
+
+      if (entitiesResponse == null) {
+        throw new NotFoundException(entitySetName);
+      }
+
+      // a streaming response is closed by its output once written, or here if building the response fails
+      boolean streaming = false;
+      try {
+        final FormatWriter<EntitiesResponse> fw =
+            FormatWriterFactory.getFormatWriter(
+                EntitiesResponse.class,
+                httpHeaders.getAcceptableMediaTypes(),
+                format,
+                callback);
+
+        // TODO remove this hack, check whether we are Version 2.0 compatible anyway
+        ODataVersion version = MediaType.valueOf(fw.getContentType()).isCompatible(MediaType.APPLICATION_JSON_TYPE)
+            ? ODataVersion.V2 : ODataVersion.V2;
+
+        Object entity;
+        if (entitiesResponse instanceof StreamingEntitiesResponse) {
+          // entities read while they are written, the producer releases its resources on close
+          final UriInfo streamUriInfo = uriInfo;
+          entity = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+              try {
+                new FormatWriterOutput<EntitiesResponse>(fw, streamUriInfo, entitiesResponse).write(output);
+              } finally {
+                ((StreamingEntitiesResponse) entitiesResponse).close();
+              }
+            }
+          };
+        } else {
+          // written before the response is built, so that a write error still changes its status
+          entity = new FormatWriterOutput<EntitiesResponse>(fw, uriInfo, entitiesResponse).toByteArray();
+        }
+
+        response = Response
+            .ok(entity, fw.getContentType())
+            .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
+            .build();
+        streaming = entitiesResponse instanceof StreamingEntitiesResponse;
+      } finally {
+        if (!streaming && entitiesResponse instanceof StreamingEntitiesResponse)
+          ((StreamingEntitiesResponse) entitiesResponse).close();
+      }
+    }
     return response;
   }
 
@@ -435,33 +479,41 @@ public class EntitiesRequestResource extends BaseResource {
         .aspect(producer)
         .build();
 
-    for (BatchBodyPart bodyPart : bodyParts) {
-      HttpHeaders httpHeaders = bodyPart.getHttpHeaders();
-      UriInfo uriInfo = bodyPart.getUriInfo();
-      String entitySetName = bodyPart.getEntitySetName();
-      String entityId = bodyPart.getEntityKey();
-      String entityString = bodyPart.getEntity();
-      Response response = null;
-
-      switch (bodyPart.getHttpMethod()) {
-      case POST:
-        response = this.createEntity(httpHeaders, uriInfo, securityContext, producer,
-            entitySetName,
-            getRequestEntity(httpHeaders, uriInfo, entityString, producer.getMetadata(), entitySetName, null), odataContext);
-        break;
-      case PUT:
-        response = er.updateEntity(httpHeaders, uriInfo, securityContext, producerResolver,
-            entitySetName, entityId, entityString, odataContext);
-        break;
-      case MERGE:
-        response = er.mergeEntity(httpHeaders, uriInfo, producerResolver, securityContext, entitySetName,
-            entityId, entityString);
-        break;
-      case DELETE:
-        response = er.deleteEntity(httpHeaders, uriInfo, producerResolver, securityContext, format, callback, entitySetName, entityId);
-        break;
-      case GET:
-        throw new UnsupportedOperationException("Not supported yet.");
+    List<Response> responses = processChangeSet(producer, odataContext, securityContext, bodyParts);
+    for (int i = 0; i < bodyParts.size(); i++) {
+      BatchBodyPart bodyPart = bodyParts.get(i);
+      Response response;
+      if (responses != null) {
+        response = responses.get(i);
+      } else {
+        HttpHeaders httpHeaders = bodyPart.getHttpHeaders();
+        UriInfo uriInfo = bodyPart.getUriInfo();
+        String entitySetName = bodyPart.getEntitySetName();
+        String entityId = bodyPart.getEntityKey();
+        String entityString = bodyPart.getEntity();
+        response = null;
+
+        switch (bodyPart.getHttpMethod()) {
+        case POST:
+          response = this.createEntity(httpHeaders, uriInfo, securityContext, producer,
+              entitySetName,
+              getRequestEntity(httpHeaders, uriInfo, entityString, producer.getMetadata(), entitySetName, null),
+              bodyPartContext(bodyPart, securityContext, producer));
+          break;
+        case PUT:
+          response = er.updateEntity(httpHeaders, uriInfo, securityContext, producerResolver,
+              entitySetName, entityId, entityString, bodyPartContext(bodyPart, securityContext, producer));
+          break;
+        case MERGE:
+          response = er.mergeEntity(httpHeaders, uriInfo, producerResolver, entitySetName,
+              entityId, entityString, bodyPartContext(bodyPart, securityContext, producer));
+          break;
+        case DELETE:
+          response = er.deleteEntity(httpHeaders, uriInfo, producerResolver, securityContext, format, callback, entitySetName, entityId);
+          break;
+        case GET:
+          throw new UnsupportedOperationException("Not supported yet.");
+        }
       }
 
       batchResponse.append("\n--").append(changesetBoundary);
@@ -485,6 +537,62 @@ public class EntitiesRequestResource extends BaseResource {
         .entity(batchResponse.toString()).build();
   }
 
+  /**
+   * Applies the inserts and deletes of a batch as one change set, if the producer supports it.
+   *
+   * @return the responses of the body parts, or null if the batch has to be processed part by part
+   */
+  private List<Response> processChangeSet(ODataProducer producer, ODataContext odataContext, SecurityContext securityContext,
+      List<BatchBodyPart> bodyParts) throws Exception {
+    ChangeSetExtension changeSetExtension = producer.findExtension(ChangeSetExtension.class);
+    if (changeSetExtension == null)
+      return null;
+    for (BatchBodyPart bodyPart : bodyParts) {
+      if (bodyPart.getHttpMethod() != HTTP_METHOD.POST && bodyPart.getHttpMethod() != HTTP_METHOD.DELETE)
+        return null;
+      // media resources are deleted through the OMediaLinkExtension
+      EdmEntitySet entitySet = producer.getMetadata().findEdmEntitySet(bodyPart.getEntitySetName());
+      if (entitySet == null || Boolean.TRUE.equals(entitySet.getType().getHasStream()))
+        return null;
+    }
+
+    ChangeSetExtension.ChangeSet changeSet = changeSetExtension.newChangeSet(odataContext);
+    List<ODataContext> bodyPartContexts = new ArrayList<ODataContext>(bodyParts.size());
+    for (BatchBodyPart bodyPart : bodyParts) {
+      String entitySetName = bodyPart.getEntitySetName();
+      ODataContext bodyPartContext = bodyPartContext(bodyPart, securityContext, producer);
+      bodyPartContexts.add(bodyPartContext);
+      if (bodyPart.getHttpMethod() == HTTP_METHOD.POST)
+        changeSet.createEntity(bodyPartContext, entitySetName, getRequestEntity(bodyPart.getHttpHeaders(), bodyPart.getUriInfo(),
+            bodyPart.getEntity(), producer.getMetadata(), entitySetName, null));
+      else
+        changeSet.deleteEntity(entitySetName, OEntityKey.parse(bodyPart.getEntityKey()));
+    }
+    List<EntityResponse> entityResponses = changeSet.commit();
+
+    List<Response> rt = new ArrayList<Response>(bodyParts.size());
+    for (int i = 0; i < bodyParts.size(); i++) {
+      BatchBodyPart bodyPart = bodyParts.get(i);
+      if (bodyPart.getHttpMethod() == HTTP_METHOD.POST)
+        rt.add(createdResponse(bodyPart.getHttpHeaders(), bodyPart.getUriInfo(), entityResponses.get(i), bodyPartContexts.get(i)));
+      else
+        rt.add(Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build());
+    }
+    return rt;
+  }
+
+  /**
+   * Creates the context of a body part of a batch, with the headers of the part, e.g. its Prefer header.
+   */
+  private static ODataContext bodyPartContext(BatchBodyPart bodyPart, SecurityContext securityContext, ODataProducer producer) {
+    // the headers go last, the SecurityContext can be the request and bring the headers of the batch
+    return ODataContextImpl.builder()
+        .aspect(securityContext)
+        .aspect(producer)
+        .aspect(bodyPart.getHttpHeaders())
+        .build();
+  }
+
   private static void log(String operation, Object... namedArgs) {
     if (!log.isLoggable(Level.FINE))
       return;
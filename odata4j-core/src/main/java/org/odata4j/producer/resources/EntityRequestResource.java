@@ -3,7 +3,6 @@ package org.odata4j.producer.resources;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.util.logging.Logger;
 
 import javax.ws.rs.DELETE;
@@ -32,6 +31,7 @@ import org.odata4j.exceptions.MethodNotAllowedException;
 import org.odata4j.exceptions.NotFoundException;
 import org.odata4j.format.FormatWriter;
 import org.odata4j.format.FormatWriterFactory;
+import org.odata4j.format.FormatWriterOutput;
 import org.odata4j.producer.EntityQueryInfo;
 import org.odata4j.producer.EntityResponse;
 import org.odata4j.producer.ODataContext;
@@ -82,8 +82,7 @@ public class EntityRequestResource extends BaseResource {
     OEntity entity = this.getRequestEntity(httpHeaders, uriInfo, payload, producer.getMetadata(), entitySetName, OEntityKey.parse(id));
     producer.updateEntity(odataContext, entitySetName, entity);
 
-    // TODO: hmmh..isn't this supposed to be HTTP 204 No Content?
-    return Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+    return updatedResponse(httpHeaders, uriInfo, producer, odataContext, entitySetName, entity.getEntityKey());
   }
 
   /**
@@ -127,8 +126,7 @@ public class EntityRequestResource extends BaseResource {
     OEntity entity = this.getRequestEntity(httpHeaders, uriInfo, payload, producer.getMetadata(), entitySetName, OEntityKey.parse(id));
     producer.updateEntity(odataContext, entitySetName, entity);
 
-    // TODO: hmmh..isn't this supposed to be HTTP 204 No Content?
-    return Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+    return updatedResponse(httpHeaders, uriInfo, producer, odataContext, entitySetName, entity.getEntityKey());
   }
 
   /**
@@ -168,8 +166,7 @@ public class EntityRequestResource extends BaseResource {
       OEntity entity = this.getRequestEntity(httpHeaders, uriInfo, payload, producer.getMetadata(), entitySetName, entityKey);
       producer.mergeEntity(context, entitySetName, entity);
 
-      // TODO: hmmh..isn't this supposed to be HTTP 204 No Content?
-      return Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+      return updatedResponse(httpHeaders, uriInfo, producer, context, entitySetName, entity.getEntityKey());
     }
 
     if ("DELETE".equals(method)) {
@@ -183,8 +180,7 @@ public class EntityRequestResource extends BaseResource {
       OEntity entity = this.getRequestEntity(httpHeaders, uriInfo, payload, producer.getMetadata(), entitySetName, OEntityKey.parse(id));
       producer.updateEntity(context, entitySetName, entity);
 
-      // TODO: hmmh..isn't this supposed to be HTTP 204 No Content?
-      return Response.ok().header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+      return updatedResponse(httpHeaders, uriInfo, producer, context, entitySetName, entity.getEntityKey());
     }
 
     if (method != null)
@@ -193,6 +189,29 @@ public class EntityRequestResource extends BaseResource {
       throw new MethodNotAllowedException("POST is not allowed for an entity");
   }
 
+  /**
+   * Merges an entity given a String payload, in the given context.
+   * Note: like {@link #updateEntity(HttpHeaders, UriInfo, SecurityContext, ContextResolver, String, String, String, ODataContext)},
+   *       this exists for EntitiesRequestResource processBatch, where the context carries the headers
+   *       of the batch part.
+   */
+  protected Response mergeEntity(HttpHeaders httpHeaders, UriInfo uriInfo,
+      ContextResolver<ODataProducer> producerResolver,
+      String entitySetName,
+      String id,
+      String payload,
+      ODataContext odataContext) {
+
+    log.info(String.format("mergeEntity(%s,%s)", entitySetName, id));
+
+    ODataProducer producer = producerResolver.getContext(ODataProducer.class);
+
+    OEntity entity = this.getRequestEntity(httpHeaders, uriInfo, payload, producer.getMetadata(), entitySetName, OEntityKey.parse(id));
+    producer.mergeEntity(odataContext, entitySetName, entity);
+
+    return updatedResponse(httpHeaders, uriInfo, producer, odataContext, entitySetName, entity.getEntityKey());
+  }
+
   @DELETE
   public Response deleteEntity(@Context HttpHeaders httpHeaders, @Context UriInfo uriInfo,
       @Context ContextResolver<ODataProducer> producerResolver,
@@ -298,12 +317,9 @@ public class EntityRequestResource extends BaseResource {
       throw new BadRequestException("Illegal key " + id, e);
     }
 
-    StringWriter sw = new StringWriter();
     FormatWriter<EntityResponse> fw = FormatWriterFactory.getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), format, callback);
-    fw.write(uriInfo, sw, response);
-    String entity = sw.toString();
 
-    return Response.ok(entity, fw.getContentType()).header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
+    return Response.ok(new FormatWriterOutput<EntityResponse>(fw, uriInfo, response).toByteArray(), fw.getContentType()).header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER).build();
   }
 
   @Path("{first: \\$}links/{targetNavProp:.+?}{targetId: (\\(.+?\\))?}")
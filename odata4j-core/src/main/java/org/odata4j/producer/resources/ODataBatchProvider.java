@@ -7,6 +7,7 @@ import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,7 +68,9 @@ public class ODataBatchProvider implements MessageBodyReader<List<BatchBodyPart>
     }
 
     body.append('\n');
-    if (response.getEntity() != null) {
+    if (response.getEntity() instanceof byte[]) {
+      body.append(new String((byte[]) response.getEntity(), Charset.forName("UTF-8")));
+    } else if (response.getEntity() != null) {
       body.append(response.getEntity().toString());
     }
 
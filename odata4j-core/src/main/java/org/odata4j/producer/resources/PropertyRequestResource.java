@@ -35,6 +35,7 @@ import org.odata4j.producer.BaseResponse;
 import org.odata4j.producer.CountResponse;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ODataContext;
 import org.odata4j.producer.ODataContextImpl;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.PropertyResponse;
@@ -82,31 +83,14 @@ public class PropertyRequestResource extends BaseResource {
       OEntity entity = getRequestEntity(httpHeaders, uriInfo, payload, metadata, ees.getName(), OEntityKey.parse(id));
 
       // execute the create
-      EntityResponse response = producer.createEntity(ODataContextImpl.builder().aspect(httpHeaders).aspect(securityContext).build(),
-          entitySetName, OEntityKey.parse(id), navProp, entity);
+      ODataContext odataContext = ODataContextImpl.builder().aspect(httpHeaders).aspect(securityContext).build();
+      EntityResponse response = producer.createEntity(odataContext, entitySetName, OEntityKey.parse(id), navProp, entity);
 
       if (response == null) {
         throw new NotFoundException();
       }
 
-      // get the FormatWriter for the accepted media types requested by client
-      StringWriter sw = new StringWriter();
-      FormatWriter<EntityResponse> fw = FormatWriterFactory
-          .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null);
-      fw.write(uriInfo, sw, response);
-
-      // calculate the uri for the location header
-      String relid = InternalUtil.getEntityRelId(response.getEntity());
-      String entryId = uriInfo.getBaseUri().toString() + relid;
-
-      // create the response
-      String responseEntity = sw.toString();
-      return Response
-          .ok(responseEntity, fw.getContentType())
-          .status(Status.CREATED)
-          .location(URI.create(entryId))
-          .header(ODataConstants.Headers.DATA_SERVICE_VERSION, ODataConstants.DATA_SERVICE_VERSION_HEADER)
-          .build();
+      return createdResponse(httpHeaders, uriInfo, response, odataContext);
     }
 
     throw new NotImplementedException("Not supported yet.");
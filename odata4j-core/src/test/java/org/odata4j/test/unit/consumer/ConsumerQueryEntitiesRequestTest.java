@@ -0,0 +1,124 @@
+package org.odata4j.test.unit.consumer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.odata4j.consumer.ConsumerQueryEntitiesRequest;
+import org.odata4j.consumer.ODataClient;
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.ODataClientResponse;
+import org.odata4j.core.ODataConstants;
+import org.odata4j.core.OEntity;
+import org.odata4j.edm.EdmDataServices;
+import org.odata4j.edm.EdmEntityContainer;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSchema;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.format.FormatType;
+
+public class ConsumerQueryEntitiesRequestTest {
+
+  private static final String PAGE_1 = "{ \"d\" : { \"results\" : ["
+      + " { \"__metadata\" : { \"uri\" : \"http://localhost/Products(1)\" }, \"id\" : 1 },"
+      + " { \"__metadata\" : { \"uri\" : \"http://localhost/Products(2)\" }, \"id\" : 2 } ],"
+      + " \"__next\" : \"http://localhost/Products?$skiptoken=2\" } }";
+
+  private static final String PAGE_2 = "{ \"d\" : { \"results\" : ["
+      + " { \"__metadata\" : { \"uri\" : \"http://localhost/Products(3)\" }, \"id\" : 3 } ] } }";
+
+  /**
+   * A client serving two pages of products, counting the requests and the open responses.
+   */
+  private static class PagingClient {
+
+    int requests;
+    int openResponses;
+    final ODataClient client = mock(ODataClient.class);
+
+    @SuppressWarnings("unchecked")
+    PagingClient() {
+      when(client.getFormatType()).thenReturn(FormatType.JSON);
+      when(client.getEntities(any(ODataClientRequest.class))).thenAnswer(new Answer<ODataClientResponse>() {
+        @Override
+        public ODataClientResponse answer(InvocationOnMock invocation) {
+          requests++;
+          openResponses++;
+          final boolean second = ((ODataClientRequest) invocation.getArguments()[0]).getQueryParams().containsKey("$skiptoken");
+          ODataClientResponse response = mock(ODataClientResponse.class);
+          MultivaluedMap<String, String> headers = mock(MultivaluedMap.class);
+          when(headers.getFirst(ODataConstants.Headers.DATA_SERVICE_VERSION)).thenReturn("2.0");
+          when(response.getHeaders()).thenReturn(headers);
+          when(client.getFeedReader(response)).thenReturn(new StringReader(second ? PAGE_2 : PAGE_1));
+          doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+              openResponses--;
+              return null;
+            }
+          }).when(response).close();
+          return response;
+        }
+      });
+    }
+
+    ConsumerQueryEntitiesRequest<OEntity> request() {
+      EdmEntityType.Builder entityType = new EdmEntityType.Builder().setNamespace("Sample").setName("Product").addKeys("id")
+          .addProperties(EdmProperty.newBuilder("id").setType(EdmSimpleType.INT32));
+      EdmEntitySet.Builder entitySet = new EdmEntitySet.Builder().setName("Products").setEntityType(entityType);
+      EdmEntityContainer.Builder container = new EdmEntityContainer.Builder().addEntitySets(entitySet);
+      EdmSchema.Builder schema = new EdmSchema.Builder().addEntityContainers(container).addEntityTypes(entityType);
+      EdmDataServices metadata = new EdmDataServices.Builder().addSchemas(schema).build();
+      return new ConsumerQueryEntitiesRequest<OEntity>(client, OEntity.class, "http://localhost/", metadata, "Products");
+    }
+  }
+
+  @Test
+  public void executeClosesEachPageBeforeItsEntriesAreReturned() {
+    PagingClient client = new PagingClient();
+
+    Assert.assertEquals(1, client.request().execute().first().getProperty("id").getValue());
+    Assert.assertEquals(1, client.requests);
+    Assert.assertEquals(0, client.openResponses);
+
+    Assert.assertEquals(3, client.request().execute().count());
+    Assert.assertEquals(3, client.requests);
+    Assert.assertEquals(0, client.openResponses);
+  }
+
+  @Test
+  public void streamHoldsTheResponseUntilClosed() {
+    PagingClient client = new PagingClient();
+
+    ConsumerQueryEntitiesRequest.EntityStream<OEntity> stream = client.request().stream();
+    Assert.assertEquals(0, client.requests);
+    Assert.assertEquals(1, stream.next().getProperty("id").getValue());
+    Assert.assertEquals(1, client.openResponses);
+    stream.close();
+    Assert.assertEquals(0, client.openResponses);
+    Assert.assertFalse(stream.hasNext());
+
+    stream = client.request().stream();
+    int count = 0;
+    while (stream.hasNext()) {
+      stream.next();
+      count++;
+    }
+    Assert.assertEquals(3, count);
+    Assert.assertEquals(3, client.requests);
+    Assert.assertEquals(0, client.openResponses);
+  }
+
+}
@@ -0,0 +1,104 @@
+package org.odata4j.test.unit.edm;
+
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.Assert;
+
+import org.core4j.Funcs;
+import org.junit.Test;
+import org.odata4j.edm.CachedEdmGenerator;
+import org.odata4j.edm.EdmDataServices;
+import org.odata4j.edm.EdmDecorator;
+import org.odata4j.edm.EdmGenerator;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.producer.inmemory.InMemoryProducer;
+
+public class CachedEdmGeneratorTest {
+
+  public static class Item {
+    private int id;
+    private String name;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  private static InMemoryProducer newProducer(File file) {
+    InMemoryProducer producer = new InMemoryProducer("ns");
+    producer.register(Item.class, "Items", Funcs.constant((Iterable<Item>) Collections.<Item> emptyList()), "Id");
+    producer.setMetadataCache(file);
+    return producer;
+  }
+
+  private static class CountingGenerator implements EdmGenerator {
+
+    int generated;
+
+    @Override
+    public EdmDataServices.Builder generateEdm(EdmDecorator decorator) {
+      generated++;
+      return EdmDataServices.newBuilder(newProducer(null).getMetadata());
+    }
+  }
+
+  @Test
+  public void cachedUntilFingerprintChanges() throws Exception {
+    File file = File.createTempFile("metadata", ".edmx");
+    file.delete();
+    try {
+      String fingerprint = CachedEdmGenerator.fingerprint(Collections.<Class<?>> singleton(Item.class), "ns");
+      CountingGenerator generator = new CountingGenerator();
+
+      EdmDataServices metadata = new CachedEdmGenerator(generator, file, fingerprint).generateEdm(null).build();
+      Assert.assertTrue(file.exists());
+      Assert.assertEquals(1, generator.generated);
+
+      // unchanged fingerprint, the metadata comes from the file
+      metadata = new CachedEdmGenerator(generator, file, fingerprint).generateEdm(null).build();
+      Assert.assertEquals(1, generator.generated);
+      Assert.assertEquals(EdmSimpleType.INT32, metadata.getEdmEntitySet("Items").getType().findProperty("Id").getType());
+      Assert.assertEquals(EdmSimpleType.STRING, metadata.getEdmEntitySet("Items").getType().findProperty("Name").getType());
+
+      // other settings change the fingerprint
+      String other = CachedEdmGenerator.fingerprint(Collections.<Class<?>> singleton(Item.class), "other");
+      Assert.assertFalse(fingerprint.equals(other));
+      Assert.assertEquals(fingerprint, CachedEdmGenerator.fingerprint(Collections.<Class<?>> singleton(Item.class), "ns"));
+      new CachedEdmGenerator(generator, file, other).generateEdm(null).build();
+      Assert.assertEquals(2, generator.generated);
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void inMemoryProducer() throws Exception {
+    File file = File.createTempFile("metadata", ".edmx");
+    file.delete();
+    try {
+      EdmDataServices generated = newProducer(file).getMetadata();
+      Assert.assertTrue(file.exists());
+      long modified = file.lastModified();
+
+      EdmDataServices cached = newProducer(file).getMetadata();
+      Assert.assertEquals(modified, file.lastModified());
+      Assert.assertEquals(generated.getEdmEntitySet("Items").getType().getKeys(), cached.getEdmEntitySet("Items").getType().getKeys());
+    } finally {
+      file.delete();
+    }
+  }
+
+}
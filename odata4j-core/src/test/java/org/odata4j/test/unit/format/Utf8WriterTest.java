@@ -0,0 +1,51 @@
+package org.odata4j.test.unit.format;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.format.Utf8Writer;
+
+public class Utf8WriterTest {
+
+  private static byte[] write(String value, int chunk) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8Writer writer = new Utf8Writer(out);
+    try {
+      for (int i = 0; i < value.length(); i += chunk) {
+        if (chunk == 1)
+          writer.write(value.charAt(i));
+        else
+          writer.write(value, i, Math.min(chunk, value.length() - i));
+      }
+      writer.flush();
+    } finally {
+      writer.release();
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void encodesAsString() throws Exception {
+    // ASCII, two and three byte characters, and a surrogate pair, across the buffer
+    Random random = new Random(1);
+    StringBuilder sb = new StringBuilder();
+    String[] parts = { "a", "<x/>", "é", "€", "😀" };
+    while (sb.length() < 30000)
+      sb.append(parts[random.nextInt(parts.length)]);
+    String value = sb.toString();
+
+    for (int chunk : new int[] { 1, 2, 3, 1000, value.length() })
+      Assert.assertTrue(Arrays.equals(value.getBytes("UTF-8"), write(value, chunk)));
+  }
+
+  @Test
+  public void unpairedSurrogates() throws Exception {
+    Assert.assertEquals("a?b?c", new String(write("a\ud83db\ude00c", 1), "UTF-8"));
+    Assert.assertEquals("??x", new String(write("\ud83d\ud83dx", 2), "UTF-8"));
+  }
+
+}
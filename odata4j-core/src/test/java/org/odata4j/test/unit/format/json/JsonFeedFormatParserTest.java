@@ -0,0 +1,93 @@
+package org.odata4j.test.unit.format.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.edm.EdmDataServices;
+import org.odata4j.edm.EdmEntityContainer;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSchema;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.format.Entry;
+import org.odata4j.format.Feed;
+import org.odata4j.format.Settings;
+import org.odata4j.format.json.JsonFeedFormatParser;
+
+public class JsonFeedFormatParserTest {
+
+  private static final String FEED = "{ \"d\" : { \"results\" : ["
+      + " { \"__metadata\" : { \"uri\" : \"http://localhost/Products(1)\" }, \"id\" : 1 },"
+      + " { \"__metadata\" : { \"uri\" : \"http://localhost/Products(2)\" }, \"id\" : 2 } ],"
+      + " \"__count\" : \"2\", \"__next\" : \"http://localhost/Products?$skiptoken=2\" } }";
+
+  private static class ClosingReader extends StringReader {
+
+    boolean closed;
+
+    ClosingReader(String s) {
+      super(s);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      super.close();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (closed)
+        throw new IOException("closed");
+      return super.read(cbuf, off, len);
+    }
+  }
+
+  private static JsonFeedFormatParser parser() {
+    EdmEntityType.Builder entityType = new EdmEntityType.Builder().setNamespace("Sample").setName("Product").addKeys("id")
+        .addProperties(EdmProperty.newBuilder("id").setType(EdmSimpleType.INT32));
+    EdmEntitySet.Builder entitySet = new EdmEntitySet.Builder().setName("Products").setEntityType(entityType);
+    EdmEntityContainer.Builder container = new EdmEntityContainer.Builder().addEntitySets(entitySet);
+    EdmSchema.Builder schema = new EdmSchema.Builder().addEntityContainers(container).addEntityTypes(entityType);
+    EdmDataServices metadata = new EdmDataServices.Builder().addSchemas(schema).build();
+    return new JsonFeedFormatParser(new Settings(ODataVersion.V2, metadata, "Products", null));
+  }
+
+  @Test
+  public void entriesAreParsedAsTheyAreIterated() {
+    ClosingReader reader = new ClosingReader(FEED);
+    Feed feed = parser().parse(reader);
+
+    Iterator<Entry> entries = feed.getEntries().iterator();
+    Assert.assertEquals(1, entries.next().getEntity().getProperty("id").getValue());
+    Assert.assertFalse(reader.closed);
+    Assert.assertEquals(2, entries.next().getEntity().getProperty("id").getValue());
+    Assert.assertFalse(entries.hasNext());
+    Assert.assertTrue(reader.closed);
+    Assert.assertEquals("http://localhost/Products?$skiptoken=2", feed.getNext());
+  }
+
+  @Test
+  public void nextParsesTheRemainingEntries() {
+    ClosingReader reader = new ClosingReader(FEED);
+    Feed feed = parser().parse(reader);
+
+    Assert.assertEquals("http://localhost/Products?$skiptoken=2", feed.getNext());
+    Assert.assertTrue(reader.closed);
+    Assert.assertFalse(feed.getEntries().iterator().hasNext());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void entriesAreIteratedOnce() {
+    Feed feed = parser().parse(new StringReader(FEED));
+    feed.getEntries().iterator();
+    feed.getEntries().iterator();
+  }
+
+}
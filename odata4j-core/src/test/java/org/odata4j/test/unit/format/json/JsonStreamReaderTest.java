@@ -0,0 +1,120 @@
+package org.odata4j.test.unit.format.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.format.json.JsonStreamReaderFactory;
+import org.odata4j.format.json.JsonStreamReaderFactory.JsonParseException;
+import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader;
+import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader.JsonEvent;
+import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamTokenizer;
+import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamTokenizer.JsonTokenType;
+
+public class JsonStreamReaderTest {
+
+  private static final String JSON = "\uFEFF{ \"a\\\"b\" : \"x\\\\y\\n\\u00e9\\/\", \"n\" : [ -12, 0.5, 1.5E+10, true, false, null, \"\" ],"
+      + " \"o\" : { \"p\" : null, \"q\" : 1e-3 } }";
+
+  // reads one character at a time, so that every token spans reads
+  private static class SlowReader extends Reader {
+
+    private final Reader reader;
+
+    SlowReader(String s) {
+      reader = new StringReader(s);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return reader.read(cbuf, off, Math.min(len, 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  private static String events(Reader reader) {
+    JsonStreamReader jsr = JsonStreamReaderFactory.createJsonStreamReader(reader);
+    StringBuilder sb = new StringBuilder();
+    while (jsr.hasNext())
+      sb.append(jsr.nextEvent()).append(' ');
+    return sb.toString().trim();
+  }
+
+  @Test
+  public void events() {
+    String expected = "StartObject('{') StartProperty(a\"b) EndProperty(x\\y\né/) StartProperty(n) StartArray('[')"
+        + " Value(-12) Value(0.5) Value(1.5E+10) Value(true) Value(false) Value(<null>) Value() EndArray(']') EndProperty(<null>)"
+        + " StartProperty(o) StartObject('{') StartProperty(p) EndProperty(<null>) StartProperty(q) EndProperty(1e-3) EndObject('}')"
+        + " EndProperty(<null>) EndObject('}')";
+    Assert.assertEquals(expected, events(new StringReader(JSON)));
+    Assert.assertEquals(expected, events(new SlowReader(JSON)));
+  }
+
+  @Test
+  public void valueTokenTypes() {
+    JsonStreamReader jsr = JsonStreamReaderFactory.createJsonStreamReader(new StringReader("{\"a\":1,\"b\":\"1\",\"c\":true,\"d\":null}"));
+    jsr.nextEvent();
+    JsonTokenType[] types = { JsonTokenType.NUMBER, JsonTokenType.STRING, JsonTokenType.TRUE, JsonTokenType.NULL };
+    for (JsonTokenType type : types) {
+      jsr.nextEvent();
+      Assert.assertEquals(type, jsr.nextEvent().asEndProperty().getValueTokenType());
+    }
+    Assert.assertTrue(jsr.nextEvent().isEndObject());
+    Assert.assertFalse(jsr.hasNext());
+  }
+
+  @Test
+  public void namesAreInterned() {
+    JsonStreamReader jsr1 = JsonStreamReaderFactory.createJsonStreamReader(new StringReader("{\"EntityName\":1}"));
+    JsonStreamReader jsr2 = JsonStreamReaderFactory.createJsonStreamReader(new SlowReader("{\"EntityName\":2}"));
+    jsr1.nextEvent();
+    jsr2.nextEvent();
+    String name = jsr1.nextEvent().asStartProperty().getName();
+    Assert.assertEquals("EntityName", name);
+    Assert.assertSame(name, jsr2.nextEvent().asStartProperty().getName());
+  }
+
+  @Test
+  public void skipNestedEvents() {
+    JsonStreamReader jsr = JsonStreamReaderFactory.createJsonStreamReader(new StringReader(JSON));
+    jsr.nextEvent();
+    jsr.nextEvent();
+    jsr.nextEvent();
+    Assert.assertEquals("n", jsr.nextEvent().asStartProperty().getName());
+    jsr.skipNestedEvents();
+    Assert.assertEquals("o", jsr.nextEvent().asStartProperty().getName());
+  }
+
+  @Test
+  public void tokens() {
+    JsonStreamTokenizer tokenizer = JsonStreamReaderFactory.createJsonStreamTokenizer(new SlowReader("[12.5,\"s\",null]"));
+    StringBuilder sb = new StringBuilder();
+    while (tokenizer.hasNext())
+      sb.append(tokenizer.nextToken()).append(' ');
+    Assert.assertEquals("LEFT_BRACKET NUMBER(12.5) COMMA STRING(s) COMMA NULL(null) RIGHT_BRACKET", sb.toString().trim());
+    Assert.assertNull(tokenizer.nextToken());
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void illegalNumber() {
+    events(new StringReader("{\"a\":1-2}"));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void unterminatedString() {
+    events(new StringReader("{\"a\":\"b"));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void illegalLiteral() {
+    events(new StringReader("{\"a\":nul}"));
+  }
+
+}
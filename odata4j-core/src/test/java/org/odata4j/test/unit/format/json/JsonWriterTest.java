@@ -0,0 +1,68 @@
+package org.odata4j.test.unit.format.json;
+
+import java.io.StringWriter;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.format.json.JsonWriter;
+
+public class JsonWriterTest {
+
+  private static void writeObject(JsonWriter jw) {
+    jw.startObject();
+    jw.writeName("a\"b");
+    jw.writeString("x\\y\n\u0001é");
+    jw.writeSeparator();
+    jw.writeName("n");
+    jw.startArray();
+    jw.writeNumber(Integer.MIN_VALUE);
+    jw.writeSeparator();
+    jw.writeNumber(0);
+    jw.writeSeparator();
+    jw.writeNumber(Long.MIN_VALUE);
+    jw.writeSeparator();
+    jw.writeQuotedNumber(1234567890123L);
+    jw.writeSeparator();
+    jw.writeNumber(2.50f);
+    jw.writeSeparator();
+    jw.writeNumber(1.0E10f);
+    jw.writeSeparator();
+    jw.writeBoolean(false);
+    jw.writeSeparator();
+    jw.writeNull();
+    jw.endArray();
+    jw.endObject();
+    jw.flush();
+  }
+
+  @Test
+  public void pretty() {
+    StringWriter sw = new StringWriter();
+    writeObject(new JsonWriter(sw, false));
+    Assert.assertEquals("{\n\"a\\\"b\" : \"x\\\\y\\n\\u0001é\", \"n\" : [\n"
+        + "-2147483648, 0, -9223372036854775808, \"1234567890123\", 2.5, 1.0E10, false, null\n]\n}", sw.toString());
+  }
+
+  @Test
+  public void compact() {
+    StringWriter sw = new StringWriter();
+    writeObject(new JsonWriter(sw, true));
+    Assert.assertEquals("{\"a\\\"b\":\"x\\\\y\\n\\u0001é\",\"n\":["
+        + "-2147483648,0,-9223372036854775808,\"1234567890123\",2.5,1.0E10,false,null]}", sw.toString());
+  }
+
+  @Test
+  public void buffered() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++)
+      sb.append("a\"");
+    StringWriter sw = new StringWriter();
+    JsonWriter jw = new JsonWriter(sw, true);
+    jw.writeString(sb.toString());
+    Assert.assertTrue(sw.toString().length() < 15002);
+    jw.flush();
+    Assert.assertEquals("\"" + sb.toString().replace("\"", "\\\"") + "\"", sw.toString());
+  }
+
+}
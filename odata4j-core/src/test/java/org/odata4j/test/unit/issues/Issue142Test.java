@@ -5,6 +5,7 @@ import java.io.InputStreamReader;
 
 import junit.framework.Assert;
 
+import org.core4j.Enumerable;
 import org.junit.Test;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntityContainer;
@@ -25,6 +26,8 @@ public class Issue142Test {
     EdmDataServices metadata = getMetadata();
     AtomFeed feed = new AtomFeedFormatParser(metadata, "WorkflowTaskCollection", null).parse(new InputStreamReader(xml));
     Assert.assertNotNull(feed);
+    // the entries are parsed as they are iterated
+    Assert.assertTrue(Enumerable.create(feed.getEntries()).count() > 0);
   }
 
   private static EdmDataServices getMetadata() {
@@ -5,6 +5,7 @@ import java.io.InputStreamReader;
 
 import junit.framework.Assert;
 
+import org.core4j.Enumerable;
 import org.junit.Test;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.format.xml.AtomFeedFormatParser;
@@ -25,6 +26,8 @@ public class Issue186Test {
     InputStream titlesStream = getClass().getResourceAsStream("/META-INF/issue186_netflix_titles.xml");
     AtomFeed feed = new AtomFeedFormatParser(metadata, "Titles", null).parse(new InputStreamReader(titlesStream));
     Assert.assertNotNull(feed);
+    // the entries are parsed as they are iterated
+    Assert.assertTrue(Enumerable.create(feed.getEntries()).count() > 0);
   }
 
 }
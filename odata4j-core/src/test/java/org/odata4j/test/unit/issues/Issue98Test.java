@@ -5,6 +5,7 @@ import java.io.InputStreamReader;
 
 import junit.framework.Assert;
 
+import org.core4j.Enumerable;
 import org.junit.Test;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.edm.EdmDataServices;
@@ -26,6 +27,8 @@ public class Issue98Test {
     Settings settings = new Settings(ODataVersion.V1, metadata, "People", null);
     Feed feed = new JsonFeedFormatParser(settings).parse(new InputStreamReader(titlesStream));
     Assert.assertNotNull(feed);
+    // the entries are parsed as they are iterated
+    Assert.assertTrue(Enumerable.create(feed.getEntries()).count() > 0);
   }
 
 }
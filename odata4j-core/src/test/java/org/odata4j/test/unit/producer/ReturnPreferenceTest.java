@@ -0,0 +1,27 @@
+package org.odata4j.test.unit.producer;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.producer.ReturnPreference;
+
+public class ReturnPreferenceTest {
+
+  @Test
+  public void parse() {
+    Assert.assertNull(ReturnPreference.parse(null));
+    Assert.assertNull(ReturnPreference.parse("respond-async"));
+    Assert.assertEquals(ReturnPreference.NO_CONTENT, ReturnPreference.parse("return-no-content"));
+    Assert.assertEquals(ReturnPreference.CONTENT, ReturnPreference.parse("Return-Content"));
+    Assert.assertEquals(ReturnPreference.MINIMAL, ReturnPreference.parse("respond-async, return=minimal; foo=\"bar\""));
+    Assert.assertEquals(ReturnPreference.REPRESENTATION, ReturnPreference.parse(" return=representation "));
+
+    Assert.assertTrue(ReturnPreference.NO_CONTENT.isNoContent());
+    Assert.assertTrue(ReturnPreference.MINIMAL.isNoContent());
+    Assert.assertFalse(ReturnPreference.CONTENT.isNoContent());
+    Assert.assertFalse(ReturnPreference.REPRESENTATION.isNoContent());
+    Assert.assertEquals("return=minimal", ReturnPreference.MINIMAL.toString());
+    Assert.assertFalse(ReturnPreference.isNoContent(null));
+  }
+
+}
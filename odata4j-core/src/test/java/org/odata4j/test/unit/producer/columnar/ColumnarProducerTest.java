@@ -0,0 +1,183 @@
+package org.odata4j.test.unit.producer.columnar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.EntityQueryInfo;
+import org.odata4j.producer.InlineCount;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.columnar.ColumnarProducer;
+import org.odata4j.producer.columnar.ColumnarTable;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class ColumnarProducerTest {
+
+  private ColumnarProducer producer;
+
+  @Before
+  public void setUp() {
+    ColumnarTable.Builder builder = ColumnarTable.newBuilder("Orders")
+        .setEntityTypeName("Order")
+        .setKeys("Id")
+        .addColumn("Id", EdmSimpleType.INT32)
+        .addColumn("Customer", EdmSimpleType.STRING)
+        .addColumn("Amount", EdmSimpleType.DOUBLE)
+        .addColumn("Placed", EdmSimpleType.DATETIME)
+        .addColumn("Shipped", EdmSimpleType.BOOLEAN);
+    String[] customers = { "carol", "alice", "bob", null };
+    // insert out of key order to exercise the key index
+    for (int i = 20; i >= 1; i--)
+      builder.addRow(i, customers[i % 4], i * 1.5, new LocalDateTime(2012, 1, i, 0, 0), i % 2 == 0);
+
+    producer = new ColumnarProducer("Example");
+    producer.register(builder.build());
+  }
+
+  @Test
+  public void testMetadata() {
+    EdmEntitySet entitySet = producer.getMetadata().getEdmEntitySet("Orders");
+    Assert.assertEquals("Example.Order", entitySet.getType().getFullyQualifiedTypeName());
+    Assert.assertEquals("Id", entitySet.getType().getKeys().get(0));
+    Assert.assertEquals(EdmSimpleType.DATETIME, entitySet.getType().findProperty("Placed").getType());
+    Assert.assertFalse(entitySet.getType().findProperty("Id").isNullable());
+    Assert.assertTrue(entitySet.getType().findProperty("Customer").isNullable());
+  }
+
+  @Test
+  public void testFilterByColumn() {
+    Assert.assertEquals(list(5, 6, 7), ids(query("Id ge 5 and Id lt 8", null)));
+    Assert.assertEquals(list(2, 6, 10, 14, 18), ids(query("Customer eq 'bob'", null)));
+    Assert.assertEquals(list(1, 3, 5), ids(query("Amount le 7.5d and Shipped eq false", null)));
+    Assert.assertEquals(list(19, 20), ids(query("Placed gt datetime'2012-01-18T12:00'", null)));
+    Assert.assertEquals(list(1, 2), ids(query("3 gt Id", null)));
+  }
+
+  @Test
+  public void testFilterByString() {
+    Assert.assertEquals(list(1, 5, 9, 13, 17), ids(query("Customer lt 'b'", null)));
+    Assert.assertEquals(list(), ids(query("Customer eq 'dave'", null)));
+    Assert.assertEquals(list(3, 7, 11, 15, 19), ids(query("Customer eq null", null)));
+    Assert.assertEquals(15, ids(query("Customer ne null", null)).size());
+  }
+
+  @Test
+  public void testFilterCombinations() {
+    Assert.assertEquals(list(1, 2, 19, 20), ids(query("Id lt 3 or Id gt 18", null)));
+    Assert.assertEquals(list(1, 2, 3), ids(query("not (Id gt 3)", null)));
+    Assert.assertEquals(list(4, 8), ids(query("startswith(Customer, 'c') and Id lt 10", null)));
+    Assert.assertEquals(list(4), ids(query("Id lt 10 and Id add 1 eq 5", null)));
+  }
+
+  @Test
+  public void testOrderByAndPaging() {
+    EntitiesResponse response = query("Shipped eq true", "Amount desc");
+    Assert.assertEquals(list(20, 18, 16, 14, 12, 10, 8, 6, 4, 2), ids(response));
+    Assert.assertNull(response.getSkipToken());
+
+    response = producer.getEntities(null, "Orders", queryInfo("Customer ne null", "Customer,Id desc", 3, null, null));
+    Assert.assertEquals(list(17, 13, 9), ids(response));
+    Assert.assertNotNull(response.getSkipToken());
+
+    response = producer.getEntities(null, "Orders", queryInfo("Customer ne null", "Customer,Id desc", 3, null, response.getSkipToken()));
+    Assert.assertEquals(list(5, 1, 18), ids(response));
+
+    response = producer.getEntities(null, "Orders", queryInfo(null, null, 2, 4, null));
+    Assert.assertEquals(list(5, 6), ids(response));
+  }
+
+  @Test
+  public void testOrderBy() {
+    // equal values keep key order, nulls sort first
+    Assert.assertEquals(list(1, 3, 5, 7, 9, 11, 13, 15, 17, 19, 2, 4, 6, 8, 10, 12, 14, 16, 18, 20), ids(query(null, "Shipped")));
+    Assert.assertEquals(list(3, 7, 11, 15, 19, 1), ids(query("Id lt 20", "Customer")).subList(0, 6));
+
+    // the first rows of a few are selected without sorting all of them
+    EntitiesResponse response = producer.getEntities(null, "Orders", queryInfo(null, "Customer desc", 1, null, null));
+    Assert.assertEquals(list(4), ids(response));
+    Assert.assertEquals("(4)", response.getSkipToken());
+    Assert.assertEquals(list(3, 7), ids(producer.getEntities(null, "Orders", queryInfo(null, "Customer,Id", 2, null, null))));
+
+    // expressions other than properties are evaluated per row
+    Assert.assertEquals(list(20, 19, 18), ids(producer.getEntities(null, "Orders", queryInfo(null, "Id add 0 desc", 3, null, null))));
+  }
+
+  @Test
+  public void testCount() {
+    QueryInfo queryInfo = new QueryInfo(InlineCount.ALLPAGES, 2, null, OptionsQueryParser.parseFilter("Shipped eq true"), null, null, null, null, null);
+    EntitiesResponse response = producer.getEntities(null, "Orders", queryInfo);
+    Assert.assertEquals(Integer.valueOf(10), response.getInlineCount());
+    Assert.assertEquals(2, response.getEntities().size());
+
+    Assert.assertEquals(10, producer.getEntitiesCount(null, "Orders", queryInfo("Shipped eq true", null, null, null, null)).getCount());
+    Assert.assertEquals(2, producer.getEntitiesCount(null, "Orders", queryInfo("Shipped eq true", null, 3, 8, null)).getCount());
+    Assert.assertEquals(20, producer.getEntitiesCount(null, "Orders", null).getCount());
+  }
+
+  @Test
+  public void testGetEntity() {
+    OEntity entity = producer.getEntity(null, "Orders", OEntityKey.create(7), null).getEntity();
+    Assert.assertEquals(OEntityKey.create("Id", 7), entity.getEntityKey());
+    Assert.assertEquals(10.5, entity.getProperty("Amount").getValue());
+    Assert.assertEquals(new LocalDateTime(2012, 1, 7, 0, 0), entity.getProperty("Placed").getValue());
+    Assert.assertNull(entity.getProperty("Customer").getValue());
+
+    entity = producer.getEntity(null, "Orders", OEntityKey.create(2), new EntityQueryInfo(null, null, null, OptionsQueryParser.parseSelect("Customer"))).getEntity();
+    Assert.assertEquals(1, entity.getProperties().size());
+    Assert.assertEquals("bob", entity.getProperty("Customer").getValue());
+
+    try {
+      producer.getEntity(null, "Orders", OEntityKey.create(21), null);
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRegisterReplacesTable() {
+    producer.register(ColumnarTable.newBuilder("Orders")
+        .setEntityTypeName("Order")
+        .setKeys("Id")
+        .addColumn("Id", EdmSimpleType.INT32)
+        .addRow(100)
+        .build());
+    Assert.assertEquals(list(100), ids(query(null, null)));
+    Assert.assertNull(producer.getMetadata().getEdmEntitySet("Orders").getType().findProperty("Customer"));
+  }
+
+  private EntitiesResponse query(String filter, String orderBy) {
+    return producer.getEntities(null, "Orders", queryInfo(filter, orderBy, null, null, null));
+  }
+
+  private static QueryInfo queryInfo(String filter, String orderBy, Integer top, Integer skip, String skipToken) {
+    return new QueryInfo(null, top, skip,
+        filter == null ? null : OptionsQueryParser.parseFilter(filter),
+        orderBy == null ? null : OptionsQueryParser.parseOrderBy(orderBy),
+        skipToken, null, null, null);
+  }
+
+  private static List<Integer> ids(EntitiesResponse response) {
+    List<Integer> rt = new ArrayList<Integer>();
+    for (OEntity entity : response.getEntities())
+      rt.add((Integer) entity.getProperty("Id").getValue());
+    return rt;
+  }
+
+  private static List<Integer> list(Integer... values) {
+    List<Integer> rt = new ArrayList<Integer>();
+    for (Integer value : values)
+      rt.add(value);
+    return rt;
+  }
+
+}
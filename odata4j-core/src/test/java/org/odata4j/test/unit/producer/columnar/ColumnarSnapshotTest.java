@@ -0,0 +1,187 @@
+package org.odata4j.test.unit.producer.columnar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.core4j.Func;
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.odata4j.core.Guid;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.columnar.ColumnarProducer;
+import org.odata4j.producer.columnar.ColumnarSnapshotReader;
+import org.odata4j.producer.columnar.ColumnarSnapshotWriter;
+import org.odata4j.producer.columnar.ColumnarTable;
+import org.odata4j.producer.inmemory.InMemoryProducer;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class ColumnarSnapshotTest {
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("odata4j", ".snapshot");
+    file.deleteOnExit();
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    Guid guid = Guid.randomGuid();
+    ColumnarTable.Builder builder = ColumnarTable.newBuilder("Items")
+        .setEntityTypeName("Item")
+        .setKeys("Code", "Version")
+        .addColumn("Code", EdmSimpleType.STRING)
+        .addColumn("Version", EdmSimpleType.INT64)
+        .addColumn("Price", EdmSimpleType.DECIMAL)
+        .addColumn("Weight", EdmSimpleType.DOUBLE)
+        .addColumn("Active", EdmSimpleType.BOOLEAN)
+        .addColumn("Created", EdmSimpleType.DATETIME)
+        .addColumn("Tag", EdmSimpleType.GUID)
+        .addColumn("Rank", EdmSimpleType.INT16);
+    builder.addRow("b", 2L, new BigDecimal("1.50"), 0.5, true, new LocalDateTime(2012, 3, 4, 5, 6, 7, 8), guid, (short) 3);
+    builder.addRow("a", 1L, null, null, false, null, null, null);
+    builder.addRow("bé", 1L, new BigDecimal("-2"), 2.0, null, new LocalDateTime(1970, 1, 1, 0, 0), guid, (short) -1);
+    ColumnarTable original = builder.build();
+
+    ColumnarSnapshotWriter.write(file, original, ColumnarTable.newBuilder("Empty").build());
+    List<ColumnarTable> tables = ColumnarSnapshotReader.read(file);
+
+    Assert.assertEquals(2, tables.size());
+    ColumnarTable mapped = tables.get(0);
+    Assert.assertEquals("Items", mapped.getEntitySetName());
+    Assert.assertEquals("Item", mapped.getEntityTypeName());
+    Assert.assertArrayEquals(new String[] { "Code", "Version" }, mapped.getKeys());
+    Assert.assertEquals(3, mapped.size());
+    for (int row = 0; row < original.size(); row++) {
+      for (int column = 0; column < original.getColumns().size(); column++) {
+        Assert.assertEquals(original.getColumns().get(column).getType(), mapped.getColumns().get(column).getType());
+        Assert.assertEquals(original.getColumns().get(column).getValue(row), mapped.getColumns().get(column).getValue(row));
+      }
+    }
+    Assert.assertEquals(2, mapped.findRow(OEntityKey.create("Code", "bé", "Version", 1L)));
+    Assert.assertEquals(-1, mapped.findRow(OEntityKey.create("Code", "b", "Version", 1L)));
+
+    Assert.assertEquals("Empty", tables.get(1).getEntitySetName());
+    Assert.assertEquals(0, tables.get(1).size());
+  }
+
+  @Test
+  public void testQueryMappedTables() {
+    ColumnarTable.Builder builder = ColumnarTable.newBuilder("Orders")
+        .setKeys("Id")
+        .addColumn("Id", EdmSimpleType.INT32)
+        .addColumn("Customer", EdmSimpleType.STRING);
+    for (int i = 1; i <= 1000; i++)
+      builder.addRow(i, "customer" + (i % 10));
+    ColumnarSnapshotWriter.write(file, builder.build());
+
+    ColumnarProducer producer = new ColumnarProducer("Example");
+    for (ColumnarTable table : ColumnarSnapshotReader.read(file))
+      producer.register(table);
+
+    QueryInfo queryInfo = new QueryInfo(null, 3, null, OptionsQueryParser.parseFilter("Customer eq 'customer7' and Id gt 500"),
+        OptionsQueryParser.parseOrderBy("Id desc"), null, null, null, null);
+    EntitiesResponse response = producer.getEntities(null, "Orders", queryInfo);
+    List<Object> ids = new ArrayList<Object>();
+    for (OEntity entity : response.getEntities())
+      ids.add(entity.getProperty("Id").getValue());
+    Assert.assertEquals(3, ids.size());
+    Assert.assertEquals(997, ids.get(0));
+    Assert.assertEquals(987, ids.get(1));
+    Assert.assertEquals("customer3", producer.getEntity(null, "Orders", OEntityKey.create(123), null).getEntity().getProperty("Customer").getValue());
+  }
+
+  @Test
+  public void testSnapshotInMemoryProducer() {
+    final List<Product> products = new ArrayList<Product>();
+    for (int i = 1; i <= 250; i++)
+      products.add(new Product(i, "product" + i, new BigDecimal(i).movePointLeft(2)));
+    final int[] reads = new int[1];
+    InMemoryProducer inMemory = new InMemoryProducer("Example");
+    inMemory.register(Product.class, "Products", new Func<Iterable<Product>>() {
+      @Override
+      public Iterable<Product> apply() {
+        reads[0]++;
+        return products;
+      }
+    }, "Id");
+
+    ColumnarSnapshotWriter.write(file, ColumnarTable.copyOf(inMemory, "Products"));
+    Assert.assertEquals(1, reads[0]);
+    ColumnarTable table = ColumnarSnapshotReader.read(file).get(0);
+
+    Assert.assertEquals(250, table.size());
+    Assert.assertEquals("Products", table.getEntityTypeName());
+    int row = table.findRow(OEntityKey.create(42));
+    Assert.assertEquals("product42", table.getColumn("Name").getValue(row));
+    Assert.assertEquals(new BigDecimal("0.42"), table.getColumn("Price").getValue(row));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotASnapshot() throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write("<feed>not a snapshot</feed>".getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+    ColumnarSnapshotReader.read(file);
+  }
+
+  public static class Product {
+
+    private int id;
+    private String name;
+    private BigDecimal price;
+
+    public Product() {}
+
+    public Product(int id, String name, BigDecimal price) {
+      this.id = id;
+      this.name = name;
+      this.price = price;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+      return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+      this.price = price;
+    }
+  }
+
+}
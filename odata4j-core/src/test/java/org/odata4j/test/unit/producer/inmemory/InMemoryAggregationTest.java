@@ -0,0 +1,177 @@
+package org.odata4j.test.unit.producer.inmemory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.core4j.Enumerable;
+import org.core4j.Funcs;
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OComplexObject;
+import org.odata4j.edm.EdmComplexType;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.exceptions.BadRequestException;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
+import org.odata4j.producer.CollectionResponse;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.inmemory.InMemoryProducer;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class InMemoryAggregationTest {
+
+  @Test
+  public void testParse() {
+    Assert.assertNull(AggregateQuery.parse(null, null));
+    Assert.assertNull(AggregateQuery.parse(new HashMap<String, String>()));
+
+    AggregateQuery query = AggregateQuery.parse("Region, Category", "sum(Amount) as Total, count(), max(Price)");
+    Assert.assertEquals(Arrays.asList("Region", "Category"), query.groupBy);
+    Assert.assertEquals(3, query.aggregates.size());
+    Assert.assertEquals(AggregateQuery.Function.SUM, query.aggregates.get(0).function);
+    Assert.assertEquals("Amount", query.aggregates.get(0).propertyName);
+    Assert.assertEquals("Total", query.aggregates.get(0).alias);
+    Assert.assertNull(query.aggregates.get(1).propertyName);
+    Assert.assertEquals("Count", query.aggregates.get(1).alias);
+    Assert.assertEquals("MaxPrice", query.aggregates.get(2).alias);
+  }
+
+  @Test
+  public void testParseErrors() {
+    assertBadRequest(null, "median(Amount)");
+    assertBadRequest(null, "sum()");
+    assertBadRequest(null, "sum(Amount");
+    assertBadRequest("Region/Name", null);
+  }
+
+  @Test
+  public void testResultType() {
+    InMemoryProducer producer = newProducer();
+    AggregateQuery query = AggregateQuery.parse("Region", "count(), sum(Quantity), avg(Quantity), sum(Amount), min(Region)");
+    EdmComplexType type = query.getResultType(producer.getMetadata().getEdmEntitySet("Sales"));
+
+    Assert.assertEquals(EdmSimpleType.STRING, type.findProperty("Region").getType());
+    Assert.assertEquals(EdmSimpleType.INT64, type.findProperty("Count").getType());
+    Assert.assertEquals(EdmSimpleType.INT64, type.findProperty("SumQuantity").getType());
+    Assert.assertEquals(EdmSimpleType.DOUBLE, type.findProperty("AvgQuantity").getType());
+    Assert.assertEquals(EdmSimpleType.DECIMAL, type.findProperty("SumAmount").getType());
+    Assert.assertEquals(EdmSimpleType.STRING, type.findProperty("MinRegion").getType());
+
+    try {
+      AggregateQuery.parse(null, "sum(Region)").getResultType(producer.getMetadata().getEdmEntitySet("Sales"));
+      Assert.fail("Expected BadRequestException");
+    } catch (BadRequestException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testGroupBy() {
+    List<OComplexObject> groups = aggregate(null, "Region", "count(), sum(Quantity) as Quantity, avg(Amount), max(Id)");
+
+    Assert.assertEquals(3, groups.size());
+    // null groups sort first
+    assertGroup(groups.get(0), null, 1L, 7L, new BigDecimal("1"), 5);
+    assertGroup(groups.get(1), "east", 2L, 3L, new BigDecimal("2.25"), 3);
+    assertGroup(groups.get(2), "west", 2L, 4L, new BigDecimal("10"), 4);
+  }
+
+  @Test
+  public void testFilterIsAppliedBeforeGrouping() {
+    List<OComplexObject> groups = aggregate("Quantity gt 1", "Region", "count()");
+
+    Assert.assertEquals(3, groups.size());
+    Assert.assertEquals(1L, groups.get(1).getProperty("Count").getValue());
+    Assert.assertEquals(2L, groups.get(2).getProperty("Count").getValue());
+  }
+
+  @Test
+  public void testSingleGroup() {
+    List<OComplexObject> groups = aggregate(null, null, "count(), sum(Quantity)");
+    Assert.assertEquals(1, groups.size());
+    Assert.assertEquals(5L, groups.get(0).getProperty("Count").getValue());
+    Assert.assertEquals(14L, groups.get(0).getProperty("SumQuantity").getValue());
+
+    // aggregates of an empty group are null, its count is zero
+    groups = aggregate("Quantity gt 100", null, "count(), sum(Quantity)");
+    Assert.assertEquals(1, groups.size());
+    Assert.assertEquals(0L, groups.get(0).getProperty("Count").getValue());
+    Assert.assertNull(groups.get(0).getProperty("SumQuantity").getValue());
+  }
+
+  private static void assertGroup(OComplexObject group, String region, long count, long quantity, BigDecimal avgAmount, int maxId) {
+    Assert.assertEquals(region, group.getProperty("Region").getValue());
+    Assert.assertEquals(count, group.getProperty("Count").getValue());
+    Assert.assertEquals(quantity, group.getProperty("Quantity").getValue());
+    Assert.assertEquals(0, avgAmount.compareTo((BigDecimal) group.getProperty("AvgAmount").getValue()));
+    Assert.assertEquals(maxId, group.getProperty("MaxId").getValue());
+  }
+
+  private static List<OComplexObject> aggregate(String filter, String groupBy, String aggregate) {
+    InMemoryProducer producer = newProducer();
+    AggregationExtension aggregation = producer.findExtension(AggregationExtension.class);
+    Assert.assertNotNull(aggregation);
+    QueryInfo queryInfo = QueryInfo.newBuilder().setFilter(OptionsQueryParser.parseFilter(filter)).build();
+    CollectionResponse<OComplexObject> response = aggregation.aggregate(null, "Sales", queryInfo, AggregateQuery.parse(groupBy, aggregate));
+    Assert.assertEquals("Sales", response.getCollectionName());
+    return Enumerable.create(response.getCollection()).toList();
+  }
+
+  private static void assertBadRequest(String groupBy, String aggregate) {
+    Map<String, String> options = new HashMap<String, String>();
+    options.put(AggregateQuery.GROUP_BY_OPTION, groupBy);
+    options.put(AggregateQuery.AGGREGATE_OPTION, aggregate);
+    try {
+      AggregateQuery.parse(options);
+      Assert.fail("Expected BadRequestException");
+    } catch (BadRequestException e) {
+      // expected
+    }
+  }
+
+  private static InMemoryProducer newProducer() {
+    InMemoryProducer producer = new InMemoryProducer("Aggregation");
+    producer.register(Sale.class, "Sales", Funcs.constant((Iterable<Sale>) Arrays.asList(
+        new Sale(1, "east", 1, "1.5"),
+        new Sale(2, "west", 2, "12"),
+        new Sale(3, "east", 2, "3"),
+        new Sale(4, "west", 2, "8"),
+        new Sale(5, null, 7, "1"))), "Id");
+    return producer;
+  }
+
+  public static class Sale {
+
+    private final int id;
+    private final String region;
+    private final int quantity;
+    private final BigDecimal amount;
+
+    public Sale(int id, String region, int quantity, String amount) {
+      this.id = id;
+      this.region = region;
+      this.quantity = quantity;
+      this.amount = new BigDecimal(amount);
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getRegion() {
+      return region;
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    public BigDecimal getAmount() {
+      return amount;
+    }
+  }
+
+}
@@ -0,0 +1,418 @@
+package org.odata4j.test.unit.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.core4j.Func;
+import org.core4j.Func1;
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityId;
+import org.odata4j.core.OEntityIds;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.EntityQueryInfo;
+import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.inmemory.BeanBasedPropertyModel;
+import org.odata4j.producer.inmemory.InMemoryEntityStore;
+import org.odata4j.producer.inmemory.InMemoryProducer;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class InMemoryEntityStoreTest {
+
+  @Test
+  public void testSnapshotIsolation() {
+    InMemoryEntityStore<Category> store = newStore();
+    store.load(categories("a", "b"));
+    InMemoryEntityStore.Snapshot<Category> before = store.snapshot();
+
+    store.newChangeSet().insert(new Category(3, "c")).delete(1L).commit();
+    InMemoryEntityStore.Snapshot<Category> after = store.snapshot();
+
+    Assert.assertEquals(2, before.size());
+    Assert.assertNotNull(before.get(1L));
+    Assert.assertEquals(2, after.size());
+    Assert.assertNull(after.get(1L));
+    Assert.assertEquals("c", after.get(3L).getName());
+    Assert.assertEquals(before.getVersion() + 1, after.getVersion());
+  }
+
+  @Test
+  public void testChangeSetIsAtomic() {
+    InMemoryEntityStore<Category> store = newStore();
+    store.load(categories("a"));
+    InMemoryEntityStore.Snapshot<Category> before = store.snapshot();
+
+    try {
+      store.newChangeSet().insert(new Category(2, "b")).update(new Category(3, "c")).commit();
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+
+    Assert.assertSame(before, store.snapshot());
+    Assert.assertNull(store.snapshot().get(2L));
+  }
+
+  @Test
+  public void testSecondaryIndex() {
+    InMemoryEntityStore<Category> store = newStore();
+    store.load(categories("a", "b", "a"));
+
+    Assert.assertEquals(2, store.snapshot().find("Name", "a").size());
+
+    store.newChangeSet().update(new Category(1, "b")).commit();
+
+    Assert.assertEquals(1, store.snapshot().find("Name", "a").size());
+    Assert.assertEquals(2, store.snapshot().find("Name", "b").size());
+    Assert.assertEquals(0, store.snapshot().find("Name", "c").size());
+  }
+
+  @Test
+  public void testManyEntities() {
+    InMemoryEntityStore<Category> store = newStore();
+    List<Category> categories = new ArrayList<Category>();
+    for (int i = 0; i < 5000; i++)
+      categories.add(new Category(i, i % 2 == 0 ? "even" : null));
+    store.load(categories);
+    InMemoryEntityStore.Snapshot<Category> loaded = store.snapshot();
+
+    InMemoryEntityStore<Category>.ChangeSet changeSet = store.newChangeSet();
+    for (int i = 0; i < 5000; i += 3)
+      changeSet.delete((long) i);
+    InMemoryEntityStore.Snapshot<Category> changed = changeSet.commit();
+
+    Assert.assertEquals(5000, loaded.size());
+    Assert.assertEquals(3333, changed.size());
+    Set<Integer> ids = new HashSet<Integer>();
+    for (Category category : changed)
+      ids.add(category.getId());
+    Assert.assertEquals(3333, ids.size());
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertNotNull(loaded.get((long) i));
+      Assert.assertEquals(i % 3 != 0, changed.get((long) i) != null);
+    }
+    Assert.assertEquals(2500, loaded.find("Name", "even").size());
+    Assert.assertEquals(1666, changed.find("Name", "even").size());
+    Assert.assertEquals(1667, changed.find("Name", null).size());
+  }
+
+  @Test
+  public void testCommitSeveralStores() {
+    InMemoryEntityStore<Category> categories = newStore();
+    categories.load(categories("a"));
+    InMemoryEntityStore<Category> others = newStore();
+    others.load(categories("b"));
+    InMemoryEntityStore.Snapshot<Category> before = categories.snapshot();
+
+    try {
+      InMemoryEntityStore.commit(Arrays.asList(categories.newChangeSet().insert(new Category(2, "c")), others.newChangeSet().delete(2L)));
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+    Assert.assertSame(before, categories.snapshot());
+
+    InMemoryEntityStore.commit(Arrays.asList(categories.newChangeSet().insert(new Category(2, "c")), others.newChangeSet().delete(1L)));
+    Assert.assertEquals(2, categories.snapshot().size());
+    Assert.assertEquals(0, others.snapshot().size());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final InMemoryEntityStore<Category> store = newStore();
+    store.load(categories("0"));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+      for (int i = 0; i < 4; i++) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int j = 0; j < 100; j++) {
+              store.newChangeSet().update(1L, new Func1<Category, Category>() {
+                @Override
+                public Category apply(Category existing) {
+                  return new Category(existing.getId(), String.valueOf(Integer.parseInt(existing.getName()) + 1));
+                }
+              }).commit();
+            }
+            return null;
+          }
+        });
+      }
+      for (Future<Void> future : executor.invokeAll(tasks))
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals("400", store.snapshot().get(1L).getName());
+  }
+
+  @Test
+  public void testCreateMergeDelete() {
+    InMemoryProducer producer = newProducer();
+
+    producer.createEntity(null, "Categories", OEntities.createRequest(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        properties(OProperties.int32("Id", 3), OProperties.string("Name", "c"), OProperties.int32("Rank", 7)),
+        new ArrayList<OLink>()));
+    Assert.assertEquals("c", getCategory(producer, 3).getProperty("Name").getValue());
+
+    producer.mergeEntity(null, "Categories", OEntities.create(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        OEntityKey.create(3),
+        properties(OProperties.string("Name", "cc")),
+        new ArrayList<OLink>()));
+    OEntity merged = getCategory(producer, 3);
+    Assert.assertEquals("cc", merged.getProperty("Name").getValue());
+    Assert.assertEquals(7, merged.getProperty("Rank").getValue());
+
+    producer.deleteEntity(null, "Categories", OEntityKey.create(3));
+    try {
+      getCategory(producer, 3);
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testChangeSetExtension() {
+    InMemoryProducer producer = newProducer();
+    ChangeSetExtension extension = producer.findExtension(ChangeSetExtension.class);
+    Assert.assertSame(extension, producer.findExtension(ChangeSetExtension.class));
+
+    ChangeSetExtension.ChangeSet changeSet = extension.newChangeSet(null);
+    changeSet.createEntity(null, "Categories", OEntities.createRequest(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        properties(OProperties.int32("Id", 3), OProperties.string("Name", "c")),
+        new ArrayList<OLink>()));
+    changeSet.deleteEntity("Products", OEntityKey.create(2));
+    try {
+      changeSet.commit();
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+    Assert.assertEquals(2, producer.getEntities(null, "Categories", null).getEntities().size());
+
+    changeSet = extension.newChangeSet(null);
+    changeSet.createEntity(null, "Categories", OEntities.createRequest(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        properties(OProperties.int32("Id", 3), OProperties.string("Name", "c")),
+        new ArrayList<OLink>()));
+    changeSet.deleteEntity("Products", OEntityKey.create(1));
+    List<EntityResponse> responses = changeSet.commit();
+    Assert.assertEquals("c", responses.get(0).getEntity().getProperty("Name").getValue());
+    Assert.assertNull(responses.get(1));
+    Assert.assertEquals("c", getCategory(producer, 3).getProperty("Name").getValue());
+    Assert.assertEquals(0, producer.getEntities(null, "Products", null).getEntities().size());
+  }
+
+  @Test
+  public void testChangeSetExtensionFallback() {
+    // a subclass writing entities itself gets each operation of a change set
+    InMemoryProducer producer = new InMemoryProducer("InMemoryEntityStoreTest") {
+      @Override
+      public EntityResponse createEntity(ODataContext context, String entitySetName, OEntity entity) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    producer.registerStore(Category.class, "Categories", new String[] { "Id" });
+    Assert.assertNull(producer.findExtension(ChangeSetExtension.class));
+
+    // as does a producer with an entity set without a store
+    producer = newProducer();
+    producer.register(Category.class, "MoreCategories", new Func<Iterable<Category>>() {
+      @Override
+      public Iterable<Category> apply() {
+        return categories("c");
+      }
+    }, "Id");
+    Assert.assertNull(producer.findExtension(ChangeSetExtension.class));
+  }
+
+  @Test
+  public void testCreateAndLink() {
+    InMemoryProducer producer = new InMemoryProducer("InMemoryEntityStoreTest");
+    InMemoryEntityStore<Category> categories = producer.registerStore(Category.class, "Categories", new String[] { "Id" });
+    InMemoryEntityStore<Product> products = producer.registerStore(Product.class, "Products", new String[] { "Id" });
+    products.load(products("x"));
+    long categoriesVersion = categories.snapshot().getVersion();
+    long productsVersion = products.snapshot().getVersion();
+
+    producer.createEntity(null, "Products", OEntityKey.create(1), "Category", OEntities.createRequest(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        properties(OProperties.int32("Id", 5), OProperties.string("Name", "e")),
+        new ArrayList<OLink>()));
+
+    // the entity and the link are committed together
+    Assert.assertEquals(categoriesVersion + 1, categories.snapshot().getVersion());
+    Assert.assertEquals(productsVersion + 1, products.snapshot().getVersion());
+    OEntityId category = producer.getLinks(null, OEntityIds.create("Products", 1), "Category").getEntities().iterator().next();
+    Assert.assertEquals("Categories(5)", OEntityIds.toKeyString(category));
+  }
+
+  @Test
+  public void testLinks() {
+    InMemoryProducer producer = newProducer();
+    OEntityId product = OEntityIds.create("Products", 1);
+
+    producer.createLink(null, product, "Category", OEntityIds.create("Categories", 2));
+    Assert.assertEquals("Categories(2)", OEntityIds.toKeyString(producer.getLinks(null, product, "Category").getEntities().iterator().next()));
+
+    // links follow the changed entity
+    producer.mergeEntity(null, "Categories", OEntities.create(
+        producer.getMetadata().getEdmEntitySet("Categories"),
+        OEntityKey.create(2),
+        properties(OProperties.string("Name", "bb")),
+        new ArrayList<OLink>()));
+    OEntity category = producer.getEntity(null, "Products", OEntityKey.create(1), new EntityQueryInfo(null, null,
+        OptionsQueryParser.parseExpand("Category"), null))
+        .getEntity().getLink("Category", OLink.class).getRelatedEntity();
+    Assert.assertEquals("bb", category.getProperty("Name").getValue());
+
+    producer.deleteLink(null, product, "Category", OEntityKey.create(2));
+    Assert.assertNull(producer.getLinks(null, product, "Category").getEntities().iterator().next());
+  }
+
+  @Test
+  public void testIndexedFilter() {
+    InMemoryProducer producer = newProducer();
+
+    EntitiesResponse response = producer.getEntities(null, "Categories", new QueryInfo(null, null, null,
+        OptionsQueryParser.parseFilter("Name eq 'b' and Rank eq 0"), null, null, null, null, null));
+
+    Assert.assertEquals(1, response.getEntities().size());
+    Assert.assertEquals(2, response.getEntities().get(0).getProperty("Id").getValue());
+  }
+
+  private static InMemoryEntityStore<Category> newStore() {
+    return new InMemoryEntityStore<Category>(new BeanBasedPropertyModel(Category.class), new String[] { "Id" }, "Name");
+  }
+
+  private static InMemoryProducer newProducer() {
+    InMemoryProducer producer = new InMemoryProducer("InMemoryEntityStoreTest");
+    producer.registerStore(Category.class, "Categories", new String[] { "Id" }, "Name").load(categories("a", "b"));
+    producer.registerStore(Product.class, "Products", new String[] { "Id" }).load(products("x"));
+    return producer;
+  }
+
+  private static OEntity getCategory(InMemoryProducer producer, int id) {
+    return producer.getEntity(null, "Categories", OEntityKey.create(id), null).getEntity();
+  }
+
+  private static List<OProperty<?>> properties(OProperty<?>... properties) {
+    List<OProperty<?>> rt = new ArrayList<OProperty<?>>();
+    for (OProperty<?> property : properties)
+      rt.add(property);
+    return rt;
+  }
+
+  private static List<Category> categories(String... names) {
+    List<Category> rt = new ArrayList<Category>();
+    for (int i = 0; i < names.length; i++)
+      rt.add(new Category(i + 1, names[i]));
+    return rt;
+  }
+
+  private static List<Product> products(String... names) {
+    List<Product> rt = new ArrayList<Product>();
+    for (int i = 0; i < names.length; i++) {
+      Product product = new Product();
+      product.setId(i + 1);
+      product.setName(names[i]);
+      rt.add(product);
+    }
+    return rt;
+  }
+
+  public static class Category {
+
+    private int id;
+    private String name;
+    private int rank;
+
+    public Category() {}
+
+    public Category(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getRank() {
+      return rank;
+    }
+
+    public void setRank(int rank) {
+      this.rank = rank;
+    }
+  }
+
+  public static class Product {
+
+    private int id;
+    private String name;
+    private Category category;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Category getCategory() {
+      return category;
+    }
+
+    public void setCategory(Category category) {
+      this.category = category;
+    }
+  }
+
+}
@@ -1,6 +1,9 @@
 package org.odata4j.test.unit.producer.inmemory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.Assert;
 
@@ -185,6 +188,121 @@ public class InMemoryProducerTest {
     Assert.assertEquals(2L, response.getCount());
   }
 
+  @Test
+  public void testFilteredInlineCountWithTop() {
+    InMemoryProducer p = new InMemoryProducer("testFilteredInlineCountWithTop");
+    p.register(SimpleEntity.class, "setName", "typeName", new Func<Iterable<SimpleEntity>>() {
+      @Override
+      public Iterable<SimpleEntity> apply() {
+        return Enumerable.create(new SimpleEntity(1), new SimpleEntity(2), new SimpleEntity(3), new SimpleEntity(4), new SimpleEntity(5));
+      }
+    }, "Id");
+
+    BoolCommonExpression filter = Expression.gt(Expression.simpleProperty("Integer"), Expression.integral(1));
+    EntitiesResponse response = p.getEntities(null, "setName", new QueryInfo(InlineCount.ALLPAGES, 2, null, filter, null, null, null, null, null));
+    Assert.assertEquals(2, response.getEntities().size());
+    Assert.assertEquals(Integer.valueOf(4), response.getInlineCount());
+  }
+
+  @Test
+  public void testSkipTokenPaging() {
+    InMemoryProducer p = new InMemoryProducer("testSkipTokenPaging", 2);
+    p.register(SimpleEntity.class, "setName", "typeName", new Func<Iterable<SimpleEntity>>() {
+      @Override
+      public Iterable<SimpleEntity> apply() {
+        return Enumerable.create(new SimpleEntity(1), new SimpleEntity(2), new SimpleEntity(3), new SimpleEntity(4), new SimpleEntity(5));
+      }
+    }, "Integer");
+
+    QueryInfo query = new QueryInfo(InlineCount.NONE, null, null, null, OptionsQueryParser.parseOrderBy("Integer desc"), null, null, null, null);
+    EntitiesResponse response = p.getEntities(null, "setName", query);
+    Assert.assertEquals(2, response.getEntities().size());
+    Assert.assertEquals("(4)", response.getSkipToken());
+
+    query = new QueryInfo(InlineCount.NONE, null, null, null, OptionsQueryParser.parseOrderBy("Integer desc"), "(4)", null, null, null);
+    response = p.getEntities(null, "setName", query);
+    Assert.assertEquals(2, response.getEntities().size());
+    Assert.assertEquals(OEntityKey.create(3), response.getEntities().get(0).getEntityKey());
+    Assert.assertEquals("(2)", response.getSkipToken());
+
+    query = new QueryInfo(InlineCount.NONE, null, null, null, OptionsQueryParser.parseOrderBy("Integer desc"), "(2)", null, null, null);
+    response = p.getEntities(null, "setName", query);
+    Assert.assertEquals(1, response.getEntities().size());
+    Assert.assertNull(response.getSkipToken());
+  }
+
+  @Test
+  public void testParallelQuery() {
+    final List<SimpleEntity> testData = new ArrayList<SimpleEntity>();
+    for (int i = 0; i < 1000; i++)
+      testData.add(new SimpleEntity(i % 7));
+    Func<Iterable<SimpleEntity>> getTestData = new Func<Iterable<SimpleEntity>>() {
+      @Override
+      public Iterable<SimpleEntity> apply() {
+        return testData;
+      }
+    };
+    InMemoryProducer sequential = new InMemoryProducer("testParallelQuery", 500);
+    sequential.register(SimpleEntity.class, "setName", "typeName", getTestData, "Id");
+    InMemoryProducer parallel = new InMemoryProducer("testParallelQuery", 500);
+    parallel.register(SimpleEntity.class, "setName", "typeName", getTestData, "Id");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      parallel.setExecutorService(executor);
+      parallel.setParallelThreshold(100);
+
+      BoolCommonExpression filter = Expression.gt(Expression.simpleProperty("Integer"), Expression.integral(2));
+      QueryInfo query = new QueryInfo(InlineCount.ALLPAGES, null, 10, filter, OptionsQueryParser.parseOrderBy("Integer desc"), null, null, null, null);
+      EntitiesResponse expected = sequential.getEntities(null, "setName", query);
+      EntitiesResponse actual = parallel.getEntities(null, "setName", query);
+
+      Assert.assertEquals(expected.getInlineCount(), actual.getInlineCount());
+      Assert.assertEquals(expected.getSkipToken(), actual.getSkipToken());
+      Assert.assertEquals(500, actual.getEntities().size());
+      for (int i = 0; i < expected.getEntities().size(); i++)
+        Assert.assertEquals(expected.getEntities().get(i).getEntityKey(), actual.getEntities().get(i).getEntityKey());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelFilterStopsWhenPageIsFull() {
+    final List<SimpleEntity> testData = new ArrayList<SimpleEntity>();
+    for (int i = 0; i < 100000; i++)
+      testData.add(new SimpleEntity(i % 7));
+    final int[] read = new int[1];
+    InMemoryProducer producer = new InMemoryProducer("testParallelFilterStopsWhenPageIsFull");
+    producer.register(SimpleEntity.class, "setName", "typeName", new Func<Iterable<SimpleEntity>>() {
+      @Override
+      public Iterable<SimpleEntity> apply() {
+        return Enumerable.create(testData).select(new Func1<SimpleEntity, SimpleEntity>() {
+          @Override
+          public SimpleEntity apply(SimpleEntity input) {
+            read[0]++;
+            return input;
+          }
+        });
+      }
+    }, "Id");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      producer.setExecutorService(executor);
+      producer.setParallelThreshold(100);
+
+      // without $orderby or $inlinecount only the objects up to the end of the page are filtered
+      BoolCommonExpression filter = Expression.gt(Expression.simpleProperty("Integer"), Expression.integral(2));
+      QueryInfo query = new QueryInfo(InlineCount.NONE, 10, null, filter, null, null, null, null, null);
+      EntitiesResponse response = producer.getEntities(null, "setName", query);
+      Assert.assertEquals(10, response.getEntities().size());
+      Assert.assertTrue(read[0] < 100);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void testMetadataContainerName() {
     InMemoryProducer p = new InMemoryProducer("testMetadataContainerName", "Foo", 20, null, null);
@@ -0,0 +1,102 @@
+package org.odata4j.test.unit.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.expression.OrderByExpression;
+import org.odata4j.producer.inmemory.BeanBasedPropertyModel;
+import org.odata4j.producer.inmemory.InMemorySortEngine;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class InMemorySortEngineTest {
+
+  @Test
+  public void testSortIsStable() {
+    List<Object> objects = new ArrayList<Object>();
+    for (int i = 0; i < 10; i++)
+      objects.add(new Item(i % 3, i));
+
+    List<Object> sorted = newSortEngine("Group desc").sort(objects, -1);
+
+    assertOrder(sorted, new int[] { 2, 5, 8, 1, 4, 7, 0, 3, 6, 9 });
+  }
+
+  @Test
+  public void testNullsSortFirst() {
+    List<Object> objects = new ArrayList<Object>();
+    objects.add(new Item(1, 0));
+    objects.add(new Item(null, 1));
+    objects.add(new Item(0, 2));
+
+    assertOrder(newSortEngine("Group").sort(objects, -1), new int[] { 1, 2, 0 });
+  }
+
+  @Test
+  public void testTopN() {
+    List<Object> objects = randomItems(1000);
+
+    List<Object> expected = newSortEngine("Group,Index desc").sort(objects, -1).subList(0, 10);
+    List<Object> top = newSortEngine("Group,Index desc").sort(objects, 10);
+
+    Assert.assertEquals(expected, top);
+  }
+
+  @Test
+  public void testParallelSort() {
+    List<Object> objects = randomItems(10000);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<OrderByExpression> orderBy = OptionsQueryParser.parseOrderBy("Group desc");
+      List<Object> expected = new InMemorySortEngine(orderBy, new BeanBasedPropertyModel(Item.class)).sort(objects, -1);
+      List<Object> sorted = new InMemorySortEngine(orderBy, new BeanBasedPropertyModel(Item.class), executor, 100).sort(objects, -1);
+
+      Assert.assertEquals(expected, sorted);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static InMemorySortEngine newSortEngine(String orderBy) {
+    return new InMemorySortEngine(OptionsQueryParser.parseOrderBy(orderBy), new BeanBasedPropertyModel(Item.class));
+  }
+
+  private static List<Object> randomItems(int count) {
+    Random random = new Random(42);
+    List<Object> objects = new ArrayList<Object>();
+    for (int i = 0; i < count; i++)
+      objects.add(new Item(random.nextInt(50), i));
+    return objects;
+  }
+
+  private static void assertOrder(List<Object> sorted, int[] expected) {
+    Assert.assertEquals(expected.length, sorted.size());
+    for (int i = 0; i < expected.length; i++)
+      Assert.assertEquals(expected[i], ((Item) sorted.get(i)).getIndex());
+  }
+
+  public static class Item {
+
+    private final Integer group;
+    private final int index;
+
+    public Item(Integer group, int index) {
+      this.group = group;
+      this.index = index;
+    }
+
+    public Integer getGroup() {
+      return group;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+  }
+
+}
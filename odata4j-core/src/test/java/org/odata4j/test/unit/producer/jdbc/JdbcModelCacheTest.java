@@ -0,0 +1,151 @@
+package org.odata4j.test.unit.producer.jdbc;
+
+import java.io.File;
+import java.sql.Connection;
+
+import junit.framework.Assert;
+
+import org.core4j.Predicate1;
+import org.core4j.ThrowingFunc1;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.odata4j.producer.jdbc.GenerateJdbcModel;
+import org.odata4j.producer.jdbc.Jdbc;
+import org.odata4j.producer.jdbc.JdbcModel;
+import org.odata4j.producer.jdbc.JdbcModel.JdbcTable;
+import org.odata4j.producer.jdbc.JdbcModelCache;
+
+public class JdbcModelCacheTest {
+
+  private static final Jdbc DB = new Jdbc("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:modelcache", "sa", "");
+
+  @BeforeClass
+  public static void setup() {
+    execute("CREATE TABLE A_B (ID INTEGER NOT NULL, PRIMARY KEY (ID))",
+        "CREATE TABLE AXB (ID INTEGER NOT NULL, NAME VARCHAR(25), PRIMARY KEY (ID))",
+        "CREATE TABLE CHILD (ID INTEGER NOT NULL, PARENT_ID INTEGER, PRIMARY KEY (ID), FOREIGN KEY (PARENT_ID) REFERENCES A_B (ID))");
+  }
+
+  private static class CountingGenerator extends GenerateJdbcModel {
+
+    int readKeys;
+
+    @Override
+    public void readKeys(Connection conn, JdbcModel model) throws Exception {
+      readKeys++;
+      super.readKeys(conn, model);
+    }
+  }
+
+  @Test
+  public void cachedUntilTablesChange() throws Exception {
+    File file = File.createTempFile("jdbcmodel", ".ser");
+    file.delete();
+    try {
+      JdbcModelCache cache = new JdbcModelCache(file);
+      CountingGenerator generator = new CountingGenerator();
+      generator.setSchemaFilter(GenerateJdbcModel.DEFAULT_SCHEMA);
+
+      JdbcModel model = apply(cache, generator);
+      Assert.assertTrue(file.exists());
+      Assert.assertEquals(1, generator.readKeys);
+      Assert.assertEquals(1, model.getTable("PUBLIC", "CHILD").foreignKeys.size());
+
+      // unchanged tables, the keys come from the file
+      model = apply(cache, generator);
+      Assert.assertEquals(1, generator.readKeys);
+      Assert.assertEquals(1, model.getTable("PUBLIC", "CHILD").foreignKeys.size());
+      Assert.assertEquals(1, model.getTable("PUBLIC", "A_B").primaryKeys.size());
+
+      // a new table changes the checksum
+      execute("CREATE TABLE OTHER (ID INTEGER NOT NULL, PRIMARY KEY (ID))");
+      try {
+        model = apply(cache, generator);
+        Assert.assertEquals(2, generator.readKeys);
+        Assert.assertNotNull(model.findTable("PUBLIC", "OTHER"));
+      } finally {
+        execute("DROP TABLE OTHER");
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void cachedUntilVersionChanges() throws Exception {
+    File file = File.createTempFile("jdbcmodel", ".ser");
+    file.delete();
+    execute("CREATE TABLE SCHEMA_VERSION (VERSION INTEGER NOT NULL)", "INSERT INTO SCHEMA_VERSION VALUES (1)");
+    try {
+      JdbcModelCache cache = new JdbcModelCache(file, "SELECT MAX(VERSION) FROM SCHEMA_VERSION");
+      CountingGenerator generator = new CountingGenerator();
+      generator.setSchemaFilter(GenerateJdbcModel.DEFAULT_SCHEMA);
+
+      apply(cache, generator);
+      Assert.assertEquals(1, generator.readKeys);
+
+      // the tables are not looked at while the version is unchanged
+      execute("CREATE TABLE OTHER2 (ID INTEGER NOT NULL, PRIMARY KEY (ID))");
+      try {
+        JdbcModel model = apply(cache, generator);
+        Assert.assertEquals(1, generator.readKeys);
+        Assert.assertNull(model.findTable("PUBLIC", "OTHER2"));
+
+        execute("INSERT INTO SCHEMA_VERSION VALUES (2)");
+        model = apply(cache, generator);
+        Assert.assertEquals(2, generator.readKeys);
+        Assert.assertNotNull(model.findTable("PUBLIC", "OTHER2"));
+
+        cache.invalidate();
+        Assert.assertFalse(file.exists());
+        apply(cache, generator);
+        Assert.assertEquals(3, generator.readKeys);
+      } finally {
+        execute("DROP TABLE OTHER2");
+      }
+    } finally {
+      execute("DROP TABLE SCHEMA_VERSION");
+      file.delete();
+    }
+  }
+
+  @Test
+  public void tableFilter() throws Exception {
+    GenerateJdbcModel generator = new GenerateJdbcModel()
+        .setSchemaFilter(GenerateJdbcModel.DEFAULT_SCHEMA)
+        .setTableFilter(new Predicate1<JdbcTable>() {
+          @Override
+          public boolean apply(JdbcTable table) {
+            return table.tableName.equals("A_B");
+          }
+        });
+    JdbcModel model = apply(new JdbcModelCache(), generator);
+    Assert.assertNull(model.findTable("PUBLIC", "AXB"));
+    Assert.assertNull(model.findTable("PUBLIC", "CHILD"));
+    // the underscore must not match AXB as a wildcard
+    JdbcTable table = model.getTable("PUBLIC", "A_B");
+    Assert.assertEquals(1, table.columns.size());
+    Assert.assertEquals(1, table.primaryKeys.size());
+  }
+
+  private static JdbcModel apply(final JdbcModelCache cache, final GenerateJdbcModel generator) {
+    return DB.execute(new ThrowingFunc1<Connection, JdbcModel>() {
+      @Override
+      public JdbcModel apply(Connection conn) throws Exception {
+        return cache.apply(conn, generator);
+      }
+    });
+  }
+
+  private static void execute(final String... statements) {
+    DB.execute(new ThrowingFunc1<Connection, Void>() {
+      @Override
+      public Void apply(Connection conn) throws Exception {
+        for (String statement : statements)
+          conn.createStatement().execute(statement);
+        return null;
+      }
+    });
+  }
+
+}
@@ -4,6 +4,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.ws.rs.core.Response.ResponseBuilder;
@@ -11,28 +12,44 @@ import javax.ws.rs.ext.RuntimeDelegate;
 
 import junit.framework.Assert;
 
+import org.core4j.Enumerable;
 import org.core4j.Func;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.odata4j.core.OComplexObject;
+import org.odata4j.core.ODataConstants;
 import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OProperties;
 import org.odata4j.core.OProperty;
+import org.odata4j.core.ORelatedEntitiesLinkInline;
+import org.odata4j.core.ORelatedEntityLinkInline;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.exceptions.BadRequestException;
 import org.odata4j.exceptions.NotFoundException;
 import org.odata4j.expression.BoolCommonExpression;
 import org.odata4j.expression.Expression;
+import org.odata4j.producer.AggregateQuery;
+import org.odata4j.producer.AggregationExtension;
+import org.odata4j.producer.BaseResponse;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.CollectionResponse;
 import org.odata4j.producer.EntitiesResponse;
 import org.odata4j.producer.EntityQueryInfo;
 import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.ODataContext;
+import org.odata4j.producer.ODataHeadersContext;
 import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.StreamingEntitiesResponse;
 import org.odata4j.producer.command.ProducerCommandContext;
 import org.odata4j.producer.jdbc.JdbcModelToMetadata;
 import org.odata4j.producer.jdbc.JdbcProducer;
 import org.odata4j.producer.jdbc.LoggingCommand;
+import org.odata4j.producer.resources.OptionsQueryParser;
 import org.odata4j.test.unit.Asserts;
 
 public class JdbcProducerTest {
@@ -125,6 +142,8 @@ public class JdbcProducerTest {
     Assert.assertEquals(CUSTOMER, entitiesResponse.getEntitySet().getName());
     Assert.assertEquals(1, entitiesResponse.getEntities().size());
     Assert.assertEquals("Customer One", entitiesResponse.getEntities().get(0).getProperty(CUSTOMER_NAME).getValue());
+    Assert.assertEquals(EdmSimpleType.INT32, entitiesResponse.getEntities().get(0).getProperty(CUSTOMER_ID).getType());
+    Assert.assertEquals(OEntityKey.create(1), entitiesResponse.getEntities().get(0).getEntityKey());
 
     // getEntities - name = 'Customer Two'
     filter = Expression.eq(Expression.simpleProperty(CUSTOMER_NAME), Expression.literal("Customer Two"));
@@ -185,6 +204,81 @@ public class JdbcProducerTest {
     Assert.assertEquals(CUSTOMER, entitiesResponse.getEntitySet().getName());
     Assert.assertEquals(2, entitiesResponse.getEntities().size());
 
+    // getEntities - any over the referencing rows, correlated by the foreign key
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerProduct/any(p: p/CustomerId eq 1)"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+    Assert.assertEquals("Customer One", entitiesResponse.getEntities().get(0).getProperty(CUSTOMER_NAME).getValue());
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerProduct/any()"));
+    Assert.assertEquals(2, entitiesResponse.getEntities().size());
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerProduct/any(p: p/ProductId eq 2)"));
+    Assert.assertEquals(0, entitiesResponse.getEntities().size());
+
+    // getEntities - any over the referenced row, nested lambdas and references to the outer entity
+    entitiesResponse = producer.getEntities(null, CUSTOMER_PRODUCT, filter("Customer/any(c: c/CustomerName eq 'Customer Two')"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+    Assert.assertEquals(2, entitiesResponse.getEntities().get(0).getProperty(CUSTOMER_ID).getValue());
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerId eq 2 and CustomerProduct/any(p: p/Product/any(q: q/ProductName eq 'Product One' and CustomerId eq 2))"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+
+    // getEntities - all
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerProduct/all(p: p/ProductId eq 1)"));
+    Assert.assertEquals(2, entitiesResponse.getEntities().size());
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerProduct/all(p: p/CustomerId eq 1)"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+
+    // getEntities - or
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerId eq 1 or CustomerId eq 2 and CustomerName eq 'Customer One'"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+    entitiesResponse = producer.getEntities(null, CUSTOMER, filter("CustomerName eq 'Customer Two' and (CustomerId eq 1 or CustomerId eq 2)"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+
+    // getNavProperty - to the referencing rows and to the referenced row
+    BaseResponse navResponse = producer.getNavProperty(null, CUSTOMER, OEntityKey.create(1), CUSTOMER_PRODUCT, null);
+    Assert.assertEquals(1, ((EntitiesResponse) navResponse).getEntities().size());
+    Assert.assertEquals(CUSTOMER_PRODUCT, ((EntitiesResponse) navResponse).getEntitySet().getName());
+    navResponse = producer.getNavProperty(null, CUSTOMER_PRODUCT, OEntityKey.create("CustomerId", 2, "ProductId", 1), CUSTOMER, null);
+    Assert.assertEquals("Customer Two", ((EntityResponse) navResponse).getEntity().getProperty(CUSTOMER_NAME).getValue());
+    navResponse = producer.getNavProperty(null, "Product", OEntityKey.create(1), CUSTOMER_PRODUCT, filter("CustomerId eq 2"));
+    Assert.assertEquals(1, ((EntitiesResponse) navResponse).getEntities().size());
+
+    // getEntities - expand a page, nested
+    QueryInfo expandQuery = QueryInfo.newBuilder().setExpand(OptionsQueryParser.parseExpand("CustomerProduct/Product")).build();
+    entitiesResponse = producer.getEntities(null, CUSTOMER, expandQuery);
+    Assert.assertEquals(2, entitiesResponse.getEntities().size());
+    for (OEntity customer : entitiesResponse.getEntities()) {
+      List<OEntity> customerProducts = customer.getLink(CUSTOMER_PRODUCT, ORelatedEntitiesLinkInline.class).getRelatedEntities();
+      Assert.assertEquals(1, customerProducts.size());
+      Assert.assertEquals(customer.getProperty(CUSTOMER_ID).getValue(), customerProducts.get(0).getProperty(CUSTOMER_ID).getValue());
+      OEntity product = customerProducts.get(0).getLink("Product", ORelatedEntityLinkInline.class).getRelatedEntity();
+      Assert.assertEquals("Product One", product.getProperty("ProductName").getValue());
+    }
+
+    // getEntity - expand the referenced row
+    entityResponse = producer.getEntity(null, CUSTOMER_PRODUCT, OEntityKey.create("CustomerId", 1, "ProductId", 1),
+        new EntityQueryInfo(null, null, OptionsQueryParser.parseExpand(CUSTOMER), null));
+    Assert.assertEquals("Customer One", entityResponse.getEntity().getLink(CUSTOMER, ORelatedEntityLinkInline.class).getRelatedEntity().getProperty(CUSTOMER_NAME).getValue());
+
+    // aggregate - grouped by product
+    AggregationExtension aggregation = producer.findExtension(AggregationExtension.class);
+    Assert.assertNotNull(aggregation);
+    CollectionResponse<OComplexObject> aggregateResponse = aggregation.aggregate(null, CUSTOMER_PRODUCT, null,
+        AggregateQuery.parse("ProductId", "count(), sum(CustomerId), avg(CustomerId), max(CustomerId)"));
+    List<OComplexObject> groups = Enumerable.create(aggregateResponse.getCollection()).toList();
+    Assert.assertEquals(1, groups.size());
+    Assert.assertEquals(1, groups.get(0).getProperty("ProductId").getValue());
+    Assert.assertEquals(2L, groups.get(0).getProperty("Count").getValue());
+    Assert.assertEquals(3L, groups.get(0).getProperty("SumCustomerId").getValue());
+    Assert.assertEquals(1.5d, groups.get(0).getProperty("AvgCustomerId").getValue());
+    Assert.assertEquals(2, groups.get(0).getProperty("MaxCustomerId").getValue());
+
+    // aggregate - filtered single group
+    filter = Expression.gt(Expression.simpleProperty(CUSTOMER_ID), Expression.literal(1));
+    aggregateResponse = aggregation.aggregate(null, CUSTOMER, QueryInfo.newBuilder().setFilter(filter).build(),
+        AggregateQuery.parse(null, "count()"));
+    groups = Enumerable.create(aggregateResponse.getCollection()).toList();
+    Assert.assertEquals(1, groups.size());
+    Assert.assertEquals(1L, groups.get(0).getProperty("Count").getValue());
+
     // createEntity - id = 3
     entityResponse = producer.createEntity(null, CUSTOMER, newCustomer(customerEntitySet, 3, "Customer Three"));
     Assert.assertNotNull(entityResponse);
@@ -201,10 +295,96 @@ public class JdbcProducerTest {
     Assert.assertEquals(CUSTOMER, entitiesResponse.getEntitySet().getName());
     Assert.assertEquals(2, entitiesResponse.getEntities().size());
 
+    // change set - batched inserts followed by a delete, in one transaction
+    ChangeSetExtension changeSets = producer.findExtension(ChangeSetExtension.class);
+    Assert.assertNotNull(changeSets);
+    ChangeSetExtension.ChangeSet changeSet = changeSets.newChangeSet(null);
+    changeSet.createEntity(null, CUSTOMER, newCustomer(customerEntitySet, 10, "Customer Ten"));
+    changeSet.createEntity(null, CUSTOMER, newCustomer(customerEntitySet, 11, "Customer Eleven"));
+    changeSet.createEntity(null, CUSTOMER, newCustomer(customerEntitySet, 12, "Customer Twelve"));
+    changeSet.deleteEntity(CUSTOMER, OEntityKey.create(11));
+    List<EntityResponse> changeSetResponses = changeSet.commit();
+    Assert.assertEquals(4, changeSetResponses.size());
+    Assert.assertEquals("Customer Eleven", changeSetResponses.get(1).getEntity().getProperty(CUSTOMER_NAME).getValue());
+    Assert.assertNull(changeSetResponses.get(3));
+    entitiesResponse = producer.getEntities(null, CUSTOMER, null);
+    Assert.assertEquals(4, entitiesResponse.getEntities().size());
+
+    // change set - a failing operation rolls back the whole change set
+    changeSet = changeSets.newChangeSet(null);
+    changeSet.createEntity(null, CUSTOMER, newCustomer(customerEntitySet, 20, "Customer Twenty"));
+    changeSet.deleteEntity(CUSTOMER, OEntityKey.create(99));
+    try {
+      changeSet.commit();
+      Assert.fail("Expected a BadRequestException");
+    } catch (BadRequestException e) {
+      // expected
+    }
+    Asserts.assertThrows(NotFoundException.class, getEntity(producer, CUSTOMER, OEntityKey.create(20), null));
+
+    changeSet = changeSets.newChangeSet(null);
+    changeSet.deleteEntity(CUSTOMER, OEntityKey.create(10));
+    changeSet.deleteEntity(CUSTOMER, OEntityKey.create(12));
+    changeSet.commit();
+    entitiesResponse = producer.getEntities(null, CUSTOMER, null);
+    Assert.assertEquals(2, entitiesResponse.getEntities().size());
+
+    // createEntity - the client prefers no content, only the key is returned
+    ODataContext noContent = mock(ODataContext.class);
+    ODataHeadersContext headers = mock(ODataHeadersContext.class);
+    when(noContent.getRequestHeadersContext()).thenReturn(headers);
+    when(headers.getRequestHeaderValues(ODataConstants.Headers.PREFER)).thenReturn(Arrays.asList("return=minimal"));
+    entityResponse = producer.createEntity(noContent, CUSTOMER, newCustomer(customerEntitySet, 30, "Customer Thirty"));
+    Assert.assertEquals(OEntityKey.create(30), entityResponse.getEntity().getEntityKey());
+    Assert.assertTrue(entityResponse.getEntity().getProperties().isEmpty());
+    Assert.assertEquals("Customer Thirty", producer.getEntity(null, CUSTOMER, OEntityKey.create(30), null).getEntity().getProperty(CUSTOMER_NAME).getValue());
+    producer.deleteEntity(null, CUSTOMER, OEntityKey.create(30));
+
+    // getEntities - streamed from a cursor
+    JdbcProducer streamingProducer = JdbcProducer.newBuilder()
+        .jdbc(JdbcTest.HSQL_DB)
+        .register(JdbcModelToMetadata.class, modelToMetadata)
+        .streaming(1)
+        .build();
+    entitiesResponse = streamingProducer.getEntities(null, CUSTOMER, null);
+    Assert.assertTrue(entitiesResponse instanceof StreamingEntitiesResponse);
+    StreamingEntitiesResponse streamingResponse = (StreamingEntitiesResponse) entitiesResponse;
+    Iterable<OEntity> streamed = streamingResponse.streamEntities();
+    List<String> names = new ArrayList<String>();
+    for (OEntity customer : streamed) {
+      names.add((String) customer.getProperty(CUSTOMER_NAME).getValue());
+      Assert.assertEquals(streamingResponse.getEntitySet().getType().getNavigationProperties().count(), customer.getLinks().size());
+    }
+    Assert.assertEquals(2, names.size());
+    Assert.assertTrue(names.contains("Customer Two"));
+    try {
+      streamed.iterator();
+      Assert.fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    // the list is read with a cursor of its own, also after streaming
+    Assert.assertEquals(2, entitiesResponse.getEntities().size());
+    streamingResponse.close();
+    // closing releases a cursor that has not been read to the end
+    streamingResponse = (StreamingEntitiesResponse) streamingProducer.getEntities(null, CUSTOMER, null);
+    Assert.assertTrue(streamingResponse.streamEntities().iterator().hasNext());
+    streamingResponse.close();
+    entitiesResponse = streamingProducer.getEntities(null, CUSTOMER, filter("CustomerId eq 1"));
+    Assert.assertEquals(1, entitiesResponse.getEntities().size());
+    Assert.assertEquals("Customer One", entitiesResponse.getEntities().get(0).getProperty(CUSTOMER_NAME).getValue());
+    entitiesResponse = streamingProducer.getEntities(null, CUSTOMER, expandQuery);
+    Assert.assertFalse(entitiesResponse instanceof StreamingEntitiesResponse);
+    streamingProducer.close();
+
     // close
     producer.close();
   }
 
+  private static QueryInfo filter(String filter) {
+    return QueryInfo.newBuilder().setFilter(OptionsQueryParser.parseFilter(filter)).build();
+  }
+
   private static OEntity newCustomer(EdmEntitySet entitySet, int id, String name) {
     List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
     properties.add(OProperties.int32(CUSTOMER_ID, id));
@@ -73,7 +73,7 @@ public class JdbcTest {
         conn.createStatement().execute("CREATE TABLE PRODUCT (PRODUCT_ID INTEGER NOT NULL, PRODUCT_NAME VARCHAR(25) NOT NULL, PRIMARY KEY (PRODUCT_ID))");
         conn.createStatement().execute("INSERT INTO PRODUCT (PRODUCT_ID, PRODUCT_NAME) VALUES (1, 'Product One')");
 
-        conn.createStatement().execute("CREATE TABLE CUSTOMER_PRODUCT (CUSTOMER_ID INTEGER NOT NULL, PRODUCT_ID INTEGER NOT NULL, PRIMARY KEY (CUSTOMER_ID, PRODUCT_ID))");
+        conn.createStatement().execute("CREATE TABLE CUSTOMER_PRODUCT (CUSTOMER_ID INTEGER NOT NULL, PRODUCT_ID INTEGER NOT NULL, PRIMARY KEY (CUSTOMER_ID, PRODUCT_ID), FOREIGN KEY (CUSTOMER_ID) REFERENCES CUSTOMER (CUSTOMER_ID), FOREIGN KEY (PRODUCT_ID) REFERENCES PRODUCT (PRODUCT_ID))");
         conn.createStatement().execute("INSERT INTO CUSTOMER_PRODUCT (CUSTOMER_ID, PRODUCT_ID) VALUES (1, 1)");
         conn.createStatement().execute("INSERT INTO CUSTOMER_PRODUCT (CUSTOMER_ID, PRODUCT_ID) VALUES (2, 1)");
         return null;
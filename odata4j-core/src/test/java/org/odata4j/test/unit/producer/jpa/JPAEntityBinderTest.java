@@ -0,0 +1,80 @@
+package org.odata4j.test.unit.producer.jpa;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import javax.persistence.metamodel.Type.PersistenceType;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.producer.jpa.JPAEntityBinder;
+
+public class JPAEntityBinderTest {
+
+  public static class Product {
+    private int id;
+    private String name;
+    private double price;
+  }
+
+  private static SingularAttribute<?, ?> attribute(String name) throws Exception {
+    SingularAttribute<?, ?> att = mock(SingularAttribute.class);
+    when(att.getName()).thenReturn(name);
+    when(att.getPersistentAttributeType()).thenReturn(PersistentAttributeType.BASIC);
+    when(att.getJavaMember()).thenReturn(Product.class.getDeclaredField(name));
+    return att;
+  }
+
+  @Test
+  public void newEntity() throws Exception {
+    Type<?> idType = mock(Type.class);
+    when(idType.getPersistenceType()).thenReturn(PersistenceType.BASIC);
+    EntityType<?> entityType = mock(EntityType.class);
+    doReturn(Product.class).when(entityType).getJavaType();
+    doReturn(idType).when(entityType).getIdType();
+    Set<SingularAttribute<?, ?>> attributes = new LinkedHashSet<SingularAttribute<?, ?>>(
+        Arrays.asList(attribute("id"), attribute("name"), attribute("price")));
+    doReturn(attributes).when(entityType).getAttributes();
+    doReturn(Collections.emptySet()).when(entityType).getSingularAttributes();
+
+    JPAEntityBinder binder = JPAEntityBinder.compile(entityType);
+    Product product = (Product) binder.newEntity(null, OEntities.createRequest(
+        EdmEntitySet.newBuilder()
+            .setName("Products")
+            .setEntityType(EdmEntityType.newBuilder().setNamespace("ns").setName("Product").addKeys("id"))
+            .build(),
+        Arrays.<OProperty<?>> asList(
+            OProperties.int64("id", 1L),
+            OProperties.string("name", "one"),
+            OProperties.decimal("price", 2.5)),
+        Collections.<OLink> emptyList()), false);
+    Assert.assertEquals(1, product.id);
+    Assert.assertEquals("one", product.name);
+    Assert.assertEquals(2.5, product.price);
+
+    // values are converted to the types of the attributes, null included
+    binder.applyProperties(Arrays.<OProperty<?>> asList(
+        OProperties.string("name", null),
+        OProperties.int32("price", 3)), product);
+    Assert.assertNull(product.name);
+    Assert.assertEquals(3.0, product.price);
+  }
+
+}
@@ -0,0 +1,79 @@
+package org.odata4j.test.unit.producer.jpa;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+import org.odata4j.producer.jpa.JPAProjection;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class JPAProjectionTest {
+
+  private static SingularAttribute<?, ?> attribute(String name, boolean isId) {
+    SingularAttribute<?, ?> att = mock(SingularAttribute.class);
+    when(att.getName()).thenReturn(name);
+    when(att.isId()).thenReturn(isId);
+    when(att.getPersistentAttributeType()).thenReturn(PersistentAttributeType.BASIC);
+    return att;
+  }
+
+  @Test
+  public void projection() {
+    EdmEntitySet entitySet = EdmEntitySet.newBuilder()
+        .setName("Products")
+        .setEntityType(EdmEntityType.newBuilder()
+            .setNamespace("ns")
+            .setName("Product")
+            .addKeys("Id")
+            .addProperties(
+                EdmProperty.newBuilder("Id").setType(EdmSimpleType.INT32),
+                EdmProperty.newBuilder("Name").setType(EdmSimpleType.STRING),
+                EdmProperty.newBuilder("Price").setType(EdmSimpleType.DOUBLE)))
+        .build();
+
+    SingularAttribute<?, ?> id = attribute("Id", true);
+    EntityType<?> entityType = mock(EntityType.class);
+    doReturn(Collections.singleton(id)).when(entityType).getSingularAttributes();
+    doReturn(id).when(entityType).getAttribute("Id");
+    doReturn(attribute("Name", false)).when(entityType).getAttribute("Name");
+    doReturn(attribute("Price", false)).when(entityType).getAttribute("Price");
+
+    JPAProjection projection = JPAProjection.create(entitySet, entityType);
+    Assert.assertEquals("t0.Id, t0.Name, t0.Price", projection.getSelectClause("t0"));
+    OEntity entity = projection.toOEntity(new Object[] { 1, "one", 2.5 }, null);
+    Assert.assertEquals(OEntityKey.create(1), entity.getEntityKey());
+    Assert.assertEquals("one", entity.getProperty("Name").getValue());
+    Assert.assertEquals(2.5, entity.getProperty("Price").getValue());
+
+    // the key is queried, but not returned, if it is not selected
+    projection = projection.select(OptionsQueryParser.parseSelect("Price"));
+    Assert.assertEquals("t0.Id, t0.Price", projection.getSelectClause("t0"));
+    entity = projection.toOEntity(new Object[] { 2, 3.5 }, OptionsQueryParser.parseSelect("Price"));
+    Assert.assertEquals(OEntityKey.create(2), entity.getEntityKey());
+    Assert.assertEquals(1, entity.getProperties().size());
+    Assert.assertEquals(3.5, entity.getProperty("Price").getValue());
+
+    // relationships as properties cannot be projected
+    doReturn(Collections.singleton(id)).when(entityType).getSingularAttributes();
+    SingularAttribute<?, ?> price = attribute("Price", false);
+    when(price.getPersistentAttributeType()).thenReturn(PersistentAttributeType.MANY_TO_ONE);
+    doReturn(price).when(entityType).getAttribute("Price");
+    Assert.assertNull(JPAProjection.create(entitySet, entityType));
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.odata4j.test.unit.producer.jpa;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.producer.jpa.JPQLGenerator;
+import org.odata4j.producer.resources.OptionsQueryParser;
+
+public class JPQLGeneratorTest {
+
+  @Test
+  public void inlineLiterals() {
+    JPQLGenerator generator = new JPQLGenerator("Id", "t0");
+    Assert.assertEquals("t0.Name = 'a' AND t0.Id > 2", generator.toJpql(OptionsQueryParser.parseFilter("Name eq 'a' and Id gt 2")));
+  }
+
+  @Test
+  public void parameterizedLiterals() {
+    List<Object> parameters = new ArrayList<Object>();
+    parameters.add("key");
+    JPQLGenerator generator = new JPQLGenerator("Id", "t0", parameters, entityType());
+    Assert.assertEquals("t0.Name = ?2 AND ?3 < t0.Id", generator.toJpql(OptionsQueryParser.parseFilter("Name eq 'a' and 2L lt Id")));
+    // converted to the type of the attribute
+    Assert.assertEquals(Arrays.<Object> asList("key", "a", 2), parameters);
+
+    // queries differing in literals only have the same text
+    parameters.clear();
+    Assert.assertEquals("t0.Name = ?1 OR t0.Name IS NULL", generator.toJpql(OptionsQueryParser.parseFilter("Name eq 'b' or Name eq null")));
+    Assert.assertEquals(Arrays.<Object> asList("b"), parameters);
+
+    // literals not compared with attributes stay inline
+    parameters.clear();
+    Assert.assertEquals("LENGTH(t0.Name) = 3", generator.toJpql(OptionsQueryParser.parseFilter("length(Name) eq 3")));
+    Assert.assertEquals("1 = 1", generator.toJpql(OptionsQueryParser.parseFilter("1 eq 1")));
+    Assert.assertEquals(0, parameters.size());
+  }
+
+  @Test
+  public void parametersHaveTheTypeOfTheAttribute() {
+    List<Object> parameters = new ArrayList<Object>();
+    JPQLGenerator generator = new JPQLGenerator("Id", "t0", parameters, entityType());
+
+    Assert.assertEquals("t0.Price > ?1 AND t0.Price < ?2", generator.toJpql(OptionsQueryParser.parseFilter("Price gt 5 and Price lt 7.5d")));
+    Assert.assertEquals(Arrays.<Object> asList(new BigDecimal(5), new BigDecimal("7.5")), parameters);
+
+    // literals that do not fit the attribute, and attributes of unknown type, stay inline
+    parameters.clear();
+    Assert.assertEquals("t0.Id > 2.5 AND t0.Id < 3000000000L AND t0.Other = 1",
+        generator.toJpql(OptionsQueryParser.parseFilter("Id gt 2.5d and Id lt 3000000000L and Other eq 1")));
+    Assert.assertEquals(0, parameters.size());
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static ManagedType<?> entityType() {
+    ManagedType entityType = mock(ManagedType.class);
+    String[] names = { "Id", "Name", "Price" };
+    Class<?>[] types = { int.class, String.class, BigDecimal.class };
+    for (int i = 0; i < names.length; i++) {
+      Attribute attribute = mock(Attribute.class);
+      when(attribute.getJavaType()).thenReturn(types[i]);
+      when(entityType.getAttribute(names[i])).thenReturn(attribute);
+    }
+    when(entityType.getAttribute("Other")).thenThrow(new IllegalArgumentException());
+    return entityType;
+  }
+
+}
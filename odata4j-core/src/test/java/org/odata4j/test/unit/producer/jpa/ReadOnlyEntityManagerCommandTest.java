@@ -0,0 +1,105 @@
+package org.odata4j.test.unit.producer.jpa;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.odata4j.producer.jpa.JPAContext;
+import org.odata4j.producer.jpa.ReadOnlyEntityManagerCommand;
+
+public class ReadOnlyEntityManagerCommandTest {
+
+  @Test
+  public void entityManagerIsReused() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    EntityManager em1 = mock(EntityManager.class);
+    EntityManager em2 = mock(EntityManager.class);
+    when(emf.createEntityManager()).thenReturn(em1, em2);
+    when(em1.isOpen()).thenReturn(true);
+    when(em2.isOpen()).thenReturn(true);
+
+    ReadOnlyEntityManagerCommand command = new ReadOnlyEntityManagerCommand(emf, true);
+    Assert.assertFalse(command.getFindHints().containsKey(ReadOnlyEntityManagerCommand.ECLIPSELINK_QUERY_RESULTS_CACHE));
+    Assert.assertTrue(command.getQueryHints().containsKey(ReadOnlyEntityManagerCommand.ECLIPSELINK_QUERY_RESULTS_CACHE));
+
+    JPAContext context = new JPAContext(null, "Products", null);
+    command.execute(context);
+    Assert.assertSame(em1, context.getEntityManager());
+    Assert.assertSame(command.getQueryHints(), context.getQueryHints());
+    command.postProcess(context, null);
+    Assert.assertNull(context.getEntityManager());
+    verify(em1).setFlushMode(FlushModeType.COMMIT);
+    verify(em1).clear();
+
+    // cleared and reused after a successful request
+    command.execute(context);
+    Assert.assertSame(em1, context.getEntityManager());
+
+    // closed and replaced after a failed one
+    command.postProcess(context, new RuntimeException());
+    verify(em1).close();
+    command.execute(context);
+    Assert.assertSame(em2, context.getEntityManager());
+    command.postProcess(context, null);
+    verify(emf, times(2)).createEntityManager();
+  }
+
+  @Test
+  public void entityManagersAreClosed() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    EntityManager idle = mock(EntityManager.class);
+    EntityManager busy = mock(EntityManager.class);
+    EntityManager fresh = mock(EntityManager.class);
+    when(emf.createEntityManager()).thenReturn(idle, busy, fresh);
+    when(idle.isOpen()).thenReturn(true);
+    when(busy.isOpen()).thenReturn(true);
+    when(fresh.isOpen()).thenReturn(true);
+
+    final ReadOnlyEntityManagerCommand command = new ReadOnlyEntityManagerCommand(emf);
+    JPAContext context = new JPAContext(null, "Products", null);
+    command.execute(context);
+    command.postProcess(context, null);
+
+    // a request of another thread is running while the command is closed
+    final JPAContext busyContext = new JPAContext(null, "Products", null);
+    runInOtherThread(new Runnable() {
+      @Override
+      public void run() {
+        command.execute(busyContext);
+      }
+    });
+    Assert.assertSame(busy, busyContext.getEntityManager());
+
+    command.close();
+    verify(idle).close();
+    verify(busy, never()).close();
+    command.postProcess(busyContext, null);
+    verify(busy).close();
+
+    // later requests get an EntityManager of their own
+    command.execute(context);
+    Assert.assertSame(fresh, context.getEntityManager());
+    command.postProcess(context, null);
+    verify(fresh).close();
+  }
+
+  private static void runInOtherThread(Runnable runnable) {
+    Thread thread = new Thread(runnable);
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
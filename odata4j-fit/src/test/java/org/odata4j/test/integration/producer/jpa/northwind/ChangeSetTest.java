@@ -0,0 +1,123 @@
+package org.odata4j.test.integration.producer.jpa.northwind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.examples.producer.jpa.DatabaseUtils;
+import org.odata4j.examples.producer.jpa.JPAProvider;
+import org.odata4j.exceptions.NotFoundException;
+import org.odata4j.producer.ChangeSetExtension;
+import org.odata4j.producer.EntityResponse;
+import org.odata4j.producer.jpa.JPAProducer;
+
+public class ChangeSetTest {
+
+  private EntityManagerFactory emf;
+  private JPAProducer producer;
+
+  @Before
+  public void setUp() {
+    emf = Persistence.createEntityManagerFactory("NorthwindService" + JPAProvider.JPA_PROVIDER.caption);
+    producer = new JPAProducer(emf, "Northwind", 20);
+    DatabaseUtils.fillDatabase("northwind", "/META-INF/northwind_insert.sql");
+  }
+
+  @After
+  public void tearDown() {
+    producer.close();
+    emf.close();
+  }
+
+  @Test
+  public void extensionIsCreatedOnce() {
+    Assert.assertSame(producer.findExtension(ChangeSetExtension.class), producer.findExtension(ChangeSetExtension.class));
+  }
+
+  @Test
+  public void changeSetRollsBackAsAWhole() {
+    ChangeSetExtension.ChangeSet changeSet = producer.findExtension(ChangeSetExtension.class).newChangeSet(null);
+    changeSet.createEntity(null, "Customers", newCustomer("NEWCO"));
+    changeSet.deleteEntity("Customers", OEntityKey.create("ANATR"));
+    changeSet.deleteEntity("Customers", OEntityKey.create("NOSUCH"));
+    try {
+      changeSet.commit();
+      Assert.fail("Expected NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+
+    assertCustomer("NEWCO", false);
+    assertCustomer("ANATR", true);
+    Assert.assertTrue(countOrders("ANATR") > 0);
+  }
+
+  @Test
+  public void changeSetCreatesAndDeletes() {
+    Assert.assertTrue(countOrders("ANATR") > 0);
+
+    ChangeSetExtension.ChangeSet changeSet = producer.findExtension(ChangeSetExtension.class).newChangeSet(null);
+    changeSet.createEntity(null, "Customers", newCustomer("NEWCO"));
+    changeSet.deleteEntity("Customers", OEntityKey.create("ANATR"));
+    List<EntityResponse> responses = changeSet.commit();
+
+    Assert.assertEquals("NEWCO", responses.get(0).getEntity().getEntityKey().asSingleValue());
+    Assert.assertNull(responses.get(1));
+    assertCustomer("NEWCO", true);
+    assertCustomer("ANATR", false);
+    // the orders of the customer are removed by the cascade of its relationship
+    Assert.assertEquals(0, countOrders("ANATR"));
+  }
+
+  @Test
+  public void deleteEntityWithRelationships() {
+    Assert.assertTrue(countOrders("ALFKI") > 0);
+
+    producer.deleteEntity(null, "Customers", OEntityKey.create("ALFKI"));
+
+    assertCustomer("ALFKI", false);
+    Assert.assertEquals(0, countOrders("ALFKI"));
+  }
+
+  private OEntity newCustomer(String customerID) {
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
+    properties.add(OProperties.string("CustomerID", customerID));
+    properties.add(OProperties.string("CompanyName", "New Company"));
+    return OEntities.createRequest(producer.getMetadata().getEdmEntitySet("Customers"), properties, new ArrayList<OLink>());
+  }
+
+  private void assertCustomer(String customerID, boolean exists) {
+    try {
+      producer.getEntity(null, "Customers", OEntityKey.create(customerID), null);
+      Assert.assertTrue(customerID + " not deleted", exists);
+    } catch (NotFoundException e) {
+      Assert.assertFalse(customerID + " not found", exists);
+    }
+  }
+
+  private long countOrders(String customerID) {
+    EntityManager em = emf.createEntityManager();
+    try {
+      return (Long) em.createQuery("SELECT COUNT(o) FROM Orders o WHERE o.Customer.CustomerID = :customerID")
+          .setParameter("customerID", customerID)
+          .getSingleResult();
+    } finally {
+      em.close();
+    }
+  }
+
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -196,6 +197,47 @@ public class ContextTest extends AbstractJettyHttpClientTest {
     assertContext(headers);
   }
 
+  @Test
+  public void testUpdateEntityPreferNoContent() throws IOException, Exception {
+
+    doNothing().when(producer).updateEntity(any(ODataContext.class), eq("Directories"), any(OEntity.class));
+    Map<String, List<String>> headers = getHeaders();
+    headers.put(Headers.PREFER, Collections.singletonList("return-no-content"));
+    ContentExchange exchange = sendRequestWithHeaders(BASE_URI + "Directories('MyDir')", headers, "PUT", "{ \"DirProp1\" : \"prop1value\" }");
+
+    verify(producer).updateEntity(context.capture(), eq("Directories"), any(OEntity.class));
+    assertEquals(204, exchange.getResponseStatus());
+    assertEquals("return-no-content", exchange.getResponseFields().getStringField(Headers.PREFERENCE_APPLIED));
+
+    assertContext(headers);
+  }
+
+  @Test
+  public void testBatchMergeEntityPreferNoContent() throws IOException, Exception {
+
+    doNothing().when(producer).mergeEntity(any(ODataContext.class), eq("Directories"), any(OEntity.class));
+    Map<String, List<String>> headers = getHeaders();
+    headers.put("Content-Type", Collections.singletonList("multipart/mixed; boundary=batch_1"));
+    String entity = "{ \"DirProp1\" : \"prop1value\" }";
+    String payload = "--batch_1\r\n"
+        + "Content-Type: application/http\r\n"
+        + "\r\n"
+        + "MERGE Directories('MyDir') HTTP/1.1\r\n"
+        + "Prefer: return-no-content\r\n"
+        + "Content-Type: application/json\r\n"
+        + "Content-Length: " + (entity.length() + 2) + "\r\n"
+        + "\r\n"
+        + entity + "\r\n"
+        + "--batch_1--\r\n";
+    ContentExchange exchange = sendRequestWithHeaders(BASE_URI + "Directories/$batch", headers, "POST", payload);
+
+    // the context of the part has the headers of the part
+    verify(producer).mergeEntity(context.capture(), eq("Directories"), any(OEntity.class));
+    assertEquals(202, exchange.getResponseStatus());
+    assertTrue(exchange.getResponseContent().contains("HTTP/1.1 204"));
+    assertEquals("return-no-content", context.getValue().getRequestHeadersContext().getRequestHeaderValue(Headers.PREFER));
+  }
+
   @Test
   public void testGetLinks() throws IOException, Exception {
 